@@ -0,0 +1,47 @@
+package com.msgilligan.bitcoinj.cli;
+
+import org.apache.commons.cli.Option;
+
+/**
+ * Command-line options for `cj-bitcoin-cli`: the {@link CliOptions}, output format and the options of its `bench` and
+ * `batch` modes
+ */
+public class BitcoinCLIOptions extends CliOptions {
+    private static final long serialVersionUID = 1L;
+
+    public BitcoinCLIOptions() {
+        super();
+        this.addOption(null, "compact", false, "Print JSON results on one line instead of pretty-printed")
+            .addOption(Option.builder().longOpt("concurrency")
+                    .desc("bench: Number of concurrent calls (default: 1)")
+                    .hasArg()
+                    .argName("n")
+                    .build())
+            .addOption(Option.builder().longOpt("rate")
+                    .desc("bench: Calls per second (default: as fast as the server answers)")
+                    .hasArg()
+                    .argName("calls")
+                    .build())
+            .addOption(Option.builder().longOpt("duration")
+                    .desc("bench: Time to measure, e.g. 60s, 500ms or 2m (default: 10s)")
+                    .hasArg()
+                    .argName("time")
+                    .build())
+            .addOption(Option.builder().longOpt("warmup")
+                    .desc("bench: Time to call the method before measuring (default: 0)")
+                    .hasArg()
+                    .argName("time")
+                    .build())
+            .addOption(Option.builder().longOpt("parallel")
+                    .desc("batch: Number of requests in flight (default: 1)")
+                    .hasArg()
+                    .argName("n")
+                    .build())
+            .addOption(Option.builder().longOpt("batch-size")
+                    .desc("batch: Number of commands per JSON-RPC batch request (default: 1)")
+                    .hasArg()
+                    .argName("n")
+                    .build());
+    }
+
+}
@@ -1,10 +1,24 @@
 package com.msgilligan.bitcoinj.cli;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.msgilligan.bitcoinj.rpc.bench.BenchmarkResult;
+import com.msgilligan.bitcoinj.rpc.bench.RpcBenchmark;
 import org.consensusj.jsonrpc.JsonRPCException;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * An attempt at cloning the bitcoin-cli tool, but using Java and bitcoinj
@@ -12,9 +26,11 @@ import java.util.List;
  */
 public class BitcoinCLITool extends CliCommand {
     public final static String commandName = "cj-bitcoin-cli";
+    public final static String usage = commandName + " [options] <method> [params] | bench <method> [params] | batch [file]";
+    private static final Pattern durationPattern = Pattern.compile("(\\d+)(ms|s|m|h)?");
 
     public BitcoinCLITool(String[] args) {
-        super(commandName, new CliOptions(), args);
+        super(commandName, usage, new BitcoinCLIOptions(), args);
     }
 
     /**
@@ -22,7 +38,9 @@ public class BitcoinCLITool extends CliCommand {
      *
      * See {@link CliOptions} for options and https://bitcoin.org/en/developer-reference#bitcoin-core-apis[Bitcoin Core JSON-RPC API]
      * for the methods and parameters. Users can use `-?` to get general help or `help <command>` to get help
-     * on a specific command.
+     * on a specific command. `bench <method> [params]` calls the method repeatedly and prints its throughput
+     * and latency percentiles (see {@link #runBench(List)}). `batch [file]` runs commands read from the file
+     * or standard input (see {@link #runBatch(List)}).
      *
      * @param args options, JSON-RPC method, JSON-RPC parameters
      */
@@ -41,20 +59,151 @@ public class BitcoinCLITool extends CliCommand {
         }
         String method = args.get(0);
         args.remove(0); // remove method from list
+        if (method.equals("bench")) {
+            return runBench(args);
+        }
+        if (method.equals("batch")) {
+            return runBatch(args);
+        }
         List<Object> typedArgs = convertParameters(method, args);
-        Object result;
+        // Stream the result from the response to the output, so large results don't have to fit in memory
+        JsonGenerator generator = new ResultGenerator(new JsonFactory().createGenerator(pwout));
+        if (!line.hasOption("compact")) {
+            generator.useDefaultPrettyPrinter();
+        }
+        boolean written;
         try {
-            result = client.send(method, typedArgs);
+            written = client.sendAndCopyResult(method, typedArgs, generator);
         } catch (JsonRPCException e) {
             e.printStackTrace();
             return 1;
         }
-        if (result != null) {
-            pwout.println(result.toString());
+        generator.flush();
+        if (written) {
+            pwout.println();
         }
         return 0;
     }
 
+    /**
+     * Benchmark a JSON-RPC method, e.g. `cj-bitcoin-cli -concurrency 32 -duration 60s bench getblockhash 100`
+     *
+     * The `concurrency`, `rate`, `duration` and `warmup` options configure the {@link RpcBenchmark}.
+     *
+     * @param args JSON-RPC method and parameters
+     * @return status code, `1` if the options are invalid or all calls failed
+     */
+    protected Integer runBench(List<String> args) {
+        if (args.size() == 0) {
+            printError("bench: rpc method required");
+            return 1;
+        }
+        String method = args.remove(0);
+        RpcBenchmark bench = new RpcBenchmark(client, method, convertParameters(method, args));
+        try {
+            bench.setConcurrency(Integer.parseInt(line.getOptionValue("concurrency", "1")));
+            bench.setTargetRate(Double.parseDouble(line.getOptionValue("rate", "0")));
+            bench.setDuration(parseDuration(line.getOptionValue("duration", "10s")).toNanos(), TimeUnit.NANOSECONDS);
+            bench.setWarmup(parseDuration(line.getOptionValue("warmup", "0")).toNanos(), TimeUnit.NANOSECONDS);
+        } catch (IllegalArgumentException e) {
+            printError("bench: " + e.getMessage());
+            return 1;
+        }
+        BenchmarkResult result;
+        try {
+            result = bench.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        pwout.println(result);
+        return (result.getCalls() > 0 && result.getFailed() == result.getCalls()) ? 1 : 0;
+    }
+
+    /**
+     * Run many commands over one client, e.g. `cj-bitcoin-cli -parallel 4 -batch-size 100 batch commands.txt`
+     *
+     * Commands are read from the file, or standard input if there is none (or it is `-`), and the results written
+     * one line per command in order, see {@link CommandBatch}. The `parallel` and `batch-size` options configure it.
+     *
+     * @param args Optional file name
+     * @return status code, `1` if any command failed
+     * @throws IOException if reading the commands fails or a request can't be sent
+     */
+    protected Integer runBatch(List<String> args) throws IOException {
+        CommandBatch batch = new CommandBatch(client, this::convertParameters);
+        try {
+            batch.setParallelism(Integer.parseInt(line.getOptionValue("parallel", "1")));
+            batch.setBatchSize(Integer.parseInt(line.getOptionValue("batch-size", "1")));
+        } catch (IllegalArgumentException e) {
+            printError("batch: " + e.getMessage());
+            return 1;
+        }
+        String file = (args.size() > 0) ? args.get(0) : "-";
+        int failed;
+        try (BufferedReader reader = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            failed = batch.run(reader, pwout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        return (failed > 0) ? 1 : 0;
+    }
+
+    /**
+     * Parse a duration option
+     *
+     * @param duration A number with an optional unit: `ms`, `s` (the default), `m` or `h`
+     * @return The duration
+     */
+    static Duration parseDuration(String duration) {
+        Matcher matcher = durationPattern.matcher(duration.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("invalid duration: " + duration);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        String unit = matcher.group(2) != null ? matcher.group(2) : "s";
+        switch (unit) {
+            case "ms":
+                return Duration.ofMillis(amount);
+            case "m":
+                return Duration.ofMinutes(amount);
+            case "h":
+                return Duration.ofHours(amount);
+            default:
+                return Duration.ofSeconds(amount);
+        }
+    }
+
+    /**
+     * Writes a result that is a string without quotes (like `bitcoin-cli`), other results as JSON
+     */
+    private static class ResultGenerator extends JsonGeneratorDelegate {
+        ResultGenerator(JsonGenerator generator) {
+            super(generator, false);    // Copy through this generator, to see the strings
+        }
+
+        @Override
+        public void writeString(String text) throws IOException {
+            if (getOutputContext().inRoot()) {
+                writeRaw(text);
+            } else {
+                super.writeString(text);
+            }
+        }
+
+        @Override
+        public void writeString(char[] text, int offset, int len) throws IOException {
+            if (getOutputContext().inRoot()) {
+                writeRaw(text, offset, len);
+            } else {
+                super.writeString(text, offset, len);
+            }
+        }
+    }
+
     /**
      * Convert params from strings to Java types that will map to correct JSON types
      *
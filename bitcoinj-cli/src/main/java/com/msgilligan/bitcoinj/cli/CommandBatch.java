@@ -0,0 +1,247 @@
+package com.msgilligan.bitcoinj.cli;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.consensusj.jsonrpc.AbstractRPCClient;
+import org.consensusj.jsonrpc.JsonRPCStatusException;
+import org.consensusj.jsonrpc.JsonRpcError;
+import org.consensusj.jsonrpc.JsonRpcRequest;
+import org.consensusj.jsonrpc.JsonRpcResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * = Runs many JSON-RPC commands over one client (`cj-bitcoin-cli batch`)
+ *
+ * Commands are read one per line, either like on the command line (`getblockhash 100`, parameters are converted
+ * like those of a single command) or as JSON (`{"method": "getblockhash", "params": [100]}` or
+ * `["getblockhash", 100]`, parameters keep their JSON types). Blank lines and lines starting with `#` are skipped.
+ *
+ * Commands are sent in groups of {@link #setBatchSize(int) batch size} (a group of more than one command is one
+ * JSON-RPC batch request), with up to {@link #setParallelism(int) parallelism} groups in flight. The output has one
+ * line per command in input order: the result (strings unquoted, other values as JSON) or `error: <code> <message>`.
+ * Input is read and output written as the groups complete, so memory use doesn't depend on the number of commands.
+ */
+public class CommandBatch {
+    private final AbstractRPCClient client;
+    private final BiFunction<String, List<String>, List<Object>> parameterConverter;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private int parallelism = 1;
+    private int batchSize = 1;
+
+    /**
+     * @param client Client to send the commands with
+     * @param parameterConverter Converts the string parameters of a method in a command line to JSON types
+     */
+    public CommandBatch(AbstractRPCClient client, BiFunction<String, List<String>, List<Object>> parameterConverter) {
+        this.client = client;
+        this.parameterConverter = parameterConverter;
+    }
+
+    /**
+     * @param parallelism Maximum number of requests in flight (default 1)
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallel must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param batchSize Number of commands per JSON-RPC batch, `1` (the default) sends single requests
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch-size must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Run all commands read from `input`
+     *
+     * @param input Commands, one per line
+     * @param output Destination of the results, one line per command
+     * @return Number of commands that failed
+     * @throws IOException if reading the commands fails or a request can't be sent
+     * @throws InterruptedException if interrupted while waiting for results
+     */
+    public int run(BufferedReader input, PrintWriter output) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        ArrayDeque<Future<List<Output>>> inFlight = new ArrayDeque<>();
+        int failed = 0;
+        try {
+            List<Command> group = new ArrayList<>(batchSize);
+            String line;
+            while ((line = input.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                group.add(parse(line));
+                if (group.size() == batchSize) {
+                    List<Command> commands = group;
+                    inFlight.add(executor.submit(() -> execute(commands)));
+                    group = new ArrayList<>(batchSize);
+                    if (inFlight.size() > parallelism) {
+                        failed += print(inFlight.poll(), output);
+                    }
+                }
+            }
+            if (!group.isEmpty()) {
+                List<Command> commands = group;
+                inFlight.add(executor.submit(() -> execute(commands)));
+            }
+            while (!inFlight.isEmpty()) {
+                failed += print(inFlight.poll(), output);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return failed;
+    }
+
+    private int print(Future<List<Output>> results, PrintWriter output) throws IOException, InterruptedException {
+        List<Output> outputs;
+        try {
+            outputs = results.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        int failed = 0;
+        for (Output result : outputs) {
+            output.println(result.text);
+            if (result.failed) {
+                failed++;
+            }
+        }
+        output.flush();
+        return failed;
+    }
+
+    private List<Output> execute(List<Command> commands) throws IOException {
+        List<Output> outputs = new ArrayList<>(commands.size());
+        if (commands.size() == 1) {
+            Command command = commands.get(0);
+            if (command.request == null) {
+                outputs.add(Output.error(command.error));
+            } else {
+                try {
+                    Object result = client.send(command.request.getMethod(), command.request.getParams());
+                    outputs.add(Output.result(format(result)));
+                } catch (JsonRPCStatusException e) {
+                    outputs.add(Output.error(e.jsonRPCCode + " " + e.getMessage()));
+                }
+            }
+            return outputs;
+        }
+        List<JsonRpcRequest> requests = new ArrayList<>(commands.size());
+        for (Command command : commands) {
+            if (command.request != null) {
+                requests.add(command.request);
+            }
+        }
+        Iterator<JsonRpcResponse<Object>> responses = client.sendBatch(requests).iterator();
+        for (Command command : commands) {
+            if (command.request == null) {
+                outputs.add(Output.error(command.error));
+                continue;
+            }
+            JsonRpcResponse<Object> response = responses.next();
+            JsonRpcError error = response.getError();
+            if (error != null && error.getCode() != 0) {
+                outputs.add(Output.error(error.getCode() + " " + error.getMessage()));
+            } else {
+                outputs.add(Output.result(format(response.getResult())));
+            }
+        }
+        return outputs;
+    }
+
+    private String format(Object result) throws JsonProcessingException {
+        return (result instanceof String) ? (String) result : mapper.writeValueAsString(result);
+    }
+
+    /**
+     * Parse a command line
+     */
+    Command parse(String line) {
+        if (line.startsWith("{") || line.startsWith("[")) {
+            JsonNode json;
+            try {
+                json = mapper.readTree(line);
+            } catch (IOException e) {
+                return Command.invalid("invalid JSON: " + line);
+            }
+            JsonNode method = json.isArray() ? json.path(0) : json.path("method");
+            if (!method.isTextual()) {
+                return Command.invalid("method required: " + line);
+            }
+            List<Object> params = new ArrayList<>();
+            Iterator<JsonNode> elements = json.isArray() ? json.elements() : json.path("params").elements();
+            if (json.isArray()) {
+                elements.next();    // skip method
+            }
+            while (elements.hasNext()) {
+                params.add(mapper.convertValue(elements.next(), Object.class));
+            }
+            return new Command(new JsonRpcRequest(method.asText(), params));
+        }
+        List<String> words = new ArrayList<>(Arrays.asList(line.split("\\s+")));
+        String method = words.remove(0);
+        return new Command(new JsonRpcRequest(method, parameterConverter.apply(method, words)));
+    }
+
+    static class Command {
+        final JsonRpcRequest request;
+        final String error;
+
+        Command(JsonRpcRequest request) {
+            this(request, null);
+        }
+
+        private Command(JsonRpcRequest request, String error) {
+            this.request = request;
+            this.error = error;
+        }
+
+        static Command invalid(String error) {
+            return new Command(null, error);
+        }
+    }
+
+    private static class Output {
+        final String text;
+        final boolean failed;
+
+        private Output(String text, boolean failed) {
+            this.text = text;
+            this.failed = failed;
+        }
+
+        static Output result(String text) {
+            return new Output(text, false);
+        }
+
+        static Output error(String message) {
+            return new Output("error: " + message, true);
+        }
+    }
+}
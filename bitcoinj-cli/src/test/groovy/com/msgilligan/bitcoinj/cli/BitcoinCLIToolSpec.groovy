@@ -0,0 +1,122 @@
+package com.msgilligan.bitcoinj.cli
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonFactory
+import com.msgilligan.bitcoinj.rpc.BitcoinClient
+import com.msgilligan.bitcoinj.test.CLITestSupport
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.Duration
+
+/**
+ * Spock Spec for BitcoinCLITool using a mock client
+ */
+class BitcoinCLIToolSpec extends Specification implements CLITestSupport {
+
+    @Unroll
+    def "result #json is printed as #expected with options '#options'"() {
+        given:
+        BitcoinClient client = Mock()
+        def tool = new BitcoinCLITool(parseCommandLine("-regtest ${options}getrawmempool true".trim()))
+        tool.setClient(client)
+
+        when:
+        def result = runCommand(tool)
+
+        then:
+        1 * client.sendAndCopyResult("getrawmempool", ["true"], _) >> { String method, List params, JsonGenerator generator ->
+            JsonParser parser = new JsonFactory().createParser(json)
+            parser.nextToken()
+            generator.copyCurrentStructure(parser)
+            true
+        }
+        result.status == 0
+        result.output == expected + System.lineSeparator()
+
+        where:
+        json              | options     | expected
+        '{"a":[1,"b"]}'   | "-compact " | '{"a":[1,"b"]}'
+        '{"a":[1,"b"]}'   | ""          | '{\n  "a" : [ 1, "b" ]\n}'
+        '"00ff"'          | ""          | '00ff'
+        '101'             | "-compact " | '101'
+    }
+
+    def "null result prints nothing"() {
+        given:
+        BitcoinClient client = Mock()
+        def tool = new BitcoinCLITool(parseCommandLine("-regtest setgenerate true"))
+        tool.setClient(client)
+
+        when:
+        def result = runCommand(tool)
+
+        then:
+        1 * client.sendAndCopyResult("setgenerate", [true], _) >> false
+        result.status == 0
+        result.output == ""
+    }
+
+    def "bench calls the method and prints throughput and percentiles"() {
+        given:
+        BitcoinClient client = Mock()
+        def tool = new BitcoinCLITool(parseCommandLine("-regtest bench getblockhash 100 --concurrency 2 --duration 200ms"))
+        tool.setClient(client)
+
+        when:
+        def result = runCommand(tool)
+
+        then:
+        (1.._) * client.send("getblockhash", ["100"]) >> "hash"
+        result.status == 0
+        result.output.startsWith("getblockhash: ")
+        result.output.contains("with concurrency 2 in 0.2")
+        result.output.contains("p99=")
+    }
+
+    def "bench fails with invalid options"() {
+        given:
+        def tool = new BitcoinCLITool(parseCommandLine("bench getblockcount -duration forever"))
+        tool.setClient(Mock(BitcoinClient))
+
+        when:
+        def result = runCommand(tool)
+
+        then:
+        result.status == 1
+        result.output.trim() == "bench: invalid duration: forever"
+    }
+
+    def "batch runs commands from standard input"() {
+        given:
+        BitcoinClient client = Mock()
+        def tool = new BitcoinCLITool(parseCommandLine("-regtest -parallel 2 batch"))
+        tool.setClient(client)
+        def input = new ByteArrayInputStream("getblockcount\ngetblockhash 0\n".getBytes("UTF-8"))
+        def output = new ByteArrayOutputStream()
+
+        when:
+        def status = tool.run(input, new PrintStream(output), new PrintStream(new ByteArrayOutputStream()))
+
+        then:
+        1 * client.send("getblockcount", []) >> 101
+        1 * client.send("getblockhash", ["0"]) >> "0f9188f1"
+        status == 0
+        output.toString("UTF-8").readLines() == ["101", "0f9188f1"]
+    }
+
+    @Unroll
+    def "duration #string is #expected"() {
+        expect:
+        BitcoinCLITool.parseDuration(string) == expected
+
+        where:
+        string  | expected
+        "60"    | Duration.ofSeconds(60)
+        "60s"   | Duration.ofSeconds(60)
+        "500ms" | Duration.ofMillis(500)
+        "2m"    | Duration.ofMinutes(2)
+        "1h"    | Duration.ofHours(1)
+    }
+}
@@ -0,0 +1,95 @@
+package com.msgilligan.bitcoinj.cli
+
+import com.msgilligan.bitcoinj.rpc.BitcoinClient
+import org.consensusj.jsonrpc.JsonRPCStatusException
+import org.consensusj.jsonrpc.JsonRpcError
+import org.consensusj.jsonrpc.JsonRpcRequest
+import org.consensusj.jsonrpc.JsonRpcResponse
+import spock.lang.Specification
+
+/**
+ * Spock Spec for CommandBatch using a mock client
+ */
+class CommandBatchSpec extends Specification {
+    BitcoinClient client = Mock()
+    def batch = new CommandBatch(client, { String method, List<String> params -> params as List<Object> })
+
+    def "command lines and JSON commands are parsed"() {
+        expect:
+        request(batch.parse(line)) == expected
+
+        where:
+        line                                             | expected
+        "getblockcount"                                  | ["getblockcount", []]
+        "getblockhash   100"                             | ["getblockhash", ["100"]]
+        '{"method": "getblockhash", "params": [100]}'    | ["getblockhash", [100]]
+        '{"method": "getblockcount"}'                    | ["getblockcount", []]
+        '["getblock", "00ff", true]'                     | ["getblock", ["00ff", true]]
+    }
+
+    def "invalid JSON commands are errors"() {
+        expect:
+        batch.parse(line).error == error
+
+        where:
+        line                 | error
+        '{"method": 1}'      | 'method required: {"method": 1}'
+        '["getblockcount"'   | 'invalid JSON: ["getblockcount"'
+    }
+
+    def "single requests are sent in parallel and results printed in order"() {
+        given:
+        batch.parallelism = 4
+        def input = (1..20).collect { "getblockhash $it" }.join("\n")
+        def output = new StringWriter()
+
+        when:
+        def failed = batch.run(new BufferedReader(new StringReader("# comment\n\n" + input)), new PrintWriter(output))
+
+        then:
+        20 * client.send("getblockhash", _) >> { String method, List<Object> params ->
+            Thread.sleep(new Random().nextInt(5))
+            if (params[0] == "13") {
+                throw new JsonRPCStatusException("Block height out of range", 500, null, -8, null, null)
+            }
+            "hash${params[0]}".toString()
+        }
+        failed == 1
+        output.toString().readLines() == (1..20).collect { it == 13 ? "error: -8 Block height out of range" : "hash$it" }
+    }
+
+    def "commands are grouped in JSON-RPC batches"() {
+        given:
+        batch.batchSize = 2
+        def input = '["getblockcount"]\n["getblock"\n{"method": "getblockchaininfo"}\ngetbestblockhash\ngetmempoolinfo'
+        def output = new StringWriter()
+
+        when:
+        def failed = batch.run(new BufferedReader(new StringReader(input)), new PrintWriter(output))
+
+        then: "the invalid command is skipped in the first batch"
+        1 * client.sendBatch({ it*.method == ["getblockcount"] }) >> [response(101)]
+        1 * client.sendBatch({ it*.method == ["getblockchaininfo", "getbestblockhash"] }) >>
+                [response([chain: "regtest"]), error(-1, "failed")]
+        1 * client.send("getmempoolinfo", []) >> [size: 0]
+        failed == 2
+        output.toString().readLines() == ['101', 'error: invalid JSON: ["getblock"', '{"chain":"regtest"}', 'error: -1 failed',
+                                          '{"size":0}']
+    }
+
+    private static List request(CommandBatch.Command command) {
+        return [command.request.method, command.request.params]
+    }
+
+    private static JsonRpcResponse<Object> response(Object result) {
+        def response = new JsonRpcResponse<Object>()
+        response.result = result
+        return response
+    }
+
+    private static JsonRpcResponse<Object> error(int code, String message) {
+        def response = new JsonRpcResponse<Object>()
+        response.error = new JsonRpcError(code: code, message: message)
+        return response
+    }
+}
@@ -1,8 +1,11 @@
 package com.msgilligan.bitcoinj.daemon.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.googlecode.jsonrpc4j.spring.JsonServiceExporter;
+import com.msgilligan.bitcoinj.json.conversion.BinaryWireFormat;
 import com.msgilligan.bitcoinj.rpcserver.BitcoinJsonRpc;
 import com.msgilligan.bitcoinj.json.conversion.RpcServerModule;
+import com.msgilligan.bitcoinj.spring.rpc.SmileJsonServiceExporter;
 import com.msgilligan.bitcoinj.spring.service.PeerGroupService;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.net.discovery.DnsDiscovery;
@@ -44,7 +47,8 @@ public class BitcoinConfig {
 
     @Bean(name="/")
     public JsonServiceExporter bitcoinServiceExporter(PeerGroupService peerGroupService) {
-        JsonServiceExporter exporter = new JsonServiceExporter();
+        SmileJsonServiceExporter exporter = new SmileJsonServiceExporter();
+        exporter.setSmileObjectMapper(new ObjectMapper(BinaryWireFormat.newSmileFactory()).registerModule(bitcoinJMapper()));
         exporter.setService(peerGroupService);
         exporter.setServiceInterface(BitcoinJsonRpc.class);
         exporter.setBackwardsComaptible(true);
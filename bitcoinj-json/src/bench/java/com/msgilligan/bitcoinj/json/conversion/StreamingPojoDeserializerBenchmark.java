@@ -0,0 +1,117 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo;
+import com.msgilligan.bitcoinj.json.pojo.RawTransactionInfo;
+import com.msgilligan.bitcoinj.json.pojo.TxOutInfo;
+import com.msgilligan.bitcoinj.json.pojo.UnspentOutput;
+import com.msgilligan.bitcoinj.json.pojo.WalletTransactionInfo;
+import org.bitcoinj.params.MainNetParams;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * = Benchmark of the streaming POJO deserializers against the reflective (`@JsonCreator`) path
+ *
+ * Reads the same JSON documents (shaped like Bitcoin Core results) with a mapper that has only
+ * {@link RpcClientModule} and one that also has {@link RpcClientPojoModule}, and prints the median and best
+ * nanoseconds per read over a number of rounds.
+ *
+ * Run with `./gradlew :bitcoinj-json:benchmark` or, with explicit round and iteration counts,
+ * `./gradlew :bitcoinj-json:benchmark -PbenchmarkArgs="10 100000"`.
+ */
+public class StreamingPojoDeserializerBenchmark {
+    private static final String hash1 = "0000000000000000000000000000000000000000000000000000000000000001";
+    private static final String hash2 = "0000000000000000000000000000000000000000000000000000000000000002";
+    private static final String address = "1BvBMSEYstWetqTFn5Au4m4GFg7xJaNVN2";
+
+    private static final String blockJson = "{" +
+            "\"hash\": \"" + hash2 + "\", \"confirmations\": 3, \"size\": 285, \"height\": 42, \"version\": 536870912, " +
+            "\"merkleroot\": \"" + hash1 + "\", \"tx\": [\"" + hash1 + "\", \"" + hash2 + "\"], \"time\": 1500000000, " +
+            "\"nonce\": 2083236893, \"bits\": \"1d00ffff\", \"difficulty\": 1.5, " +
+            "\"chainwork\": \"0000000000000000000000000000000000000000000000000000000100010001\", " +
+            "\"previousblockhash\": \"" + hash1 + "\"}";
+
+    private static final String rawTxJson = "{" +
+            "\"hex\": \"0100\", \"txid\": \"" + hash1 + "\", \"version\": 1, \"locktime\": 0, " +
+            "\"vin\": [{\"txid\": \"" + hash2 + "\", \"vout\": 1, \"scriptSig\": {\"asm\": \"\", \"hex\": \"\"}, \"sequence\": 4294967295}], " +
+            "\"vout\": [{\"value\": 0.5, \"n\": 0, \"scriptPubKey\": {\"hex\": \"76a9\", \"addresses\": [\"" + address + "\"]}}], " +
+            "\"blockhash\": \"" + hash2 + "\", \"confirmations\": 6, \"time\": 1500000000, \"blocktime\": 1500000001}";
+
+    private static final String unspentJson = "{" +
+            "\"txid\": \"" + hash1 + "\", \"vout\": 2, \"address\": \"" + address + "\", \"account\": \"\", " +
+            "\"scriptPubKey\": \"76a9\", \"amount\": 1.25, \"confirmations\": 7, \"spendable\": true, \"solvable\": true}";
+
+    private static final String txOutJson = "{" +
+            "\"bestblock\": \"" + hash2 + "\", \"confirmations\": 1, \"value\": 50.0, " +
+            "\"scriptPubKey\": {\"hex\": \"76a9\", \"type\": \"pubkeyhash\"}, \"version\": 1, \"coinbase\": true}";
+
+    private static final String walletTxJson = "{" +
+            "\"amount\": -0.1, \"fee\": -0.0001, \"confirmations\": 2, \"blockhash\": \"" + hash2 + "\", \"blockindex\": 1, " +
+            "\"blocktime\": 1500000000, \"txid\": \"" + hash1 + "\", \"walletconflicts\": [], \"time\": 1500000000, " +
+            "\"timereceived\": 1500000002, \"bip125-replaceable\": \"no\", " +
+            "\"details\": [{\"account\": \"\", \"address\": \"" + address + "\", \"category\": \"send\", " +
+            "\"amount\": -0.1, \"vout\": 0, \"fee\": -0.0001}], \"hex\": \"0100\"}";
+
+    private static int sink;    // Keeps the JIT from dropping the reads
+
+    /**
+     * @param args Optional number of measured rounds (default 10) and reads per round (default 100000)
+     * @throws IOException if a document can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 100_000;
+
+        ObjectMapper reflectiveMapper = new ObjectMapper();
+        reflectiveMapper.registerModule(new RpcClientModule(MainNetParams.get()));
+        ObjectMapper streamingMapper = new ObjectMapper();
+        streamingMapper.registerModule(new RpcClientModule(MainNetParams.get()));
+        streamingMapper.registerModule(new RpcClientPojoModule());
+
+        System.out.printf("%d rounds of %d reads, ns/read (median / best)%n", rounds, iterations);
+        System.out.printf("%-22s %21s %21s %8s%n", "", "reflective", "streaming", "speedup");
+        run("BlockInfo", BlockInfo.class, blockJson, reflectiveMapper, streamingMapper, rounds, iterations);
+        run("RawTransactionInfo", RawTransactionInfo.class, rawTxJson, reflectiveMapper, streamingMapper, rounds, iterations);
+        run("UnspentOutput", UnspentOutput.class, unspentJson, reflectiveMapper, streamingMapper, rounds, iterations);
+        run("TxOutInfo", TxOutInfo.class, txOutJson, reflectiveMapper, streamingMapper, rounds, iterations);
+        run("WalletTransactionInfo", WalletTransactionInfo.class, walletTxJson, reflectiveMapper, streamingMapper, rounds, iterations);
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void run(String name, Class<?> type, String json, ObjectMapper reflectiveMapper,
+                            ObjectMapper streamingMapper, int rounds, int iterations) throws IOException {
+        ObjectReader reflective = reflectiveMapper.readerFor(type);
+        ObjectReader streaming = streamingMapper.readerFor(type);
+        // Warm up both paths before measuring either
+        time(reflective, json, iterations);
+        time(streaming, json, iterations);
+        long[] reflectiveNanos = new long[rounds];
+        long[] streamingNanos = new long[rounds];
+        for (int round = 0; round < rounds; round++) {
+            // Alternate the paths so drift (e.g. CPU frequency) affects both alike
+            reflectiveNanos[round] = time(reflective, json, iterations);
+            streamingNanos[round] = time(streaming, json, iterations);
+        }
+        Arrays.sort(reflectiveNanos);
+        Arrays.sort(streamingNanos);
+        double reflectiveMedian = (double) reflectiveNanos[rounds / 2] / iterations;
+        double streamingMedian = (double) streamingNanos[rounds / 2] / iterations;
+        System.out.printf("%-22s %10.0f / %8.0f %10.0f / %8.0f %7.2fx%n", name,
+                reflectiveMedian, (double) reflectiveNanos[0] / iterations,
+                streamingMedian, (double) streamingNanos[0] / iterations,
+                reflectiveMedian / streamingMedian);
+    }
+
+    private static long time(ObjectReader reader, String json, int iterations) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += reader.readValue(json).hashCode();
+        }
+        return System.nanoTime() - start;
+    }
+}
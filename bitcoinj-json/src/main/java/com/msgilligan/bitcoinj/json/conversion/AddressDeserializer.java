@@ -14,13 +14,23 @@ import org.bitcoinj.core.Sha256Hash;
 import java.io.IOException;
 
 /**
- *
+ * Deserialize a Base58 Address, optionally returning previously decoded instances from an {@link InterningCache}
  */
 public class AddressDeserializer extends JsonDeserializer<Address> {
     private NetworkParameters netParams;
+    private final InterningCache<Address> cache;
 
     public AddressDeserializer(NetworkParameters netParams) {
+        this(netParams, null);
+    }
+
+    /**
+     * @param netParams Network parameters, `null` means use default list of netParams
+     * @param cache Cache of decoded addresses or `null` for none
+     */
+    public AddressDeserializer(NetworkParameters netParams, InterningCache<Address> cache) {
         this.netParams = netParams;
+        this.cache = cache;
     }
 
     @Override
@@ -28,11 +38,20 @@ public class AddressDeserializer extends JsonDeserializer<Address> {
         JsonToken token = p.getCurrentToken();
         switch (token) {
             case VALUE_STRING:
+                String base58 = p.getValueAsString();
+                Address address = (cache != null) ? cache.get(base58) : null;
+                if (address != null) {
+                    return address;
+                }
                 try {
-                    return Address.fromBase58(netParams, p.getValueAsString());
+                    address = Address.fromBase58(netParams, base58);
                 } catch (AddressFormatException e) {
                     throw new InvalidFormatException(p, "Invalid Address", p.getValueAsString(), Address.class);
                 }
+                if (cache != null) {
+                    cache.put(base58, address);
+                }
+                return address;
             default:
                 return (Address) ctxt.handleUnexpectedToken(Address.class, p);
         }
@@ -0,0 +1,72 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * = Binary (Smile) wire format for consensusj-to-consensusj connections
+ *
+ * bitcoind and third-party clients only speak JSON, so a consensusj client advertises Smile
+ * in the HTTP `Accept` header and a consensusj server answers in Smile only when asked to.
+ * The `Content-Type` of each message tells the receiver which format to parse.
+ *
+ * With a Smile generator the serializers in this package write `Sha256Hash` and `Transaction`
+ * values as raw bytes instead of hex strings, and the deserializers (including `Block`) accept both.
+ */
+public final class BinaryWireFormat {
+    /**
+     * Media type for Jackson Smile
+     */
+    public static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
+
+    /**
+     * `Accept` header value for a client that prefers Smile but also accepts JSON
+     */
+    public static final String ACCEPT_SMILE_OR_JSON = SMILE_MEDIA_TYPE + ", application/json;q=0.9";
+
+    private BinaryWireFormat() {
+    }
+
+    /**
+     * Create a Smile factory that writes binary values as raw (not 7-bit encoded) bytes.
+     * The Smile header tells readers which encoding is used.
+     *
+     * @return A new Smile factory, e.g. for `ObjectReader.with(JsonFactory)` or `new ObjectMapper(JsonFactory)`
+     */
+    public static SmileFactory newSmileFactory() {
+        return new SmileFactory().disable(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT);
+    }
+
+    /**
+     * Should a serializer write raw bytes rather than a hex string?
+     *
+     * `TokenBuffer` (used by `valueToTree` and `convertValue`) claims native binary support, but
+     * what it buffers may later be written as JSON text, so it gets hex strings. A server therefore has to
+     * serialize results straight to the Smile generator to get raw bytes, like
+     * {@link com.msgilligan.bitcoinj.rpcserver.SmileRpcDispatcher} does.
+     *
+     * @param gen the generator passed to a serializer
+     * @return `true` if `gen` writes a binary format
+     */
+    public static boolean writesRawBytes(JsonGenerator gen) {
+        return gen.canWriteBinaryNatively() && !(gen instanceof TokenBuffer);
+    }
+
+    /**
+     * @param contentType value of a `Content-Type` header (may be `null`)
+     * @return `true` if the body is Smile
+     */
+    public static boolean isSmile(String contentType) {
+        return contentType != null && contentType.trim().toLowerCase().startsWith(SMILE_MEDIA_TYPE);
+    }
+
+    /**
+     * @param accept value of an `Accept` header (may be `null`)
+     * @return `true` if the caller accepts Smile
+     */
+    public static boolean acceptsSmile(String accept) {
+        return accept != null && accept.toLowerCase().contains(SMILE_MEDIA_TYPE);
+    }
+}
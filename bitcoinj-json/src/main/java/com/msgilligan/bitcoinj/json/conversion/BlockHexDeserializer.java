@@ -14,7 +14,7 @@ import org.bitcoinj.core.ProtocolException;
 import java.io.IOException;
 
 /**
- *
+ * Deserialize a Block from a hex string or from raw bytes (binary formats, see {@link BinaryWireFormat})
  */
 public class BlockHexDeserializer extends JsonDeserializer<Block> {
     private final Context context;
@@ -34,6 +34,12 @@ public class BlockHexDeserializer extends JsonDeserializer<Block> {
                 } catch (ProtocolException e) {
                     throw new InvalidFormatException(p, "Invalid Block", p.getValueAsString(), Block.class);
                 }
+            case VALUE_EMBEDDED_OBJECT:
+                try {
+                    return context.getParams().getDefaultSerializer().makeBlock(p.getBinaryValue());
+                } catch (ProtocolException e) {
+                    throw new InvalidFormatException(p, "Invalid Block", null, Block.class);
+                }
             default:
                 return (Block) ctxt.handleUnexpectedToken(Block.class, p);
         }
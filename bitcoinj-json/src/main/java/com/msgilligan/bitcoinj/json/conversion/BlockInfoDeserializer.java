@@ -0,0 +1,70 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Streaming (non-reflective) deserializer for {@link BlockInfo}
+ */
+public class BlockInfoDeserializer extends StreamingPojoDeserializer<BlockInfo, BlockInfoDeserializer.State> {
+    private static final long serialVersionUID = 1L;
+
+    public BlockInfoDeserializer() {
+        super(BlockInfo.class);
+    }
+
+    static class State {
+        Sha256Hash hash;
+        int confirmations;
+        int size;
+        int height;
+        int version;
+        Sha256Hash merkleroot;
+        BlockInfo.Sha256HashList tx;
+        int time;
+        int nonce;
+        String bits;
+        BigDecimal difficulty;
+        String chainwork;
+        Sha256Hash previousblockhash;
+        Sha256Hash nextblockhash;
+    }
+
+    @Override
+    protected State createState() {
+        return new State();
+    }
+
+    @Override
+    protected boolean readField(State s, String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (name) {
+            case "hash":                s.hash = readHash(p, ctxt); break;
+            case "confirmations":       s.confirmations = readInt(p, ctxt); break;
+            case "size":                s.size = readInt(p, ctxt); break;
+            case "height":              s.height = readInt(p, ctxt); break;
+            case "version":             s.version = readInt(p, ctxt); break;
+            case "merkleroot":          s.merkleroot = readHash(p, ctxt); break;
+            case "tx":                  s.tx = readHashList(p, ctxt, new BlockInfo.Sha256HashList()); break;
+            case "time":                s.time = readInt(p, ctxt); break;
+            case "nonce":               s.nonce = (int) readLong(p, ctxt); break;  // nonce is unsigned 32-bit
+            case "bits":                s.bits = readString(p); break;
+            case "difficulty":          s.difficulty = isNull(p) ? null : p.getDecimalValue(); break;
+            case "chainwork":           s.chainwork = readString(p); break;
+            case "previousblockhash":   s.previousblockhash = readHash(p, ctxt); break;
+            case "nextblockhash":       s.nextblockhash = readHash(p, ctxt); break;
+            default:                    return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected BlockInfo build(State s) {
+        return new BlockInfo(s.hash, s.confirmations, s.size, s.height, s.version, s.merkleroot, s.tx,
+                s.time, s.nonce, s.bits, s.difficulty, s.chainwork, s.previousblockhash, s.nextblockhash);
+    }
+}
@@ -0,0 +1,52 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of JSON field names to bind for a POJO type
+ *
+ * When passed as a per-call attribute (keyed by `FieldProjection.class`) to an `ObjectReader`
+ * the {@link ProjectingDeserializer} will only bind the listed fields of objects of the projected type
+ * and skip all other fields (e.g. the `tx` list in `getblock` results) without building them.
+ * Constructor parameters for skipped fields get their default values (`null`, `0`, `false`).
+ */
+public class FieldProjection {
+    private final Class<?> type;
+    private final Set<String> fields;
+
+    public FieldProjection(Class<?> type, Collection<String> fields) {
+        this.type = type;
+        this.fields = Collections.unmodifiableSet(new HashSet<>(fields));
+    }
+
+    /**
+     * Convenience factory method
+     *
+     * @param type POJO type to project
+     * @param fields JSON field names to bind
+     * @return A projection of `type` to `fields`
+     */
+    public static FieldProjection of(Class<?> type, String... fields) {
+        return new FieldProjection(type, Arrays.asList(fields));
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    public boolean appliesTo(Class<?> beanClass) {
+        return type.equals(beanClass);
+    }
+
+    public boolean includes(String fieldName) {
+        return fields.contains(fieldName);
+    }
+}
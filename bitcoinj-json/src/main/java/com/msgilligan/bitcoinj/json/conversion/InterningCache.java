@@ -0,0 +1,71 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free cache of values decoded from strings (e.g. Base58 addresses, hex hashes)
+ *
+ * Each string hashes to a single slot, so a newer entry simply replaces an older one that collides.
+ * This bounds memory and keeps lookups to one array read and one `String.equals`,
+ * which is all that's needed to return the same instance for strings that repeat
+ * within large JSON-RPC results (e.g. `listunspent`).
+ *
+ * Thread-safe, one instance can be shared by all the deserializers of a mapper module.
+ *
+ * @param <V> Type of the decoded (immutable) values
+ */
+public class InterningCache<V> {
+    private final AtomicReferenceArray<Entry<V>> slots;
+    private final int mask;
+
+    /**
+     * @param maxSize Maximum number of entries, rounded up to a power of two
+     */
+    public InterningCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, maxSize - 1)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * @param key String that was decoded
+     * @return the previously decoded value or `null`
+     */
+    public V get(String key) {
+        Entry<V> entry = slots.get(slot(key));
+        return (entry != null && entry.key.equals(key)) ? entry.value : null;
+    }
+
+    /**
+     * @param key String that was decoded
+     * @param value Value decoded from `key`
+     */
+    public void put(String key, V value) {
+        slots.set(slot(key), new Entry<>(key, value));
+    }
+
+    /**
+     * @return Number of slots
+     */
+    public int capacity() {
+        return slots.length();
+    }
+
+    private int slot(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static final class Entry<V> {
+        final String key;
+        final V value;
+
+        Entry(String key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+
+/**
+ * Bean deserializer wrapper that honors a {@link FieldProjection} passed as a per-call attribute.
+ *
+ * If no projection is set (or it is for another type) deserialization is passed straight through
+ * to the wrapped bean deserializer. Otherwise only the projected fields are buffered and bound,
+ * the values of all other fields are skipped with {@link JsonParser#skipChildren()}.
+ */
+public class ProjectingDeserializer extends DelegatingDeserializer {
+    private static final long serialVersionUID = 1L;
+    private final Class<?> beanClass;
+
+    public ProjectingDeserializer(Class<?> beanClass, JsonDeserializer<?> delegatee) {
+        super(delegatee);
+        this.beanClass = beanClass;
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+        return new ProjectingDeserializer(beanClass, newDelegatee);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        FieldProjection projection = (FieldProjection) ctxt.getAttribute(FieldProjection.class);
+        if (projection == null || !projection.appliesTo(beanClass) || p.getCurrentToken() != JsonToken.START_OBJECT) {
+            return _delegatee.deserialize(p, ctxt);
+        }
+        TokenBuffer projected = new TokenBuffer(p, ctxt);
+        projected.writeStartObject();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            p.nextToken();  // move to value
+            if (projection.includes(name)) {
+                projected.writeFieldName(name);
+                projected.copyCurrentStructure(p);
+            } else {
+                p.skipChildren();   // no-op for scalars
+            }
+        }
+        projected.writeEndObject();
+        JsonParser projectedParser = projected.asParser(p);
+        projectedParser.nextToken();    // position on START_OBJECT
+        return _delegatee.deserialize(projectedParser, ctxt);
+    }
+}
@@ -0,0 +1,21 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBase;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+
+/**
+ * Wraps POJO bean deserializers with a {@link ProjectingDeserializer} so
+ * that callers can request a {@link FieldProjection}.
+ */
+public class ProjectingDeserializerModifier extends BeanDeserializerModifier {
+    @Override
+    public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+        if (deserializer instanceof BeanDeserializerBase) {
+            return new ProjectingDeserializer(beanDesc.getBeanClass(), deserializer);
+        }
+        return deserializer;
+    }
+}
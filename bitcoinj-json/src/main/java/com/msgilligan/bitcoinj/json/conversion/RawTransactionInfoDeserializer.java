@@ -0,0 +1,113 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.msgilligan.bitcoinj.json.pojo.RawTransactionInfo;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.IOException;
+
+/**
+ * Streaming (non-reflective) deserializer for {@link RawTransactionInfo}
+ */
+public class RawTransactionInfoDeserializer extends StreamingPojoDeserializer<RawTransactionInfo, RawTransactionInfoDeserializer.State> {
+    private static final long serialVersionUID = 1L;
+
+    public RawTransactionInfoDeserializer() {
+        super(RawTransactionInfo.class);
+    }
+
+    static class State {
+        String hex;
+        Sha256Hash txid;
+        long version;
+        long locktime;
+        RawTransactionInfo.VinList vin;
+        RawTransactionInfo.VoutList vout;
+        Sha256Hash blockhash;
+        int confirmations;
+        long time;
+        long blocktime;
+    }
+
+    @Override
+    protected State createState() {
+        return new State();
+    }
+
+    @Override
+    protected boolean readField(State s, String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (name) {
+            case "hex":             s.hex = readString(p); break;
+            case "txid":            s.txid = readHash(p, ctxt); break;
+            case "version":         s.version = readLong(p, ctxt); break;
+            case "locktime":        s.locktime = readLong(p, ctxt); break;
+            case "vin":             s.vin = readVinList(p, ctxt); break;
+            case "vout":            s.vout = readVoutList(p, ctxt); break;
+            case "blockhash":       s.blockhash = readHash(p, ctxt); break;
+            case "confirmations":   s.confirmations = readInt(p, ctxt); break;
+            case "time":            s.time = readLong(p, ctxt); break;
+            case "blocktime":       s.blocktime = readLong(p, ctxt); break;
+            default:                return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected RawTransactionInfo build(State s) {
+        return new RawTransactionInfo(s.hex, s.txid, s.version, s.locktime, s.vin, s.vout,
+                s.blockhash, s.confirmations, s.time, s.blocktime);
+    }
+
+    private RawTransactionInfo.VinList readVinList(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (isNull(p)) {
+            return null;
+        }
+        RawTransactionInfo.VinList list = new RawTransactionInfo.VinList();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            Sha256Hash txid = null;
+            long vout = 0;
+            Object scriptSig = null;
+            long sequence = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                switch (name) {
+                    case "txid":        txid = readHash(p, ctxt); break;
+                    case "vout":        vout = readLong(p, ctxt); break;
+                    case "scriptSig":   scriptSig = readUntyped(p, ctxt); break;
+                    case "sequence":    sequence = readLong(p, ctxt); break;
+                    default:            p.skipChildren();
+                }
+            }
+            list.add(new RawTransactionInfo.Vin(txid, vout, scriptSig, sequence));
+        }
+        return list;
+    }
+
+    private RawTransactionInfo.VoutList readVoutList(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (isNull(p)) {
+            return null;
+        }
+        RawTransactionInfo.VoutList list = new RawTransactionInfo.VoutList();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            Coin value = null;
+            int n = 0;
+            Object scriptPubKey = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                switch (name) {
+                    case "value":           value = readCoin(p, ctxt); break;
+                    case "n":               n = readInt(p, ctxt); break;
+                    case "scriptPubKey":    scriptPubKey = readUntyped(p, ctxt); break;
+                    default:                p.skipChildren();
+                }
+            }
+            list.add(new RawTransactionInfo.Vout(value, n, scriptPubKey));
+        }
+        return list;
+    }
+}
@@ -15,17 +15,31 @@ import org.bitcoinj.core.Transaction;
  */
 public class RpcClientModule extends SimpleModule {
     public RpcClientModule(NetworkParameters netParams) {
+        this(netParams, 0);
+    }
+
+    /**
+     * Construct a module whose `Address` and `Sha256Hash` deserializers share an {@link InterningCache}
+     * per type, so strings that repeat in large results (e.g. `listunspent`) are decoded once.
+     *
+     * @param netParams Network parameters for addresses
+     * @param internCacheSize Maximum entries in each cache, `0` for no caching
+     */
+    public RpcClientModule(NetworkParameters netParams, int internCacheSize) {
         super("BitcoinJMappingClient", new Version(1, 0, 0, null, null, null));
+        InterningCache<Address> addressCache = (internCacheSize > 0) ? new InterningCache<Address>(internCacheSize) : null;
+        InterningCache<Sha256Hash> hashCache = (internCacheSize > 0) ? new InterningCache<Sha256Hash>(internCacheSize) : null;
 
-        this.addDeserializer(Address.class, new AddressDeserializer(netParams))
+        this.addDeserializer(Address.class, new AddressDeserializer(netParams, addressCache))
             .addDeserializer(Block.class, new BlockHexDeserializer(netParams))
             .addDeserializer(Coin.class, new CoinDeserializer())
             .addDeserializer(ECKey.class, new ECKeyDeserializer())
-            .addDeserializer(Sha256Hash.class, new Sha256HashDeserializer())
+            .addDeserializer(Sha256Hash.class, new Sha256HashDeserializer(hashCache))
             .addSerializer(Address.class, new AddressSerializer())
             .addSerializer(Coin.class, new CoinSerializer())
             .addSerializer(ECKey.class, new ECKeySerializer())
             .addSerializer(Sha256Hash.class, new Sha256HashSerializer())
-            .addSerializer(Transaction.class, new TransactionHexSerializer());
+            .addSerializer(Transaction.class, new TransactionHexSerializer())
+            .setDeserializerModifier(new ProjectingDeserializerModifier());
     }
 }
@@ -0,0 +1,31 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo;
+import com.msgilligan.bitcoinj.json.pojo.RawTransactionInfo;
+import com.msgilligan.bitcoinj.json.pojo.TxOutInfo;
+import com.msgilligan.bitcoinj.json.pojo.UnspentOutput;
+import com.msgilligan.bitcoinj.json.pojo.WalletTransactionInfo;
+
+/**
+ * Streaming (non-reflective) deserializers for the most frequently used POJOs
+ *
+ * Register alongside {@link RpcClientModule}, which provides the deserializers for the bitcoinj types
+ * these deserializers use. Not registered by default: the deserializers duplicate the `@JsonCreator` binding
+ * of the POJOs and must be updated when a property is added (`StreamingPojoDeserializerSpec` checks that
+ * every creator property is read).
+ */
+public class RpcClientPojoModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    public RpcClientPojoModule() {
+        super("BitcoinJPojoClient", new Version(1, 0, 0, null, null, null));
+
+        this.addDeserializer(BlockInfo.class, new BlockInfoDeserializer())
+            .addDeserializer(RawTransactionInfo.class, new RawTransactionInfoDeserializer())
+            .addDeserializer(TxOutInfo.class, new TxOutInfoDeserializer())
+            .addDeserializer(UnspentOutput.class, new UnspentOutputDeserializer())
+            .addDeserializer(WalletTransactionInfo.class, new WalletTransactionInfoDeserializer());
+    }
+}
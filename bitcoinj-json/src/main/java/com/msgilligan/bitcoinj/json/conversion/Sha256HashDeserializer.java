@@ -12,15 +12,40 @@ import java.io.IOException;
 import java.math.BigDecimal;
 
 /**
- *
+ * Deserialize a Sha256Hash from a hex string or from raw bytes (binary formats, see {@link BinaryWireFormat}),
+ * optionally returning previously decoded instances from an {@link InterningCache}
  */
 public class Sha256HashDeserializer  extends JsonDeserializer<Sha256Hash> {
+    private final InterningCache<Sha256Hash> cache;
+
+    public Sha256HashDeserializer() {
+        this(null);
+    }
+
+    /**
+     * @param cache Cache of decoded hashes or `null` for none
+     */
+    public Sha256HashDeserializer(InterningCache<Sha256Hash> cache) {
+        this.cache = cache;
+    }
+
     @Override
     public Sha256Hash deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JsonProcessingException {
         JsonToken token = p.getCurrentToken();
         switch (token) {
             case VALUE_STRING:
-                return Sha256Hash.wrap(p.getValueAsString());
+                String hex = p.getValueAsString();
+                if (cache == null) {
+                    return Sha256Hash.wrap(hex);
+                }
+                Sha256Hash hash = cache.get(hex);
+                if (hash == null) {
+                    hash = Sha256Hash.wrap(hex);
+                    cache.put(hex, hash);
+                }
+                return hash;
+            case VALUE_EMBEDDED_OBJECT:
+                return Sha256Hash.wrap(p.getBinaryValue());
             default:
                 return (Sha256Hash) ctxt.handleUnexpectedToken(Sha256Hash.class, p);
         }
@@ -9,11 +9,16 @@ import org.bitcoinj.core.Sha256Hash;
 import java.io.IOException;
 
 /**
- *
+ * Serialize a Sha256Hash as a hex string, or as raw bytes if the format supports binary
+ * (e.g. Smile, see {@link BinaryWireFormat})
  */
 public class Sha256HashSerializer extends JsonSerializer<Sha256Hash> {
     @Override
     public void serialize(Sha256Hash value, JsonGenerator gen, SerializerProvider serializers) throws IOException, JsonProcessingException {
-        gen.writeString(value.toString());
+        if (BinaryWireFormat.writesRawBytes(gen)) {
+            gen.writeBinary(value.getBytes());
+        } else {
+            gen.writeString(value.toString());
+        }
     }
 }
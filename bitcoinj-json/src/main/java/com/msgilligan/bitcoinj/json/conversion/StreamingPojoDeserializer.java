@@ -0,0 +1,164 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Base class for hand-rolled streaming POJO deserializers
+ *
+ * Subclasses read each field directly from the token stream into a mutable state object
+ * and then call the POJO constructor, avoiding the reflective `@JsonCreator` path. Unknown fields
+ * (and fields excluded by a {@link FieldProjection}) are skipped. Deserializers for bitcoinj types
+ * are looked up once in {@link #resolve(DeserializationContext)}, so the ones registered by
+ * {@link RpcClientModule} are used.
+ *
+ * @param <T> POJO type
+ * @param <S> mutable state holding field values until the POJO is constructed
+ */
+public abstract class StreamingPojoDeserializer<T, S> extends StdDeserializer<T> implements ResolvableDeserializer {
+    private static final long serialVersionUID = 1L;
+    private JsonDeserializer<Object> hashDeserializer;
+    private JsonDeserializer<Object> coinDeserializer;
+    private JsonDeserializer<Object> addressDeserializer;
+    private JsonDeserializer<Object> untypedDeserializer;
+
+    protected StreamingPojoDeserializer(Class<T> vc) {
+        super(vc);
+    }
+
+    /**
+     * @return a new, empty state object
+     */
+    protected abstract S createState();
+
+    /**
+     * Read the value of a field (the parser is positioned on the value)
+     *
+     * @return `false` if the field is unknown and should be skipped
+     */
+    protected abstract boolean readField(S state, String name, JsonParser p, DeserializationContext ctxt) throws IOException;
+
+    /**
+     * @return the POJO constructed from `state`
+     */
+    protected abstract T build(S state);
+
+    @Override
+    public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        hashDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Sha256Hash.class));
+        coinDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Coin.class));
+        addressDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Address.class));
+        untypedDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Object.class));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+            return (T) ctxt.handleUnexpectedToken(handledType(), p);
+        }
+        FieldProjection projection = (FieldProjection) ctxt.getAttribute(FieldProjection.class);
+        if (projection != null && !projection.appliesTo(handledType())) {
+            projection = null;
+        }
+        return readObject(p, ctxt, projection);
+    }
+
+    /**
+     * Read an object of this type, e.g. an element of a list in a parent deserializer
+     * (the parser is positioned on `START_OBJECT`)
+     */
+    protected T readObject(JsonParser p, DeserializationContext ctxt, FieldProjection projection) throws IOException {
+        S state = createState();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            p.nextToken();  // move to value
+            if ((projection != null && !projection.includes(name)) || !readField(state, name, p, ctxt)) {
+                p.skipChildren();
+            }
+        }
+        return build(state);
+    }
+
+    protected Sha256Hash readHash(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return isNull(p) ? null : (Sha256Hash) hashDeserializer.deserialize(p, ctxt);
+    }
+
+    protected Coin readCoin(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return isNull(p) ? null : (Coin) coinDeserializer.deserialize(p, ctxt);
+    }
+
+    protected Address readAddress(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return isNull(p) ? null : (Address) addressDeserializer.deserialize(p, ctxt);
+    }
+
+    /**
+     * Read any JSON value as `Map`/`List`/`String`/`Number`/`Boolean`
+     */
+    protected Object readUntyped(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return isNull(p) ? null : untypedDeserializer.deserialize(p, ctxt);
+    }
+
+    protected String readString(JsonParser p) throws IOException {
+        return isNull(p) ? null : p.getValueAsString();
+    }
+
+    /**
+     * Read an integer field, `null` reads as `0` (out-of-range values and other token types are errors)
+     */
+    protected int readInt(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.getCurrentToken()) {
+            case VALUE_NUMBER_INT:  return p.getIntValue();
+            case VALUE_NULL:        return 0;
+            default:                return (Integer) ctxt.handleUnexpectedToken(Integer.TYPE, p);
+        }
+    }
+
+    /**
+     * Read a long field, `null` reads as `0` (out-of-range values and other token types are errors)
+     */
+    protected long readLong(JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (p.getCurrentToken()) {
+            case VALUE_NUMBER_INT:  return p.getLongValue();
+            case VALUE_NULL:        return 0;
+            default:                return (Long) ctxt.handleUnexpectedToken(Long.TYPE, p);
+        }
+    }
+
+    protected boolean readBoolean(JsonParser p) throws IOException {
+        return p.getValueAsBoolean();
+    }
+
+    /**
+     * Read a JSON array of hashes into `list`
+     *
+     * @return `list` or `null` if the JSON value is `null`
+     */
+    protected <L extends List<Sha256Hash>> L readHashList(JsonParser p, DeserializationContext ctxt, L list) throws IOException {
+        if (isNull(p)) {
+            return null;
+        }
+        if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+            ctxt.handleUnexpectedToken(list.getClass(), p);
+        }
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            list.add(readHash(p, ctxt));
+        }
+        return list;
+    }
+
+    protected static boolean isNull(JsonParser p) {
+        return p.getCurrentToken() == JsonToken.VALUE_NULL;
+    }
+}
@@ -10,12 +10,17 @@ import java.io.IOException;
 import java.util.Formatter;
 
 /**
- *
+ * Serialize a Transaction as a hex string, or as raw bytes if the format supports binary
+ * (e.g. Smile, see {@link BinaryWireFormat})
  */
 public class TransactionHexSerializer extends JsonSerializer<Transaction> {
     @Override
     public void serialize(Transaction value, JsonGenerator gen, SerializerProvider serializers) throws IOException, JsonProcessingException {
-        gen.writeString(bytesToHexString(value.bitcoinSerialize()));
+        if (BinaryWireFormat.writesRawBytes(gen)) {
+            gen.writeBinary(value.bitcoinSerialize());
+        } else {
+            gen.writeString(bytesToHexString(value.bitcoinSerialize()));
+        }
     }
 
     // From: http://bitcoin.stackexchange.com/questions/8475/how-to-get-hex-string-from-transaction-in-bitcoinj
@@ -0,0 +1,54 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.msgilligan.bitcoinj.json.pojo.TxOutInfo;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Streaming (non-reflective) deserializer for {@link TxOutInfo}
+ */
+public class TxOutInfoDeserializer extends StreamingPojoDeserializer<TxOutInfo, TxOutInfoDeserializer.State> {
+    private static final long serialVersionUID = 1L;
+
+    public TxOutInfoDeserializer() {
+        super(TxOutInfo.class);
+    }
+
+    static class State {
+        Sha256Hash bestblock;
+        int confirmations;
+        Coin value;
+        Map<?, ?> scriptPubKey;
+        int version;
+        boolean coinbase;
+    }
+
+    @Override
+    protected State createState() {
+        return new State();
+    }
+
+    @Override
+    protected boolean readField(State s, String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (name) {
+            case "bestblock":       s.bestblock = readHash(p, ctxt); break;
+            case "confirmations":   s.confirmations = readInt(p, ctxt); break;
+            case "value":           s.value = readCoin(p, ctxt); break;
+            case "scriptPubKey":    s.scriptPubKey = (Map<?, ?>) readUntyped(p, ctxt); break;
+            case "version":         s.version = readInt(p, ctxt); break;
+            case "coinbase":        s.coinbase = readBoolean(p); break;
+            default:                return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected TxOutInfo build(State s) {
+        return new TxOutInfo(s.bestblock, s.confirmations, s.value, s.scriptPubKey, s.version, s.coinbase);
+    }
+}
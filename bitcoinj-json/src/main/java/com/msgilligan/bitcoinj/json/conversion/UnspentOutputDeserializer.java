@@ -0,0 +1,61 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.msgilligan.bitcoinj.json.pojo.UnspentOutput;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.IOException;
+
+/**
+ * Streaming (non-reflective) deserializer for {@link UnspentOutput}
+ */
+public class UnspentOutputDeserializer extends StreamingPojoDeserializer<UnspentOutput, UnspentOutputDeserializer.State> {
+    private static final long serialVersionUID = 1L;
+
+    public UnspentOutputDeserializer() {
+        super(UnspentOutput.class);
+    }
+
+    static class State {
+        Sha256Hash txid;
+        int vout;
+        Address address;
+        String account;
+        String scriptPubKey;
+        Coin amount;
+        int confirmations;
+        boolean spendable;
+        Boolean solvable;
+    }
+
+    @Override
+    protected State createState() {
+        return new State();
+    }
+
+    @Override
+    protected boolean readField(State s, String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (name) {
+            case "txid":            s.txid = readHash(p, ctxt); break;
+            case "vout":            s.vout = readInt(p, ctxt); break;
+            case "address":         s.address = readAddress(p, ctxt); break;
+            case "account":         s.account = readString(p); break;
+            case "scriptPubKey":    s.scriptPubKey = readString(p); break;
+            case "amount":          s.amount = readCoin(p, ctxt); break;
+            case "confirmations":   s.confirmations = readInt(p, ctxt); break;
+            case "spendable":       s.spendable = readBoolean(p); break;
+            case "solvable":        s.solvable = isNull(p) ? null : readBoolean(p); break;
+            default:                return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected UnspentOutput build(State s) {
+        return new UnspentOutput(s.txid, s.vout, s.address, s.account, s.scriptPubKey, s.amount,
+                s.confirmations, s.spendable, s.solvable);
+    }
+}
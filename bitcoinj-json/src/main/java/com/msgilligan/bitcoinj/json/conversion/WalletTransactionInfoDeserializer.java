@@ -0,0 +1,102 @@
+package com.msgilligan.bitcoinj.json.conversion;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.msgilligan.bitcoinj.json.pojo.WalletTransactionInfo;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.IOException;
+
+/**
+ * Streaming (non-reflective) deserializer for {@link WalletTransactionInfo}
+ */
+public class WalletTransactionInfoDeserializer extends StreamingPojoDeserializer<WalletTransactionInfo, WalletTransactionInfoDeserializer.State> {
+    private static final long serialVersionUID = 1L;
+
+    public WalletTransactionInfoDeserializer() {
+        super(WalletTransactionInfo.class);
+    }
+
+    static class State {
+        Coin amount;
+        Coin fee;
+        int confirmations;
+        Sha256Hash blockhash;
+        int blockindex;
+        int blocktime;
+        Sha256Hash txid;
+        WalletTransactionInfo.WalletConflictList walletconflicts;
+        int time;
+        int timereceived;
+        String bip125Replaceable;
+        WalletTransactionInfo.DetailList details;
+        String hex;
+    }
+
+    @Override
+    protected State createState() {
+        return new State();
+    }
+
+    @Override
+    protected boolean readField(State s, String name, JsonParser p, DeserializationContext ctxt) throws IOException {
+        switch (name) {
+            case "amount":              s.amount = readCoin(p, ctxt); break;
+            case "fee":                 s.fee = readCoin(p, ctxt); break;
+            case "confirmations":       s.confirmations = readInt(p, ctxt); break;
+            case "blockhash":           s.blockhash = readHash(p, ctxt); break;
+            case "blockindex":          s.blockindex = readInt(p, ctxt); break;
+            case "blocktime":           s.blocktime = readInt(p, ctxt); break;
+            case "txid":                s.txid = readHash(p, ctxt); break;
+            case "walletconflicts":     s.walletconflicts = readHashList(p, ctxt, new WalletTransactionInfo.WalletConflictList()); break;
+            case "time":                s.time = readInt(p, ctxt); break;
+            case "timereceived":        s.timereceived = readInt(p, ctxt); break;
+            case "bip125-replaceable":  s.bip125Replaceable = readString(p); break;
+            case "details":             s.details = readDetailList(p, ctxt); break;
+            case "hex":                 s.hex = readString(p); break;
+            default:                    return false;
+        }
+        return true;
+    }
+
+    @Override
+    protected WalletTransactionInfo build(State s) {
+        return new WalletTransactionInfo(s.amount, s.fee, s.confirmations, s.blockhash, s.blockindex, s.blocktime,
+                s.txid, s.walletconflicts, s.time, s.timereceived, s.bip125Replaceable, s.details, s.hex);
+    }
+
+    private WalletTransactionInfo.DetailList readDetailList(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (isNull(p)) {
+            return null;
+        }
+        WalletTransactionInfo.DetailList list = new WalletTransactionInfo.DetailList();
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            String account = null;
+            Address address = null;
+            String category = null;
+            Coin amount = null;
+            String label = null;
+            int vout = 0;
+            Coin fee = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                p.nextToken();
+                switch (name) {
+                    case "account":     account = readString(p); break;
+                    case "address":     address = readAddress(p, ctxt); break;
+                    case "category":    category = readString(p); break;
+                    case "amount":      amount = readCoin(p, ctxt); break;
+                    case "label":       label = readString(p); break;
+                    case "vout":        vout = readInt(p, ctxt); break;
+                    case "fee":         fee = readCoin(p, ctxt); break;
+                    default:            p.skipChildren();
+                }
+            }
+            list.add(new WalletTransactionInfo.Detail(account, address, category, amount, label, vout, fee));
+        }
+        return list;
+    }
+}
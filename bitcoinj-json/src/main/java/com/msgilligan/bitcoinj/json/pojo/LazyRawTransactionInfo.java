@@ -0,0 +1,127 @@
+package com.msgilligan.bitcoinj.json.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.Utils;
+
+import java.util.List;
+
+/**
+ * The properties of a {@link RawTransactionInfo} built on a client from a serialized transaction, where
+ * `hex`, `vin` and `vout` (including the script strings) are only built the first time they are accessed.
+ *
+ * All properties are read through getters (there are no public fields that could be accessed
+ * before they are built). The JSON is the same as for an eagerly built `RawTransactionInfo`.
+ */
+@JsonPropertyOrder({"hex", "txid", "version", "locktime", "vin", "vout", "blockhash", "confirmations", "time", "blocktime"})
+public class LazyRawTransactionInfo {
+    private final NetworkParameters netParams;
+    private final byte[] rawBytes;
+    private final Sha256Hash txid;
+    private final long version;
+    private final long locktime;
+    private final Sha256Hash blockhash;
+    private final int confirmations;
+    private final long time;
+    private final long blocktime;
+    private volatile Transaction transaction;       // parsed on demand
+    private volatile String hex;
+    private volatile RawTransactionInfo.VinList vin;
+    private volatile RawTransactionInfo.VoutList vout;
+
+    /**
+     * Construct from a serialized transaction and the chain-related fields of a `getrawtransaction` result
+     * @param netParams Network parameters used to parse `rawBytes`
+     * @param rawBytes Serialized transaction
+     * @param txid Transaction ID/hash
+     * @param version Transaction version
+     * @param locktime Transaction lock time
+     * @param blockhash Hash of the block including the transaction or `null`
+     * @param confirmations Number of confirmations
+     * @param time Transaction time
+     * @param blocktime Block time
+     */
+    public LazyRawTransactionInfo(NetworkParameters netParams, byte[] rawBytes, Sha256Hash txid, long version,
+                                  long locktime, Sha256Hash blockhash, int confirmations, long time, long blocktime) {
+        this.netParams = netParams;
+        this.rawBytes = rawBytes;
+        this.txid = txid;
+        this.version = version;
+        this.locktime = locktime;
+        this.blockhash = blockhash;
+        this.confirmations = confirmations;
+        this.time = time;
+        this.blocktime = blocktime;
+    }
+
+    /**
+     * @return The bitcoinj transaction (parsed on first call)
+     */
+    @JsonIgnore
+    public Transaction getTransaction() {
+        Transaction tx = transaction;
+        if (tx == null) {
+            tx = new Transaction(netParams, rawBytes);
+            transaction = tx;
+        }
+        return tx;
+    }
+
+    public String getHex() {
+        String h = hex;
+        if (h == null) {
+            h = Utils.HEX.encode(rawBytes);
+            hex = h;
+        }
+        return h;
+    }
+
+    public Sha256Hash getTxid() {
+        return txid;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLocktime() {
+        return locktime;
+    }
+
+    public List<RawTransactionInfo.Vin> getVin() {
+        RawTransactionInfo.VinList v = vin;
+        if (v == null) {
+            v = RawTransactionInfo.vinList(getTransaction());
+            vin = v;
+        }
+        return v;
+    }
+
+    public List<RawTransactionInfo.Vout> getVout() {
+        RawTransactionInfo.VoutList v = vout;
+        if (v == null) {
+            v = RawTransactionInfo.voutList(getTransaction());
+            vout = v;
+        }
+        return v;
+    }
+
+    public Sha256Hash getBlockhash() {
+        return blockhash;
+    }
+
+    public int getConfirmations() {
+        return confirmations;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public long getBlocktime() {
+        return blocktime;
+    }
+}
@@ -56,6 +56,7 @@ public class RawTransactionInfo {
 
     /**
      * Construct from a bitcoinj transaction
+     * (see {@link LazyRawTransactionInfo} to avoid building `hex`, `vin` and `vout` until needed)
      * @param transaction A bitcoinj confirmed or unconfirmed transaction
      */
     public RawTransactionInfo(Transaction transaction) {
@@ -67,19 +68,30 @@ public class RawTransactionInfo {
         this.confirmations = transaction.getConfidence().getDepthInBlocks();
         this.time = 0; // TODO: block header time of block including transaction
         this.blocktime = this.time; // same as time (see API doc)
-        vin = new VinList();
+        vin = vinList(transaction);
+        vout = voutList(transaction);
+    }
+
+    static VinList vinList(Transaction transaction) {
+        Sha256Hash txid = transaction.getHash();
+        VinList vin = new VinList();
         for (TransactionInput input : transaction.getInputs()) {
             vin.add(new Vin(txid,
                             input.getOutpoint().getIndex(),
                             input.getScriptSig().toString(),
                             input.getSequenceNumber()));
         }
-        vout = new VoutList();
+        return vin;
+    }
+
+    static VoutList voutList(Transaction transaction) {
+        VoutList vout = new VoutList();
         for (TransactionOutput output : transaction.getOutputs()) {
             vout.add(new Vout(output.getValue(),
                                 output.getIndex(),
                                 output.getScriptPubKey().toString()));
         }
+        return vout;
     }
 
     public String getHex() {
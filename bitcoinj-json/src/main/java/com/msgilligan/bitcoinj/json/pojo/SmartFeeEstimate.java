@@ -0,0 +1,45 @@
+package com.msgilligan.bitcoinj.json.pojo;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Result of `estimatesmartfee`
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SmartFeeEstimate {
+    private final BigDecimal feerate;
+    private final List<String> errors;
+    private final int blocks;
+
+    @JsonCreator
+    public SmartFeeEstimate(@JsonProperty("feerate")    BigDecimal feerate,
+                            @JsonProperty("errors")     List<String> errors,
+                            @JsonProperty("blocks")     int blocks) {
+        this.feerate = feerate;
+        this.errors = errors;
+        this.blocks = blocks;
+    }
+
+    /**
+     * @return Estimated fee rate in BTC/kB or `null` if there wasn't enough data
+     */
+    public BigDecimal getFeerate() {
+        return feerate;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return Number of blocks for which the estimate is valid
+     */
+    public int getBlocks() {
+        return blocks;
+    }
+}
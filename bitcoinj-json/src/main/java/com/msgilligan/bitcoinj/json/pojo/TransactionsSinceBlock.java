@@ -0,0 +1,49 @@
+package com.msgilligan.bitcoinj.json.pojo;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wallet transactions since a block (from listsinceblock RPC)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TransactionsSinceBlock {
+    private final List<WalletTransactionItem> transactions;
+    private final List<WalletTransactionItem> removed;
+    private final Sha256Hash lastblock;
+
+    @JsonCreator
+    public TransactionsSinceBlock(@JsonProperty("transactions") List<WalletTransactionItem> transactions,
+                                  @JsonProperty("removed")      List<WalletTransactionItem> removed,
+                                  @JsonProperty("lastblock")    Sha256Hash lastblock) {
+        this.transactions = transactions;
+        this.removed = (removed != null) ? removed : Collections.<WalletTransactionItem>emptyList();
+        this.lastblock = lastblock;
+    }
+
+    /**
+     * @return Entries of transactions in blocks after the requested block and of unconfirmed transactions
+     */
+    public List<WalletTransactionItem> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * @return Entries of transactions in blocks disconnected by a reorg (empty if not reported by the server)
+     */
+    public List<WalletTransactionItem> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return Hash of the block `target_confirmations - 1` below the tip (the tip for the default of 1)
+     */
+    public Sha256Hash getLastblock() {
+        return lastblock;
+    }
+}
@@ -0,0 +1,154 @@
+package com.msgilligan.bitcoinj.json.pojo;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.util.List;
+
+/**
+ * One entry of wallet transaction history (from listtransactions and listsinceblock RPCs)
+ *
+ * Unlike {@link WalletTransactionInfo} each entry is a single detail (one output received or sent) of a
+ * wallet transaction, so a transaction can have several entries.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class WalletTransactionItem {
+    private final String account;
+    private final Address address;
+    private final String category;
+    private final Coin amount;
+    private final String label;
+    private final int vout;
+    private final Coin fee;
+    private final int confirmations;
+    private final boolean abandoned;
+    private final Sha256Hash blockhash;
+    private final int blockindex;
+    private final int blocktime;
+    private final Sha256Hash txid;
+    private final List<Sha256Hash> walletconflicts;
+    private final int time;
+    private final int timereceived;
+    private final String bip125Replaceable;
+
+    @JsonCreator
+    public WalletTransactionItem(@JsonProperty("account")           String account,
+                                 @JsonProperty("address")           Address address,
+                                 @JsonProperty("category")          String category,
+                                 @JsonProperty("amount")            Coin amount,
+                                 @JsonProperty("label")             String label,
+                                 @JsonProperty("vout")              int vout,
+                                 @JsonProperty("fee")               Coin fee,
+                                 @JsonProperty("confirmations")     int confirmations,
+                                 @JsonProperty("abandoned")         boolean abandoned,
+                                 @JsonProperty("blockhash")         Sha256Hash blockhash,
+                                 @JsonProperty("blockindex")        int blockindex,
+                                 @JsonProperty("blocktime")         int blocktime,
+                                 @JsonProperty("txid")              Sha256Hash txid,
+                                 @JsonProperty("walletconflicts")   List<Sha256Hash> walletconflicts,
+                                 @JsonProperty("time")              int time,
+                                 @JsonProperty("timereceived")      int timereceived,
+                                 @JsonProperty("bip125-replaceable") String bip125Replaceable) {
+        this.account = account;
+        this.address = address;
+        this.category = category;
+        this.amount = amount;
+        this.label = label;
+        this.vout = vout;
+        this.fee = fee;
+        this.confirmations = confirmations;
+        this.abandoned = abandoned;
+        this.blockhash = blockhash;
+        this.blockindex = blockindex;
+        this.blocktime = blocktime;
+        this.txid = txid;
+        this.walletconflicts = walletconflicts;
+        this.time = time;
+        this.timereceived = timereceived;
+        this.bip125Replaceable = bip125Replaceable;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    /**
+     * @return `send`, `receive`, `generate`, `immature` or `orphan`
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return Amount (negative for `send`)
+     */
+    public Coin getAmount() {
+        return amount;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getVout() {
+        return vout;
+    }
+
+    /**
+     * @return Fee (negative, only for `send`)
+     */
+    public Coin getFee() {
+        return fee;
+    }
+
+    /**
+     * @return Confirmations when fetched (`0` if unconfirmed, negative if conflicted)
+     */
+    public int getConfirmations() {
+        return confirmations;
+    }
+
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    public Sha256Hash getBlockhash() {
+        return blockhash;
+    }
+
+    public int getBlockindex() {
+        return blockindex;
+    }
+
+    public int getBlocktime() {
+        return blocktime;
+    }
+
+    public Sha256Hash getTxid() {
+        return txid;
+    }
+
+    public List<Sha256Hash> getWalletconflicts() {
+        return walletconflicts;
+    }
+
+    public int getTime() {
+        return time;
+    }
+
+    public int getTimereceived() {
+        return timereceived;
+    }
+
+    public String getBip125Replaceable() {
+        return bip125Replaceable;
+    }
+}
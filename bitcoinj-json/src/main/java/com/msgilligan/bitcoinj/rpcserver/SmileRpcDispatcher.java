@@ -0,0 +1,194 @@
+package com.msgilligan.bitcoinj.rpcserver;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.msgilligan.bitcoinj.json.conversion.BinaryWireFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * = Calls a JSON-RPC service and answers in Smile
+ *
+ * Results are serialized straight to the Smile generator (not through a `JsonNode` tree like in jsonrpc4j),
+ * so the serializers in {@link com.msgilligan.bitcoinj.json.conversion} write `Sha256Hash` and `Transaction`
+ * values as raw bytes. Requests may be JSON or Smile.
+ *
+ * Methods of the service interface are matched by name and number of parameters, like jsonrpc4j does by default
+ * (no missing or extra parameters). jsonrpc4j resolves overloads with the same number of parameters by their
+ * types, so calls to those are rejected (`INVALID_PARAMS`) rather than risk calling a different method than a
+ * JSON request would. Named (object) parameters are rejected too.
+ *
+ * HTTP status codes follow bitcoind: `400` for an unparseable or invalid request, `404` if the method
+ * doesn't exist, `500` for other errors and `200` for success and for batches.
+ */
+public class SmileRpcDispatcher {
+    public static final int PARSE_ERROR = -32700;
+    public static final int INVALID_REQUEST = -32600;
+    public static final int METHOD_NOT_FOUND = -32601;
+    public static final int INVALID_PARAMS = -32602;
+    public static final int INTERNAL_ERROR = -32603;
+
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final Object service;
+    private final Class<?> serviceInterface;
+
+    /**
+     * @param smileMapper An `ObjectMapper` created with {@link BinaryWireFormat#newSmileFactory()} and configured
+     *                    with the same modules as the JSON `ObjectMapper`
+     * @param service Service implementation
+     * @param serviceInterface Interface whose methods can be called
+     */
+    public SmileRpcDispatcher(ObjectMapper smileMapper, Object service, Class<?> serviceInterface) {
+        this.smileMapper = smileMapper;
+        this.service = service;
+        this.serviceInterface = serviceInterface;
+    }
+
+    /**
+     * Read a request (or a batch) and call the service
+     *
+     * @param body Request body
+     * @param smileBody `true` if the body is Smile, `false` if it is JSON
+     * @return Response to write
+     */
+    public Response call(InputStream body, boolean smileBody) {
+        JsonNode request;
+        try {
+            request = (smileBody ? smileMapper : jsonMapper).readTree(body);
+        } catch (IOException e) {
+            return new Response(400, error(NullNode.getInstance(), PARSE_ERROR, "Parse error: " + e.getMessage()));
+        }
+        if (request != null && request.isArray()) {
+            List<Result> results = new ArrayList<>(request.size());
+            for (JsonNode element : request) {
+                results.add(call(element));
+            }
+            return new Response(200, results);
+        }
+        Result result = call(request);
+        return new Response(result.status, result);
+    }
+
+    private Result call(JsonNode request) {
+        if (request == null || !request.isObject() || !request.path("method").isTextual()) {
+            return error(NullNode.getInstance(), INVALID_REQUEST, "Invalid request");
+        }
+        JsonNode id = request.has("id") ? request.get("id") : NullNode.getInstance();
+        String methodName = request.get("method").asText();
+        JsonNode params = request.path("params");
+        if (!params.isArray() && !params.isMissingNode() && !params.isNull()) {
+            return error(id, INVALID_PARAMS, "Invalid params: named params are not supported with Smile");
+        }
+        int paramCount = params.isArray() ? params.size() : 0;
+        List<Method> methods = findMethods(methodName, paramCount);
+        if (methods.isEmpty()) {
+            return error(id, METHOD_NOT_FOUND, "Method not found");
+        }
+        if (methods.size() > 1) {
+            return error(id, INVALID_PARAMS, "Invalid params: " + methodName + " has " + methods.size() +
+                    " overloads with " + paramCount + " params, use JSON");
+        }
+        Method method = methods.get(0);
+        Type[] types = method.getGenericParameterTypes();
+        Object[] args = new Object[paramCount];
+        try {
+            for (int i = 0; i < paramCount; i++) {
+                args[i] = smileMapper.convertValue(params.get(i), smileMapper.getTypeFactory().constructType(types[i]));
+            }
+        } catch (IllegalArgumentException e) {
+            return error(id, INVALID_PARAMS, "Invalid params: " + e.getMessage());
+        }
+        try {
+            return new Result(200, id, method.invoke(service, args), null);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            return error(id, INTERNAL_ERROR, (cause.getMessage() != null) ? cause.getMessage() : cause.toString());
+        } catch (IllegalAccessException e) {
+            return error(id, INTERNAL_ERROR, e.getMessage());
+        }
+    }
+
+    private List<Method> findMethods(String name, int paramCount) {
+        List<Method> methods = new ArrayList<>(1);
+        for (Method method : serviceInterface.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterTypes().length == paramCount && !method.isBridge()) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private static Result error(JsonNode id, int code, String message) {
+        int status = (code == PARSE_ERROR || code == INVALID_REQUEST) ? 400 : (code == METHOD_NOT_FOUND) ? 404 : 500;
+        return new Result(status, id, null, new ErrorInfo(code, message));
+    }
+
+    /**
+     * Response to a request or a batch, ready to be written once the HTTP status is set
+     */
+    public class Response {
+        private final int status;
+        private final Object body;    // Result or List<Result>
+
+        private Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        /**
+         * @return HTTP status code
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * Write the response in Smile
+         *
+         * @param out Destination (not closed)
+         * @throws IOException if writing fails
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            JsonGenerator generator = smileMapper.getFactory().createGenerator(out);
+            smileMapper.writeValue(generator, body);
+            generator.flush();
+        }
+    }
+
+    /**
+     * JSON-RPC response, serialized by `smileMapper` so that `result` is written without an intermediate tree
+     */
+    static class Result {
+        final int status;
+        public final Object result;
+        public final ErrorInfo error;
+        public final JsonNode id;
+
+        Result(int status, JsonNode id, Object result, ErrorInfo error) {
+            this.status = status;
+            this.id = id;
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    static class ErrorInfo {
+        public final int code;
+        public final String message;
+
+        ErrorInfo(int code, String message) {
+            this.code = code;
+            this.message = message;
+        }
+    }
+}
@@ -1,4 +1,4 @@
 /**
- * API definition interface(s) for the JSON-RPC server
+ * API definition interface(s) for the JSON-RPC server and a Smile request dispatcher
  */
 package com.msgilligan.bitcoinj.rpcserver;
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.msgilligan.bitcoinj.json.conversion
+
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.params.MainNetParams
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * Spock Spec to test the binary (Smile) wire format
+ */
+class BinaryWireFormatSpec extends Specification {
+    static final Sha256Hash hash = Sha256Hash.wrap("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f")
+
+    @Shared ObjectMapper jsonMapper
+    @Shared ObjectMapper smileMapper
+
+    def setupSpec() {
+        jsonMapper = new ObjectMapper().registerModule(new RpcClientModule(MainNetParams.get()))
+        smileMapper = new ObjectMapper(BinaryWireFormat.newSmileFactory()).registerModule(new RpcClientModule(MainNetParams.get()))
+    }
+
+    def "hashes are written as raw bytes in Smile"() {
+        when:
+        byte[] smile = smileMapper.writeValueAsBytes(hash)
+        def parser = BinaryWireFormat.newSmileFactory().createParser(smile)
+
+        then:
+        parser.nextToken() == JsonToken.VALUE_EMBEDDED_OBJECT
+        parser.binaryValue == hash.bytes
+        smile.length < jsonMapper.writeValueAsBytes(hash).length
+    }
+
+    def "hashes are still written as hex strings in JSON and trees"() {
+        expect:
+        jsonMapper.writeValueAsString(hash) == "\"${hash}\""
+        jsonMapper.valueToTree(hash).textValue() == hash.toString()
+    }
+
+    def "POJOs round-trip through Smile"() {
+        given:
+        def block = new BlockInfo(hash, 1, 285, 0, 1, hash, [hash] as BlockInfo.Sha256HashList, 1231006505,
+                2083236893, "1d00ffff", 1.0, "0000000000000000000000000000000000000000000000000000000100010001", null, null)
+
+        when:
+        BlockInfo result = smileMapper.readValue(smileMapper.writeValueAsBytes(block), BlockInfo.class)
+
+        then:
+        result.hash == hash
+        result.tx == [hash]
+        result.merkleroot == hash
+        result.nonce == 2083236893
+    }
+
+    def "hex strings are accepted in Smile input"() {
+        expect:
+        smileMapper.readValue(smileMapper.writeValueAsBytes(hash.toString()), Sha256Hash.class) == hash
+    }
+
+    def "content negotiation headers"() {
+        expect:
+        BinaryWireFormat.isSmile(contentType) == smileContent
+        BinaryWireFormat.acceptsSmile(accept) == smileAccepted
+
+        where:
+        contentType                     | accept                                | smileContent | smileAccepted
+        "application/x-jackson-smile"   | BinaryWireFormat.ACCEPT_SMILE_OR_JSON | true         | true
+        "application/json"              | "application/json"                    | false        | false
+        null                            | null                                  | false        | false
+    }
+}
@@ -0,0 +1,67 @@
+package com.msgilligan.bitcoinj.json.conversion
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.bitcoinj.core.Address
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.params.MainNetParams
+
+import spock.lang.Specification
+
+/**
+ * Spock Spec to test InterningCache and its use by the RpcClientModule deserializers
+ */
+class InterningCacheSpec extends Specification {
+    static final String address = "1BvBMSEYstWetqTFn5Au4m4GFg7xJaNVN2"
+    static final String hash = "000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f"
+
+    def "size is rounded up to a power of two"() {
+        expect:
+        new InterningCache<String>(maxSize).capacity() == capacity
+
+        where:
+        maxSize | capacity
+        1       | 2
+        1000    | 1024
+        1024    | 1024
+    }
+
+    def "cached values are returned for equal keys"() {
+        given:
+        def cache = new InterningCache<Object>(16)
+        def value = new Object()
+
+        when:
+        cache.put(new String("key"), value)
+
+        then:
+        cache.get(new String("key")).is(value)
+        cache.get("other") == null
+    }
+
+    def "repeated addresses and hashes are the same instances"() {
+        given:
+        def mapper = new ObjectMapper().registerModule(new RpcClientModule(MainNetParams.get(), 64))
+
+        when:
+        List<Address> addresses = mapper.readValue("[\"$address\", \"$address\"]", mapper.typeFactory.constructCollectionType(List, Address))
+        List<Sha256Hash> hashes = mapper.readValue("[\"$hash\", \"$hash\"]", mapper.typeFactory.constructCollectionType(List, Sha256Hash))
+
+        then:
+        addresses[0] == Address.fromBase58(MainNetParams.get(), address)
+        addresses[0].is(addresses[1])
+        hashes[0] == Sha256Hash.wrap(hash)
+        hashes[0].is(hashes[1])
+    }
+
+    def "without a cache values are decoded each time"() {
+        given:
+        def mapper = new ObjectMapper().registerModule(new RpcClientModule(MainNetParams.get()))
+
+        when:
+        List<Address> addresses = mapper.readValue("[\"$address\", \"$address\"]", mapper.typeFactory.constructCollectionType(List, Address))
+
+        then:
+        addresses[0] == addresses[1]
+        !addresses[0].is(addresses[1])
+    }
+}
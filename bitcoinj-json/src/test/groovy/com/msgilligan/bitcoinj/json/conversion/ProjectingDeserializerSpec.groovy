@@ -0,0 +1,67 @@
+package com.msgilligan.bitcoinj.json.conversion
+
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo
+import org.bitcoinj.core.Sha256Hash
+
+/**
+ * Spock Spec to test ProjectingDeserializer
+ */
+class ProjectingDeserializerSpec extends BaseObjectMapperSpec {
+    static final String blockJson = '''{
+        "hash": "0000000000000000000000000000000000000000000000000000000000000002",
+        "confirmations": 3,
+        "height": 42,
+        "tx": ["0000000000000000000000000000000000000000000000000000000000000003",
+               "0000000000000000000000000000000000000000000000000000000000000004"],
+        "time": 1500000000,
+        "nested": {"ignored": [1, 2, {"deeper": true}]},
+        "previousblockhash": "0000000000000000000000000000000000000000000000000000000000000001"
+    }'''
+
+    def "without a projection all fields are bound"() {
+        when:
+        BlockInfo block = mapper.readValue(blockJson, BlockInfo.class)
+
+        then:
+        block.height == 42
+        block.confirmations == 3
+        block.tx.size() == 2
+    }
+
+    def "projected fields are bound and the rest are skipped"() {
+        given:
+        def projection = FieldProjection.of(BlockInfo.class, "height", "time", "previousblockhash")
+
+        when:
+        BlockInfo block = mapper.readerFor(BlockInfo.class)
+                .withAttribute(FieldProjection.class, projection)
+                .readValue(blockJson)
+
+        then:
+        block.height == 42
+        block.time == 1500000000
+        block.previousblockhash == Sha256Hash.wrap("0000000000000000000000000000000000000000000000000000000000000001")
+        block.hash == null
+        block.confirmations == 0
+        block.tx == null
+    }
+
+    def "projection for another type is ignored"() {
+        given:
+        def projection = FieldProjection.of(String.class, "height")
+
+        when:
+        BlockInfo block = mapper.readerFor(BlockInfo.class)
+                .withAttribute(FieldProjection.class, projection)
+                .readValue(blockJson)
+
+        then:
+        block.confirmations == 3
+        block.tx.size() == 2
+    }
+
+    def configureModule(module) {
+        module.addDeserializer(Sha256Hash.class, new Sha256HashDeserializer())
+        module.setDeserializerModifier(new ProjectingDeserializerModifier())
+    }
+}
@@ -0,0 +1,219 @@
+package com.msgilligan.bitcoinj.json.conversion
+
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.fasterxml.jackson.databind.JsonMappingException
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo
+import com.msgilligan.bitcoinj.json.pojo.RawTransactionInfo
+import com.msgilligan.bitcoinj.json.pojo.TxOutInfo
+import com.msgilligan.bitcoinj.json.pojo.UnspentOutput
+import com.msgilligan.bitcoinj.json.pojo.WalletTransactionInfo
+import org.bitcoinj.core.Address
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.params.MainNetParams
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.lang.reflect.ParameterizedType
+import java.lang.reflect.Type
+
+/**
+ * Spock Spec to test the streaming POJO deserializers against the reflective (`@JsonCreator`) path
+ */
+class StreamingPojoDeserializerSpec extends Specification {
+    static final String hash1 = "0000000000000000000000000000000000000000000000000000000000000001"
+    static final String hash2 = "0000000000000000000000000000000000000000000000000000000000000002"
+    static final String address = "1BvBMSEYstWetqTFn5Au4m4GFg7xJaNVN2"
+
+    static final String blockJson = """{
+        "hash": "$hash2", "confirmations": 3, "size": 285, "height": 42, "version": 536870912,
+        "merkleroot": "$hash1", "tx": ["$hash1", "$hash2"], "time": 1500000000, "nonce": 2083236893,
+        "bits": "1d00ffff", "difficulty": 1.5, "chainwork": "0000000000000000000000000000000000000000000000000000000100010001",
+        "previousblockhash": "$hash1", "unknown": {"a": [1, 2]}
+    }"""
+
+    static final String rawTxJson = """{
+        "hex": "0100", "txid": "$hash1", "version": 1, "locktime": 0,
+        "vin": [{"txid": "$hash2", "vout": 1, "scriptSig": {"asm": "", "hex": ""}, "sequence": 4294967295}],
+        "vout": [{"value": 0.5, "n": 0, "scriptPubKey": {"hex": "76a9", "addresses": ["$address"]}}],
+        "blockhash": "$hash2", "confirmations": 6, "time": 1500000000, "blocktime": 1500000001
+    }"""
+
+    static final String unspentJson = """{
+        "txid": "$hash1", "vout": 2, "address": "$address", "account": "", "scriptPubKey": "76a9",
+        "amount": 1.25, "confirmations": 7, "spendable": true, "solvable": true
+    }"""
+
+    static final String txOutJson = """{
+        "bestblock": "$hash2", "confirmations": 1, "value": 50.0,
+        "scriptPubKey": {"hex": "76a9", "type": "pubkeyhash"}, "version": 1, "coinbase": true
+    }"""
+
+    static final String walletTxJson = """{
+        "amount": -0.1, "fee": -0.0001, "confirmations": 2, "blockhash": "$hash2", "blockindex": 1,
+        "blocktime": 1500000000, "txid": "$hash1", "walletconflicts": [], "time": 1500000000,
+        "timereceived": 1500000002, "bip125-replaceable": "no",
+        "details": [{"account": "", "address": "$address", "category": "send", "amount": -0.1, "vout": 0, "fee": -0.0001}],
+        "hex": "0100"
+    }"""
+
+    @Shared ObjectMapper reflectiveMapper
+    @Shared ObjectMapper streamingMapper
+
+    def setupSpec() {
+        reflectiveMapper = new ObjectMapper()
+        reflectiveMapper.registerModule(new RpcClientModule(MainNetParams.get()))
+        streamingMapper = new ObjectMapper()
+        streamingMapper.registerModule(new RpcClientModule(MainNetParams.get()))
+        streamingMapper.registerModule(new RpcClientPojoModule())
+    }
+
+    def "BlockInfo is read the same as the reflective path"() {
+        when:
+        BlockInfo s = streamingMapper.readValue(blockJson, BlockInfo.class)
+        BlockInfo r = reflectiveMapper.readValue(blockJson, BlockInfo.class)
+
+        then:
+        s.hash == Sha256Hash.wrap(hash2)
+        s.tx == [Sha256Hash.wrap(hash1), Sha256Hash.wrap(hash2)]
+        s.difficulty == 1.5
+        s.nextblockhash == null
+        reflectiveMapper.writeValueAsString(s) == reflectiveMapper.writeValueAsString(r)
+    }
+
+    def "RawTransactionInfo is read the same as the reflective path"() {
+        when:
+        RawTransactionInfo s = streamingMapper.readValue(rawTxJson, RawTransactionInfo.class)
+        RawTransactionInfo r = reflectiveMapper.readValue(rawTxJson, RawTransactionInfo.class)
+
+        then:
+        s.vin[0].txid == Sha256Hash.wrap(hash2)
+        s.vin[0].sequence == 4294967295L
+        s.vout[0].value == Coin.valueOf(50_000_000)
+        s.vout[0].scriptPubKey.hex == "76a9"
+        reflectiveMapper.writeValueAsString(s) == reflectiveMapper.writeValueAsString(r)
+    }
+
+    def "UnspentOutput, TxOutInfo and WalletTransactionInfo are read the same as the reflective path"() {
+        expect:
+        def s = streamingMapper.readValue(json, type)
+        def r = reflectiveMapper.readValue(json, type)
+        reflectiveMapper.writeValueAsString(s) == reflectiveMapper.writeValueAsString(r)
+
+        where:
+        json         | type
+        unspentJson  | UnspentOutput.class
+        txOutJson    | TxOutInfo.class
+        walletTxJson | WalletTransactionInfo.class
+    }
+
+    @Unroll
+    def "every creator property of #type.simpleName (and of its nested POJOs) is read"() {
+        given: "a document with a value for every creator property"
+        def json = sample(type)
+
+        when:
+        def s = streamingMapper.readValue(json, type)
+        def r = reflectiveMapper.readValue(json, type)
+
+        then:
+        reflectiveMapper.writeValueAsString(s) == reflectiveMapper.writeValueAsString(r)
+
+        where:
+        type << [BlockInfo, RawTransactionInfo, TxOutInfo, UnspentOutput, WalletTransactionInfo]
+    }
+
+    def "addresses are read with the module's network parameters"() {
+        when:
+        WalletTransactionInfo tx = streamingMapper.readValue(walletTxJson, WalletTransactionInfo.class)
+
+        then:
+        tx.details[0].address == Address.fromBase58(MainNetParams.get(), address)
+        tx.details[0].fee == Coin.valueOf(-10_000)
+    }
+
+    def "projected fields are honored"() {
+        given:
+        def projection = FieldProjection.of(BlockInfo.class, "height", "previousblockhash")
+
+        when:
+        BlockInfo block = streamingMapper.readerFor(BlockInfo.class)
+                .withAttribute(FieldProjection.class, projection)
+                .readValue(blockJson)
+
+        then:
+        block.height == 42
+        block.previousblockhash == Sha256Hash.wrap(hash1)
+        block.tx == null
+        block.hash == null
+    }
+
+    @Unroll
+    def "integer field with value #value is rejected"() {
+        when:
+        streamingMapper.readValue("""{"txid": "$hash1", "vout": $value}""".toString(), UnspentOutput.class)
+
+        then:
+        thrown(JsonMappingException)
+
+        where:
+        value << ['"2"', 'true', '[2]', '1.5']
+    }
+
+    def "out of range integer fields are rejected"() {
+        when:
+        streamingMapper.readValue("""{"txid": "$hash1", "vout": 4294967296}""".toString(), UnspentOutput.class)
+
+        then:
+        thrown(IOException)
+    }
+
+    def "null integer fields read as zero"() {
+        when:
+        UnspentOutput output = streamingMapper.readValue("""{"txid": "$hash1", "vout": null}""".toString(), UnspentOutput.class)
+
+        then:
+        output.vout == 0
+    }
+
+    def "lists of POJOs are read"() {
+        given:
+        def listType = streamingMapper.typeFactory.constructCollectionType(List.class, UnspentOutput.class)
+
+        when:
+        List<UnspentOutput> list = streamingMapper.readValue("[$unspentJson, $unspentJson]".toString(), listType)
+
+        then:
+        list.size() == 2
+        list[1].amount == Coin.valueOf(125_000_000)
+    }
+
+    /**
+     * @return JSON with a non-default value of `type`, a POJO has a value for each `@JsonProperty` of its creator
+     */
+    static String sample(Type type) {
+        Class<?> c = (type instanceof ParameterizedType) ? (Class<?>) type.rawType : (Class<?>) type
+        if (c == Sha256Hash) return "\"$hash1\""
+        if (c == Address) return "\"$address\""
+        if (c == String) return '"s"'
+        if (c in [int, Integer, long, Long]) return '7'
+        if (c in [boolean, Boolean]) return 'true'
+        if (c in [BigDecimal, Coin]) return '1.5'
+        if (c in [Object, Map]) return '{"hex": "76a9"}'
+        if (List.isAssignableFrom(c)) {
+            def listType = (type instanceof ParameterizedType) ? type : c.genericSuperclass
+            return "[${sample(((ParameterizedType) listType).actualTypeArguments[0])}]"
+        }
+        def creator = c.constructors.find { ctor ->
+            ctor.parameterCount > 0 && ctor.parameterAnnotations.every { it.any { it instanceof JsonProperty } }
+        }
+        assert creator, "No creator for $c"
+        def fields = [creator.parameterAnnotations.toList(), creator.genericParameterTypes.toList()].transpose()
+                .collect { annotations, paramType ->
+                    "\"${annotations.find { it instanceof JsonProperty }.value()}\": ${sample(paramType)}"
+                }
+        return "{${fields.join(', ')}}"
+    }
+}
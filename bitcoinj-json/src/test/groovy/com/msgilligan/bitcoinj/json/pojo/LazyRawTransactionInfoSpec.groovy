@@ -0,0 +1,67 @@
+package com.msgilligan.bitcoinj.json.pojo
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.msgilligan.bitcoinj.json.conversion.RpcClientModule
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.core.Transaction
+import org.bitcoinj.core.TransactionInput
+import org.bitcoinj.core.TransactionOutPoint
+import org.bitcoinj.params.MainNetParams
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * LazyRawTransactionInfo tests
+ */
+class LazyRawTransactionInfoSpec extends Specification {
+    @Shared def params = MainNetParams.get()
+    @Shared ObjectMapper mapper = new ObjectMapper().registerModule(new RpcClientModule(MainNetParams.get()))
+    @Shared Transaction tx
+
+    def setupSpec() {
+        tx = new Transaction(params)
+        tx.addInput(new TransactionInput(params, tx, [] as byte[], new TransactionOutPoint(params, 1, Sha256Hash.ZERO_HASH)))
+        tx.addOutput(Coin.COIN, new ECKey().toAddress(params))
+        tx.addOutput(Coin.CENT, new ECKey().toAddress(params))
+    }
+
+    def "matches the eagerly built RawTransactionInfo"() {
+        when:
+        def eager = new RawTransactionInfo(tx)
+        def lazy = lazyInfo(null, 0)
+
+        then:
+        lazy.txid == eager.txid
+        lazy.hex == eager.hex
+        lazy.vin.size() == 1
+        lazy.vout*.value == [Coin.COIN, Coin.CENT]
+        mapper.writeValueAsString(lazy) == mapper.writeValueAsString(eager)
+    }
+
+    def "decodes inputs and outputs from raw bytes"() {
+        when:
+        def lazy = lazyInfo(Sha256Hash.ZERO_HASH, 6)
+
+        then:
+        lazy.confirmations == 6
+        lazy.transaction == tx
+        lazy.vout*.scriptPubKey == tx.outputs*.scriptPubKey*.toString()
+        lazy.hex == new RawTransactionInfo(tx).hex
+    }
+
+    def "inputs and outputs are built once"() {
+        when:
+        def lazy = lazyInfo(null, 0)
+
+        then:
+        lazy.vin.is(lazy.vin)
+        lazy.vout.is(lazy.vout)
+    }
+
+    private LazyRawTransactionInfo lazyInfo(Sha256Hash blockhash, int confirmations) {
+        return new LazyRawTransactionInfo(params, tx.bitcoinSerialize(), tx.hash, tx.version, tx.lockTime,
+                blockhash, confirmations, 0, 0)
+    }
+}
@@ -0,0 +1,131 @@
+package com.msgilligan.bitcoinj.rpcserver
+
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.msgilligan.bitcoinj.json.conversion.BinaryWireFormat
+import com.msgilligan.bitcoinj.json.conversion.RpcServerModule
+import org.bitcoinj.core.Sha256Hash
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Spock Spec for SmileRpcDispatcher
+ */
+class SmileRpcDispatcherSpec extends Specification {
+    static final Sha256Hash hash = Sha256Hash.wrap("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f")
+
+    interface HashService {
+        Sha256Hash getblockhash(Integer height)
+        Integer getblockcount()
+        String describe(Integer height)
+        String describe(String hash)
+    }
+
+    @Shared ObjectMapper smileMapper
+    @Shared SmileRpcDispatcher dispatcher
+
+    def setupSpec() {
+        smileMapper = new ObjectMapper(BinaryWireFormat.newSmileFactory()).registerModule(new RpcServerModule())
+        def service = new HashService() {
+            Sha256Hash getblockhash(Integer height) {
+                if (height < 0) {
+                    throw new IllegalArgumentException("Block height out of range")
+                }
+                return hash
+            }
+            Integer getblockcount() {
+                return 1
+            }
+            String describe(Integer height) {
+                return "height"
+            }
+            String describe(String hash) {
+                return "hash"
+            }
+        }
+        dispatcher = new SmileRpcDispatcher(smileMapper, service, HashService.class)
+    }
+
+    def "results are written to Smile as raw bytes"() {
+        when:
+        def response = dispatcher.call(json('{"jsonrpc": "2.0", "method": "getblockhash", "params": [0], "id": "1"}'), false)
+        def parser = BinaryWireFormat.newSmileFactory().createParser(write(response))
+
+        then:
+        response.status == 200
+        parser.nextToken() == JsonToken.START_OBJECT
+        nextValue(parser, "result") == JsonToken.VALUE_EMBEDDED_OBJECT
+        parser.binaryValue == hash.bytes
+    }
+
+    def "Smile requests are accepted"() {
+        given:
+        def request = smileMapper.writeValueAsBytes([method: "getblockcount", params: [], id: "2"])
+
+        when:
+        def response = dispatcher.call(new ByteArrayInputStream(request), true)
+        def body = smileMapper.readTree(write(response))
+
+        then:
+        response.status == 200
+        body.get("result").intValue() == 1
+        body.get("id").textValue() == "2"
+        body.get("error").isNull()
+    }
+
+    @Unroll
+    def "#request is answered with HTTP status #status and error #code"() {
+        when:
+        def response = dispatcher.call(json(request), false)
+        def body = smileMapper.readTree(write(response))
+
+        then:
+        response.status == status
+        body.get("error").get("code").intValue() == code
+
+        where:
+        request                                               | status | code
+        '{"method": "getblockhash", "params": [-1], "id": 1}' | 500    | SmileRpcDispatcher.INTERNAL_ERROR
+        '{"method": "getblockhash", "params": ["x"], "id": 1}'| 500    | SmileRpcDispatcher.INVALID_PARAMS
+        '{"method": "stop", "params": [], "id": 1}'           | 404    | SmileRpcDispatcher.METHOD_NOT_FOUND
+        '{"method": "getblockhash", "params": [], "id": 1}'   | 404    | SmileRpcDispatcher.METHOD_NOT_FOUND
+        '{"method": "describe", "params": [1], "id": 1}'      | 500    | SmileRpcDispatcher.INVALID_PARAMS
+        '{"method": "getblockhash", "params": {"height": 0}, "id": 1}' | 500 | SmileRpcDispatcher.INVALID_PARAMS
+        '{"params": [], "id": 1}'                             | 400    | SmileRpcDispatcher.INVALID_REQUEST
+        '{"method": '                                         | 400    | SmileRpcDispatcher.PARSE_ERROR
+    }
+
+    def "batches are answered with one response per request"() {
+        when:
+        def response = dispatcher.call(json('[{"method": "getblockcount", "id": 1}, {"method": "stop", "id": 2}]'), false)
+        def body = smileMapper.readTree(write(response))
+
+        then:
+        response.status == 200
+        body.size() == 2
+        body.get(0).get("result").intValue() == 1
+        body.get(1).get("error").get("code").intValue() == SmileRpcDispatcher.METHOD_NOT_FOUND
+    }
+
+    static InputStream json(String text) {
+        return new ByteArrayInputStream(text.getBytes("UTF-8"))
+    }
+
+    static byte[] write(SmileRpcDispatcher.Response response) {
+        def out = new ByteArrayOutputStream()
+        response.writeTo(out)
+        return out.toByteArray()
+    }
+
+    static JsonToken nextValue(parser, String field) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            JsonToken value = parser.nextToken()
+            if (parser.currentName == field) {
+                return value
+            }
+            parser.skipChildren()
+        }
+        return null
+    }
+}
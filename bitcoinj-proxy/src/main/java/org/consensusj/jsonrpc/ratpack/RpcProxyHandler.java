@@ -1,6 +1,13 @@
 package org.consensusj.jsonrpc.ratpack;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.msgilligan.bitcoinj.json.conversion.BinaryWireFormat;
+import org.bitcoinj.core.Utils;
 import org.consensusj.jsonrpc.JsonRpcRequest;
+import org.consensusj.jsonrpc.JsonRpcResponse;
+import ratpack.exec.Promise;
 import ratpack.handling.Context;
 import ratpack.handling.Handler;
 
@@ -9,32 +16,109 @@ import static ratpack.jackson.Jackson.json;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * JsonRPC proxy handler
  * Relay allowed RPC methods to a URI
+ *
+ * Requests may be JSON or Smile (by `Content-Type`) and responses are Smile if the
+ * client accepts it (see {@link BinaryWireFormat}), otherwise JSON. Results are relayed
+ * untyped from the (JSON-only) upstream server, so hashes stay hex strings inside Smile.
+ * Smile requests are parsed untyped too, so binary params (e.g. a `Sha256Hash` written as raw bytes)
+ * are converted to hex strings before they are relayed.
  */
 @Singleton
 public class RpcProxyHandler implements Handler {
-    private final List<String> allowedMethods =  Arrays.asList("getblockcount", "setgenerate");
+    private final List<String> allowedMethods;
     private final JsonRpcClient rpcClient;
+    private final ObjectMapper mapper;
+    private final SmileFactory smileFactory = BinaryWireFormat.newSmileFactory();
 
     @Inject
-    public RpcProxyHandler(JsonRpcClient jsonRpcClient) {
+    public RpcProxyHandler(JsonRpcClient jsonRpcClient, ObjectMapper mapper) {
+        this(jsonRpcClient, mapper, Arrays.asList("getblockcount", "setgenerate"));
+    }
+
+    RpcProxyHandler(JsonRpcClient jsonRpcClient, ObjectMapper mapper, List<String> allowedMethods) {
         rpcClient = jsonRpcClient;
+        this.mapper = mapper;
+        this.allowedMethods = allowedMethods;
     }
 
     @Override
     public void handle(Context ctx)  {
-        ctx.parse(fromJson(JsonRpcRequest.class)).then(rpcReq -> {
+        final boolean smileResponse = BinaryWireFormat.acceptsSmile(ctx.getRequest().getHeaders().get("Accept"));
+        parseRequest(ctx).then(rpcReq -> {
             if (allowedMethods.contains(rpcReq.getMethod())) {
-                rpcClient.call(rpcReq).then(rpcResponse -> ctx.render(json(rpcResponse)));
+                rpcClient.call(rpcReq).then(rpcResponse -> {
+                    if (smileResponse) {
+                        ctx.getResponse().contentType(BinaryWireFormat.SMILE_MEDIA_TYPE).send(toSmile(rpcResponse));
+                    } else {
+                        ctx.render(json(rpcResponse));
+                    }
+                });
             } else {
                 // Should we send a JsonRpcResponse here?
                 ctx.getResponse().status(403).send("JSON-RPC method not allowed by proxy");
             }
         });
     }
+
+    private Promise<JsonRpcRequest> parseRequest(Context ctx) {
+        if (BinaryWireFormat.isSmile(ctx.getRequest().getContentType().getType())) {
+            return ctx.getRequest().getBody().map(body ->
+                    hexEncodeBinaryParams(mapper.readerFor(JsonRpcRequest.class).with(smileFactory).<JsonRpcRequest>readValue(body.getInputStream())));
+        } else {
+            return ctx.parse(fromJson(JsonRpcRequest.class));
+        }
+    }
+
+    /**
+     * Replace the binary values (`byte[]`) in the params of a Smile request with hex strings,
+     * which is how the upstream JSON server expects hashes and transactions
+     */
+    private static JsonRpcRequest hexEncodeBinaryParams(JsonRpcRequest request) {
+        if (request.getParams() == null) {
+            return request;
+        }
+        List<Object> params = new ArrayList<>();
+        for (Object param : request.getParams()) {
+            params.add(hexEncodeBinary(param));
+        }
+        return new JsonRpcRequest(request.getJsonrpc(), request.getMethod(), request.getId(), params);
+    }
+
+    private static Object hexEncodeBinary(Object value) {
+        if (value instanceof byte[]) {
+            return Utils.HEX.encode((byte[]) value);
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                list.add(hexEncodeBinary(element));
+            }
+            return list;
+        } else if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(entry.getKey(), hexEncodeBinary(entry.getValue()));
+            }
+            return map;
+        }
+        return value;
+    }
+
+    private byte[] toSmile(JsonRpcResponse<?> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = smileFactory.createGenerator(out);
+        mapper.writeValue(generator, response);
+        generator.close();
+        return out.toByteArray();
+    }
 }
@@ -0,0 +1,76 @@
+package org.consensusj.jsonrpc.ratpack
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.IntNode
+import com.msgilligan.bitcoinj.json.conversion.BinaryWireFormat
+import com.msgilligan.bitcoinj.json.conversion.RpcClientModule
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.params.RegTestParams
+import org.consensusj.jsonrpc.JsonRpcRequest
+import org.consensusj.jsonrpc.JsonRpcResponse
+import ratpack.exec.Promise
+import ratpack.test.handling.RequestFixture
+import spock.lang.Specification
+
+/**
+ * Spock Spec for the Smile path of RpcProxyHandler (upstream client is mocked)
+ */
+class RpcProxyHandlerSpec extends Specification {
+    def smileMapper = new ObjectMapper(BinaryWireFormat.newSmileFactory())
+    def rpcClient = Mock(JsonRpcClient)
+    def handler = new RpcProxyHandler(rpcClient, new ObjectMapper())
+
+    def "Smile request is relayed and answered in Smile"() {
+        when:
+        def result = RequestFixture.handle(handler) { fixture ->
+            fixture.method("POST")
+                    .body(smileMapper.writeValueAsBytes(new JsonRpcRequest("getblockcount")), BinaryWireFormat.SMILE_MEDIA_TYPE)
+                    .header("Accept", BinaryWireFormat.ACCEPT_SMILE_OR_JSON)
+        }
+
+        then:
+        1 * rpcClient.call({ it.method == "getblockcount" }) >> Promise.value(response(123))
+        result.status.code == 200
+        BinaryWireFormat.isSmile(result.headers.get("Content-Type"))
+        smileMapper.readTree(result.bodyBytes).get("result").intValue() == 123
+    }
+
+    def "binary params of a Smile request are relayed as hex strings"() {
+        given:
+        def hashMapper = new ObjectMapper(BinaryWireFormat.newSmileFactory()).registerModule(new RpcClientModule(RegTestParams.get()))
+        def hash = Sha256Hash.of("block".bytes)
+        def proxy = new RpcProxyHandler(rpcClient, new ObjectMapper(), ["getblockheader"])
+
+        when:
+        def result = RequestFixture.handle(proxy) { fixture ->
+            fixture.method("POST")
+                    .body(hashMapper.writeValueAsBytes(new JsonRpcRequest("getblockheader", [hash, [hash], true])),
+                            BinaryWireFormat.SMILE_MEDIA_TYPE)
+                    .header("Accept", BinaryWireFormat.ACCEPT_SMILE_OR_JSON)
+        }
+
+        then:
+        1 * rpcClient.call({ it.method == "getblockheader" && it.params == [hash.toString(), [hash.toString()], true] }) >> Promise.value(response(1))
+        result.status.code == 200
+    }
+
+    def "methods that aren't allowed are rejected"() {
+        when:
+        def result = RequestFixture.handle(handler) { fixture ->
+            fixture.method("POST")
+                    .body(smileMapper.writeValueAsBytes(new JsonRpcRequest("stop")), BinaryWireFormat.SMILE_MEDIA_TYPE)
+        }
+
+        then:
+        0 * rpcClient.call(_)
+        result.status.code == 403
+    }
+
+    static JsonRpcResponse<JsonNode> response(int result) {
+        def response = new JsonRpcResponse<JsonNode>()
+        response.result = new IntNode(result)
+        response.id = "1"
+        return response
+    }
+}
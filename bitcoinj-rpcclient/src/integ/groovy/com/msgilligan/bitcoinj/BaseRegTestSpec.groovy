@@ -4,36 +4,58 @@ import com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient
 import org.consensusj.jsonrpc.Loggable
 import com.msgilligan.bitcoinj.rpc.RPCURI
 import com.msgilligan.bitcoinj.test.BTCTestSupport
+import com.msgilligan.bitcoinj.test.FundingPool
+import com.msgilligan.bitcoinj.test.RegTestEnvironment
 import com.msgilligan.bitcoinj.test.RegTestFundingSource
 import org.bitcoinj.core.Coin
+import org.bitcoinj.core.Sha256Hash
 import spock.lang.Specification
 import com.msgilligan.bitcoinj.rpc.test.TestServers
 
+import java.util.concurrent.ConcurrentHashMap
+
 
 /**
  * Abstract Base class for Spock tests of Bitcoin Core in RegTest mode
+ *
+ * Each spec uses its own wallet (named after the spec, on Bitcoin Core 0.17 and later) and generates blocks
+ * through a {@link RegTestEnvironment}, so specs can run in parallel forks against the same node.
  */
 abstract class BaseRegTestSpec extends Specification implements BTCTestSupport, Loggable {
     static final Coin minBTCForTests = 50.btc
     static final private TestServers testServers = TestServers.instance
     static final protected String rpcTestUser = testServers.rpcTestUser
     static final protected String rpcTestPassword = testServers.rpcTestPassword;
+    // Wallet and funding pool of each spec, shared by the spec instance running setupSpec() and the feature instances
+    static final private Map<String, String> specWallets = new ConcurrentHashMap<>()
+    static final private Map<String, FundingPool> fundingPools = new ConcurrentHashMap<>()
+
+    protected RegTestEnvironment chainEnv
 
     // Initializer to set up trait properties, Since Spock doesn't allow constructors
     {
         client = new BitcoinExtendedClient(RPCURI.defaultRegTestURI, rpcTestUser, rpcTestPassword)
-        fundingSource = new RegTestFundingSource(client)
+        client.walletName = specWallets.get(getClass().name)
+        chainEnv = new RegTestEnvironment(client)
+        fundingSource = new RegTestFundingSource(client, fundingPool())
     }
 
     void setupSpec() {
         serverReady()
+        if (new RegTestEnvironment(client).useWallet(getClass().simpleName)) {
+            specWallets.put(getClass().name, client.walletName)
+        }
 
         // Make sure we have enough test coins
         // Do we really need to keep doing this now that most tests
         // explicitly fund their addresses?
+        if (client.getBalance() < minBTCForTests) {
+            // A new wallet needs a coinbase of its own to mature
+            generate(client.netParams.spendableCoinbaseDepth + 1)
+        }
         while (client.getBalance() < minBTCForTests) {
             // Mine blocks until we have some coins to spend
-            client.generate()
+            generate()
         }
     }
 
@@ -45,4 +67,28 @@ abstract class BaseRegTestSpec extends Specification implements BTCTestSupport,
         consolidateCoins()
     }
 
-}
\ No newline at end of file
+    /**
+     * Generate blocks, coordinated with specs running in parallel
+     *
+     * @param numBlocks number of blocks to generate
+     * @return list containing block header hashes of the generated blocks
+     */
+    List<Sha256Hash> generate(int numBlocks) {
+        return chainEnv.waitForBlocks(numBlocks)
+    }
+
+    List<Sha256Hash> generate() {
+        return generate(1)
+    }
+
+    private FundingPool fundingPool() {
+        FundingPool pool = fundingPools.get(getClass().name)
+        if (pool == null) {
+            // First instance is the one running setupSpec(), its client is switched to the spec's wallet there
+            pool = new FundingPool(client)
+            FundingPool previous = fundingPools.putIfAbsent(getClass().name, pool)
+            pool = previous ?: pool
+        }
+        return pool
+    }
+}
@@ -78,7 +78,7 @@ class WorkingWithContractsSpec extends BaseRegTestSpec {
 
         when: "we send coins to the wallet and write a block"
         client.sendToAddress(walletAddr, walletStartAmount)
-        client.generate()
+        generate()
         Integer walletHeight, rpcHeight
         while ( (walletHeight = wallet.getLastBlockSeenHeight()) < (rpcHeight = client.getBlockCount()) ) {
             // TODO: Figure out a way to do this without polling and sleeping
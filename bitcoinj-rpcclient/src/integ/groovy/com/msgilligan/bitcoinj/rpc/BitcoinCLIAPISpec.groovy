@@ -30,8 +30,8 @@ class BitcoinCLIAPISpec extends BaseRegTestSpec {
         when: "we generate 1 new block"
         def result = setgenerate(true, 1)
 
-        then: "the block height is 1 higher"
-        getblockcount() == startHeight + 1
+        then: "the block height is at least 1 higher (specs in other forks may generate blocks too)"
+        getblockcount() >= startHeight + 1
     }
 
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.msgilligan.bitcoinj.rpc
 
 import com.msgilligan.bitcoinj.rpc.test.TestServers
+import com.msgilligan.bitcoinj.test.RegTestEnvironment
 import org.consensusj.jsonrpc.DynamicRPCClient
 import org.consensusj.jsonrpc.JsonRPCStatusException
 import spock.lang.Ignore
@@ -19,9 +20,12 @@ class DynamicRPCClientSpec extends Specification {
 
     @Shared
     DynamicRPCClient client
+    @Shared
+    RegTestEnvironment chainEnv
 
     void setupSpec() {
         client = new DynamicRPCClient(RPCURI.defaultRegTestURI, rpcTestUser, rpcTestPassword)
+        chainEnv = new RegTestEnvironment(new BitcoinClient(RPCURI.defaultRegTestURI, rpcTestUser, rpcTestPassword))
 
 // TODO: Need to implement waitForServer()
 // waitForServer() is in BitcoinClient because it uses getBlockCount()
@@ -47,7 +51,7 @@ class DynamicRPCClientSpec extends Specification {
     @Ignore("Wait until we're able to require bitcoind 0.11.x or later")
     def "setgenerate"() {
         when:
-        def result = client.generate(2)
+        def result = chainEnv.withGenerateLock { client.generate(2) }
 
         then:
         result != null /* Bitcoin 0.10.x or later */
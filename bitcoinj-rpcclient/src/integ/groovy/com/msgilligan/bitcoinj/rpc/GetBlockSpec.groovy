@@ -20,14 +20,14 @@ class GetBlockSpec extends BaseRegTestSpec {
         when: "we generate 1 new block"
         def result = generate()
 
-        then: "the block height is 1 higher"
-        blockCount == startHeight + 1
+        then: "the block height is at least 1 higher (specs in other forks may generate blocks too)"
+        blockCount >= startHeight + 1
 
         and: "We have a txid if version > 10"
         !version10 || version10 && result.size() == 1 && result[0] instanceof Sha256Hash
 
-        when:
-        def block = getBlock(blockCount)
+        when: "we get the block we generated"
+        def block = version10 ? getBlock(result[0]) : getBlock(blockCount)
 
         then:
         block instanceof Block
@@ -37,7 +37,8 @@ class GetBlockSpec extends BaseRegTestSpec {
 
         then:
         blockInfo instanceof BlockInfo
-        blockInfo.height == blockCount
+        blockInfo.height > startHeight
+        getBlockHash(blockInfo.height) == block.hash
 
         and:
         block.hash == blockInfo.hash
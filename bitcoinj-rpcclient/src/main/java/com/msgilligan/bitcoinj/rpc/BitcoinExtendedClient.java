@@ -1,18 +1,34 @@
 package com.msgilligan.bitcoinj.rpc;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.msgilligan.bitcoinj.json.pojo.Outpoint;
 import com.msgilligan.bitcoinj.json.pojo.SignedRawTransaction;
 import com.msgilligan.bitcoinj.json.pojo.UnspentOutput;
+import com.msgilligan.bitcoinj.rpc.coinselection.CoinSelection;
+import com.msgilligan.bitcoinj.rpc.coinselection.CoinSelector;
+import com.msgilligan.bitcoinj.rpc.coinselection.FeeModel;
+import com.msgilligan.bitcoinj.rpc.index.TxLocation;
+import com.msgilligan.bitcoinj.rpc.index.TxLocationIndex;
+import com.msgilligan.bitcoinj.rpc.index.UtxoEntry;
+import com.msgilligan.bitcoinj.rpc.index.UtxoIndex;
+import com.msgilligan.bitcoinj.rpc.signing.TransactionSigner;
 import org.consensusj.jsonrpc.JsonRPCStatusException;
 import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
 import org.bitcoinj.core.TransactionOutPoint;
 import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.crypto.TransactionSignature;
 import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
 
 import java.io.IOException;
 import java.net.URI;
@@ -34,6 +50,13 @@ public class BitcoinExtendedClient extends BitcoinClient {
     public final Coin stdRelayTxFee = Coin.valueOf(1000);
     public final Integer defaultMaxConf = 9999999;
     public final long stdTxFeeSatoshis = stdTxFee.getValue();
+    private static final int RECENT_BLOCKS = 8;
+    private volatile UtxoIndex utxoIndex = null;
+    private volatile TxLocationIndex txLocationIndex = null;
+    private volatile CoinSelector coinSelector = null;
+    private volatile FeeModel feeModel = null;
+    private volatile TransactionSigner transactionSigner = null;
+    private final Cache<Sha256Hash, Block> recentBlocks = CacheBuilder.newBuilder().maximumSize(RECENT_BLOCKS).build();
 
     @Deprecated
     public BitcoinExtendedClient(URI server, String rpcuser, String rpcpassword) {
@@ -48,9 +71,117 @@ public class BitcoinExtendedClient extends BitcoinClient {
         super(RegTestParams.get(), config.getURI(), config.getUsername(), config.getPassword());
     }
 
+    /**
+     * Use a local UTXO index (kept up-to-date by the caller, e.g. with a
+     * {@link com.msgilligan.bitcoinj.rpc.index.ChainFollower}) instead of `listunspent`
+     * in {@link #getBitcoinBalance(Address, Integer, Integer)} and {@link #createRawTransaction(Address, Map)}.
+     * The index only contains confirmed outputs (`listunspent` is called with `minconf` 0, so it
+     * also returns unconfirmed outputs), but works for any address.
+     *
+     * @param utxoIndex The index or `null` to use `listunspent`
+     */
+    public void setUtxoIndex(UtxoIndex utxoIndex) {
+        this.utxoIndex = utxoIndex;
+    }
+
+    public UtxoIndex getUtxoIndex() {
+        return utxoIndex;
+    }
+
+    /**
+     * Use a local transaction location index (kept up-to-date by the caller, e.g. with a
+     * {@link com.msgilligan.bitcoinj.rpc.index.ChainFollower}) in {@link #getRawTransaction(Sha256Hash)},
+     * so confirmed transactions can be found on nodes without `-txindex`.
+     *
+     * @param txLocationIndex The index or `null` to only use `getrawtransaction`
+     */
+    public void setTxLocationIndex(TxLocationIndex txLocationIndex) {
+        this.txLocationIndex = txLocationIndex;
+    }
+
+    public TxLocationIndex getTxLocationIndex() {
+        return txLocationIndex;
+    }
+
+    /**
+     * Select the inputs of transactions built by {@link #createRawTransaction(Address, Map)} and
+     * {@link #createSignedTransaction(ECKey, List)} with a {@link CoinSelector} and pay a size-based fee,
+     * instead of spending every unspent output of the source address and paying {@link #stdTxFee}.
+     * {@link #createSignedTransaction(ECKey, List)} then signs each input against the `scriptPubKey` returned by
+     * `listunspent` (or the P2PKH script of the key for outputs from the UTXO index) and makes no
+     * `getrawtransaction` calls.
+     *
+     * @param coinSelector The selector (e.g. a {@link com.msgilligan.bitcoinj.rpc.coinselection.DefaultCoinSelector})
+     *                     or `null` to spend all outputs
+     * @param feeModel Fees to pay (ignored if `coinSelector` is `null`) or `null` for {@link #stdTxFee} per kB
+     */
+    public void setCoinSelection(CoinSelector coinSelector, FeeModel feeModel) {
+        this.feeModel = (feeModel != null) ? feeModel : new FeeModel(stdTxFee);
+        this.coinSelector = coinSelector;
+    }
+
+    public CoinSelector getCoinSelector() {
+        return coinSelector;
+    }
+
+    public FeeModel getFeeModel() {
+        return feeModel;
+    }
+
+    /**
+     * Sign the inputs of transactions built by {@link #createSignedTransaction(ECKey, List)} in parallel
+     * with a {@link TransactionSigner}, instead of one after the other.
+     *
+     * @param transactionSigner The signer or `null` to sign sequentially
+     */
+    public void setTransactionSigner(TransactionSigner transactionSigner) {
+        this.transactionSigner = transactionSigner;
+    }
+
+    public TransactionSigner getTransactionSigner() {
+        return transactionSigner;
+    }
+
+    /**
+     * Get a transaction. If a {@link TxLocationIndex} is set, confirmed transactions are extracted from
+     * their block (recently used blocks are cached), otherwise (and for unconfirmed transactions)
+     * `getrawtransaction` is used.
+     *
+     * @param txid Transaction ID/hash
+     * @return bitcoinj Transaction
+     * @throws JsonRPCStatusException JSON RPC status exception
+     * @throws IOException network error
+     */
+    @Override
+    public Transaction getRawTransaction(Sha256Hash txid) throws JsonRPCStatusException, IOException {
+        TxLocationIndex index = txLocationIndex;
+        if (index != null) {
+            for (TxLocation location : index.find(txid)) {
+                List<Transaction> transactions = getRecentBlock(getBlockHash(location.getHeight())).getTransactions();
+                if (location.getPosition() < transactions.size()) {
+                    Transaction tx = transactions.get(location.getPosition());
+                    if (tx.getHash().equals(txid)) {
+                        return tx;
+                    }
+                }
+            }
+        }
+        return super.getRawTransaction(txid);
+    }
+
+    private Block getRecentBlock(Sha256Hash hash) throws JsonRPCStatusException, IOException {
+        Block block = recentBlocks.getIfPresent(hash);
+        if (block == null) {
+            block = getBlock(hash);
+            recentBlocks.put(hash, block);
+        }
+        return block;
+    }
+
     /**
      * Creates a raw transaction, spending from a single address, whereby no new change address is created, and
-     * remaining amounts are returned to {@code fromAddress}.
+     * remaining amounts are returned to {@code fromAddress}. All unspent outputs of {@code fromAddress} are spent,
+     * unless coin selection is enabled with {@link #setCoinSelection(CoinSelector, FeeModel)}.
      *
      * Note: the transaction inputs are not signed, and the transaction is not stored in the wallet or transmitted to
      * the network.
@@ -60,27 +191,34 @@ public class BitcoinExtendedClient extends BitcoinClient {
      * @return The hex-encoded raw transaction
      */
     public String createRawTransaction(Address fromAddress, Map<Address, Coin> outputs) throws JsonRPCStatusException, IOException {
-        // Get unspent outputs via RPC
-        List<UnspentOutput> unspentOutputs = listUnspent(0, defaultMaxConf, Collections.singletonList(fromAddress));
-
-        // Gather inputs
         List<Outpoint> inputs = new ArrayList<>();
-        for (UnspentOutput input : unspentOutputs) {
-            inputs.add(new Outpoint(input.getTxid(), input.getVout()));
-        }
+        List<Coin> values = new ArrayList<>();
+        listUnspentOutpoints(fromAddress, inputs, values, new ArrayList<>());
 
         // Calculate change
-        long amountIn = 0;
         long amountOut = 0;
-        for (UnspentOutput it : unspentOutputs) {
-            amountIn += it.getAmount().value;
-        }
         for (Coin it : outputs.values()) {
             amountOut += it.value;
         }
-        Coin amountChange = Coin.valueOf(amountIn - amountOut - stdTxFee.value);
-        if (amountIn < (amountOut + stdTxFee.value)) {
-            System.out.println("Insufficient funds"); // + ": ${amountIn} < ${amountOut + stdTxFee}"
+        Coin amountChange;
+        CoinSelector selector = coinSelector;
+        if (selector != null) {
+            CoinSelection selection = selectCoins(selector, values, amountOut, outputs.size());
+            List<Outpoint> selected = new ArrayList<>();
+            for (int i : selection.getIndices()) {
+                selected.add(inputs.get(i));
+            }
+            inputs = selected;
+            amountChange = Coin.valueOf(selection.getChange());
+        } else {
+            long amountIn = 0;
+            for (Coin it : values) {
+                amountIn += it.value;
+            }
+            amountChange = Coin.valueOf(amountIn - amountOut - stdTxFee.value);
+            if (amountIn < (amountOut + stdTxFee.value)) {
+                System.out.println("Insufficient funds"); // + ": ${amountIn} < ${amountOut + stdTxFee}"
+            }
         }
         // Copy the Map (which may be immutable) and add change output if needed.
         Map<Address,Coin> outputsWithChange = new HashMap<>(outputs);
@@ -91,6 +229,50 @@ public class BitcoinExtendedClient extends BitcoinClient {
         return createRawTransaction(inputs, outputsWithChange);
     }
 
+    /**
+     * Get the unspent outputs of an address from the UTXO index (if set) or `listunspent`
+     *
+     * The index only has confirmed outputs with the P2PKH script of the address. `listunspent` (with `minconf` 0)
+     * also returns unconfirmed outputs and outputs with other scripts, e.g. P2PK coinbase outputs.
+     */
+    private void listUnspentOutpoints(Address address, List<Outpoint> outpoints, List<Coin> values, List<Script> scriptPubKeys) throws JsonRPCStatusException, IOException {
+        UtxoIndex index = utxoIndex;
+        Script addressScript = ScriptBuilder.createOutputScript(address);
+        if (index != null) {
+            // Get unspent outputs from the local index
+            for (UtxoEntry input : index.listUnspent(address)) {
+                outpoints.add(input.toOutpoint());
+                values.add(input.getValue());
+                scriptPubKeys.add(addressScript);
+            }
+        } else {
+            // Get unspent outputs via RPC
+            List<UnspentOutput> unspentOutputs = listUnspent(0, defaultMaxConf, Collections.singletonList(address));
+            for (UnspentOutput input : unspentOutputs) {
+                outpoints.add(new Outpoint(input.getTxid(), input.getVout()));
+                values.add(input.getAmount());
+                scriptPubKeys.add(input.getScriptPubKey() != null
+                        ? new Script(Utils.HEX.decode(input.getScriptPubKey()))
+                        : addressScript);
+            }
+        }
+    }
+
+    private CoinSelection selectCoins(CoinSelector selector, List<Coin> values, long amountOut, int outputCount) {
+        long[] candidates = new long[values.size()];
+        long available = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = values.get(i).value;
+            available += candidates[i];
+        }
+        CoinSelection selection = selector.select(candidates, amountOut, outputCount, feeModel);
+        if (selection == null) {
+            throw new IllegalArgumentException("Insufficient funds: " + Coin.valueOf(available).toFriendlyString() +
+                    " available for " + Coin.valueOf(amountOut).toFriendlyString() + " and fee");
+        }
+        return selection;
+    }
+
     /**
      * Creates a raw transaction, sending {@code amount} from a single address to a destination, whereby no new change
      * address is created, and remaining amounts are returned to {@code fromAddress}.
@@ -139,12 +321,19 @@ public class BitcoinExtendedClient extends BitcoinClient {
      * Returns the Bitcoin balance of an address where spendable outputs have at least {@code minConf} and not more
      * than {@code maxConf} confirmations.
      *
-     * @param address The address (must be in wallet)
+     * @param address The address (must be in wallet, unless a UTXO index is set)
      * @param minConf Minimum amount of confirmations
      * @param maxConf Maximum amount of confirmations
      * @return The balance
      */
     public Coin getBitcoinBalance(Address address, Integer minConf, Integer maxConf) throws JsonRPCStatusException, IOException {
+        UtxoIndex index = utxoIndex;
+        if (index != null) {
+            // Same defaults as `listunspent` for omitted (null) parameters
+            return index.getBalance(address,
+                    (minConf != null) ? minConf : 1,
+                    (maxConf != null) ? maxConf : defaultMaxConf);
+        }
         long btcBalance = 0;
         List<UnspentOutput> unspentOutputs = listUnspent(minConf, maxConf, Collections.singletonList(address));
 
@@ -191,6 +380,10 @@ public class BitcoinExtendedClient extends BitcoinClient {
     }
 
     public Transaction createSignedTransaction(ECKey fromKey, List<TransactionOutput> outputs) throws JsonRPCStatusException, IOException {
+        CoinSelector selector = coinSelector;
+        if (selector != null) {
+            return createSelectedSignedTransaction(selector, fromKey, outputs);
+        }
         Address fromAddress = fromKey.toAddress(getNetParams());
         Transaction tx = new Transaction(getNetParams());
 
@@ -222,9 +415,62 @@ public class BitcoinExtendedClient extends BitcoinClient {
             tx.addOutput(Coin.valueOf(amountChange), fromAddress);
         }
 
-        // Add all UTXOs for fromAddress as inputs
+        // Add all UTXOs for fromAddress as inputs, then sign them
+        List<Script> scriptPubKeys = new ArrayList<>();
         for (TransactionOutput it : unspentOutputs) {
-            tx.addSignedInput(it, fromKey);
+            tx.addInput(it);
+            scriptPubKeys.add(it.getScriptPubKey());
+        }
+        TransactionSigner signer = transactionSigner;
+        return (signer != null) ? signer.sign(tx, scriptPubKeys, fromKey) : signInputs(tx, scriptPubKeys, fromKey);
+    }
+
+    /**
+     * Spend the selected outputs, signing against their `scriptPubKey` from `listunspent` or the UTXO index
+     * (so no previous transactions are fetched)
+     */
+    private Transaction createSelectedSignedTransaction(CoinSelector selector, ECKey fromKey, List<TransactionOutput> outputs) throws JsonRPCStatusException, IOException {
+        Address fromAddress = fromKey.toAddress(getNetParams());
+        List<Outpoint> inputs = new ArrayList<>();
+        List<Coin> values = new ArrayList<>();
+        List<Script> unspentScripts = new ArrayList<>();
+        listUnspentOutpoints(fromAddress, inputs, values, unspentScripts);
+
+        long amountOut = 0;
+        for (TransactionOutput it : outputs) {
+            amountOut += it.getValue().value;
+        }
+        CoinSelection selection = selectCoins(selector, values, amountOut, outputs.size());
+
+        Transaction tx = new Transaction(getNetParams());
+        for (TransactionOutput it : outputs) {
+            tx.addOutput(it);
+        }
+        if (selection.hasChange()) {
+            tx.addOutput(Coin.valueOf(selection.getChange()), fromAddress);
+        }
+        List<Script> scriptPubKeys = new ArrayList<>();
+        for (int i : selection.getIndices()) {
+            Outpoint input = inputs.get(i);
+            TransactionOutPoint outPoint = new TransactionOutPoint(getNetParams(), input.getVout(), input.getTxid());
+            tx.addInput(new TransactionInput(getNetParams(), tx, new byte[0], outPoint));
+            scriptPubKeys.add(unspentScripts.get(i));
+        }
+        // Sign after all inputs are added, the signature hashes cover the whole input list
+        TransactionSigner signer = transactionSigner;
+        return (signer != null) ? signer.sign(tx, scriptPubKeys, fromKey) : signInputs(tx, scriptPubKeys, fromKey);
+    }
+
+    /**
+     * Sign all (P2PKH or P2PK) inputs of a transaction one after the other, once all inputs are added
+     */
+    private static Transaction signInputs(Transaction tx, List<Script> scriptPubKeys, ECKey key) {
+        for (int i = 0; i < scriptPubKeys.size(); i++) {
+            Script script = scriptPubKeys.get(i);
+            TransactionSignature signature = tx.calculateSignature(i, key, script, Transaction.SigHash.ALL, false);
+            tx.getInput(i).setScriptSig(script.isSentToRawPubKey()
+                    ? ScriptBuilder.createInputScript(signature)
+                    : ScriptBuilder.createInputScript(signature, key));
         }
         return tx;
     }
@@ -0,0 +1,67 @@
+package com.msgilligan.bitcoinj.rpc;
+
+import org.bitcoinj.core.Sha256Hash;
+
+/**
+ * Outcome of broadcasting one transaction with a {@link TransactionBroadcaster}
+ */
+public class BroadcastResult {
+    public enum Status {
+        /** Accepted by the node */
+        ACCEPTED,
+        /** Already in the mempool or the chain */
+        ALREADY_KNOWN,
+        /** Rejected by the node (see {@link #getMessage()}) */
+        REJECTED,
+        /** Not known to be accepted because of a network error (see {@link #getMessage()}) */
+        FAILED,
+        /** Not submitted because a transaction it spends from was not accepted */
+        SKIPPED
+    }
+
+    private final Sha256Hash txid;
+    private final Status status;
+    private final int errorCode;
+    private final String message;
+
+    public BroadcastResult(Sha256Hash txid, Status status, int errorCode, String message) {
+        this.txid = txid;
+        this.status = status;
+        this.errorCode = errorCode;
+        this.message = message;
+    }
+
+    public Sha256Hash getTxid() {
+        return txid;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return `true` if the transaction is in the mempool or the chain
+     */
+    public boolean isAccepted() {
+        return status == Status.ACCEPTED || status == Status.ALREADY_KNOWN;
+    }
+
+    /**
+     * @return JSON-RPC error code of a rejected transaction, otherwise `0`
+     */
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * @return Reason the transaction was not accepted, `null` if accepted
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return txid + " " + status + (message != null ? ": " + message : "");
+    }
+}
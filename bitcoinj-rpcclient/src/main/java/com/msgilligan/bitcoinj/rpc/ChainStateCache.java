@@ -0,0 +1,320 @@
+package com.msgilligan.bitcoinj.rpc;
+
+import com.msgilligan.bitcoinj.rpc.index.ChainListener;
+import org.bitcoinj.core.Block;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * = Memoizes results of chain-state RPC methods until the tip changes or a time-to-live expires
+ *
+ * Results such as `getblockchaininfo`, `getdifficulty` or `estimatesmartfee` only change when a block
+ * is connected or disconnected, so a {@link BitcoinClient} with a cache (see
+ * {@link BitcoinClient#setChainStateCache(ChainStateCache)}) returns the memoized result to every
+ * caller until then. Results are memoized per method and parameters. Tip changes are detected from
+ * `getblockcount` results and from `generate`/`invalidateblock`/`reconsiderblock` calls made through
+ * a client using the cache, or reported by a {@link com.msgilligan.bitcoinj.rpc.index.ChainFollower}
+ * (the cache is a {@link ChainListener}). A per-method time-to-live bounds staleness for changes
+ * made by others and for methods (like `getnetworkinfo`) that don't depend on the tip.
+ *
+ * Concurrent misses for the same method and parameters wait for a single RPC call. Use
+ * {@link #forEndpoint(URI)} to share one cache among all clients of a node that use the same wallet
+ * (`getinfo` includes the wallet balance, so clients of different wallets don't share results, and
+ * sends through a client using the cache {@link #invalidate(String) invalidate} it).
+ */
+public class ChainStateCache implements ChainListener {
+    private static final ConcurrentMap<URI, ChainStateCache> shared = new ConcurrentHashMap<>();
+    private static final long DEFAULT_TTL_MILLIS = 1000;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Policy> policies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger epoch = new AtomicInteger();
+    private final AtomicLong lastBlockCount = new AtomicLong(-1);
+
+    /**
+     * Load the result of an RPC method
+     *
+     * @param <T> Result type
+     */
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    public ChainStateCache() {
+        setPolicy("getblockchaininfo", true, DEFAULT_TTL_MILLIS);
+        setPolicy("getinfo", true, DEFAULT_TTL_MILLIS);
+        setPolicy("getchaintips", true, DEFAULT_TTL_MILLIS);
+        setPolicy("getnetworkinfo", false, 5 * DEFAULT_TTL_MILLIS);
+        setPolicy("getdifficulty", true, DEFAULT_TTL_MILLIS);
+        setPolicy("estimatefee", true, DEFAULT_TTL_MILLIS);
+        setPolicy("estimatesmartfee", true, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param endpoint Request URI of a client, the server URI or its `/wallet/<name>` endpoint
+     *                 (see {@link org.consensusj.jsonrpc.RPCClient#getRequestURI()})
+     * @return The cache shared by all clients of the endpoint
+     */
+    public static ChainStateCache forEndpoint(URI endpoint) {
+        ChainStateCache cache = shared.get(endpoint);
+        if (cache == null) {
+            ChainStateCache created = new ChainStateCache();
+            cache = shared.putIfAbsent(endpoint, created);
+            if (cache == null) {
+                cache = created;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Memoize a method or change how it is memoized
+     *
+     * @param method RPC method name (results are memoized per method and parameters)
+     * @param tipScoped `true` if results are invalidated when the tip changes
+     * @param ttlMillis Maximum age of a result in milliseconds
+     */
+    public void setPolicy(String method, boolean tipScoped, long ttlMillis) {
+        policies.put(method, new Policy(tipScoped, TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+        invalidate(method);
+    }
+
+    /**
+     * Invalidate the results of a method (for all parameters), e.g. `getinfo` after a send changed the
+     * wallet balance
+     *
+     * @param method RPC method name
+     */
+    public void invalidate(String method) {
+        for (Key key : entries.keySet()) {
+            if (key.method.equals(method)) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @param method RPC method name
+     * @return `true` if results of `method` are memoized
+     */
+    public boolean isMemoized(String method) {
+        return policies.containsKey(method);
+    }
+
+    /**
+     * Return a memoized result of a method without parameters or load (and memoize) a new one
+     *
+     * @param method RPC method name
+     * @param loader Calls the RPC method
+     * @param <T> Result type
+     * @return The result
+     * @throws IOException if `loader` fails (failures aren't memoized)
+     */
+    public <T> T get(String method, Loader<T> loader) throws IOException {
+        return get(method, Collections.emptyList(), loader);
+    }
+
+    /**
+     * Return a memoized result or load (and memoize) a new one
+     *
+     * @param method RPC method name
+     * @param params RPC parameters (elements must implement `equals` and `hashCode`)
+     * @param loader Calls the RPC method with `params`
+     * @param <T> Result type
+     * @return The result
+     * @throws IOException if `loader` fails (failures aren't memoized)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String method, List<?> params, final Loader<T> loader) throws IOException {
+        Policy policy = policies.get(method);
+        if (policy == null) {
+            return loader.load();
+        }
+        Key key = new Key(method, params);
+        while (true) {
+            long now = System.nanoTime();
+            Entry entry = entries.get(key);
+            if (entry != null && isValid(entry, policy, now)) {
+                stats(method).hits.incrementAndGet();
+                return (T) await(entry.task);
+            }
+            Entry fresh = new Entry(epoch.get(), now, new FutureTask<>(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return loader.load();
+                }
+            }));
+            boolean installed = (entry == null) ? entries.putIfAbsent(key, fresh) == null : entries.replace(key, entry, fresh);
+            if (!installed) {
+                continue;       // Another thread is loading, use its result
+            }
+            stats(method).misses.incrementAndGet();
+            fresh.task.run();
+            try {
+                return (T) await(fresh.task);
+            } catch (IOException | RuntimeException e) {
+                entries.remove(key, fresh);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Invalidate the results of all tip-scoped methods
+     */
+    public void tipChanged() {
+        epoch.incrementAndGet();
+    }
+
+    /**
+     * Report a `getblockcount` result, the tip has changed if it differs from the last one
+     *
+     * @param blockCount Block count returned by the node
+     */
+    public void observeBlockCount(int blockCount) {
+        long previous = lastBlockCount.getAndSet(blockCount);
+        if (previous != blockCount && previous != -1) {
+            tipChanged();
+        }
+    }
+
+    @Override
+    public void blockConnected(int height, Block block) {
+        tipChanged();
+    }
+
+    @Override
+    public void blockDisconnected(int height, Block block) {
+        tipChanged();
+    }
+
+    /**
+     * @param method RPC method name
+     * @return Number of calls answered from the cache
+     */
+    public long getHitCount(String method) {
+        Stats s = stats.get(method);
+        return (s != null) ? s.hits.get() : 0;
+    }
+
+    /**
+     * @param method RPC method name
+     * @return Number of calls that were sent to the node
+     */
+    public long getMissCount(String method) {
+        Stats s = stats.get(method);
+        return (s != null) ? s.misses.get() : 0;
+    }
+
+    /**
+     * @return Number of RPC calls avoided, by method name
+     */
+    public Map<String, Long> getAvoidedCalls() {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().hits.get());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private boolean isValid(Entry entry, Policy policy, long now) {
+        return (!policy.tipScoped || entry.epoch == epoch.get()) && now - entry.loadedNanos < policy.ttlNanos;
+    }
+
+    private Stats stats(String method) {
+        Stats s = stats.get(method);
+        if (s == null) {
+            Stats created = new Stats();
+            s = stats.putIfAbsent(method, created);
+            if (s == null) {
+                s = created;
+            }
+        }
+        return s;
+    }
+
+    private static Object await(FutureTask<Object> task) throws IOException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for RPC result");
+        }
+    }
+
+    private static class Key {
+        final String method;
+        final List<?> params;
+
+        Key(String method, List<?> params) {
+            this.method = method;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return method.equals(other.method) && params.equals(other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * method.hashCode() + params.hashCode();
+        }
+    }
+
+    private static class Entry {
+        final int epoch;
+        final long loadedNanos;
+        final FutureTask<Object> task;
+
+        Entry(int epoch, long loadedNanos, FutureTask<Object> task) {
+            this.epoch = epoch;
+            this.loadedNanos = loadedNanos;
+            this.task = task;
+        }
+    }
+
+    private static class Policy {
+        final boolean tipScoped;
+        final long ttlNanos;
+
+        Policy(boolean tipScoped, long ttlNanos) {
+            this.tipScoped = tipScoped;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    private static class Stats {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+    }
+}
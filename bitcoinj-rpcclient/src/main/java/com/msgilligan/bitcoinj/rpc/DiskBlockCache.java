@@ -0,0 +1,342 @@
+package com.msgilligan.bitcoinj.rpc;
+
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * = Persistent cache of raw blocks in compressed, append-only segment files
+ *
+ * Used by {@link BitcoinClient#getBlock(Sha256Hash)} and {@link BitcoinClient#getBlock(Integer)} (see
+ * {@link BitcoinClient#setBlockCache(DiskBlockCache)}) so repeated scans of historical blocks are read
+ * from local disk instead of fetched over RPC. Blocks are deflated and appended to `blocks-NNNNN.dat`
+ * segment files. The location of each block is appended to `index.dat`, a memory-mapped file of fixed-size
+ * entries (hash, height, segment, offset, length) that is read when the cache is opened to build the
+ * lookup tables by hash and by height.
+ *
+ * Block data is forced to storage before its index entry, and the entry before the count that publishes it, so
+ * after a crash (including an OS crash) every counted entry points at complete data.
+ *
+ * Entries are only appended, the last block stored for a height wins (e.g. after a reorg). Blocks are
+ * immutable, so lookups by hash are always valid, but callers should only use {@link #get(int)} for heights
+ * that can't be reorganized.
+ */
+public class DiskBlockCache implements Closeable {
+    public static final long DEFAULT_SEGMENT_SIZE = 256L << 20;
+    public static final long MAX_SEGMENT_SIZE = 4L << 30;     // offsets are stored as unsigned ints
+    private static final int MAGIC = 0x424c4b30;    // "BLK0"
+    private static final int FORMAT_VERSION = 1;
+    private static final int INDEX_CHUNK = 1 << 16; // entries per mapped chunk of index.dat
+
+    // index.dat header
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_COUNT = 8;
+
+    // index.dat entries
+    private static final int ENTRY_SIZE = 48;
+    private static final int HASH = 0;
+    private static final int HEIGHT = 32;
+    private static final int SEGMENT = 36;
+    private static final int OFFSET = 40;
+    private static final int LENGTH = 44;
+
+    private final Context context;
+    private final File directory;
+    private final long segmentSize;
+    private final RandomAccessFile indexFile;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> indexChunks = new ArrayList<>();
+    private final Map<Sha256Hash, Integer> byHash = new HashMap<>();
+    private int[] byHeight = new int[1024];     // entry + 1, 0 is none
+    private final List<FileChannel> segments = new ArrayList<>();
+    private final List<RandomAccessFile> segmentFiles = new ArrayList<>();
+    private int count;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Open an existing cache or create a new one
+     *
+     * @param netParams Network parameters for parsing blocks
+     * @param directory Directory for the cache files (created if needed)
+     * @throws IOException if the cache can't be opened
+     */
+    public DiskBlockCache(NetworkParameters netParams, File directory) throws IOException {
+        this(netParams, directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param netParams Network parameters for parsing blocks
+     * @param directory Directory for the cache files (created if needed)
+     * @param segmentSize Size at which a new segment file is started (at most {@link #MAX_SEGMENT_SIZE})
+     * @throws IOException if the cache can't be opened
+     */
+    public DiskBlockCache(NetworkParameters netParams, File directory, long segmentSize) throws IOException {
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be between 1 and " + MAX_SEGMENT_SIZE + " bytes");
+        }
+        this.context = new Context(netParams);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        File index = new File(directory, "index.dat");
+        boolean exists = index.length() >= HEADER_SIZE;
+        indexFile = new RandomAccessFile(index, "rw");
+        indexChannel = indexFile.getChannel();
+        header = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (exists) {
+            if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != FORMAT_VERSION) {
+                close();
+                throw new IOException(index + " is not a block cache index");
+            }
+            count = header.getInt(H_COUNT);
+        } else {
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, FORMAT_VERSION);
+            header.putInt(H_COUNT, 0);
+            count = 0;
+        }
+        int lastSegment = -1;
+        for (int e = 0; e < count; e++) {
+            MappedByteBuffer chunk = indexChunk(e);
+            int base = (e % INDEX_CHUNK) * ENTRY_SIZE;
+            byHash.put(Sha256Hash.wrap(readHash(chunk, base)), e);
+            setHeight(chunk.getInt(base + HEIGHT), e);
+            lastSegment = Math.max(lastSegment, chunk.getInt(base + SEGMENT));
+        }
+        for (int s = 0; s <= lastSegment; s++) {
+            openSegment(s);
+        }
+    }
+
+    /**
+     * @return Number of cached blocks
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized boolean contains(Sha256Hash hash) {
+        return byHash.containsKey(hash);
+    }
+
+    /**
+     * @param hash Block hash
+     * @return The block or `null` if not cached
+     * @throws IOException if the block can't be read
+     */
+    public Block get(Sha256Hash hash) throws IOException {
+        Integer entry;
+        synchronized (this) {
+            entry = byHash.get(hash);
+        }
+        return read(entry);
+    }
+
+    /**
+     * @param height Block height
+     * @return The block last stored for `height` or `null` if none
+     * @throws IOException if the block can't be read
+     */
+    public Block get(int height) throws IOException {
+        Integer entry;
+        synchronized (this) {
+            entry = (height >= 0 && height < byHeight.length && byHeight[height] != 0) ? byHeight[height] - 1 : null;
+        }
+        return read(entry);
+    }
+
+    /**
+     * Add a block (blocks that are already cached are ignored)
+     *
+     * @param height Block height or `-1` if unknown
+     * @param block The block
+     * @throws IOException if the block can't be written
+     */
+    public void put(int height, Block block) throws IOException {
+        Sha256Hash hash = block.getHash();
+        synchronized (this) {
+            if (byHash.containsKey(hash)) {
+                return;
+            }
+        }
+        byte[] compressed = compress(block.bitcoinSerialize());
+        synchronized (this) {
+            if (byHash.containsKey(hash)) {
+                return;
+            }
+            int s = segments.size() - 1;
+            if (s < 0 || segments.get(s).size() + compressed.length > segmentSize) {
+                s = segments.size();
+                openSegment(s);
+            }
+            FileChannel segment = segments.get(s);
+            long offset = segment.size();
+            ByteBuffer data = ByteBuffer.wrap(compressed);
+            while (data.hasRemaining()) {
+                segment.write(data, offset + data.position());
+            }
+            // Block data is on storage before its index entry, and the entry before the count
+            segment.force(false);
+            int e = count;
+            MappedByteBuffer chunk = indexChunk(e);
+            int base = (e % INDEX_CHUNK) * ENTRY_SIZE;
+            byte[] hashBytes = hash.getBytes();
+            for (int j = 0; j < 32; j++) {
+                chunk.put(base + HASH + j, hashBytes[j]);
+            }
+            chunk.putInt(base + HEIGHT, height);
+            chunk.putInt(base + SEGMENT, s);
+            chunk.putInt(base + OFFSET, (int) offset);
+            chunk.putInt(base + LENGTH, compressed.length);
+            chunk.force();
+            count++;
+            header.putInt(H_COUNT, count);
+            byHash.put(hash, e);
+            setHeight(height, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (MappedByteBuffer chunk : indexChunks) {
+            chunk.force();
+        }
+        header.force();
+        for (RandomAccessFile file : segmentFiles) {
+            file.close();
+        }
+        segments.clear();
+        segmentFiles.clear();
+        indexChunks.clear();
+        indexChannel.close();
+        indexFile.close();
+    }
+
+    private Block read(Integer entry) throws IOException {
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        FileChannel segment;
+        long offset;
+        int length;
+        synchronized (this) {
+            MappedByteBuffer chunk = indexChunk(entry);
+            int base = (entry % INDEX_CHUNK) * ENTRY_SIZE;
+            segment = segments.get(chunk.getInt(base + SEGMENT));
+            offset = chunk.getInt(base + OFFSET) & 0xffffffffL;
+            length = chunk.getInt(base + LENGTH);
+        }
+        ByteBuffer data = ByteBuffer.allocate(length);
+        while (data.hasRemaining()) {
+            if (segment.read(data, offset + data.position()) < 0) {
+                throw new IOException("Truncated block cache segment");
+            }
+        }
+        hits.incrementAndGet();
+        return context.getParams().getDefaultSerializer().makeBlock(decompress(data.array()));
+    }
+
+    private void setHeight(int height, int entry) {
+        if (height < 0) {
+            return;
+        }
+        if (height >= byHeight.length) {
+            byHeight = Arrays.copyOf(byHeight, Math.max(byHeight.length * 2, height + 1));
+        }
+        byHeight[height] = entry + 1;
+    }
+
+    private MappedByteBuffer indexChunk(int entry) throws IOException {
+        int n = entry / INDEX_CHUNK;
+        while (indexChunks.size() <= n) {
+            long size = (long) INDEX_CHUNK * ENTRY_SIZE;
+            indexChunks.add(indexChannel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + indexChunks.size() * size, size));
+        }
+        return indexChunks.get(n);
+    }
+
+    private void openSegment(int s) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(new File(directory, String.format("blocks-%05d.dat", s)), "rw");
+        segmentFiles.add(file);
+        segments.add(file.getChannel());
+    }
+
+    private static byte[] readHash(MappedByteBuffer chunk, int base) {
+        byte[] hash = new byte[32];
+        for (int j = 0; j < 32; j++) {
+            hash[j] = chunk.get(base + HASH + j);
+        }
+        return hash;
+    }
+
+    private static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 2);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Corrupt block in cache");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block in cache", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
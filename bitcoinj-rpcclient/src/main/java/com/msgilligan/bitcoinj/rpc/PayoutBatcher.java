@@ -0,0 +1,281 @@
+package com.msgilligan.bitcoinj.rpc;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * = Batches payments into one transaction per size or time window
+ *
+ * {@link #pay(Address, Coin)} queues a payment and returns a future for the transaction that will contain it.
+ * Queued payments are sent together by a {@link Sender} (e.g. one `sendmany` call) when the batch has
+ * `maxOutputs` outputs or `maxDelayMillis` after the first payment of the batch, whichever comes first.
+ * Payments to the same address in a batch are combined into one output.
+ *
+ * Batches are sent one at a time, even when {@link #flush()} is called while the scheduler is sending a batch,
+ * because the batches of a sender typically spend the outputs of the same address.
+ * If sending a batch fails, the futures of all its payments fail with the exception, none of them are retried.
+ */
+public class PayoutBatcher implements Closeable {
+    private final Sender sender;
+    private final int maxOutputs;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+    private final Object lock = new Object();
+    private final Object sendLock = new Object();
+    private Batch pending = null;
+    private boolean closed = false;
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong paymentsSent = new AtomicLong();
+
+    /**
+     * Send a batch of payments as one transaction
+     */
+    public interface Sender {
+        /**
+         * @param outputs Destinations and amounts
+         * @return The transaction ID
+         * @throws IOException if the transaction could not be sent
+         */
+        Sha256Hash send(Map<Address, Coin> outputs) throws IOException;
+    }
+
+    /**
+     * @param sender Sends batches (called on a `scheduler` thread or the thread calling {@link #flush()}, one batch at a time)
+     * @param maxOutputs Number of outputs that triggers sending a batch
+     * @param maxDelayMillis Maximum time a payment waits for its batch to fill
+     * @param scheduler Executor for sending batches and for the delay timer
+     */
+    public PayoutBatcher(Sender sender, int maxOutputs, long maxDelayMillis, ScheduledExecutorService scheduler) {
+        this(sender, maxOutputs, maxDelayMillis, scheduler, false);
+    }
+
+    /**
+     * Batcher with its own scheduler thread (stopped by {@link #close()})
+     *
+     * @param sender Sends batches
+     * @param maxOutputs Number of outputs that triggers sending a batch
+     * @param maxDelayMillis Maximum time a payment waits for its batch to fill
+     */
+    public PayoutBatcher(Sender sender, int maxOutputs, long maxDelayMillis) {
+        this(sender, maxOutputs, maxDelayMillis, Executors.newSingleThreadScheduledExecutor(), true);
+    }
+
+    private PayoutBatcher(Sender sender, int maxOutputs, long maxDelayMillis, ScheduledExecutorService scheduler, boolean ownScheduler) {
+        if (maxOutputs < 1) {
+            throw new IllegalArgumentException("maxOutputs must be positive");
+        }
+        this.sender = sender;
+        this.maxOutputs = maxOutputs;
+        this.maxDelayMillis = maxDelayMillis;
+        this.scheduler = scheduler;
+        this.ownScheduler = ownScheduler;
+    }
+
+    /**
+     * Send batches with `sendmany` from the wallet of the node
+     *
+     * @param client Client of the node
+     * @param account Account to send from (`""` for the default account)
+     * @return A sender
+     */
+    public static Sender sendMany(final BitcoinClient client, final String account) {
+        return new Sender() {
+            @Override
+            public Sha256Hash send(Map<Address, Coin> outputs) throws IOException {
+                return client.sendMany(account, outputs);
+            }
+        };
+    }
+
+    /**
+     * Send batches from an address in the wallet of the node, with a transaction built by
+     * {@link BitcoinExtendedClient#sendBitcoin(Address, Map)} (change is returned to `fromAddress`)
+     *
+     * @param client Client of the node
+     * @param fromAddress Address to spend from
+     * @return A sender
+     */
+    public static Sender sendFrom(final BitcoinExtendedClient client, final Address fromAddress) {
+        return new Sender() {
+            @Override
+            public Sha256Hash send(Map<Address, Coin> outputs) throws IOException {
+                return client.sendBitcoin(fromAddress, outputs);
+            }
+        };
+    }
+
+    /**
+     * Send batches with transactions signed locally by
+     * {@link BitcoinExtendedClient#createSignedTransaction(ECKey, List)} (change is returned to the key's address)
+     *
+     * @param client Client of the node
+     * @param fromKey Key of the address to spend from
+     * @return A sender
+     */
+    public static Sender signWith(final BitcoinExtendedClient client, final ECKey fromKey) {
+        return new Sender() {
+            @Override
+            public Sha256Hash send(Map<Address, Coin> outputs) throws IOException {
+                List<TransactionOutput> txOutputs = new ArrayList<>();
+                for (Map.Entry<Address, Coin> output : outputs.entrySet()) {
+                    txOutputs.add(new TransactionOutput(client.getNetParams(), null, output.getValue(), output.getKey()));
+                }
+                Transaction tx = client.createSignedTransaction(fromKey, txOutputs);
+                return client.sendRawTransaction(tx);
+            }
+        };
+    }
+
+    /**
+     * Queue a payment
+     *
+     * @param address Destination
+     * @param amount Amount
+     * @return A future for the ID of the transaction that pays `address`
+     * @throws IllegalStateException if the batcher is closed
+     */
+    public ListenableFuture<Sha256Hash> pay(Address address, Coin amount) {
+        SettableFuture<Sha256Hash> future = SettableFuture.create();
+        final Batch full;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("PayoutBatcher is closed");
+            }
+            if (pending == null) {
+                final Batch batch = new Batch();
+                pending = batch;
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(batch);
+                    }
+                }, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            pending.add(address, amount, future);
+            if (pending.outputs.size() >= maxOutputs) {
+                full = pending;
+                pending = null;
+            } else {
+                full = null;
+            }
+        }
+        if (full != null) {
+            scheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    send(full);
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Send the queued payments now (on the calling thread, after a batch that is being sent)
+     */
+    public void flush() {
+        Batch batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = null;
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    /**
+     * @return Number of queued payments
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return (pending != null) ? pending.futures.size() : 0;
+        }
+    }
+
+    /**
+     * @return Number of batches sent successfully
+     */
+    public long getBatchesSent() {
+        return batchesSent.get();
+    }
+
+    /**
+     * @return Number of payments sent successfully
+     */
+    public long getPaymentsSent() {
+        return paymentsSent.get();
+    }
+
+    /**
+     * Send the queued payments and stop accepting new ones
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        if (ownScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private void flush(Batch batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return;     // Already sent because it was full (or flushed)
+            }
+            pending = null;
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        Sha256Hash txid;
+        try {
+            synchronized (sendLock) {
+                txid = sender.send(batch.outputs);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (SettableFuture<Sha256Hash> future : batch.futures) {
+                future.setException(e);
+            }
+            return;
+        }
+        batchesSent.incrementAndGet();
+        paymentsSent.addAndGet(batch.futures.size());
+        for (SettableFuture<Sha256Hash> future : batch.futures) {
+            future.set(txid);
+        }
+    }
+
+    private static class Batch {
+        final Map<Address, Coin> outputs = new LinkedHashMap<>();
+        final List<SettableFuture<Sha256Hash>> futures = new ArrayList<>();
+
+        void add(Address address, Coin amount, SettableFuture<Sha256Hash> future) {
+            Coin previous = outputs.get(address);
+            outputs.put(address, (previous != null) ? previous.add(amount) : amount);
+            futures.add(future);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.msgilligan.bitcoinj.rpc;
+
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.consensusj.jsonrpc.JsonRPCStatusException;
+import org.consensusj.jsonrpc.JsonRpcError;
+import org.consensusj.jsonrpc.JsonRpcResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * = Submits many signed transactions concurrently, parents before children
+ *
+ * The transactions passed to {@link #broadcast(List)} form a graph by their inputs: a transaction spending
+ * an output of another one in the list is submitted only after that parent has been accepted, and is
+ * {@link BroadcastResult.Status#SKIPPED skipped} if the parent is not accepted. Transactions without
+ * pending parents are submitted concurrently on the executor, one `sendrawtransaction` call each or, with a
+ * `batchSize` greater than one, in JSON-RPC batches of up to `batchSize` transactions.
+ *
+ * The graph is only kept by the thread calling {@link #broadcast(List)}, workers just submit transactions.
+ */
+public class TransactionBroadcaster implements Closeable {
+    private static final int RPC_VERIFY_ALREADY_IN_CHAIN = -27;
+    private final BitcoinClient client;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final boolean ownExecutor;
+
+    /**
+     * @param client Client to submit with
+     * @param executor Executor for submitting
+     * @param batchSize Maximum number of transactions per request (`1` to use `sendrawtransaction`)
+     */
+    public TransactionBroadcaster(BitcoinClient client, ExecutorService executor, int batchSize) {
+        this(client, executor, batchSize, false);
+    }
+
+    /**
+     * Broadcaster with its own threads (stopped by {@link #close()})
+     *
+     * @param client Client to submit with
+     * @param threads Number of concurrent requests
+     * @param batchSize Maximum number of transactions per request (`1` to use `sendrawtransaction`)
+     */
+    public TransactionBroadcaster(BitcoinClient client, int threads, int batchSize) {
+        this(client, Executors.newFixedThreadPool(threads), batchSize, true);
+    }
+
+    private TransactionBroadcaster(BitcoinClient client, ExecutorService executor, int batchSize, boolean ownExecutor) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.client = client;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Submit transactions and wait for all outcomes
+     *
+     * @param transactions Signed transactions (in any order)
+     * @return The outcome of each transaction, in the order of `transactions`
+     * @throws IllegalArgumentException if a transaction is in the list more than once
+     * @throws InterruptedException if interrupted while waiting (transactions already submitted are not recalled)
+     */
+    public List<BroadcastResult> broadcast(List<Transaction> transactions) throws InterruptedException {
+        int n = transactions.size();
+        Map<Sha256Hash, Integer> indexOf = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            if (indexOf.put(transactions.get(i).getHash(), i) != null) {
+                throw new IllegalArgumentException("Transaction " + transactions.get(i).getHash() + " is in the list twice");
+            }
+        }
+
+        // Build the graph: number of unaccepted parents and list of children of each transaction
+        int[] pendingParents = new int[n];
+        int[][] children = new int[n][];
+        int[] childCount = new int[n];
+        ArrayDeque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            List<Integer> parents = null;
+            for (TransactionInput input : transactions.get(i).getInputs()) {
+                Integer parent = indexOf.get(input.getOutpoint().getHash());
+                if (parent != null && (parents == null || !parents.contains(parent))) {
+                    if (parents == null) {
+                        parents = new ArrayList<>();
+                    }
+                    parents.add(parent);
+                    addChild(children, childCount, parent, i);
+                    pendingParents[i]++;
+                }
+            }
+            if (pendingParents[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        BroadcastResult[] results = new BroadcastResult[n];
+        BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        int done = 0;
+        int inFlight = 0;
+        while (done < n) {
+            while (!ready.isEmpty()) {
+                int[] group = new int[Math.min(batchSize, ready.size())];
+                for (int k = 0; k < group.length; k++) {
+                    group[k] = ready.poll();
+                }
+                executor.execute(new SubmitTask(transactions, group, completions));
+                inFlight++;
+            }
+            if (inFlight == 0) {
+                break;      // Only transactions in a dependency cycle are left (not possible with valid transactions)
+            }
+            Completion completion = completions.take();
+            inFlight--;
+            for (int k = 0; k < completion.group.length; k++) {
+                int i = completion.group[k];
+                results[i] = completion.results[k];
+                done++;
+                if (results[i].isAccepted()) {
+                    for (int c = 0; c < childCount[i]; c++) {
+                        int child = children[i][c];
+                        if (--pendingParents[child] == 0 && results[child] == null) {
+                            ready.add(child);
+                        }
+                    }
+                } else {
+                    done += skipDescendants(transactions, i, children, childCount, results);
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (results[i] == null) {
+                results[i] = new BroadcastResult(transactions.get(i).getHash(), BroadcastResult.Status.SKIPPED, 0,
+                        "Dependency cycle");
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private static void addChild(int[][] children, int[] childCount, int parent, int child) {
+        int[] list = children[parent];
+        if (list == null) {
+            list = new int[2];
+        } else if (childCount[parent] == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+        }
+        list[childCount[parent]++] = child;
+        children[parent] = list;
+    }
+
+    /**
+     * Mark all not yet finished descendants of a transaction as skipped
+     *
+     * @return Number of transactions marked
+     */
+    private static int skipDescendants(List<Transaction> transactions, int root, int[][] children, int[] childCount,
+                                       BroadcastResult[] results) {
+        int skipped = 0;
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int i = stack.pop();
+            for (int c = 0; c < childCount[i]; c++) {
+                int child = children[i][c];
+                if (results[child] == null) {
+                    results[child] = new BroadcastResult(transactions.get(child).getHash(), BroadcastResult.Status.SKIPPED, 0,
+                            "Parent " + transactions.get(i).getHash() + " was not accepted");
+                    skipped++;
+                    stack.push(child);
+                }
+            }
+        }
+        return skipped;
+    }
+
+    private static class Completion {
+        final int[] group;
+        final BroadcastResult[] results;
+
+        Completion(int[] group, BroadcastResult[] results) {
+            this.group = group;
+            this.results = results;
+        }
+    }
+
+    private class SubmitTask implements Runnable {
+        private final List<Transaction> transactions;
+        private final int[] group;
+        private final BlockingQueue<Completion> completions;
+
+        SubmitTask(List<Transaction> transactions, int[] group, BlockingQueue<Completion> completions) {
+            this.transactions = transactions;
+            this.group = group;
+            this.completions = completions;
+        }
+
+        @Override
+        public void run() {
+            BroadcastResult[] results = new BroadcastResult[group.length];
+            Throwable failure = null;
+            try {
+                if (group.length == 1) {
+                    results[0] = submit(transactions.get(group[0]));
+                } else {
+                    submitBatch(results);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                // Always post a completion, broadcast() waits for one per group
+                for (int k = 0; k < group.length; k++) {
+                    if (results[k] == null) {
+                        results[k] = new BroadcastResult(transactions.get(group[k]).getHash(), BroadcastResult.Status.FAILED,
+                                0, (failure != null) ? failure.toString() : "Not submitted");
+                    }
+                }
+                completions.add(new Completion(group, results));
+            }
+        }
+
+        private BroadcastResult submit(Transaction tx) {
+            try {
+                client.sendRawTransaction(tx);
+                return new BroadcastResult(tx.getHash(), BroadcastResult.Status.ACCEPTED, 0, null);
+            } catch (JsonRPCStatusException e) {
+                if (e.jsonRPCCode == 0) {
+                    return new BroadcastResult(tx.getHash(), BroadcastResult.Status.FAILED, 0, e.getMessage());
+                }
+                return rejected(tx, e.jsonRPCCode, e.getMessage());
+            } catch (IOException e) {
+                return new BroadcastResult(tx.getHash(), BroadcastResult.Status.FAILED, 0, e.toString());
+            }
+        }
+
+        private void submitBatch(BroadcastResult[] results) {
+            List<Transaction> batch = new ArrayList<>(group.length);
+            for (int i : group) {
+                batch.add(transactions.get(i));
+            }
+            List<JsonRpcResponse<Sha256Hash>> responses;
+            try {
+                responses = client.sendRawTransactions(batch);
+            } catch (IOException e) {
+                for (int k = 0; k < group.length; k++) {
+                    results[k] = new BroadcastResult(batch.get(k).getHash(), BroadcastResult.Status.FAILED, 0, e.toString());
+                }
+                return;
+            }
+            for (int k = 0; k < group.length; k++) {
+                JsonRpcError error = responses.get(k).getError();
+                results[k] = (error == null || error.getCode() == 0)
+                        ? new BroadcastResult(batch.get(k).getHash(), BroadcastResult.Status.ACCEPTED, 0, null)
+                        : rejected(batch.get(k), error.getCode(), error.getMessage());
+            }
+        }
+
+        private BroadcastResult rejected(Transaction tx, int code, String message) {
+            boolean known = code == RPC_VERIFY_ALREADY_IN_CHAIN ||
+                    (message != null && (message.contains("txn-already-in-mempool") || message.contains("txn-already-known")));
+            return new BroadcastResult(tx.getHash(), known ? BroadcastResult.Status.ALREADY_KNOWN : BroadcastResult.Status.REJECTED,
+                    code, message);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.msgilligan.bitcoinj.rpc;
+
+import com.msgilligan.bitcoinj.json.pojo.WalletTransactionItem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * = Iterates over the wallet history one `listtransactions` page at a time
+ *
+ * Entries are returned newest first. A page of `pageSize` entries is fetched (with `count` and `skip`) only
+ * when the previous one is used up, so a large history is never held in memory or in one response.
+ * With an {@link Executor}, the next page is fetched in the background while the current one is iterated.
+ *
+ * Transactions added to the wallet during the iteration shift the pages, so an entry at a page boundary
+ * may be returned twice.
+ *
+ * {@link #next()} throws a `RuntimeException` with the `IOException` as cause if fetching a page fails,
+ * use {@link #nextPage()} to get the `IOException` directly.
+ */
+public class WalletHistoryIterator implements Iterator<WalletTransactionItem>, Closeable {
+    private final BitcoinClient client;
+    private final String account;
+    private final int pageSize;
+    private final Boolean includeWatchOnly;
+    private final Executor executor;
+    private List<WalletTransactionItem> page = Collections.emptyList();
+    private int index = 0;
+    private int skip = 0;
+    private boolean lastPage = false;
+    private FutureTask<List<WalletTransactionItem>> prefetch = null;
+
+    /**
+     * @param client Client for the node with the wallet
+     * @param account Account to list (`"*"` for all)
+     * @param pageSize Entries per `listtransactions` call
+     * @param includeWatchOnly Include transactions to watch-only addresses
+     * @param executor Executor for fetching the next page in the background, `null` to fetch on demand
+     */
+    public WalletHistoryIterator(BitcoinClient client, String account, int pageSize, Boolean includeWatchOnly,
+                                 Executor executor) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.client = client;
+        this.account = account;
+        this.pageSize = pageSize;
+        this.includeWatchOnly = includeWatchOnly;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (index < page.size()) {
+            return true;
+        }
+        if (lastPage) {
+            return false;
+        }
+        try {
+            page = nextPage();
+        } catch (IOException e) {
+            throw new RuntimeException("listtransactions failed", e);
+        }
+        index = 0;
+        return !page.isEmpty();
+    }
+
+    @Override
+    public WalletTransactionItem next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Fetch the next page (entries of the current page not yet returned by {@link #next()} are skipped)
+     *
+     * @return The next entries, newest first, empty at the end of the history
+     * @throws IOException if fetching the page failed
+     */
+    public List<WalletTransactionItem> nextPage() throws IOException {
+        if (lastPage) {
+            return Collections.emptyList();
+        }
+        List<WalletTransactionItem> result;
+        if (prefetch != null) {
+            try {
+                result = await(prefetch);
+            } finally {
+                prefetch = null;    // The next call fetches the page again if the prefetch failed
+            }
+        } else {
+            result = fetch(skip);
+        }
+        skip += pageSize;
+        lastPage = result.size() < pageSize;
+        if (!lastPage && executor != null) {
+            prefetch = newFetch(skip);
+            executor.execute(prefetch);
+        }
+        page = Collections.emptyList();
+        return result;
+    }
+
+    /**
+     * Stop prefetching
+     */
+    @Override
+    public void close() {
+        lastPage = true;
+        if (prefetch != null) {
+            prefetch.cancel(false);
+            prefetch = null;
+        }
+    }
+
+    private FutureTask<List<WalletTransactionItem>> newFetch(final int from) {
+        return new FutureTask<>(new Callable<List<WalletTransactionItem>>() {
+            @Override
+            public List<WalletTransactionItem> call() throws IOException {
+                return fetch(from);
+            }
+        });
+    }
+
+    private List<WalletTransactionItem> fetch(int from) throws IOException {
+        List<WalletTransactionItem> items = new ArrayList<>(client.listTransactions(account, pageSize, from, includeWatchOnly));
+        Collections.reverse(items);     // listtransactions returns each page oldest first
+        return items;
+    }
+
+    private static List<WalletTransactionItem> await(FutureTask<List<WalletTransactionItem>> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching transactions", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
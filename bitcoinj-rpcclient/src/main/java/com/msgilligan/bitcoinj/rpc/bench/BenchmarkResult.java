@@ -0,0 +1,88 @@
+package com.msgilligan.bitcoinj.rpc.bench;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Results of an {@link RpcBenchmark} run, latencies are in microseconds
+ */
+public class BenchmarkResult {
+    private final String method;
+    private final int concurrency;
+    private final long durationNanos;
+    private final LatencyHistogram latency;
+    private final Map<String, Long> errors;
+
+    public BenchmarkResult(String method, int concurrency, long durationNanos, LatencyHistogram latency,
+                           Map<String, Long> errors) {
+        this.method = method;
+        this.concurrency = concurrency;
+        this.durationNanos = durationNanos;
+        this.latency = latency;
+        this.errors = Collections.unmodifiableMap(new TreeMap<>(errors));
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return Latency of all measured calls, including the failed ones
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return Number of measured calls
+     */
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return Number of failed calls
+     */
+    public long getFailed() {
+        long failed = 0;
+        for (Long count : errors.values()) {
+            failed += count;
+        }
+        return failed;
+    }
+
+    /**
+     * @return Successful calls per second
+     */
+    public double getThroughput() {
+        return (durationNanos > 0) ? (getCalls() - getFailed()) * 1e9 / durationNanos : 0;
+    }
+
+    /**
+     * @return Number of failures by error (JSON-RPC error code and message or exception class)
+     */
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%s: %d calls with concurrency %d in %.3fs: %.1f calls/s, %d failed%n",
+                method, getCalls(), concurrency, durationNanos / 1e9, getThroughput(), getFailed()));
+        builder.append("latency: ").append(latency.summaryMillis());
+        for (Map.Entry<String, Long> error : errors.entrySet()) {
+            builder.append(String.format("%n%8d x %s", error.getValue(), error.getKey()));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.msgilligan.bitcoinj.rpc.bench;
+
+import org.consensusj.jsonrpc.JsonRPCStatusException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of failed calls by error, counted concurrently by the threads of a benchmark or load test
+ *
+ * Errors are described by their JSON-RPC error code and message or, for other exceptions, by the exception class.
+ */
+public class ErrorCounts {
+    private final ConcurrentMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    /**
+     * @param e Exception thrown by a call
+     * @return Description of the error
+     */
+    public static String describe(Exception e) {
+        if (e instanceof JsonRPCStatusException) {
+            return ((JsonRPCStatusException) e).jsonRPCCode + " " + e.getMessage();
+        }
+        return e.getClass().getSimpleName();
+    }
+
+    /**
+     * @param error Description of the error
+     */
+    public void count(String error) {
+        AtomicLong count = counts.get(error);
+        if (count == null) {
+            AtomicLong previous = counts.putIfAbsent(error, count = new AtomicLong());
+            count = (previous != null) ? previous : count;
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * @param e Exception thrown by a call
+     */
+    public void count(Exception e) {
+        count(describe(e));
+    }
+
+    /**
+     * @return Snapshot of the counts
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> error : counts.entrySet()) {
+            result.put(error.getKey(), error.getValue().get());
+        }
+        return result;
+    }
+}
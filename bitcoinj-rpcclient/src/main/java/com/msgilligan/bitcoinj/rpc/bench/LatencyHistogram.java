@@ -0,0 +1,146 @@
+package com.msgilligan.bitcoinj.rpc.bench;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * = Fixed-size, thread-safe histogram of latencies (or any non-negative values)
+ *
+ * Buckets are log-linear like in HdrHistogram: values below 128 are counted exactly, larger values in buckets
+ * whose width is 1/64 of their magnitude, so percentiles have a relative error below 1.6% for any value up to
+ * `Long.MAX_VALUE` with 3712 counters and no allocation per recorded value.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;            // 64 buckets per power of 2
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;                // Values below are exact
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * @param value Value to record (negative values are recorded as `0`)
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long current;
+        while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+            // retry
+        }
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * Add all values recorded by another histogram
+     *
+     * @param other Histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        count.addAndGet(other.count.get());
+        total.addAndGet(other.total.get());
+        long current;
+        long otherMin = other.min.get();
+        while (otherMin < (current = min.get()) && !min.compareAndSet(current, otherMin)) {
+            // retry
+        }
+        long otherMax = other.max.get();
+        while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax)) {
+            // retry
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return Smallest recorded value, `0` if empty
+     */
+    public long getMin() {
+        return (count.get() > 0) ? min.get() : 0;
+    }
+
+    /**
+     * @return Largest recorded value, `0` if empty
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return Mean of the recorded values, `0` if empty
+     */
+    public double getMean() {
+        long n = count.get();
+        return (n > 0) ? (double) total.get() / n : 0;
+    }
+
+    /**
+     * @param percentile Percentile (`0` to `100`, e.g. `99.9`)
+     * @return Largest value in the bucket containing the percentile (at most {@link #getMax()}), `0` if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return Count, mean and the usual percentiles of values in microseconds, formatted in milliseconds
+     */
+    public String summaryMillis() {
+        return String.format("n=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+                getCount(), getMean() / 1000.0, millis(50), millis(90), millis(99), millis(99.9),
+                getMax() / 1000.0);
+    }
+
+    private double millis(double percentile) {
+        return getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestInBucket(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long magnitude = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        long next = (magnitude + 1) << shift;
+        return (next > 0) ? next - 1 : Long.MAX_VALUE;
+    }
+}
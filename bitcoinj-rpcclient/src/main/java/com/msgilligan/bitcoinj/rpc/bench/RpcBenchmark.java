@@ -0,0 +1,144 @@
+package com.msgilligan.bitcoinj.rpc.bench;
+
+import org.consensusj.jsonrpc.UntypedRPCClient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * = Benchmark of one JSON-RPC method
+ *
+ * Calls the method with the same parameters from {@link #setConcurrency(int) concurrent} threads (sharing the
+ * client, as an application would) for a {@link #setDuration(long, TimeUnit) duration}, either as fast as the
+ * server answers (closed loop) or paced to a {@link #setTargetRate(double) target rate} (open loop: calls are
+ * scheduled at fixed intervals and a late call doesn't delay the following ones, so server stalls show up in the
+ * latencies). Calls started during the {@link #setWarmup(long, TimeUnit) warmup} are not recorded.
+ *
+ * [source,java]
+ * --
+ * RpcBenchmark bench = new RpcBenchmark(client, "getblockhash", Collections.<Object>singletonList(100));
+ * bench.setConcurrency(32);
+ * BenchmarkResult result = bench.run();
+ * --
+ */
+public class RpcBenchmark {
+    private final UntypedRPCClient client;
+    private final String method;
+    private final List<Object> params;
+    private int concurrency = 1;
+    private double targetRate = 0;
+    private long durationNanos = TimeUnit.SECONDS.toNanos(10);
+    private long warmupNanos = 0;
+
+    /**
+     * @param client Client to call the method with
+     * @param method JSON-RPC method
+     * @param params JSON-RPC parameters
+     */
+    public RpcBenchmark(UntypedRPCClient client, String method, List<Object> params) {
+        this.client = client;
+        this.method = method;
+        this.params = params;
+    }
+
+    /**
+     * @param concurrency Number of threads calling the method (default 1)
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param targetRate Calls per second, `0` (the default) to call as fast as the server answers
+     */
+    public void setTargetRate(double targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    /**
+     * @param duration Time to measure (default 10 seconds)
+     * @param unit Unit of `duration`
+     */
+    public void setDuration(long duration, TimeUnit unit) {
+        this.durationNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * @param warmup Time to call the method before measuring (default none)
+     * @param unit Unit of `warmup`
+     */
+    public void setWarmup(long warmup, TimeUnit unit) {
+        this.warmupNanos = unit.toNanos(warmup);
+    }
+
+    /**
+     * Run the benchmark
+     *
+     * @return The results
+     * @throws InterruptedException if interrupted while waiting for the calling threads
+     */
+    public BenchmarkResult run() throws InterruptedException {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final ErrorCounts errors = new ErrorCounts();
+        final AtomicLong next = new AtomicLong();
+        final long intervalNanos = (targetRate > 0) ? (long) (1e9 / targetRate) : 0;
+        final long start = System.nanoTime();
+        final long measureStart = start + warmupNanos;
+        final long end = measureStart + durationNanos;
+
+        ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+        for (int t = 0; t < concurrency; t++) {
+            callers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    while (true) {
+                        long due = (intervalNanos > 0) ? start + next.getAndIncrement() * intervalNanos : System.nanoTime();
+                        if (due >= end) {
+                            return;
+                        }
+                        long wait;
+                        // Thread.sleep() may wake up to half a millisecond early
+                        while ((wait = due - System.nanoTime()) > 0) {
+                            try {
+                                TimeUnit.NANOSECONDS.sleep(wait);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                        String error = call();
+                        if (due >= measureStart) {
+                            // Latency from the scheduled time, so calls delayed by busy threads count as slow
+                            latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+                            if (error != null) {
+                                errors.count(error);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        callers.shutdown();
+        callers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long duration = System.nanoTime() - measureStart;
+        return new BenchmarkResult(method, concurrency, duration, latency, errors.toMap());
+    }
+
+    /**
+     * @return `null` if the call succeeded, a description of the error otherwise
+     */
+    private String call() {
+        try {
+            client.send(method, params);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return ErrorCounts.describe(e);
+        }
+    }
+}
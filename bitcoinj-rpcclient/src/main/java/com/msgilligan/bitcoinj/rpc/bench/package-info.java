@@ -0,0 +1,4 @@
+/**
+ * Measurement support for load tests and benchmarks of a Bitcoin node's JSON-RPC interface.
+ */
+package com.msgilligan.bitcoinj.rpc.bench;
@@ -0,0 +1,108 @@
+package com.msgilligan.bitcoinj.rpc.coinselection;
+
+/**
+ * = Branch-and-bound search for a selection without change
+ *
+ * Searches (depth-first, largest outputs first) for a set of outputs whose effective value (value net of
+ * the fee for spending it) pays the payment and fee with an excess smaller than {@link FeeModel#costOfChange()},
+ * so no change output is needed. The selection with the smallest excess found within
+ * {@link #DEFAULT_MAX_TRIES} steps is returned, or `null` if there is none (use another selector then).
+ *
+ * The search state is a bit per candidate plus two running totals, no objects are allocated while searching.
+ */
+public class BranchAndBoundSelector implements CoinSelector {
+    public static final int DEFAULT_MAX_TRIES = 100000;
+    private final int maxTries;
+
+    public BranchAndBoundSelector(int maxTries) {
+        this.maxTries = maxTries;
+    }
+
+    public BranchAndBoundSelector() {
+        this(DEFAULT_MAX_TRIES);
+    }
+
+    @Override
+    public CoinSelection select(long[] values, long target, int outputCount, FeeModel fees) {
+        long[] effective = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            effective[i] = fees.effectiveValue(values[i]);
+        }
+        int[] sorted = CoinSelection.positiveByDescendingKey(effective);
+        int n = sorted.length;
+        long lower = target + fees.baseFee(outputCount);
+        long upper = lower + fees.costOfChange();
+
+        long available = 0;
+        for (int i : sorted) {
+            available += effective[i];
+        }
+        if (available < lower) {
+            return null;
+        }
+
+        boolean[] included = new boolean[n];   // decisions for sorted[0 .. depth - 1]
+        boolean[] best = null;
+        long bestExcess = Long.MAX_VALUE;
+        int depth = 0;
+        long value = 0;
+        for (int tries = 0; tries < maxTries; tries++) {
+            boolean backtrack = false;
+            if (value + available < lower || value > upper) {
+                backtrack = true;
+            } else if (value >= lower) {
+                if (value - lower < bestExcess) {
+                    bestExcess = value - lower;
+                    best = included.clone();
+                    for (int i = depth; i < n; i++) {
+                        best[i] = false;
+                    }
+                    if (bestExcess == 0) {
+                        break;
+                    }
+                }
+                backtrack = true;
+            }
+            if (backtrack) {
+                // Undo trailing exclusions, then exclude the last included output
+                while (depth > 0 && !included[depth - 1]) {
+                    depth--;
+                    available += effective[sorted[depth]];
+                }
+                if (depth == 0) {
+                    break;
+                }
+                included[depth - 1] = false;
+                value -= effective[sorted[depth - 1]];
+            } else {
+                long next = effective[sorted[depth]];
+                available -= next;
+                if (depth > 0 && !included[depth - 1] && effective[sorted[depth - 1]] == next) {
+                    // Including an output equal to one just excluded would repeat an explored branch
+                    included[depth] = false;
+                } else {
+                    included[depth] = true;
+                    value += next;
+                }
+                depth++;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        int count = 0;
+        for (boolean b : best) {
+            if (b) {
+                count++;
+            }
+        }
+        int[] indices = new int[count];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (best[i]) {
+                indices[k++] = sorted[i];
+            }
+        }
+        return CoinSelection.of(values, indices, target, outputCount, fees);
+    }
+}
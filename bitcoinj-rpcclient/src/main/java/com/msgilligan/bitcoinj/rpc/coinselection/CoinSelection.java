@@ -0,0 +1,131 @@
+package com.msgilligan.bitcoinj.rpc.coinselection;
+
+import java.util.Arrays;
+
+/**
+ * The result of a {@link CoinSelector}: the outputs to spend, the fee and the change
+ */
+public class CoinSelection {
+    private final int[] indices;
+    private final long inputTotal;
+    private final long fee;
+    private final long change;
+
+    public CoinSelection(int[] indices, long inputTotal, long fee, long change) {
+        this.indices = indices;
+        this.inputTotal = inputTotal;
+        this.fee = fee;
+        this.change = change;
+    }
+
+    /**
+     * Calculate fee and change for a set of inputs. A change output is added if the change is at least
+     * {@link FeeModel#getMinChange()} after paying for the output, otherwise the excess goes to the fee.
+     *
+     * @param values Values of the candidate outputs
+     * @param indices Indices of the selected outputs in `values`
+     * @param target Total of the payment outputs
+     * @param outputCount Number of payment outputs
+     * @param fees Fee model
+     * @return The selection or `null` if the selected outputs can't pay `target` and the fee
+     */
+    public static CoinSelection of(long[] values, int[] indices, long target, int outputCount, FeeModel fees) {
+        long inputTotal = 0;
+        for (int i : indices) {
+            inputTotal += values[i];
+        }
+        long inputFees = indices.length * fees.inputFee();
+        long feeWithChange = fees.baseFee(outputCount + 1) + inputFees;
+        long change = inputTotal - target - feeWithChange;
+        if (change >= fees.getMinChange()) {
+            return new CoinSelection(indices, inputTotal, feeWithChange, change);
+        }
+        long feeWithoutChange = fees.baseFee(outputCount) + inputFees;
+        if (inputTotal - target < feeWithoutChange) {
+            return null;
+        }
+        return new CoinSelection(indices, inputTotal, inputTotal - target, 0);
+    }
+
+    /**
+     * @return Indices of the selected outputs in the values passed to the selector
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return Number of selected outputs
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    /**
+     * @return Total value of the selected outputs
+     */
+    public long getInputTotal() {
+        return inputTotal;
+    }
+
+    public long getFee() {
+        return fee;
+    }
+
+    /**
+     * @return Value of the change output, `0` if there is none
+     */
+    public long getChange() {
+        return change;
+    }
+
+    public boolean hasChange() {
+        return change > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CoinSelection{inputs=" + Arrays.toString(indices) + ", inputTotal=" + inputTotal +
+                ", fee=" + fee + ", change=" + change + "}";
+    }
+
+    /**
+     * @return Indices of the positive `keys`, sorted by descending key
+     */
+    static int[] positiveByDescendingKey(long[] keys) {
+        int count = 0;
+        for (long key : keys) {
+            if (key > 0) {
+                count++;
+            }
+        }
+        int[] indices = new int[count];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] > 0) {
+                indices[n++] = i;
+            }
+        }
+        mergeSort(keys, indices, new int[count], 0, count);
+        return indices;
+    }
+
+    private static void mergeSort(long[] keys, int[] indices, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(keys, indices, scratch, from, middle);
+        mergeSort(keys, indices, scratch, middle, to);
+        System.arraycopy(indices, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && keys[scratch[left]] >= keys[scratch[right]])) {
+                indices[i] = scratch[left++];
+            } else {
+                indices[i] = scratch[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.msgilligan.bitcoinj.rpc.coinselection;
+
+/**
+ * Chooses the unspent outputs to spend in a transaction
+ *
+ * Selectors work on the values of the candidate outputs only (no outpoints, scripts or
+ * {@link org.bitcoinj.core.Coin} objects), the caller maps the selected indices back to its outputs.
+ */
+public interface CoinSelector {
+    /**
+     * @param values Values of the candidate outputs in satoshis (not modified)
+     * @param target Total of the payment outputs in satoshis
+     * @param outputCount Number of payment outputs (excluding change)
+     * @param fees Fee model
+     * @return The selection or `null` if the candidates can't pay `target` and the fee
+     */
+    CoinSelection select(long[] values, long target, int outputCount, FeeModel fees);
+}
@@ -0,0 +1,30 @@
+package com.msgilligan.bitcoinj.rpc.coinselection;
+
+/**
+ * Tries branch-and-bound (no change) first, then knapsack (with change), then largest-first
+ */
+public class DefaultCoinSelector implements CoinSelector {
+    private final CoinSelector[] selectors;
+
+    public DefaultCoinSelector() {
+        this(new BranchAndBoundSelector(), new KnapsackSelector(), new LargestFirstSelector());
+    }
+
+    /**
+     * @param selectors Selectors to try in order, the first selection found is used
+     */
+    public DefaultCoinSelector(CoinSelector... selectors) {
+        this.selectors = selectors;
+    }
+
+    @Override
+    public CoinSelection select(long[] values, long target, int outputCount, FeeModel fees) {
+        for (CoinSelector selector : selectors) {
+            CoinSelection selection = selector.select(values, target, outputCount, fees);
+            if (selection != null) {
+                return selection;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.msgilligan.bitcoinj.rpc.coinselection;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+
+/**
+ * = Size-based fees for P2PKH transactions
+ *
+ * Transaction sizes are estimated from the number of inputs and outputs (a signed P2PKH input is at most
+ * {@link #INPUT_SIZE} bytes), so fees can be calculated before the transaction is built or signed.
+ * All amounts are in satoshis.
+ */
+public class FeeModel {
+    public static final int TX_OVERHEAD_SIZE = 10;  // version, input and output counts, lock time
+    public static final int INPUT_SIZE = 148;       // outpoint, sequence and a signature script with a compressed key
+    public static final int OUTPUT_SIZE = 34;       // value and a P2PKH script
+    private final long feePerKb;
+    private final long minChange;
+
+    /**
+     * @param feePerKb Fee per 1000 bytes
+     * @param minChange Smallest change output to create, smaller change is added to the fee
+     */
+    public FeeModel(Coin feePerKb, Coin minChange) {
+        this.feePerKb = feePerKb.value;
+        this.minChange = minChange.value;
+    }
+
+    /**
+     * Fee model with the smallest non-dust output as the minimum change
+     *
+     * @param feePerKb Fee per 1000 bytes
+     */
+    public FeeModel(Coin feePerKb) {
+        this(feePerKb, Transaction.MIN_NONDUST_OUTPUT);
+    }
+
+    public long getFeePerKb() {
+        return feePerKb;
+    }
+
+    public long getMinChange() {
+        return minChange;
+    }
+
+    /**
+     * @param size Transaction size in bytes
+     * @return Fee for `size` bytes (rounded up)
+     */
+    public long fee(int size) {
+        return (size * feePerKb + 999) / 1000;
+    }
+
+    /**
+     * @param inputCount Number of P2PKH inputs
+     * @param outputCount Number of P2PKH outputs
+     * @return Fee for a transaction with `inputCount` inputs and `outputCount` outputs
+     */
+    public long fee(int inputCount, int outputCount) {
+        return fee(TX_OVERHEAD_SIZE + inputCount * INPUT_SIZE + outputCount * OUTPUT_SIZE);
+    }
+
+    /**
+     * @return Fee for adding an input
+     */
+    public long inputFee() {
+        return fee(INPUT_SIZE);
+    }
+
+    /**
+     * @return Fee for adding an output
+     */
+    public long outputFee() {
+        return fee(OUTPUT_SIZE);
+    }
+
+    /**
+     * @param outputCount Number of outputs
+     * @return Fee for a transaction with `outputCount` outputs and no inputs
+     */
+    public long baseFee(int outputCount) {
+        return fee(TX_OVERHEAD_SIZE + outputCount * OUTPUT_SIZE);
+    }
+
+    /**
+     * @return Cost of creating a change output now and spending it later
+     */
+    public long costOfChange() {
+        return outputFee() + inputFee();
+    }
+
+    /**
+     * @param value Value of an unspent output
+     * @return Value of the output net of the fee for spending it
+     */
+    public long effectiveValue(long value) {
+        return value - inputFee();
+    }
+}
@@ -0,0 +1,145 @@
+package com.msgilligan.bitcoinj.rpc.coinselection;
+
+import java.util.Random;
+
+/**
+ * = Randomized knapsack selection with change
+ *
+ * Aims for the payment, fee and a change output of at least {@link FeeModel#getMinChange()}: outputs smaller than
+ * that target are combined by a randomized subset search (as in Bitcoin Core's `ApproximateBestSubset`),
+ * which is compared with the smallest single output that covers the target on its own.
+ */
+public class KnapsackSelector implements CoinSelector {
+    public static final int DEFAULT_ITERATIONS = 1000;
+    private final int iterations;
+    private final Random random;
+
+    /**
+     * @param iterations Number of random subsets to try
+     * @param random Source of randomness (pass a seeded one for repeatable selections)
+     */
+    public KnapsackSelector(int iterations, Random random) {
+        this.iterations = iterations;
+        this.random = random;
+    }
+
+    public KnapsackSelector() {
+        this(DEFAULT_ITERATIONS, new Random());
+    }
+
+    @Override
+    public CoinSelection select(long[] values, long target, int outputCount, FeeModel fees) {
+        long[] effective = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            effective[i] = fees.effectiveValue(values[i]);
+        }
+        long exact = target + fees.baseFee(outputCount);
+        long withChange = target + fees.baseFee(outputCount + 1) + fees.getMinChange();
+
+        int[] sorted = CoinSelection.positiveByDescendingKey(effective);
+        int lowestLarger = -1;
+        int smallerStart = sorted.length;
+        long smallerTotal = 0;
+        for (int n = 0; n < sorted.length; n++) {
+            long value = effective[sorted[n]];
+            if (value == exact) {
+                return CoinSelection.of(values, new int[] {sorted[n]}, target, outputCount, fees);
+            }
+            if (value >= withChange) {
+                lowestLarger = sorted[n];
+            } else {
+                if (smallerStart == sorted.length) {
+                    smallerStart = n;
+                }
+                smallerTotal += value;
+            }
+        }
+        int smallerCount = sorted.length - smallerStart;
+        long[] smaller = new long[smallerCount];
+        for (int n = 0; n < smallerCount; n++) {
+            smaller[n] = effective[sorted[smallerStart + n]];
+        }
+
+        if (smallerTotal == exact) {
+            return CoinSelection.of(values, range(sorted, smallerStart, smallerCount), target, outputCount, fees);
+        }
+        if (smallerTotal < withChange) {
+            if (lowestLarger >= 0) {
+                return CoinSelection.of(values, new int[] {lowestLarger}, target, outputCount, fees);
+            }
+            if (smallerTotal >= exact) {
+                return CoinSelection.of(values, range(sorted, smallerStart, smallerCount), target, outputCount, fees);
+            }
+            return null;
+        }
+
+        boolean[] best = new boolean[smallerCount];
+        long bestTotal = bestSubset(smaller, smallerTotal, withChange, best);
+        if (lowestLarger >= 0 && effective[lowestLarger] <= bestTotal) {
+            return CoinSelection.of(values, new int[] {lowestLarger}, target, outputCount, fees);
+        }
+        int count = 0;
+        for (boolean b : best) {
+            if (b) {
+                count++;
+            }
+        }
+        int[] indices = new int[count];
+        int k = 0;
+        for (int n = 0; n < smallerCount; n++) {
+            if (best[n]) {
+                indices[k++] = sorted[smallerStart + n];
+            }
+        }
+        return CoinSelection.of(values, indices, target, outputCount, fees);
+    }
+
+    /**
+     * @param values Candidate values, descending
+     * @param total Sum of `values` (at least `target`)
+     * @param target Value to reach
+     * @param best Receives the smallest subset found that reaches `target`
+     * @return The sum of `best`
+     */
+    private long bestSubset(long[] values, long total, long target, boolean[] best) {
+        int n = values.length;
+        for (int i = 0; i < n; i++) {
+            best[i] = true;
+        }
+        long bestTotal = total;
+        boolean[] included = new boolean[n];
+        for (int rep = 0; rep < iterations && bestTotal != target; rep++) {
+            for (int i = 0; i < n; i++) {
+                included[i] = false;
+            }
+            long sum = 0;
+            boolean reached = false;
+            // First pass includes outputs at random, the second adds the rest in order until the target is reached
+            for (int pass = 0; pass < 2 && !reached; pass++) {
+                for (int i = 0; i < n; i++) {
+                    if (pass == 0 ? random.nextBoolean() : !included[i]) {
+                        sum += values[i];
+                        included[i] = true;
+                        if (sum >= target) {
+                            reached = true;
+                            if (sum < bestTotal) {
+                                bestTotal = sum;
+                                System.arraycopy(included, 0, best, 0, n);
+                            }
+                            // Try to get closer with the next (smaller) outputs instead
+                            sum -= values[i];
+                            included[i] = false;
+                        }
+                    }
+                }
+            }
+        }
+        return bestTotal;
+    }
+
+    private static int[] range(int[] sorted, int from, int count) {
+        int[] indices = new int[count];
+        System.arraycopy(sorted, from, indices, 0, count);
+        return indices;
+    }
+}
@@ -0,0 +1,29 @@
+package com.msgilligan.bitcoinj.rpc.coinselection;
+
+import java.util.Arrays;
+
+/**
+ * Spends the largest outputs until the payment and fee are covered
+ *
+ * Always finds a selection if one exists and minimizes the number of inputs, but tends to create change
+ * and to leave small outputs unspent.
+ */
+public class LargestFirstSelector implements CoinSelector {
+    @Override
+    public CoinSelection select(long[] values, long target, int outputCount, FeeModel fees) {
+        long[] effective = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            effective[i] = fees.effectiveValue(values[i]);
+        }
+        int[] sorted = CoinSelection.positiveByDescendingKey(effective);
+        long needed = target + fees.baseFee(outputCount);
+        long total = 0;
+        for (int n = 0; n < sorted.length; n++) {
+            total += effective[sorted[n]];
+            if (total >= needed) {
+                return CoinSelection.of(values, Arrays.copyOf(sorted, n + 1), target, outputCount, fees);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Coin selection for transactions built by {@link com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient}.
+ */
+package com.msgilligan.bitcoinj.rpc.coinselection;
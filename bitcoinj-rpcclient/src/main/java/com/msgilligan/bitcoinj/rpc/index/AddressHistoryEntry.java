@@ -0,0 +1,63 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+/**
+ * An output received by an address or an input spending one, from an {@link AddressHistoryIndex}
+ */
+public class AddressHistoryEntry {
+    private final int height;
+    private final Sha256Hash txid;
+    private final int index;
+    private final Coin value;
+    private final boolean spend;
+
+    public AddressHistoryEntry(int height, Sha256Hash txid, int index, Coin value, boolean spend) {
+        this.height = height;
+        this.txid = txid;
+        this.index = index;
+        this.value = value;
+        this.spend = spend;
+    }
+
+    /**
+     * @return Height of the block containing the transaction
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return ID of the receiving or spending transaction
+     */
+    public Sha256Hash getTxid() {
+        return txid;
+    }
+
+    /**
+     * @return Output index of a received output, input index of a spend
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return Value of the received or spent output
+     */
+    public Coin getValue() {
+        return value;
+    }
+
+    /**
+     * @return `true` if the transaction spends an output of the address
+     */
+    public boolean isSpend() {
+        return spend;
+    }
+
+    @Override
+    public String toString() {
+        return (spend ? "spent by " : "received by ") + txid + ":" + index + " " + value.toFriendlyString() + " @" + height;
+    }
+}
@@ -0,0 +1,758 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * = Memory-mapped, append-only index of the outputs received and spent by each address
+ *
+ * Built block-by-block as a {@link ChainListener} (see {@link ChainFollower}), the index answers
+ * "which transactions touched address X" without scanning blocks over RPC. It doesn't depend on any other
+ * listener: the address and value of each spent output are taken from the index's own record of that output,
+ * found through an in-memory table of the unspent outputs (about 34 bytes each), so it can be registered
+ * in any order.
+ *
+ * Each output and each spend is appended as a fixed-size record to a memory-mapped log (in chain order).
+ * The log is the source of truth, its header holds the record count and the tip and is updated after a
+ * block's records have been written, so the index is consistent after a crash and resumes at
+ * {@link #getHeight()} when reopened. If a block can't be connected, its records are removed again so it
+ * can be retried, a disconnected block is removed by truncating back to the records of the previous block.
+ *
+ * Every record is also copied to its script's bucket, a contiguous run of records in a second mapped file
+ * (`.buckets`), so a query is one binary search for `fromHeight` followed by a sequential read of the
+ * address's records and none of the others. A full bucket is moved to one twice its size and its old
+ * space is reused by other scripts. The table of buckets and of the outputs not yet spent is saved
+ * (`.dir`) by {@link #flush()} and {@link #close()} and loaded on open if it matches the header, otherwise
+ * (e.g. after a crash) the buckets are rebuilt with one sequential pass over the log.
+ *
+ * Scripts are identified by {@link UtxoIndex#scriptHash(byte[])}, `OP_RETURN` outputs are skipped.
+ */
+public class AddressHistoryIndex implements ChainListener, Closeable {
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20;
+    private static final int MAGIC = 0x41484930;            // "AHI0"
+    private static final int DIRECTORY_MAGIC = 0x41484944;  // "AHID"
+    private static final int FORMAT_VERSION = 2;
+    private static final int OP_RETURN = 0x6a;
+
+    // Header
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORDS_PER_SEGMENT = 8;
+    private static final int H_HEIGHT = 12;
+    private static final int H_COUNT = 16;
+    private static final int H_TIP = 24;
+
+    // Records (log and buckets)
+    private static final int RECORD_SIZE = 64;
+    private static final int SCRIPT = 0;
+    private static final int SPENT = 8;     // log record of the spent output for a spend, -1 for an output
+    private static final int VALUE = 16;
+    private static final int HEIGHT = 24;
+    private static final int INDEX = 28;    // output index, input index for a spend
+    private static final int TXID = 32;     // spending transaction for a spend
+    private static final int LENGTH = 0;    // number of records, in the first slot of a bucket
+
+    // Buckets hold 2^sizeClass slots: the length and up to 2^sizeClass - 1 records
+    private static final int MIN_SIZE_CLASS = 1;
+    private static final int MAX_SIZE_CLASS = 40;
+    private static final int SIZE_CLASS_BITS = 6;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final File bucketsFile;
+    private final File directoryFile;
+    private final MappedByteBuffer header;
+    private final int recordsPerSegment;
+    private final Records log;
+    private Records buckets;
+    private LongLongMap scripts;                    // script hash -> bucket (slot << SIZE_CLASS_BITS | size class)
+    private LongLongMap outputs;                    // outpoint key -> log record of the unspent output
+    private Map<String, Long> collidingOutputs;     // unspent outputs whose outpoint key is taken
+    private long[][] freeBuckets;                   // size class -> slots of free buckets (count in [0])
+    private long bucketsEnd;
+    private boolean directorySaved;
+    private long count;
+    private int height;
+    private Sha256Hash tipHash;
+
+    /**
+     * Open an existing index or create a new one
+     *
+     * @param indexFile File to store the index in, the buckets and the directory are stored next to it
+     * @throws IOException if the file can't be opened or isn't an address history index
+     */
+    public AddressHistoryIndex(File indexFile) throws IOException {
+        this(indexFile, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    /**
+     * @param indexFile File to store the index in
+     * @param recordsPerSegment Number of records per mapped segment of a new file (existing files keep theirs)
+     * @throws IOException if the file can't be opened or isn't an address history index
+     */
+    AddressHistoryIndex(File indexFile, int recordsPerSegment) throws IOException {
+        bucketsFile = new File(indexFile.getPath() + ".buckets");
+        directoryFile = new File(indexFile.getPath() + ".dir");
+        boolean exists = indexFile.exists() && indexFile.length() >= HEADER_SIZE;
+        RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+        header = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (exists) {
+            if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != FORMAT_VERSION) {
+                file.close();
+                throw new IOException(indexFile + " is not an address history index");
+            }
+            this.recordsPerSegment = header.getInt(H_RECORDS_PER_SEGMENT);
+            height = header.getInt(H_HEIGHT);
+            count = header.getLong(H_COUNT);
+            byte[] hash = new byte[32];
+            for (int j = 0; j < 32; j++) {
+                hash[j] = header.get(H_TIP + j);
+            }
+            tipHash = (height >= 0) ? Sha256Hash.wrap(hash) : null;
+        } else {
+            this.recordsPerSegment = recordsPerSegment;
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, FORMAT_VERSION);
+            header.putInt(H_RECORDS_PER_SEGMENT, recordsPerSegment);
+            height = -1;
+            count = 0;
+            tipHash = null;
+            writeHeader();
+        }
+        log = new Records(file, HEADER_SIZE, this.recordsPerSegment);
+        try {
+            if (count > 0) {
+                log.segmentForWrite(count - 1);     // Map the segments of the existing records
+            }
+            if (loadDirectory()) {
+                buckets = new Records(new RandomAccessFile(bucketsFile, "rw"), 0, this.recordsPerSegment);
+                directorySaved = true;
+            } else {
+                rebuild();
+            }
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Height of the last connected block, `-1` if none
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Hash of the last connected block, `null` if none
+     */
+    public synchronized Sha256Hash getTipHash() {
+        return tipHash;
+    }
+
+    /**
+     * @return Number of outputs and spends in the index
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    @Override
+    public synchronized void blockConnected(int blockHeight, Block block) {
+        if (blockHeight != height + 1 || (tipHash != null && !block.getPrevBlockHash().equals(tipHash))) {
+            throw new IllegalStateException("Block " + block.getHash() + " at height " + blockHeight +
+                    " does not connect to tip at height " + height);
+        }
+        long previousCount = count;
+        try {
+            invalidateDirectory();
+            for (Transaction tx : block.getTransactions()) {
+                byte[] txid = tx.getHash().getBytes();
+                if (!tx.isCoinBase()) {
+                    List<TransactionInput> inputs = tx.getInputs();
+                    for (int i = 0; i < inputs.size(); i++) {
+                        TransactionOutPoint outPoint = inputs.get(i).getOutpoint();
+                        long spent = findOutput(outPoint.getHash().getBytes(), (int) outPoint.getIndex());
+                        if (spent >= 0) {
+                            append(log.getLong(spent, SCRIPT), spent, log.getLong(spent, VALUE), blockHeight, i, txid);
+                        }
+                    }
+                }
+                List<TransactionOutput> outputs = tx.getOutputs();
+                for (int i = 0; i < outputs.size(); i++) {
+                    byte[] script = outputs.get(i).getScriptBytes();
+                    if (script.length > 0 && (script[0] & 0xff) == OP_RETURN) {
+                        continue;
+                    }
+                    append(UtxoIndex.scriptHash(script), -1, outputs.get(i).getValue().value, blockHeight, i, txid);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            rollBack(previousCount);
+            if (e instanceof IOException) {
+                throw new IllegalStateException("Can't grow address history index", e);
+            }
+            throw (RuntimeException) e;
+        }
+        height = blockHeight;
+        tipHash = block.getHash();
+        writeHeader();
+    }
+
+    @Override
+    public synchronized void blockDisconnected(int blockHeight, Block block) {
+        if (blockHeight != height || !block.getHash().equals(tipHash)) {
+            throw new IllegalStateException("Block " + block.getHash() + " is not the tip");
+        }
+        try {
+            invalidateDirectory();
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't delete " + directoryFile, e);
+        }
+        truncate(blockHeight);
+        height = blockHeight - 1;
+        tipHash = (blockHeight > 0) ? block.getPrevBlockHash() : null;
+        writeHeader();
+    }
+
+    /**
+     * @param address Any address
+     * @return Outputs paying to `address` in chain order
+     */
+    public List<ReceivedOutput> getReceived(Address address) {
+        return getReceived(address, 0);
+    }
+
+    /**
+     * @param address Any address
+     * @param fromHeight Lowest block height to include
+     * @return Outputs paying to `address` at or above `fromHeight` in chain order
+     */
+    public List<ReceivedOutput> getReceived(Address address, int fromHeight) {
+        List<ReceivedOutput> result = new ArrayList<>();
+        for (AddressHistoryEntry entry : getHistory(address, fromHeight)) {
+            if (!entry.isSpend()) {
+                result.add(new ReceivedOutput(entry.getHeight(), entry.getTxid(), entry.getIndex(), entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param address Any address
+     * @return Outputs received by `address` and inputs spending them, in chain order
+     */
+    public List<AddressHistoryEntry> getHistory(Address address) {
+        return getHistory(address, 0);
+    }
+
+    /**
+     * @param address Any address
+     * @param fromHeight Lowest block height to include
+     * @return Outputs received by `address` and inputs spending them at or above `fromHeight`, in chain order
+     */
+    public synchronized List<AddressHistoryEntry> getHistory(Address address, int fromHeight) {
+        List<AddressHistoryEntry> result = new ArrayList<>();
+        long bucket = scripts.get(UtxoIndex.scriptHash(address));
+        if (bucket < 0) {
+            return result;
+        }
+        long first = slotOf(bucket) + 1;
+        long end = first + buckets.getLong(slotOf(bucket), LENGTH);
+        for (long s = firstAtHeight(first, end, fromHeight); s < end; s++) {
+            result.add(new AddressHistoryEntry(buckets.getInt(s, HEIGHT), buckets.txid(s), buckets.getInt(s, INDEX),
+                    Coin.valueOf(buckets.getLong(s, VALUE)), buckets.getLong(s, SPENT) >= 0));
+        }
+        return result;
+    }
+
+    /**
+     * Force the mapped files to storage (mapped writes survive a process crash without this,
+     * but not an OS crash or power loss) and save the directory of buckets and unspent outputs
+     *
+     * @throws IOException if the directory can't be saved
+     */
+    public synchronized void flush() throws IOException {
+        log.force();
+        header.force();
+        buckets.force();
+        if (!directorySaved) {
+            saveDirectory();
+            directorySaved = true;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        buckets.close();
+        log.close();
+    }
+
+    /**
+     * Append a record to the log and its script's bucket, then count it
+     */
+    private void append(long scriptHash, long spent, long value, int blockHeight, int index, byte[] txid)
+            throws IOException {
+        long r = count;
+        log.segmentForWrite(r);
+        log.putLong(r, SCRIPT, scriptHash);
+        log.putLong(r, SPENT, spent);
+        log.putLong(r, VALUE, value);
+        log.putInt(r, HEIGHT, blockHeight);
+        log.putInt(r, INDEX, index);
+        log.putTxid(r, txid);
+        addToBucket(scriptHash, r);
+        count++;
+        if (spent >= 0) {
+            removeOutput(spent);
+        } else {
+            addOutput(r);
+        }
+    }
+
+    /**
+     * Copy log record `r` to the end of its script's bucket, moving the bucket to a bigger one if it's full
+     */
+    private void addToBucket(long scriptHash, long r) throws IOException {
+        long bucket = scripts.get(scriptHash);
+        long length = 0;
+        if (bucket < 0) {
+            bucket = allocate(MIN_SIZE_CLASS);
+        } else {
+            length = buckets.getLong(slotOf(bucket), LENGTH);
+            if (length + 1 == 1L << sizeClassOf(bucket)) {
+                if (sizeClassOf(bucket) == MAX_SIZE_CLASS) {
+                    throw new IOException("Bucket of script " + scriptHash + " is full");
+                }
+                long bigger = allocate(sizeClassOf(bucket) + 1);
+                for (long i = 1; i <= length; i++) {
+                    buckets.copy(slotOf(bucket) + i, buckets, slotOf(bigger) + i);
+                }
+                buckets.putLong(slotOf(bigger), LENGTH, length);
+                release(bucket);
+                bucket = bigger;
+            }
+        }
+        scripts.put(scriptHash, bucket);
+        log.copy(r, buckets, slotOf(bucket) + 1 + length);
+        buckets.putLong(slotOf(bucket), LENGTH, length + 1);
+    }
+
+    /**
+     * Remove the last record from the log and its bucket and restore the outputs it spent or added
+     */
+    private void removeLast() {
+        long r = count - 1;
+        long scriptHash = log.getLong(r, SCRIPT);
+        long bucket = scripts.get(scriptHash);
+        long length = buckets.getLong(slotOf(bucket), LENGTH) - 1;
+        if (length > 0) {
+            buckets.putLong(slotOf(bucket), LENGTH, length);
+        } else {
+            scripts.remove(scriptHash);
+            release(bucket);
+        }
+        long spent = log.getLong(r, SPENT);
+        if (spent >= 0) {
+            addOutput(spent);
+        } else {
+            removeOutput(r);
+        }
+        count--;
+    }
+
+    /**
+     * Remove the records at or above `fromHeight`
+     */
+    private void truncate(int fromHeight) {
+        while (count > 0 && log.getInt(count - 1, HEIGHT) >= fromHeight) {
+            removeLast();
+        }
+    }
+
+    /**
+     * Remove the records appended after `previousCount`
+     */
+    private void rollBack(long previousCount) {
+        while (count > previousCount) {
+            removeLast();
+        }
+    }
+
+    /**
+     * @return Index of the first slot in `[first, end)` at or above `fromHeight`, `end` if none
+     */
+    private long firstAtHeight(long first, long end, int fromHeight) {
+        long low = first;
+        long high = end;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (buckets.getInt(mid, HEIGHT) < fromHeight) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return A free bucket of `sizeClass`, reused or from the end of the buckets file
+     */
+    private long allocate(int sizeClass) throws IOException {
+        long[] free = freeBuckets[sizeClass];
+        long slot;
+        if (free != null && free[0] > 0) {
+            slot = free[(int) free[0]];
+            free[0]--;
+        } else {
+            slot = bucketsEnd;
+            buckets.segmentForWrite(slot + (1L << sizeClass) - 1);
+            bucketsEnd += 1L << sizeClass;
+        }
+        return (slot << SIZE_CLASS_BITS) | sizeClass;
+    }
+
+    private void release(long bucket) {
+        int sizeClass = sizeClassOf(bucket);
+        long[] free = freeBuckets[sizeClass];
+        if (free == null) {
+            free = new long[8];
+        } else if (free[0] + 1 == free.length) {
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[0]++;
+        free[(int) free[0]] = slotOf(bucket);
+        freeBuckets[sizeClass] = free;
+    }
+
+    /**
+     * @return Log record of the unspent output `txid:index`, `-1` if it isn't indexed (e.g. `OP_RETURN`)
+     */
+    private long findOutput(byte[] txid, int index) {
+        long r = outputs.get(outPointKey(txid, index));
+        if (r >= 0 && matches(r, txid, index)) {
+            return r;
+        }
+        Long colliding = collidingOutputs.isEmpty() ? null : collidingOutputs.get(outPointString(txid, index));
+        return (colliding != null) ? colliding : -1;
+    }
+
+    /**
+     * Add output record `r` to the unspent outputs (replacing an output with the same outpoint)
+     */
+    private void addOutput(long r) {
+        byte[] txid = log.txid(r).getBytes();
+        int index = log.getInt(r, INDEX);
+        long key = outPointKey(txid, index);
+        long existing = outputs.get(key);
+        if (existing < 0 || matches(existing, txid, index)) {
+            outputs.put(key, r);
+        } else {
+            collidingOutputs.put(outPointString(txid, index), r);
+        }
+    }
+
+    /**
+     * Remove output record `r` from the unspent outputs (if it's still there)
+     */
+    private void removeOutput(long r) {
+        byte[] txid = log.txid(r).getBytes();
+        int index = log.getInt(r, INDEX);
+        long key = outPointKey(txid, index);
+        if (outputs.get(key) == r) {
+            outputs.remove(key);
+        } else if (!collidingOutputs.isEmpty()) {
+            collidingOutputs.remove(outPointString(txid, index), r);
+        }
+    }
+
+    private boolean matches(long r, byte[] txid, int index) {
+        return log.getInt(r, INDEX) == index && Arrays.equals(log.txid(r).getBytes(), txid);
+    }
+
+    /**
+     * Rebuild the buckets and unspent outputs from the log into a new buckets file, then replace the old one
+     * (which isn't truncated in place as another instance may still have it mapped)
+     */
+    private void rebuild() throws IOException {
+        File tmp = new File(bucketsFile.getPath() + ".tmp");
+        Files.deleteIfExists(tmp.toPath());
+        int expected = (int) Math.min(count, 1 << 20);
+        scripts = new LongLongMap(expected, -1);
+        outputs = new LongLongMap(expected, -1);
+        collidingOutputs = new HashMap<>();
+        freeBuckets = new long[MAX_SIZE_CLASS + 1][];
+        bucketsEnd = 0;
+        buckets = new Records(new RandomAccessFile(tmp, "rw"), 0, recordsPerSegment);
+        try {
+            for (long r = 0; r < count; r++) {
+                addToBucket(log.getLong(r, SCRIPT), r);
+                long spent = log.getLong(r, SPENT);
+                if (spent >= 0) {
+                    removeOutput(spent);
+                } else {
+                    addOutput(r);
+                }
+            }
+            buckets.force();
+        } finally {
+            buckets.close();
+        }
+        Files.move(tmp.toPath(), bucketsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        buckets = new Records(new RandomAccessFile(bucketsFile, "rw"), 0, recordsPerSegment);
+        directorySaved = false;
+    }
+
+    /**
+     * Delete the saved directory before the first change after it was saved or loaded,
+     * so it's rebuilt if the process stops before the next {@link #flush()}
+     */
+    private void invalidateDirectory() throws IOException {
+        if (directorySaved) {
+            Files.deleteIfExists(directoryFile.toPath());
+            directorySaved = false;
+        }
+    }
+
+    /**
+     * Write the directory with the header fields it belongs to, replacing the old file atomically
+     */
+    private void saveDirectory() throws IOException {
+        File tmp = new File(directoryFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(DIRECTORY_MAGIC);
+            out.writeLong(count);
+            out.writeInt(height);
+            out.write((tipHash != null ? tipHash : Sha256Hash.ZERO_HASH).getBytes());
+            out.writeLong(bucketsEnd);
+            scripts.writeTo(out);
+            outputs.writeTo(out);
+            out.writeInt(collidingOutputs.size());
+            for (Map.Entry<String, Long> entry : collidingOutputs.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            writeFreeBuckets(out);
+        }
+        Files.move(tmp.toPath(), directoryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load the saved directory
+     *
+     * @return `false` if it's missing, unreadable or saved for other records
+     */
+    private boolean loadDirectory() {
+        if (!directoryFile.exists() || !bucketsFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(directoryFile)))) {
+            if (in.readInt() != DIRECTORY_MAGIC || in.readLong() != count || in.readInt() != height) {
+                return false;
+            }
+            byte[] hash = new byte[32];
+            in.readFully(hash);
+            if (!Sha256Hash.wrap(hash).equals(tipHash != null ? tipHash : Sha256Hash.ZERO_HASH)) {
+                return false;
+            }
+            bucketsEnd = in.readLong();
+            scripts = LongLongMap.readFrom(in, -1);
+            outputs = LongLongMap.readFrom(in, -1);
+            int n = in.readInt();
+            collidingOutputs = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                collidingOutputs.put(in.readUTF(), in.readLong());
+            }
+            freeBuckets = readFreeBuckets(in);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void writeFreeBuckets(DataOutput out) throws IOException {
+        for (long[] free : freeBuckets) {
+            int n = (free != null) ? (int) free[0] : 0;
+            out.writeInt(n);
+            for (int i = 1; i <= n; i++) {
+                out.writeLong(free[i]);
+            }
+        }
+    }
+
+    private static long[][] readFreeBuckets(DataInput in) throws IOException {
+        long[][] free = new long[MAX_SIZE_CLASS + 1][];
+        for (int sizeClass = 0; sizeClass <= MAX_SIZE_CLASS; sizeClass++) {
+            int n = in.readInt();
+            if (n > 0) {
+                free[sizeClass] = new long[n + 1];
+                free[sizeClass][0] = n;
+                for (int i = 1; i <= n; i++) {
+                    free[sizeClass][i] = in.readLong();
+                }
+            }
+        }
+        return free;
+    }
+
+    private void writeHeader() {
+        header.putInt(H_HEIGHT, height);
+        header.putLong(H_COUNT, count);
+        byte[] hash = (tipHash != null ? tipHash : Sha256Hash.ZERO_HASH).getBytes();
+        for (int j = 0; j < 32; j++) {
+            header.put(H_TIP + j, hash[j]);
+        }
+    }
+
+    private static long outPointKey(byte[] txid, int index) {
+        long prefix = 0;
+        for (int j = 0; j < 8; j++) {
+            prefix = (prefix << 8) | (txid[j] & 0xff);
+        }
+        return prefix ^ (index * GOLDEN);
+    }
+
+    private static String outPointString(byte[] txid, int index) {
+        return Sha256Hash.wrap(txid) + ":" + index;
+    }
+
+    private static long slotOf(long bucket) {
+        return bucket >>> SIZE_CLASS_BITS;
+    }
+
+    private static int sizeClassOf(long bucket) {
+        return (int) (bucket & ((1 << SIZE_CLASS_BITS) - 1));
+    }
+
+    /**
+     * Fixed-size records in memory-mapped segments of a file, starting at `base`
+     */
+    private static class Records {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final long base;
+        private final int perSegment;
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+        Records(RandomAccessFile file, long base, int perSegment) {
+            this.file = file;
+            this.channel = file.getChannel();
+            this.base = base;
+            this.perSegment = perSegment;
+        }
+
+        long getLong(long r, int field) {
+            return segmentForRead(r).getLong(offset(r) + field);
+        }
+
+        int getInt(long r, int field) {
+            return segmentForRead(r).getInt(offset(r) + field);
+        }
+
+        void putLong(long r, int field, long value) {
+            segmentForRead(r).putLong(offset(r) + field, value);
+        }
+
+        void putInt(long r, int field, int value) {
+            segmentForRead(r).putInt(offset(r) + field, value);
+        }
+
+        Sha256Hash txid(long r) {
+            MappedByteBuffer segment = segmentForRead(r);
+            int offset = offset(r);
+            byte[] txid = new byte[32];
+            for (int j = 0; j < 32; j++) {
+                txid[j] = segment.get(offset + TXID + j);
+            }
+            return Sha256Hash.wrap(txid);
+        }
+
+        void putTxid(long r, byte[] txid) {
+            MappedByteBuffer segment = segmentForRead(r);
+            int offset = offset(r);
+            for (int j = 0; j < 32; j++) {
+                segment.put(offset + TXID + j, txid[j]);
+            }
+        }
+
+        /**
+         * Copy record `r` to record `to` of `target` (which must already be mapped)
+         */
+        void copy(long r, Records target, long to) {
+            MappedByteBuffer from = segmentForRead(r);
+            MappedByteBuffer into = target.segmentForRead(to);
+            int fromOffset = offset(r);
+            int toOffset = target.offset(to);
+            for (int j = 0; j < RECORD_SIZE; j += 8) {
+                into.putLong(toOffset + j, from.getLong(fromOffset + j));
+            }
+        }
+
+        void force() {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+
+        void close() throws IOException {
+            segments.clear();
+            channel.close();
+            file.close();
+        }
+
+        private int offset(long r) {
+            return (int) (r % perSegment) * RECORD_SIZE;
+        }
+
+        private MappedByteBuffer segmentForRead(long r) {
+            try {
+                return segmentForWrite(r);
+            } catch (IOException e) {
+                throw new IllegalStateException("Can't map address history index", e);
+            }
+        }
+
+        /**
+         * @return The segment of record `r`, mapping it and the segments before it if needed
+         */
+        MappedByteBuffer segmentForWrite(long r) throws IOException {
+            int n = (int) (r / perSegment);
+            while (segments.size() <= n) {
+                long size = (long) perSegment * RECORD_SIZE;
+                long position = base + segments.size() * size;
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, size));
+            }
+            return segments.get(n);
+        }
+    }
+}
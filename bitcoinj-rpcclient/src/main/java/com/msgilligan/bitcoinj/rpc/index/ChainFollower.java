@@ -0,0 +1,163 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import com.msgilligan.bitcoinj.rpc.BitcoinClient;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Sha256Hash;
+import org.consensusj.jsonrpc.JsonRPCStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Follows the best chain of a node block-by-block and feeds {@link ChainListener}s
+ *
+ * Call {@link #sync()} (e.g. periodically or on a ZMQ/`waitForBlock` notification) to catch up with the node.
+ * Reorgs are detected by comparing the node's hash at our tip height with our tip hash, the stale blocks
+ * are then disconnected (fetched by hash, bitcoind keeps them) down to the fork point.
+ *
+ * The follower tracks the tip of each listener. If a listener throws, `sync()` throws and the next call
+ * delivers the block again to that listener (and to any listener after it), but not to the listeners that
+ * already accepted it. The follower's tip is the highest block delivered to any listener.
+ */
+public class ChainFollower {
+    private static final Logger log = LoggerFactory.getLogger(ChainFollower.class);
+    private final BitcoinClient client;
+    private final List<Subscription> listeners = new CopyOnWriteArrayList<>();
+    private int tipHeight;
+    private Sha256Hash tipHash;
+
+    /**
+     * Follow the chain starting with the genesis block
+     *
+     * @param client Client for the node to follow
+     */
+    public ChainFollower(BitcoinClient client) {
+        this(client, -1, null);
+    }
+
+    /**
+     * Resume following the chain (e.g. after loading a snapshot of an index)
+     *
+     * @param client Client for the node to follow
+     * @param tipHeight Height of the last block delivered to the listeners, `-1` for none
+     * @param tipHash Hash of the last block delivered to the listeners, `null` for none
+     */
+    public ChainFollower(BitcoinClient client, int tipHeight, Sha256Hash tipHash) {
+        this.client = client;
+        this.tipHeight = tipHeight;
+        this.tipHash = tipHash;
+    }
+
+    /**
+     * Add a listener, it receives the blocks after the current tip
+     */
+    public synchronized void addListener(ChainListener listener) {
+        listeners.add(new Subscription(listener, tipHeight, tipHash));
+    }
+
+    public void removeListener(ChainListener listener) {
+        listeners.removeIf(s -> s.listener == listener);
+    }
+
+    public synchronized int getTipHeight() {
+        return tipHeight;
+    }
+
+    public synchronized Sha256Hash getTipHash() {
+        return tipHash;
+    }
+
+    /**
+     * Disconnect stale blocks (if any) and connect new blocks up to the node's current tip
+     *
+     * @return Number of blocks connected
+     * @throws JsonRPCStatusException JSON RPC status exception
+     * @throws IOException network error
+     */
+    public synchronized int sync() throws JsonRPCStatusException, IOException {
+        int chainHeight = client.getBlockCount();
+        while (tipHash != null && (tipHeight > chainHeight || !client.getBlockHash(tipHeight).equals(tipHash))) {
+            Block stale = client.getBlock(tipHash);
+            log.info("Disconnecting block {} at height {}", tipHash, tipHeight);
+            for (Subscription s : listeners) {
+                if (s.height == tipHeight && tipHash.equals(s.hash)) {
+                    s.listener.blockDisconnected(tipHeight, stale);
+                    s.disconnected(stale);
+                }
+            }
+            tipHash = (tipHeight > 0) ? stale.getPrevBlockHash() : null;
+            tipHeight--;
+        }
+        int connected = 0;
+        // Listeners that failed on a block lag behind the tip, catch them up first
+        for (int height = lowestHeight() + 1; height <= chainHeight; height++) {
+            Block block = client.getBlock(height);
+            if (height > tipHeight && tipHash != null && !block.getPrevBlockHash().equals(tipHash)) {
+                // Reorg while syncing, the next call will roll back
+                log.info("Chain changed while syncing at height {}", height);
+                break;
+            }
+            for (Subscription s : listeners) {
+                if (s.height == height - 1) {
+                    if (s.hash != null && !block.getPrevBlockHash().equals(s.hash)) {
+                        log.info("Chain changed while syncing at height {}", height);
+                        return connected;
+                    }
+                    s.listener.blockConnected(height, block);
+                    s.connected(height, block);
+                    connected += advanceTip(height, block);
+                }
+            }
+            connected += advanceTip(height, block);
+        }
+        return connected;
+    }
+
+    /**
+     * @return 1 if the block is the new tip, 0 if it's already part of the chain
+     */
+    private int advanceTip(int height, Block block) {
+        if (height <= tipHeight) {
+            return 0;
+        }
+        tipHeight = height;
+        tipHash = block.getHash();
+        return 1;
+    }
+
+    private int lowestHeight() {
+        int lowest = tipHeight;
+        for (Subscription s : listeners) {
+            lowest = Math.min(lowest, s.height);
+        }
+        return lowest;
+    }
+
+    /**
+     * A listener and the last block delivered to it
+     */
+    private static class Subscription {
+        final ChainListener listener;
+        int height;
+        Sha256Hash hash;
+
+        Subscription(ChainListener listener, int height, Sha256Hash hash) {
+            this.listener = listener;
+            this.height = height;
+            this.hash = hash;
+        }
+
+        void connected(int blockHeight, Block block) {
+            height = blockHeight;
+            hash = block.getHash();
+        }
+
+        void disconnected(Block block) {
+            hash = (height > 0) ? block.getPrevBlockHash() : null;
+            height--;
+        }
+    }
+}
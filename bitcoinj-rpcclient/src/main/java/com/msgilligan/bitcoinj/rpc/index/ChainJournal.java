@@ -0,0 +1,352 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * = Durable, append-only journal of block connect/disconnect events
+ *
+ * Register the journal as a {@link ChainListener} of a {@link ChainFollower} (created with the journal's
+ * {@link #getHeight()} and {@link #getTipHash()} to resume after a restart) and consume events with
+ * {@link JournalReader}s, each reading at its own offset. Events include the raw block, so consumers never
+ * fetch blocks from the node and blocks already in the journal are not fetched again after a restart.
+ *
+ * Each event is a length-prefixed record with a CRC-32, a partially written record at the end of the journal
+ * (e.g. after a crash) is truncated when the journal is opened. A checkpoint (offset and tip) is written every
+ * {@link #DEFAULT_CHECKPOINT_INTERVAL} events and on {@link #close()}, so opening only scans the events after it.
+ * Events are forced to storage at each checkpoint and before a {@link JournalReader} commits an offset after
+ * them, so a committed offset never points past the events that survive an OS crash.
+ */
+public class ChainJournal implements ChainListener, Closeable {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+    static final byte CONNECTED = 'C';
+    static final byte DISCONNECTED = 'D';
+    private static final int MAGIC = 0x434a4e30;    // "CJN0"
+    private static final int HEADER_SIZE = 8;       // MAGIC and format version
+    private static final int FORMAT_VERSION = 1;
+    private static final int EVENT_HEADER_SIZE = 1 + 4 + 32;    // type, height, block hash
+
+    private final Context context;
+    private final File directory;
+    private final int checkpointInterval;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private volatile long endOffset;
+    private volatile long forcedOffset;     // events before this offset are on storage
+    private int height = -1;
+    private Sha256Hash tipHash = null;
+    private int sinceCheckpoint = 0;
+
+    /**
+     * Open an existing journal or create a new one
+     *
+     * @param netParams Network parameters for parsing blocks
+     * @param directory Directory for the journal, checkpoint and consumer offset files (created if needed)
+     * @throws IOException if the journal can't be opened
+     */
+    public ChainJournal(NetworkParameters netParams, File directory) throws IOException {
+        this(netParams, directory, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @param netParams Network parameters for parsing blocks
+     * @param directory Directory for the journal, checkpoint and consumer offset files (created if needed)
+     * @param checkpointInterval Number of events between checkpoints
+     * @throws IOException if the journal can't be opened
+     */
+    public ChainJournal(NetworkParameters netParams, File directory, int checkpointInterval) throws IOException {
+        this.context = new Context(netParams);
+        this.directory = directory;
+        this.checkpointInterval = checkpointInterval;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        file = new RandomAccessFile(new File(directory, "journal.dat"), "rw");
+        channel = file.getChannel();
+        if (channel.size() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(false);
+            endOffset = HEADER_SIZE;
+            forcedOffset = HEADER_SIZE;
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                close();
+                throw new IOException(directory + " does not contain a chain journal");
+            }
+            recover();
+        }
+    }
+
+    /**
+     * @return Height of the tip after the last event, `-1` if none
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Hash of the tip after the last event, `null` if none
+     */
+    public synchronized Sha256Hash getTipHash() {
+        return tipHash;
+    }
+
+    /**
+     * @return Offset of the first event
+     */
+    public long getStartOffset() {
+        return HEADER_SIZE;
+    }
+
+    /**
+     * @return Offset after the last complete event
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    @Override
+    public synchronized void blockConnected(int blockHeight, Block block) {
+        if (blockHeight != height + 1 || (tipHash != null && !block.getPrevBlockHash().equals(tipHash))) {
+            throw new IllegalStateException("Block " + block.getHash() + " at height " + blockHeight +
+                    " does not connect to journal tip at height " + height);
+        }
+        append(CONNECTED, blockHeight, block);
+        height = blockHeight;
+        tipHash = block.getHash();
+    }
+
+    @Override
+    public synchronized void blockDisconnected(int blockHeight, Block block) {
+        if (blockHeight != height || !block.getHash().equals(tipHash)) {
+            throw new IllegalStateException("Block " + block.getHash() + " is not the journal tip");
+        }
+        append(DISCONNECTED, blockHeight, block);
+        height = blockHeight - 1;
+        tipHash = (blockHeight > 0) ? block.getPrevBlockHash() : null;
+    }
+
+    /**
+     * Force events to storage and write a checkpoint
+     *
+     * @throws IOException if the checkpoint can't be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        channel.force(false);
+        forcedOffset = endOffset;
+        File checkpoint = new File(directory, "checkpoint");
+        File tmp = new File(directory, "checkpoint.tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(fileOut)) {
+            out.writeLong(endOffset);
+            out.writeInt(height);
+            out.write((tipHash != null ? tipHash : Sha256Hash.ZERO_HASH).getBytes());
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        replace(tmp, checkpoint);
+        sinceCheckpoint = 0;
+    }
+
+    /**
+     * Open a reader at the last committed offset of a named consumer (or at the start of the journal)
+     *
+     * @param name Consumer name (used in a file name)
+     * @return A reader, close it when done
+     * @throws IOException if the journal or the consumer's offset can't be read
+     */
+    public JournalReader openReader(String name) throws IOException {
+        File offsetFile = new File(directory, "consumer-" + name + ".offset");
+        long offset = HEADER_SIZE;
+        if (offsetFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(offsetFile))) {
+                offset = in.readLong();
+            }
+            if (offset < HEADER_SIZE || offset > endOffset) {
+                throw new IOException("Offset " + offset + " of consumer " + name + " is outside the journal (end " +
+                        endOffset + "), the journal has lost events the consumer processed");
+            }
+        }
+        return new JournalReader(this, name, offsetFile, offset);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            if (endOffset >= HEADER_SIZE) {
+                checkpoint();
+            }
+            channel.close();
+            file.close();
+        }
+    }
+
+    /**
+     * Force the events before `offset` to storage (if they aren't yet), before a reader commits `offset`
+     */
+    synchronized void forceTo(long offset) throws IOException {
+        if (offset > forcedOffset) {
+            channel.force(false);
+            forcedOffset = endOffset;
+        }
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    Context getContext() {
+        return context;
+    }
+
+    /**
+     * @return A new read-only channel on the journal file
+     */
+    FileChannel openChannel() throws IOException {
+        return new RandomAccessFile(new File(directory, "journal.dat"), "r").getChannel();
+    }
+
+    /**
+     * Atomically replace `target` with the (synced) `tmp` file, so a crash leaves either the old or the new file
+     */
+    static void replace(File tmp, File target) throws IOException {
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the event at `offset` (an event is `[payload length][type][height][hash][block][crc]`)
+     *
+     * @return The payload (type, height, hash, block) or `null` if there is no complete, valid event at `offset`
+     */
+    static ByteBuffer readEvent(FileChannel in, long offset, long limit) throws IOException {
+        if (offset + 4 > limit) {
+            return null;
+        }
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(in, length, offset);
+        int payloadLength = length.getInt(0);
+        if (payloadLength < EVENT_HEADER_SIZE || offset + 4 + payloadLength + 4 > limit) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(payloadLength + 4);
+        readFully(in, record, offset + 4);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, payloadLength);
+        if ((int) crc.getValue() != record.getInt(payloadLength)) {
+            return null;
+        }
+        record.limit(payloadLength);
+        record.position(0);
+        return record;
+    }
+
+    /**
+     * @return Size of an event with the given payload
+     */
+    static long eventSize(ByteBuffer payload) {
+        return 4 + payload.limit() + 4;
+    }
+
+    private void append(byte type, int blockHeight, Block block) {
+        byte[] bytes = block.bitcoinSerialize();
+        int payloadLength = EVENT_HEADER_SIZE + bytes.length;
+        ByteBuffer record = ByteBuffer.allocate(4 + payloadLength + 4);
+        record.putInt(payloadLength).put(type).putInt(blockHeight).put(block.getHash().getBytes()).put(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, payloadLength);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        try {
+            long position = endOffset;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            endOffset = position;
+            if (++sinceCheckpoint >= checkpointInterval) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't write to chain journal", e);
+        }
+    }
+
+    /**
+     * Start from the checkpoint (if any), replay the events after it to find the tip and truncate an incomplete last event
+     */
+    private void recover() throws IOException {
+        long offset = HEADER_SIZE;
+        File checkpoint = new File(directory, "checkpoint");
+        if (checkpoint.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(checkpoint))) {
+                long checkpointOffset = in.readLong();
+                int checkpointHeight = in.readInt();
+                byte[] hash = new byte[32];
+                in.readFully(hash);
+                if (checkpointOffset <= channel.size()) {
+                    offset = checkpointOffset;
+                    height = checkpointHeight;
+                    tipHash = (checkpointHeight >= 0) ? Sha256Hash.wrap(hash) : null;
+                }
+            }
+        }
+        long size = channel.size();
+        ByteBuffer payload;
+        while ((payload = readEvent(channel, offset, size)) != null) {
+            byte type = payload.get();
+            int eventHeight = payload.getInt();
+            byte[] hash = new byte[32];
+            payload.get(hash);
+            if (type == CONNECTED) {
+                height = eventHeight;
+                tipHash = Sha256Hash.wrap(hash);
+            } else {
+                Block block = context.getParams().getDefaultSerializer().makeBlock(blockBytes(payload));
+                height = eventHeight - 1;
+                tipHash = (eventHeight > 0) ? block.getPrevBlockHash() : null;
+            }
+            offset += eventSize(payload);
+        }
+        if (offset < size) {
+            channel.truncate(offset);
+        }
+        channel.force(false);
+        endOffset = offset;
+        forcedOffset = offset;
+    }
+
+    static byte[] blockBytes(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.limit() - EVENT_HEADER_SIZE];
+        payload.position(EVENT_HEADER_SIZE);
+        payload.get(bytes);
+        return bytes;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of chain journal");
+            }
+        }
+    }
+}
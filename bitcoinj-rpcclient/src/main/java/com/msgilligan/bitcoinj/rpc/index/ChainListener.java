@@ -0,0 +1,24 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Block;
+
+/**
+ * Receives blocks as they are connected to or disconnected from the best chain
+ *
+ * Blocks are delivered in chain order: `blockConnected` for height `n + 1` follows the block at height `n`,
+ * and during a reorg blocks are disconnected from the tip down to the fork point before the
+ * blocks of the new chain are connected.
+ */
+public interface ChainListener {
+    /**
+     * @param height Height of the block
+     * @param block The block that is now the tip
+     */
+    void blockConnected(int height, Block block);
+
+    /**
+     * @param height Height of the block
+     * @param block The (former) tip that is no longer on the best chain
+     */
+    void blockDisconnected(int height, Block block);
+}
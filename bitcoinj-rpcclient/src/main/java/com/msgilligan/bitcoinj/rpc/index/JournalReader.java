@@ -0,0 +1,113 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Block;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads events from a {@link ChainJournal} at its own offset
+ *
+ * {@link #poll(ChainListener, int)} delivers events and advances the offset, {@link #commit()} saves the
+ * offset (after forcing the journal up to it) so that a reader opened later with the same name continues
+ * after it. Events delivered but not committed before a crash are delivered again. Consumers that need exactly-once processing can store
+ * {@link #getOffset()} atomically with their own state (e.g. in an index snapshot) and {@link #seek(long)}
+ * to it when they restart.
+ */
+public class JournalReader implements Closeable {
+    private final ChainJournal journal;
+    private final String name;
+    private final File offsetFile;
+    private final FileChannel channel;
+    private long offset;
+
+    JournalReader(ChainJournal journal, String name, File offsetFile, long offset) throws IOException {
+        this.journal = journal;
+        this.name = name;
+        this.offsetFile = offsetFile;
+        this.channel = journal.openChannel();
+        this.offset = offset;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Offset of the next event to deliver
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param offset Offset of an event (a value of {@link #getOffset()}) or {@link ChainJournal#getStartOffset()}
+     */
+    public void seek(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * @return `true` if there are events after the current offset
+     */
+    public boolean hasMore() {
+        return offset < journal.getEndOffset();
+    }
+
+    /**
+     * Deliver the next events to a listener
+     *
+     * @param listener Receives the events
+     * @param maxEvents Maximum number of events to deliver
+     * @return Number of events delivered
+     * @throws IOException if the journal can't be read
+     */
+    public int poll(ChainListener listener, int maxEvents) throws IOException {
+        int delivered = 0;
+        long end = journal.getEndOffset();
+        while (delivered < maxEvents) {
+            ByteBuffer payload = ChainJournal.readEvent(channel, offset, end);
+            if (payload == null) {
+                break;
+            }
+            byte type = payload.get();
+            int height = payload.getInt();
+            Block block = journal.getContext().getParams().getDefaultSerializer().makeBlock(ChainJournal.blockBytes(payload));
+            if (type == ChainJournal.CONNECTED) {
+                listener.blockConnected(height, block);
+            } else {
+                listener.blockDisconnected(height, block);
+            }
+            offset += ChainJournal.eventSize(payload);
+            delivered++;
+        }
+        return delivered;
+    }
+
+    /**
+     * Save the current offset for the next reader opened with this name
+     *
+     * @throws IOException if the offset can't be written
+     */
+    public void commit() throws IOException {
+        journal.forceTo(offset);
+        File tmp = new File(offsetFile.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(fileOut)) {
+            out.writeLong(offset);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        ChainJournal.replace(tmp, offsetFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,149 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Primitive `long` to `long` hash map (open addressing, linear probing, backward-shift deletion)
+ *
+ * Keys are expected to be well-distributed hashes. Not thread-safe.
+ */
+class LongLongMap {
+    private final long missing;
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size = 0;
+
+    /**
+     * @param initialCapacity Expected number of entries
+     * @param missing Value returned by {@link #get(long)} for absent keys
+     */
+    LongLongMap(int initialCapacity, long missing) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity * 2) - 1) << 1);
+        this.missing = missing;
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Approximate bytes used by the table
+     */
+    long memoryUsed() {
+        return 17L * keys.length;
+    }
+
+    long get(long key) {
+        int i = slot(key);
+        return (i >= 0) ? values[i] : missing;
+    }
+
+    void put(long key, long value) {
+        int i = slot(key);
+        if (i >= 0) {
+            values[i] = value;
+            return;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            grow();
+        }
+        place(key, value);
+        size++;
+    }
+
+    void remove(long key) {
+        int i = slot(key);
+        if (i < 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (!used[j]) {
+                break;
+            }
+            int k = hash(keys[j]) & mask;
+            if ((i <= j) ? (i < k && k <= j) : (i < k || k <= j)) {
+                continue;   // entry at j is still reachable from its ideal slot k
+            }
+            keys[i] = keys[j];
+            values[i] = values[j];
+            i = j;
+        }
+        used[i] = false;
+        size--;
+    }
+
+    /**
+     * Write the entries (count, then key/value pairs)
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                out.writeLong(keys[i]);
+                out.writeLong(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Read entries written by {@link #writeTo(DataOutput)}
+     */
+    static LongLongMap readFrom(DataInput in, long missing) throws IOException {
+        int n = in.readInt();
+        LongLongMap map = new LongLongMap(n, missing);
+        for (int i = 0; i < n; i++) {
+            map.put(in.readLong(), in.readLong());
+        }
+        return map;
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void place(long key, long value) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (used[i]) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        used = new boolean[oldUsed.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                place(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,20 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.bitcoinj.core.Sha256Hash;
+
+/**
+ * Receives changes to the mempool from a {@link MempoolMirror}
+ */
+public interface MempoolListener {
+    /**
+     * @param txid A transaction that entered the mempool
+     * @param entry Result of `getmempoolentry` if the mirror fetches entries, otherwise `null`
+     */
+    void transactionAdded(Sha256Hash txid, JsonNode entry);
+
+    /**
+     * @param txid A transaction that left the mempool (confirmed, replaced, evicted or expired)
+     */
+    void transactionRemoved(Sha256Hash txid);
+}
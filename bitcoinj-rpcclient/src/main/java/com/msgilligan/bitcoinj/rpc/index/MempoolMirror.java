@@ -0,0 +1,125 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.msgilligan.bitcoinj.rpc.BitcoinClient;
+import org.bitcoinj.core.Sha256Hash;
+import org.consensusj.jsonrpc.JsonRPCStatusException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * = Local mirror of the transaction IDs in a node's mempool
+ *
+ * Each {@link #sync()} fetches `getrawmempool` as a primitive {@link TxidSet} (no per-transaction objects)
+ * and diffs it against the previous snapshot, {@link MempoolListener}s are called for removed and then for
+ * added transactions only. Optionally, `getmempoolentry` is fetched for added transactions only.
+ */
+public class MempoolMirror {
+    private final BitcoinClient client;
+    private final List<MempoolListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean fetchEntries = false;
+    private TxidSet txids = new TxidSet();
+    private long addedCount = 0;
+    private long removedCount = 0;
+
+    /**
+     * @param client Client for the node to mirror
+     */
+    public MempoolMirror(BitcoinClient client) {
+        this.client = client;
+    }
+
+    public void addListener(MempoolListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MempoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param fetchEntries `true` to call `getmempoolentry` for each added transaction
+     */
+    public void setFetchEntries(boolean fetchEntries) {
+        this.fetchEntries = fetchEntries;
+    }
+
+    public synchronized boolean contains(Sha256Hash txid) {
+        return txids.contains(txid);
+    }
+
+    /**
+     * @return Number of transactions in the mempool at the last sync
+     */
+    public synchronized int size() {
+        return txids.size();
+    }
+
+    /**
+     * @return Approximate bytes used by the mirror
+     */
+    public synchronized long memoryUsed() {
+        return txids.memoryUsed();
+    }
+
+    /**
+     * @return Total number of added transactions reported since the mirror was created
+     */
+    public synchronized long getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * @return Total number of removed transactions reported since the mirror was created
+     */
+    public synchronized long getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * Fetch the mempool and report the changes since the last sync
+     *
+     * @return Number of added plus removed transactions
+     * @throws JsonRPCStatusException JSON RPC status exception
+     * @throws IOException network error
+     */
+    public synchronized int sync() throws JsonRPCStatusException, IOException {
+        TxidSet previous = txids;
+        TxidSet current = client.getRawMemPoolSet();
+        int changes = 0;
+        for (int slot = 0; slot < previous.slotCount(); slot++) {
+            if (!previous.isEmpty(slot) && !current.containsSlot(previous, slot)) {
+                Sha256Hash txid = previous.get(slot);
+                for (MempoolListener listener : listeners) {
+                    listener.transactionRemoved(txid);
+                }
+                removedCount++;
+                changes++;
+            }
+        }
+        boolean fetch = fetchEntries;
+        for (int slot = 0; slot < current.slotCount(); slot++) {
+            if (!current.isEmpty(slot) && !previous.containsSlot(current, slot)) {
+                Sha256Hash txid = current.get(slot);
+                JsonNode entry = fetch ? getEntry(txid) : null;
+                for (MempoolListener listener : listeners) {
+                    listener.transactionAdded(txid, entry);
+                }
+                addedCount++;
+                changes++;
+            }
+        }
+        txids = current;
+        return changes;
+    }
+
+    private JsonNode getEntry(Sha256Hash txid) throws IOException {
+        try {
+            return client.getMemPoolEntry(txid);
+        } catch (JsonRPCStatusException e) {
+            return null;    // Left the mempool since getrawmempool, will be removed on the next sync
+        }
+    }
+}
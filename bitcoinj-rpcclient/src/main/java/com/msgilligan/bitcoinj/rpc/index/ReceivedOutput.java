@@ -0,0 +1,50 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import com.msgilligan.bitcoinj.json.pojo.Outpoint;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+/**
+ * An output paying to an address, from an {@link AddressHistoryIndex}
+ */
+public class ReceivedOutput {
+    private final int height;
+    private final Sha256Hash txid;
+    private final int vout;
+    private final Coin value;
+
+    public ReceivedOutput(int height, Sha256Hash txid, int vout, Coin value) {
+        this.height = height;
+        this.txid = txid;
+        this.vout = vout;
+        this.value = value;
+    }
+
+    /**
+     * @return Height of the block containing the transaction
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    public Sha256Hash getTxid() {
+        return txid;
+    }
+
+    public int getVout() {
+        return vout;
+    }
+
+    public Coin getValue() {
+        return value;
+    }
+
+    public Outpoint toOutpoint() {
+        return new Outpoint(txid, vout);
+    }
+
+    @Override
+    public String toString() {
+        return txid + ":" + vout + " " + value.toFriendlyString() + " @" + height;
+    }
+}
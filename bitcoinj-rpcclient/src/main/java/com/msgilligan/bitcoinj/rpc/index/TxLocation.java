@@ -0,0 +1,46 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+/**
+ * Location of a transaction in the chain, from a {@link TxLocationIndex}
+ */
+public class TxLocation {
+    private final int height;
+    private final int position;
+
+    public TxLocation(int height, int position) {
+        this.height = height;
+        this.position = position;
+    }
+
+    /**
+     * @return Height of the block containing the transaction
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Index of the transaction in the block (the coinbase is `0`)
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TxLocation)) return false;
+        TxLocation that = (TxLocation) o;
+        return height == that.height && position == that.position;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * height + position;
+    }
+
+    @Override
+    public String toString() {
+        return height + "/" + position;
+    }
+}
@@ -0,0 +1,425 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * = On-disk index of the block height and position of each transaction
+ *
+ * Lets {@link com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient#getRawTransaction(Sha256Hash)} find
+ * confirmed transactions on a node that doesn't run with `-txindex`: the containing block is fetched
+ * and the transaction is extracted locally.
+ *
+ * The index is a memory-mapped open-addressing hash table (linear probing, backward-shift deletion)
+ * of 16-byte slots: a 64-bit txid prefix, the block height and the position in the block. Prefixes
+ * can collide, so {@link #find(Sha256Hash)} returns every candidate and callers check the txid of the
+ * transaction at each location. The table is rebuilt into a new file of twice the size when it is 70% full,
+ * up to {@link #MAX_CAPACITY} slots.
+ *
+ * Built block-by-block as a {@link ChainListener} (see {@link ChainFollower}), it reopens at
+ * {@link #getHeight()} after a restart. Slots are written before the header, so if the index wasn't
+ * closed cleanly, opening it removes the slots of blocks above the header's height and recounts the entries.
+ * A rebuilt table replaces the old file with an atomic rename, a leftover rebuild is discarded on open.
+ */
+public class TxLocationIndex implements ChainListener, Closeable {
+    public static final int DEFAULT_INITIAL_CAPACITY = 1 << 16;
+    /** Maximum number of slots (4 TiB of table, room for about 190 billion transactions) */
+    public static final long MAX_CAPACITY = 1L << 38;
+    private static final int MAGIC = 0x544c4930;    // "TLI0"
+    private static final int FORMAT_VERSION = 2;
+    private static final int SEGMENT_SHIFT = 24;    // 2^24 slots (256 MiB) per mapped segment
+
+    // Header
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_HEIGHT = 8;
+    private static final int H_CAPACITY_SHIFT = 12; // capacity is 2^shift slots
+    private static final int H_COUNT = 16;
+    private static final int H_TIP = 24;
+    private static final int H_CLEAN = 56;          // CLEAN if closed after the last change
+    private static final int CLEAN = 1;
+
+    // Slots
+    private static final int SLOT_SIZE = 16;
+    private static final int PREFIX = 0;    // 0 is an empty slot
+    private static final int HEIGHT = 8;
+    private static final int POSITION = 12;
+
+    private final File indexFile;
+    private final long maxCapacity;
+    private Table table;
+    private int height;
+    private Sha256Hash tipHash;
+
+    /**
+     * Open an existing index or create a new one
+     *
+     * @param indexFile File to store the index in
+     * @throws IOException if the file can't be opened or isn't a transaction location index
+     */
+    public TxLocationIndex(File indexFile) throws IOException {
+        this(indexFile, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param indexFile File to store the index in
+     * @param initialCapacity Number of slots of a new file (rounded up to a power of 2)
+     * @throws IOException if the file can't be opened or isn't a transaction location index
+     */
+    public TxLocationIndex(File indexFile, int initialCapacity) throws IOException {
+        this(indexFile, initialCapacity, MAX_CAPACITY);
+    }
+
+    TxLocationIndex(File indexFile, int initialCapacity, long maxCapacity) throws IOException {
+        this.indexFile = indexFile;
+        this.maxCapacity = maxCapacity;
+        File tmp = tmpFile();
+        if (tmp.exists()) {
+            if (indexFile.exists()) {
+                Files.delete(tmp.toPath());     // Interrupted rebuild, the old table is intact
+            } else {
+                Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        if (indexFile.exists() && indexFile.length() >= HEADER_SIZE) {
+            table = Table.open(indexFile);
+            height = table.header.getInt(H_HEIGHT);
+            byte[] hash = new byte[32];
+            for (int j = 0; j < 32; j++) {
+                hash[j] = table.header.get(H_TIP + j);
+            }
+            tipHash = (height >= 0) ? Sha256Hash.wrap(hash) : null;
+            if (table.header.getInt(H_CLEAN) != CLEAN) {
+                recover();
+            }
+        } else {
+            table = Table.create(indexFile, Math.max(16, Integer.highestOneBit(initialCapacity - 1) << 1));
+            height = -1;
+            tipHash = null;
+            writeHeader();
+        }
+    }
+
+    /**
+     * @return Height of the last connected block, `-1` if none
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Hash of the last connected block, `null` if none
+     */
+    public synchronized Sha256Hash getTipHash() {
+        return tipHash;
+    }
+
+    /**
+     * @return Number of transactions in the index
+     */
+    public synchronized long size() {
+        return table.count;
+    }
+
+    /**
+     * @return Number of slots in the table
+     */
+    public synchronized long capacity() {
+        return table.capacity;
+    }
+
+    /**
+     * @param txid Transaction ID
+     * @return Locations of transactions whose txid has the same prefix (usually zero or one)
+     */
+    public synchronized List<TxLocation> find(Sha256Hash txid) {
+        List<TxLocation> result = new ArrayList<>(1);
+        long prefix = prefix(txid);
+        long mask = table.capacity - 1;
+        for (long i = hash(prefix) & mask; table.prefix(i) != 0; i = (i + 1) & mask) {
+            if (table.prefix(i) == prefix) {
+                result.add(new TxLocation(table.height(i), table.position(i)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void blockConnected(int blockHeight, Block block) {
+        if (blockHeight != height + 1 || (tipHash != null && !block.getPrevBlockHash().equals(tipHash))) {
+            throw new IllegalStateException("Block " + block.getHash() + " at height " + blockHeight +
+                    " does not connect to tip at height " + height);
+        }
+        List<Transaction> transactions = block.getTransactions();
+        table.header.putInt(H_CLEAN, 0);
+        try {
+            if ((table.count + transactions.size()) * 10 > table.capacity * 7) {
+                resize(table.count + transactions.size());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't grow transaction location index", e);
+        }
+        for (int position = 0; position < transactions.size(); position++) {
+            insert(prefix(transactions.get(position).getHash()), blockHeight, position);
+        }
+        height = blockHeight;
+        tipHash = block.getHash();
+        writeHeader();
+    }
+
+    @Override
+    public synchronized void blockDisconnected(int blockHeight, Block block) {
+        if (blockHeight != height || !block.getHash().equals(tipHash)) {
+            throw new IllegalStateException("Block " + block.getHash() + " is not the tip");
+        }
+        List<Transaction> transactions = block.getTransactions();
+        table.header.putInt(H_CLEAN, 0);
+        for (int position = 0; position < transactions.size(); position++) {
+            delete(prefix(transactions.get(position).getHash()), blockHeight, position);
+        }
+        height = blockHeight - 1;
+        tipHash = (blockHeight > 0) ? block.getPrevBlockHash() : null;
+        writeHeader();
+    }
+
+    /**
+     * Force the mapped file to storage
+     */
+    public synchronized void flush() {
+        table.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        table.force();
+        table.header.putInt(H_CLEAN, CLEAN);
+        table.header.force();
+        table.close();
+    }
+
+    /**
+     * After a crash: remove slots written for a block the header doesn't include yet and recount the entries
+     */
+    private void recover() {
+        List<long[]> orphans = new ArrayList<>();
+        long count = 0;
+        for (long i = 0; i < table.capacity; i++) {
+            long prefix = table.prefix(i);
+            if (prefix != 0) {
+                count++;
+                if (table.height(i) > height) {
+                    orphans.add(new long[] {prefix, table.height(i), table.position(i)});
+                }
+            }
+        }
+        table.count = count;
+        for (long[] orphan : orphans) {
+            delete(orphan[0], (int) orphan[1], (int) orphan[2]);
+        }
+        writeHeader();
+    }
+
+    private void insert(long prefix, int blockHeight, int position) {
+        long mask = table.capacity - 1;
+        long i = hash(prefix) & mask;
+        long p;
+        while ((p = table.prefix(i)) != 0) {
+            if (p == prefix && table.height(i) == blockHeight && table.position(i) == position) {
+                return;     // Already written before a crash (slots are written before the header)
+            }
+            i = (i + 1) & mask;
+        }
+        table.put(i, prefix, blockHeight, position);
+        table.count++;
+    }
+
+    private void delete(long prefix, int blockHeight, int position) {
+        long mask = table.capacity - 1;
+        long i = hash(prefix) & mask;
+        long p;
+        while ((p = table.prefix(i)) != 0) {
+            if (p == prefix && table.height(i) == blockHeight && table.position(i) == position) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        if (p == 0) {
+            return;
+        }
+        long j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long e = table.prefix(j);
+            if (e == 0) {
+                break;
+            }
+            long k = hash(e) & mask;
+            if ((i <= j) ? (i < k && k <= j) : (i < k || k <= j)) {
+                continue;   // entry at j is still reachable from its ideal slot k
+            }
+            table.put(i, e, table.height(j), table.position(j));
+            i = j;
+        }
+        table.put(i, 0, 0, 0);
+        table.count--;
+    }
+
+    /**
+     * Rebuild the table into a new file with room for `needed` entries, then replace the old file
+     */
+    private void resize(long needed) throws IOException {
+        long capacity = table.capacity;
+        while (needed * 10 > capacity * 7) {
+            if (capacity >= maxCapacity) {
+                throw new IOException("Transaction location index would exceed " + maxCapacity + " slots");
+            }
+            capacity *= 2;
+        }
+        File tmp = tmpFile();
+        Table old = table;
+        table = Table.create(tmp, capacity);
+        for (long i = 0; i < old.capacity; i++) {
+            long prefix = old.prefix(i);
+            if (prefix != 0) {
+                insert(prefix, old.height(i), old.position(i));
+            }
+        }
+        writeHeader();
+        table.force();
+        old.close();
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File tmpFile() {
+        return new File(indexFile.getPath() + ".tmp");
+    }
+
+    private void writeHeader() {
+        table.header.putInt(H_HEIGHT, height);
+        table.header.putLong(H_COUNT, table.count);
+        byte[] hash = (tipHash != null ? tipHash : Sha256Hash.ZERO_HASH).getBytes();
+        for (int j = 0; j < 32; j++) {
+            table.header.put(H_TIP + j, hash[j]);
+        }
+    }
+
+    private static long prefix(Sha256Hash txid) {
+        long prefix = ByteBuffer.wrap(txid.getBytes()).getLong();
+        return (prefix != 0) ? prefix : 1;
+    }
+
+    private static long hash(long prefix) {
+        return prefix ^ (prefix >>> 32);
+    }
+
+    /**
+     * The mapped file
+     */
+    private static class Table {
+        final RandomAccessFile file;
+        final FileChannel channel;
+        final MappedByteBuffer header;
+        final MappedByteBuffer[] segments;
+        final long capacity;
+        long count;
+
+        private Table(File tableFile, long capacity) throws IOException {
+            this.file = new RandomAccessFile(tableFile, "rw");
+            this.channel = file.getChannel();
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            this.capacity = capacity;
+            long perSegment = Math.min(capacity, 1L << SEGMENT_SHIFT);
+            segments = new MappedByteBuffer[(int) (capacity / perSegment)];
+            for (int s = 0; s < segments.length; s++) {
+                long size = perSegment * SLOT_SIZE;
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + s * size, size);
+            }
+        }
+
+        static Table create(File tableFile, long capacity) throws IOException {
+            if (tableFile.exists() && !tableFile.delete()) {
+                throw new IOException("Can't replace " + tableFile);
+            }
+            Table table = new Table(tableFile, capacity);
+            table.header.putInt(H_MAGIC, MAGIC);
+            table.header.putInt(H_VERSION, FORMAT_VERSION);
+            table.header.putInt(H_CAPACITY_SHIFT, Long.numberOfTrailingZeros(capacity));
+            return table;
+        }
+
+        static Table open(File tableFile) throws IOException {
+            long capacity;
+            long count;
+            try (RandomAccessFile in = new RandomAccessFile(tableFile, "r")) {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    throw new IOException(tableFile + " is not a transaction location index");
+                }
+                in.seek(H_CAPACITY_SHIFT);
+                int shift = in.readInt();
+                if (shift < 0 || shift > 62) {
+                    throw new IOException(tableFile + " has an invalid capacity");
+                }
+                capacity = 1L << shift;
+                in.seek(H_COUNT);
+                count = in.readLong();
+            }
+            Table table = new Table(tableFile, capacity);
+            table.count = count;
+            return table;
+        }
+
+        long prefix(long i) {
+            return segment(i).getLong(offset(i) + PREFIX);
+        }
+
+        int height(long i) {
+            return segment(i).getInt(offset(i) + HEIGHT);
+        }
+
+        int position(long i) {
+            return segment(i).getInt(offset(i) + POSITION);
+        }
+
+        void put(long i, long prefix, int height, int position) {
+            MappedByteBuffer segment = segment(i);
+            int base = offset(i);
+            segment.putLong(base + PREFIX, prefix);
+            segment.putInt(base + HEIGHT, height);
+            segment.putInt(base + POSITION, position);
+        }
+
+        void force() {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            header.force();
+        }
+
+        void close() throws IOException {
+            channel.close();
+            file.close();
+        }
+
+        private MappedByteBuffer segment(long i) {
+            return segments[(int) (i >>> SEGMENT_SHIFT)];
+        }
+
+        private static int offset(long i) {
+            return (int) ((i & ((1L << SEGMENT_SHIFT) - 1)) * SLOT_SIZE);
+        }
+    }
+}
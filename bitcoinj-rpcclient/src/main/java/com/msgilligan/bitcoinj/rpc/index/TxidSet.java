@@ -0,0 +1,220 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.bitcoinj.core.Sha256Hash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Primitive hash set of transaction IDs
+ *
+ * Each txid is stored as four `long` values in one `long[]` (open addressing, linear probing,
+ * backward-shift deletion), about 43 bytes per txid at the maximum load factor instead of the
+ * ~150 bytes of a `HashSet<Sha256Hash>`. The all-zero hash marks an empty slot and can't be stored.
+ *
+ * A JSON array of hex txids (e.g. the result of `getrawmempool`) deserializes directly into a set
+ * without creating a `String` or {@link Sha256Hash} for each element.
+ *
+ * Not thread-safe.
+ */
+@JsonDeserialize(using = TxidSet.Deserializer.class)
+public class TxidSet {
+    private static final int WORDS = 4;
+    private long[] keys;
+    private int capacity;
+    private int size = 0;
+
+    public TxidSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize Number of txids to allocate space for (the set grows as needed)
+     */
+    public TxidSet(int expectedSize) {
+        capacity = Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize * 4 / 3) - 1) << 1);
+        keys = new long[capacity * WORDS];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Approximate bytes used by the set
+     */
+    public long memoryUsed() {
+        return 8L * keys.length;
+    }
+
+    public boolean contains(Sha256Hash txid) {
+        ByteBuffer buffer = ByteBuffer.wrap(txid.getBytes());
+        return find(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong()) >= 0;
+    }
+
+    /**
+     * @return `false` if the txid was already present
+     */
+    public boolean add(Sha256Hash txid) {
+        ByteBuffer buffer = ByteBuffer.wrap(txid.getBytes());
+        return add(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @return `false` if the txid wasn't present
+     */
+    public boolean remove(Sha256Hash txid) {
+        ByteBuffer buffer = ByteBuffer.wrap(txid.getBytes());
+        int i = find(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        if (i < 0) {
+            return false;
+        }
+        int mask = capacity - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (isEmpty(j)) {
+                break;
+            }
+            int k = hash(keys[j * WORDS]) & mask;
+            if ((i <= j) ? (i < k && k <= j) : (i < k || k <= j)) {
+                continue;   // entry at j is still reachable from its ideal slot k
+            }
+            System.arraycopy(keys, j * WORDS, keys, i * WORDS, WORDS);
+            i = j;
+        }
+        for (int w = 0; w < WORDS; w++) {
+            keys[i * WORDS + w] = 0;
+        }
+        size--;
+        return true;
+    }
+
+    // Slot access for iterating and comparing sets without creating hashes
+
+    int slotCount() {
+        return capacity;
+    }
+
+    boolean isEmpty(int slot) {
+        int base = slot * WORDS;
+        return (keys[base] | keys[base + 1] | keys[base + 2] | keys[base + 3]) == 0;
+    }
+
+    /**
+     * @return `true` if the txid in `slot` of `other` is in this set
+     */
+    boolean containsSlot(TxidSet other, int slot) {
+        int base = slot * WORDS;
+        long[] k = other.keys;
+        return find(k[base], k[base + 1], k[base + 2], k[base + 3]) >= 0;
+    }
+
+    Sha256Hash get(int slot) {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        for (int w = 0; w < WORDS; w++) {
+            buffer.putLong(keys[slot * WORDS + w]);
+        }
+        return Sha256Hash.wrap(buffer.array());
+    }
+
+    boolean add(long k0, long k1, long k2, long k3) {
+        if ((k0 | k1 | k2 | k3) == 0) {
+            throw new IllegalArgumentException("The zero hash can't be stored");
+        }
+        if (find(k0, k1, k2, k3) >= 0) {
+            return false;
+        }
+        if ((size + 1) * 4 > capacity * 3) {
+            grow();
+        }
+        place(k0, k1, k2, k3);
+        size++;
+        return true;
+    }
+
+    private int find(long k0, long k1, long k2, long k3) {
+        int mask = capacity - 1;
+        int i = hash(k0) & mask;
+        while (!isEmpty(i)) {
+            int base = i * WORDS;
+            if (keys[base] == k0 && keys[base + 1] == k1 && keys[base + 2] == k2 && keys[base + 3] == k3) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void place(long k0, long k1, long k2, long k3) {
+        int mask = capacity - 1;
+        int i = hash(k0) & mask;
+        while (!isEmpty(i)) {
+            i = (i + 1) & mask;
+        }
+        int base = i * WORDS;
+        keys[base] = k0;
+        keys[base + 1] = k1;
+        keys[base + 2] = k2;
+        keys[base + 3] = k3;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        capacity *= 2;
+        keys = new long[capacity * WORDS];
+        for (int base = 0; base < old.length; base += WORDS) {
+            if ((old[base] | old[base + 1] | old[base + 2] | old[base + 3]) != 0) {
+                place(old[base], old[base + 1], old[base + 2], old[base + 3]);
+            }
+        }
+    }
+
+    private static int hash(long k0) {
+        return (int) (k0 ^ (k0 >>> 32));
+    }
+
+    /**
+     * Deserialize a JSON array of hex strings (or raw bytes in binary formats) into a {@link TxidSet}
+     */
+    public static class Deserializer extends JsonDeserializer<TxidSet> {
+        @Override
+        public TxidSet deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.getCurrentToken() != JsonToken.START_ARRAY) {
+                return (TxidSet) ctxt.handleUnexpectedToken(TxidSet.class, p);
+            }
+            TxidSet set = new TxidSet();
+            JsonToken token;
+            while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_STRING && p.getTextLength() == 64) {
+                    char[] chars = p.getTextCharacters();
+                    int offset = p.getTextOffset();
+                    set.add(parseLong(chars, offset), parseLong(chars, offset + 16),
+                            parseLong(chars, offset + 32), parseLong(chars, offset + 48));
+                } else if (token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                    set.add(Sha256Hash.wrap(p.getBinaryValue()));
+                } else {
+                    set.add(Sha256Hash.wrap(p.getValueAsString()));
+                }
+            }
+            return set;
+        }
+
+        private static long parseLong(char[] chars, int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + 16; i++) {
+                int digit = Character.digit(chars[i], 16);
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Invalid hex digit in txid: " + chars[i]);
+                }
+                value = (value << 4) | digit;
+            }
+            return value;
+        }
+    }
+}
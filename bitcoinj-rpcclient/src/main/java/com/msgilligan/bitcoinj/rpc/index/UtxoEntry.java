@@ -0,0 +1,50 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import com.msgilligan.bitcoinj.json.pojo.Outpoint;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+/**
+ * An unspent output from a {@link UtxoIndex}
+ */
+public class UtxoEntry {
+    private final Sha256Hash txid;
+    private final int vout;
+    private final Coin value;
+    private final int height;
+
+    public UtxoEntry(Sha256Hash txid, int vout, Coin value, int height) {
+        this.txid = txid;
+        this.vout = vout;
+        this.value = value;
+        this.height = height;
+    }
+
+    public Sha256Hash getTxid() {
+        return txid;
+    }
+
+    public int getVout() {
+        return vout;
+    }
+
+    public Coin getValue() {
+        return value;
+    }
+
+    /**
+     * @return Height of the block containing the transaction that created the output
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    public Outpoint toOutpoint() {
+        return new Outpoint(txid, vout);
+    }
+
+    @Override
+    public String toString() {
+        return txid + ":" + vout + " " + value.toFriendlyString() + " @" + height;
+    }
+}
@@ -0,0 +1,327 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.script.ScriptBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * = Local index of unspent transaction outputs
+ *
+ * Built block-by-block as a {@link ChainListener} (see {@link ChainFollower}), the index answers
+ * balance and UTXO queries for any address (not only wallet addresses) with local lookups.
+ * Outputs are stored in primitive, off-heap structures keyed by outpoint and by script hash
+ * (the first 8 bytes of the SHA-256 of the `scriptPubKey`).
+ *
+ * Undo data is kept for the most recent blocks so reorgs up to that depth can be disconnected.
+ * {@link #save(File)} and {@link #load(File)} write and read a snapshot (including undo data),
+ * so an index can resume from its last height after a restart.
+ *
+ * Only confirmed outputs are indexed, the genesis coinbase and `OP_RETURN` outputs are skipped.
+ */
+public class UtxoIndex implements ChainListener {
+    public static final int DEFAULT_UNDO_DEPTH = 100;
+    private static final int MAGIC = 0x55545830;    // "UTX0"
+    private static final int FORMAT_VERSION = 1;
+    private static final int OP_RETURN = 0x6a;
+
+    private final UtxoStore store;
+    private final int undoDepth;
+    private final TreeMap<Integer, byte[]> undo = new TreeMap<>();  // height -> spent records
+    private int height = -1;
+    private Sha256Hash tipHash = null;
+
+    public UtxoIndex() {
+        this(1 << 16, DEFAULT_UNDO_DEPTH);
+    }
+
+    /**
+     * @param initialCapacity Number of outputs to allocate space for (the index grows as needed)
+     * @param undoDepth Number of recent blocks that can be disconnected
+     */
+    public UtxoIndex(int initialCapacity, int undoDepth) {
+        this.store = new UtxoStore(initialCapacity);
+        this.undoDepth = undoDepth;
+    }
+
+    /**
+     * @return Height of the last connected block, `-1` if none
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Hash of the last connected block, `null` if none
+     */
+    public synchronized Sha256Hash getTipHash() {
+        return tipHash;
+    }
+
+    /**
+     * @return Number of unspent outputs
+     */
+    public synchronized int size() {
+        return store.size();
+    }
+
+    /**
+     * @return Number of distinct scripts with unspent outputs
+     */
+    public synchronized int scriptCount() {
+        return store.scriptCount();
+    }
+
+    /**
+     * @return Approximate memory used by the index in bytes (mostly off-heap)
+     */
+    public synchronized long memoryUsed() {
+        return store.memoryUsed();
+    }
+
+    @Override
+    public synchronized void blockConnected(int blockHeight, Block block) {
+        if (blockHeight != height + 1 || (tipHash != null && !block.getPrevBlockHash().equals(tipHash))) {
+            throw new IllegalStateException("Block " + block.getHash() + " at height " + blockHeight +
+                    " does not connect to tip at height " + height);
+        }
+        List<Transaction> transactions = block.getTransactions();
+        int inputCount = 0;
+        for (Transaction tx : transactions) {
+            inputCount += tx.getInputs().size();
+        }
+        ByteBuffer spent = ByteBuffer.allocate(inputCount * UtxoStore.DATA_SIZE);
+        for (Transaction tx : transactions) {
+            if (!tx.isCoinBase()) {
+                for (TransactionInput input : tx.getInputs()) {
+                    TransactionOutPoint outPoint = input.getOutpoint();
+                    store.remove(outPoint.getHash().getBytes(), (int) outPoint.getIndex(), spent);
+                }
+            }
+            if (blockHeight > 0) {  // The genesis coinbase is not spendable
+                byte[] txid = tx.getHash().getBytes();
+                List<TransactionOutput> outputs = tx.getOutputs();
+                for (int i = 0; i < outputs.size(); i++) {
+                    byte[] script = outputs.get(i).getScriptBytes();
+                    if (script.length > 0 && (script[0] & 0xff) == OP_RETURN) {
+                        continue;
+                    }
+                    store.add(txid, i, outputs.get(i).getValue().value, blockHeight, scriptHash(script));
+                }
+            }
+        }
+        undo.put(blockHeight, (spent.position() == spent.capacity()) ? spent.array() : copyOf(spent));
+        while (!undo.isEmpty() && undo.firstKey() <= blockHeight - undoDepth) {
+            undo.pollFirstEntry();
+        }
+        height = blockHeight;
+        tipHash = block.getHash();
+    }
+
+    @Override
+    public synchronized void blockDisconnected(int blockHeight, Block block) {
+        if (blockHeight != height || !block.getHash().equals(tipHash)) {
+            throw new IllegalStateException("Block " + block.getHash() + " is not the tip");
+        }
+        byte[] spent = undo.remove(blockHeight);
+        if (spent == null) {
+            throw new IllegalStateException("No undo data for height " + blockHeight + ", index must be rebuilt");
+        }
+        // Restore spent outputs first, then remove all outputs created by the block
+        // (this also removes outputs that were created and spent within the block)
+        ByteBuffer data = ByteBuffer.wrap(spent);
+        while (data.hasRemaining()) {
+            store.addData(data);
+        }
+        for (Transaction tx : block.getTransactions()) {
+            byte[] txid = tx.getHash().getBytes();
+            for (int i = 0; i < tx.getOutputs().size(); i++) {
+                store.remove(txid, i, null);
+            }
+        }
+        height = blockHeight - 1;
+        tipHash = (blockHeight > 0) ? block.getPrevBlockHash() : null;
+    }
+
+    /**
+     * @param txid Transaction ID
+     * @param vout Output index
+     * @return The unspent output or `null`
+     */
+    public synchronized UtxoEntry getUtxo(Sha256Hash txid, int vout) {
+        int id = store.find(txid.getBytes(), vout);
+        return (id >= 0) ? entry(id) : null;
+    }
+
+    /**
+     * @param address Any address
+     * @return All unspent outputs paying to `address`
+     */
+    public List<UtxoEntry> listUnspent(Address address) {
+        return listUnspent(address, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param address Any address
+     * @param minConf Minimum number of confirmations
+     * @param maxConf Maximum number of confirmations
+     * @return Unspent outputs paying to `address`
+     */
+    public synchronized List<UtxoEntry> listUnspent(Address address, int minConf, int maxConf) {
+        List<UtxoEntry> result = new ArrayList<>();
+        for (int id = store.firstForScript(scriptHash(address)); id >= 0; id = store.nextForScript(id)) {
+            if (inRange(id, minConf, maxConf)) {
+                result.add(entry(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param address Any address
+     * @return Sum of the unspent outputs paying to `address`
+     */
+    public Coin getBalance(Address address) {
+        return getBalance(address, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param address Any address
+     * @param minConf Minimum number of confirmations
+     * @param maxConf Maximum number of confirmations
+     * @return Sum of the unspent outputs paying to `address`
+     */
+    public synchronized Coin getBalance(Address address, int minConf, int maxConf) {
+        long balance = 0;
+        for (int id = store.firstForScript(scriptHash(address)); id >= 0; id = store.nextForScript(id)) {
+            if (inRange(id, minConf, maxConf)) {
+                balance += store.value(id);
+            }
+        }
+        return Coin.valueOf(balance);
+    }
+
+    /**
+     * Write a snapshot of the index (written to a temporary file that then atomically replaces `file`)
+     *
+     * @param file Snapshot file
+     * @throws IOException if the file can't be written
+     */
+    public synchronized void save(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(undoDepth);
+            out.writeInt(height);
+            out.write((tipHash != null ? tipHash : Sha256Hash.ZERO_HASH).getBytes());
+            out.writeInt(store.size());
+            ByteBuffer record = ByteBuffer.allocate(UtxoStore.DATA_SIZE);
+            for (int id = 0; id < store.idLimit(); id++) {
+                if (store.isLive(id)) {
+                    record.clear();
+                    store.copyData(id, record);
+                    out.write(record.array());
+                }
+            }
+            out.writeInt(undo.size());
+            for (Map.Entry<Integer, byte[]> entry : undo.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a snapshot written by {@link #save(File)}
+     *
+     * @param file Snapshot file
+     * @return The index at the height it was saved at
+     * @throws IOException if the file can't be read or isn't a snapshot
+     */
+    public static UtxoIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException(file + " is not a UTXO index snapshot");
+            }
+            int undoDepth = in.readInt();
+            int height = in.readInt();
+            byte[] hash = new byte[32];
+            in.readFully(hash);
+            int count = in.readInt();
+            UtxoIndex index = new UtxoIndex(count, undoDepth);
+            byte[] record = new byte[UtxoStore.DATA_SIZE];
+            for (int i = 0; i < count; i++) {
+                in.readFully(record);
+                index.store.addData(ByteBuffer.wrap(record));
+            }
+            int undoCount = in.readInt();
+            for (int i = 0; i < undoCount; i++) {
+                int undoHeight = in.readInt();
+                byte[] spent = new byte[in.readInt()];
+                in.readFully(spent);
+                index.undo.put(undoHeight, spent);
+            }
+            index.height = height;
+            index.tipHash = (height >= 0) ? Sha256Hash.wrap(hash) : null;
+            return index;
+        }
+    }
+
+    /**
+     * @param scriptPubKey Output script program
+     * @return The key used for scripts in the index
+     */
+    public static long scriptHash(byte[] scriptPubKey) {
+        return ByteBuffer.wrap(Sha256Hash.hash(scriptPubKey)).getLong();
+    }
+
+    /**
+     * @param address An address
+     * @return The key used for the address's output script in the index
+     */
+    public static long scriptHash(Address address) {
+        return scriptHash(ScriptBuilder.createOutputScript(address).getProgram());
+    }
+
+    private boolean inRange(int id, int minConf, int maxConf) {
+        long confirmations = (long) height - store.height(id) + 1;
+        return confirmations >= minConf && confirmations <= maxConf;
+    }
+
+    private UtxoEntry entry(int id) {
+        return new UtxoEntry(Sha256Hash.wrap(store.txid(id)), store.vout(id), Coin.valueOf(store.value(id)), store.height(id));
+    }
+
+    private static byte[] copyOf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+}
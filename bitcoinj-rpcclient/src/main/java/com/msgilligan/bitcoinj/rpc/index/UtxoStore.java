@@ -0,0 +1,435 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Primitive, mostly off-heap storage for unspent outputs
+ *
+ * Each output is a fixed-size record in an arena of direct `ByteBuffer` segments (like the mapped segments of
+ * {@link TxLocationIndex}, so the arena isn't limited to the 2 GiB of a single buffer). Records are identified by
+ * a stable `int` id and freed records are reused. Two open-addressing (linear probing, backward-shift
+ * deletion) tables index the records:
+ *
+ * * outpoint table: `int[]` of record ids, hashed by txid and vout
+ * * script table: `long[]` script hashes and `int[]` heads of a doubly-linked list of records per script
+ *
+ * Not thread-safe, see {@link UtxoIndex}.
+ */
+class UtxoStore {
+    /** Size of the record data that is copied to undo buffers and snapshots */
+    static final int DATA_SIZE = 56;
+    private static final int RECORD_SIZE = 64;
+    private static final int TXID = 0;
+    private static final int VOUT = 32;
+    private static final int VALUE = 36;
+    private static final int HEIGHT = 44;
+    private static final int SCRIPT = 48;
+    private static final int NEXT = 56;     // next record with same script, or next free record
+    private static final int PREV = 60;     // previous record with same script
+    private static final int FREE = -1;     // HEIGHT of a free record
+    private static final int SEGMENT_SHIFT = 20;    // 2^20 records (64 MiB) per segment
+
+    private final int segmentShift;
+    private ByteBuffer[] segments;          // all full-size, except a single smaller first segment
+    private int capacity;                   // records in all segments
+    private int allocated = 0;              // records handed out so far (high water mark)
+    private int freeHead = -1;
+    private int size = 0;
+
+    private int[] outpointSlots;            // record id + 1, 0 is empty
+    private long[] scriptKeys;
+    private int[] scriptHeads;              // record id + 1, 0 is empty
+    private int scriptCount = 0;
+
+    UtxoStore(int initialCapacity) {
+        this(initialCapacity, SEGMENT_SHIFT);
+    }
+
+    /**
+     * @param segmentShift log2 of the records per segment (smaller in tests)
+     */
+    UtxoStore(int initialCapacity, int segmentShift) {
+        this.segmentShift = segmentShift;
+        capacity = Math.max(16, Integer.highestOneBit(initialCapacity - 1) << 1);
+        int perSegment = Math.min(capacity, 1 << segmentShift);
+        segments = new ByteBuffer[capacity / perSegment];
+        for (int s = 0; s < segments.length; s++) {
+            segments[s] = ByteBuffer.allocateDirect(perSegment * RECORD_SIZE);
+        }
+        outpointSlots = new int[capacity * 2];
+        scriptKeys = new long[capacity * 2];
+        scriptHeads = new int[capacity * 2];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int scriptCount() {
+        return scriptCount;
+    }
+
+    /**
+     * @return Approximate bytes used (off-heap arena plus tables)
+     */
+    long memoryUsed() {
+        return (long) capacity * RECORD_SIZE + 4L * outpointSlots.length + 12L * scriptKeys.length;
+    }
+
+    /**
+     * @return record id or `-1`
+     */
+    int find(byte[] txid, int vout) {
+        int mask = outpointSlots.length - 1;
+        int i = outpointHash(txid, vout) & mask;
+        int e;
+        while ((e = outpointSlots[i]) != 0) {
+            if (matches(e - 1, txid, vout)) {
+                return e - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return `false` if the outpoint was already present
+     */
+    boolean add(byte[] txid, int vout, long value, int height, long scriptHash) {
+        if (find(txid, vout) >= 0) {
+            return false;
+        }
+        int id = allocate();
+        ByteBuffer arena = segment(id);
+        int base = offset(id);
+        for (int j = 0; j < 32; j++) {
+            arena.put(base + TXID + j, txid[j]);
+        }
+        arena.putInt(base + VOUT, vout);
+        arena.putLong(base + VALUE, value);
+        arena.putInt(base + HEIGHT, height);
+        arena.putLong(base + SCRIPT, scriptHash);
+        insertOutpoint(id);
+        linkScript(id, scriptHash);
+        size++;
+        return true;
+    }
+
+    /**
+     * Add a record previously copied with {@link #remove(byte[], int, ByteBuffer)} or {@link #copyData(int, ByteBuffer)}
+     */
+    void addData(ByteBuffer data) {
+        byte[] txid = new byte[32];
+        data.get(txid);
+        int vout = data.getInt();
+        long value = data.getLong();
+        int height = data.getInt();
+        long scriptHash = data.getLong();
+        add(txid, vout, value, height, scriptHash);
+    }
+
+    /**
+     * @param undo if not `null` the removed record's data is appended
+     * @return `false` if the outpoint wasn't present
+     */
+    boolean remove(byte[] txid, int vout, ByteBuffer undo) {
+        int mask = outpointSlots.length - 1;
+        int i = outpointHash(txid, vout) & mask;
+        int e;
+        while ((e = outpointSlots[i]) != 0) {
+            if (matches(e - 1, txid, vout)) {
+                int id = e - 1;
+                if (undo != null) {
+                    copyData(id, undo);
+                }
+                deleteOutpointSlot(i);
+                unlinkScript(id);
+                release(id);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    void copyData(int id, ByteBuffer out) {
+        ByteBuffer arena = segment(id);
+        int base = offset(id);
+        for (int j = 0; j < DATA_SIZE; j++) {
+            out.put(arena.get(base + j));
+        }
+    }
+
+    /**
+     * @return The first record for a script or `-1`
+     */
+    int firstForScript(long scriptHash) {
+        int i = findScriptSlot(scriptHash);
+        return (i >= 0) ? scriptHeads[i] - 1 : -1;
+    }
+
+    /**
+     * @return The next record with the same script or `-1`
+     */
+    int nextForScript(int id) {
+        return segment(id).getInt(offset(id) + NEXT);
+    }
+
+    /**
+     * @return One past the highest record id, for iterating with {@link #isLive(int)}
+     */
+    int idLimit() {
+        return allocated;
+    }
+
+    boolean isLive(int id) {
+        return segment(id).getInt(offset(id) + HEIGHT) != FREE;
+    }
+
+    byte[] txid(int id) {
+        byte[] txid = new byte[32];
+        ByteBuffer arena = segment(id);
+        int base = offset(id);
+        for (int j = 0; j < 32; j++) {
+            txid[j] = arena.get(base + TXID + j);
+        }
+        return txid;
+    }
+
+    int vout(int id) {
+        return segment(id).getInt(offset(id) + VOUT);
+    }
+
+    long value(int id) {
+        return segment(id).getLong(offset(id) + VALUE);
+    }
+
+    int height(int id) {
+        return segment(id).getInt(offset(id) + HEIGHT);
+    }
+
+    long scriptHash(int id) {
+        return segment(id).getLong(offset(id) + SCRIPT);
+    }
+
+    // Records
+
+    private int allocate() {
+        if (freeHead >= 0) {
+            int id = freeHead;
+            freeHead = segment(id).getInt(offset(id) + NEXT);
+            return id;
+        }
+        if (allocated == capacity) {
+            grow();
+        }
+        return allocated++;
+    }
+
+    private void grow() {
+        int perSegment = 1 << segmentShift;
+        if (capacity < perSegment) {
+            // Double the (only) segment until it is full-size
+            ByteBuffer bigger = ByteBuffer.allocateDirect(capacity * 2 * RECORD_SIZE);
+            ByteBuffer old = segments[0].duplicate();
+            old.clear();
+            bigger.put(old);
+            segments[0] = bigger;
+            capacity *= 2;
+        } else {
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            segments[segments.length - 1] = ByteBuffer.allocateDirect(perSegment * RECORD_SIZE);
+            capacity += perSegment;
+        }
+    }
+
+    private ByteBuffer segment(int id) {
+        return segments[id >>> segmentShift];
+    }
+
+    private int offset(int id) {
+        return (id & ((1 << segmentShift) - 1)) * RECORD_SIZE;
+    }
+
+    private void release(int id) {
+        ByteBuffer arena = segment(id);
+        int base = offset(id);
+        arena.putInt(base + HEIGHT, FREE);
+        arena.putInt(base + NEXT, freeHead);
+        freeHead = id;
+    }
+
+    private boolean matches(int id, byte[] txid, int vout) {
+        ByteBuffer arena = segment(id);
+        int base = offset(id);
+        if (arena.getInt(base + VOUT) != vout) {
+            return false;
+        }
+        for (int j = 0; j < 32; j++) {
+            if (arena.get(base + TXID + j) != txid[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Outpoint table
+
+    private static int outpointHash(byte[] txid, int vout) {
+        // txids are uniformly distributed, so a few of their bytes are a good hash
+        int h = ((txid[28] & 0xff) << 24) | ((txid[29] & 0xff) << 16) | ((txid[30] & 0xff) << 8) | (txid[31] & 0xff);
+        return h ^ (vout * 0x9E3779B9);
+    }
+
+    private int outpointHash(int id) {
+        ByteBuffer arena = segment(id);
+        int base = offset(id);
+        int h = arena.getInt(base + TXID + 28);
+        return h ^ (arena.getInt(base + VOUT) * 0x9E3779B9);
+    }
+
+    private void insertOutpoint(int id) {
+        if ((size + 1) * 4 > outpointSlots.length * 3) {
+            int[] old = outpointSlots;
+            outpointSlots = new int[old.length * 2];
+            for (int e : old) {
+                if (e != 0) {
+                    placeOutpoint(e - 1);
+                }
+            }
+        }
+        placeOutpoint(id);
+    }
+
+    private void placeOutpoint(int id) {
+        int mask = outpointSlots.length - 1;
+        int i = outpointHash(id) & mask;
+        while (outpointSlots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        outpointSlots[i] = id + 1;
+    }
+
+    private void deleteOutpointSlot(int i) {
+        int mask = outpointSlots.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            int e = outpointSlots[j];
+            if (e == 0) {
+                break;
+            }
+            int k = outpointHash(e - 1) & mask;
+            if ((i <= j) ? (i < k && k <= j) : (i < k || k <= j)) {
+                continue;   // entry at j is still reachable from its ideal slot k
+            }
+            outpointSlots[i] = e;
+            i = j;
+        }
+        outpointSlots[i] = 0;
+    }
+
+    // Script table
+
+    private static int scriptSlotHash(long scriptHash) {
+        return (int) (scriptHash ^ (scriptHash >>> 32));
+    }
+
+    private int findScriptSlot(long scriptHash) {
+        int mask = scriptKeys.length - 1;
+        int i = scriptSlotHash(scriptHash) & mask;
+        while (scriptHeads[i] != 0) {
+            if (scriptKeys[i] == scriptHash) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void linkScript(int id, long scriptHash) {
+        ByteBuffer arena = segment(id);
+        int base = offset(id);
+        int i = findScriptSlot(scriptHash);
+        if (i < 0) {
+            arena.putInt(base + NEXT, -1);
+            arena.putInt(base + PREV, -1);
+            if ((scriptCount + 1) * 4 > scriptKeys.length * 3) {
+                growScriptTable();
+            }
+            placeScript(scriptHash, id + 1);
+            scriptCount++;
+        } else {
+            int head = scriptHeads[i] - 1;
+            arena.putInt(base + NEXT, head);
+            arena.putInt(base + PREV, -1);
+            segment(head).putInt(offset(head) + PREV, id);
+            scriptHeads[i] = id + 1;
+        }
+    }
+
+    private void unlinkScript(int id) {
+        ByteBuffer arena = segment(id);
+        int base = offset(id);
+        int next = arena.getInt(base + NEXT);
+        int prev = arena.getInt(base + PREV);
+        if (next >= 0) {
+            segment(next).putInt(offset(next) + PREV, prev);
+        }
+        if (prev >= 0) {
+            segment(prev).putInt(offset(prev) + NEXT, next);
+        } else {
+            int i = findScriptSlot(arena.getLong(base + SCRIPT));
+            if (next >= 0) {
+                scriptHeads[i] = next + 1;
+            } else {
+                deleteScriptSlot(i);
+                scriptCount--;
+            }
+        }
+    }
+
+    private void growScriptTable() {
+        long[] oldKeys = scriptKeys;
+        int[] oldHeads = scriptHeads;
+        scriptKeys = new long[oldKeys.length * 2];
+        scriptHeads = new int[oldHeads.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != 0) {
+                placeScript(oldKeys[i], oldHeads[i]);
+            }
+        }
+    }
+
+    private void placeScript(long scriptHash, int head) {
+        int mask = scriptKeys.length - 1;
+        int i = scriptSlotHash(scriptHash) & mask;
+        while (scriptHeads[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        scriptKeys[i] = scriptHash;
+        scriptHeads[i] = head;
+    }
+
+    private void deleteScriptSlot(int i) {
+        int mask = scriptKeys.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (scriptHeads[j] == 0) {
+                break;
+            }
+            int k = scriptSlotHash(scriptKeys[j]) & mask;
+            if ((i <= j) ? (i < k && k <= j) : (i < k || k <= j)) {
+                continue;
+            }
+            scriptKeys[i] = scriptKeys[j];
+            scriptHeads[i] = scriptHeads[j];
+            i = j;
+        }
+        scriptKeys[i] = 0;
+        scriptHeads[i] = 0;
+    }
+}
@@ -0,0 +1,362 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import com.msgilligan.bitcoinj.json.conversion.FieldProjection;
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo;
+import com.msgilligan.bitcoinj.json.pojo.TransactionsSinceBlock;
+import com.msgilligan.bitcoinj.json.pojo.WalletTransactionItem;
+import com.msgilligan.bitcoinj.rpc.BitcoinClient;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+import org.consensusj.jsonrpc.JsonRPCStatusException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * = Local mirror of the transaction history of a node's wallet
+ *
+ * The first {@link #sync()} fetches the whole history with `listsinceblock`, later syncs only fetch the
+ * transactions since the block of the previous sync (plus the wallet's unconfirmed transactions), so the cost of
+ * keeping the mirror current is proportional to the changes, not to the size of the wallet. Balances and
+ * per-address history are then answered from memory.
+ *
+ * The block height of each confirmed entry is recorded, so confirmations stay correct as the chain grows
+ * without fetching the entry again. After a reorg `listsinceblock` returns the affected transactions again
+ * (with the new block or as unconfirmed), which replaces their entries.
+ *
+ * Balances are computed from the entries: received amounts, minus sent amounts and fees, plus mature
+ * coinbase outputs. Unlike `getbalance` with `minconf = 0` unconfirmed transactions of the wallet are only
+ * counted when `minConf` is `0`.
+ */
+public class WalletMirror {
+    private static final FieldProjection HEIGHT = FieldProjection.of(BlockInfo.class, "height");
+    private final BitcoinClient client;
+    private final boolean includeWatchOnly;
+    private final int coinbaseDepth;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>();
+    private final Map<Address, Map<Key, Entry>> byAddress = new HashMap<>();
+    private final Set<Key> unconfirmed = new HashSet<>();
+    private Sha256Hash lastBlock = null;
+    private int lastHeight = -1;
+    private long syncCount = 0;
+
+    /**
+     * @param client Client for the node with the wallet to mirror
+     */
+    public WalletMirror(BitcoinClient client) {
+        this(client, false);
+    }
+
+    /**
+     * @param client Client for the node with the wallet to mirror
+     * @param includeWatchOnly `true` to also mirror transactions to watch-only addresses
+     */
+    public WalletMirror(BitcoinClient client, boolean includeWatchOnly) {
+        this.client = client;
+        this.includeWatchOnly = includeWatchOnly;
+        this.coinbaseDepth = client.getNetParams().getSpendableCoinbaseDepth();
+    }
+
+    /**
+     * A history entry and the height of its block
+     */
+    public static class Entry {
+        private final WalletTransactionItem item;
+        private final int height;
+
+        Entry(WalletTransactionItem item, int height) {
+            this.item = item;
+            this.height = height;
+        }
+
+        /**
+         * @return The entry as returned by `listsinceblock` ({@link WalletTransactionItem#getConfirmations()}
+         * is as of when it was fetched, see {@link WalletMirror#getConfirmations(Entry)})
+         */
+        public WalletTransactionItem getItem() {
+            return item;
+        }
+
+        /**
+         * @return Height of the block with the transaction, `-1` if unconfirmed
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        boolean isSend() {
+            return "send".equals(item.getCategory());
+        }
+
+        boolean isCoinbase() {
+            String category = item.getCategory();
+            return "generate".equals(category) || "immature".equals(category) || "orphan".equals(category);
+        }
+    }
+
+    /**
+     * Fetch the changes since the last sync (everything on the first sync)
+     *
+     * @return Number of entries added, updated or removed
+     * @throws JsonRPCStatusException JSON RPC status exception
+     * @throws IOException network error
+     */
+    public synchronized int sync() throws JsonRPCStatusException, IOException {
+        TransactionsSinceBlock since = client.listSinceBlock(lastBlock, 1, includeWatchOnly);
+        int tipHeight = since.getLastblock().equals(lastBlock)
+                ? lastHeight
+                : client.getBlockInfo(since.getLastblock(), HEIGHT).height;
+        int changes = 0;
+        for (WalletTransactionItem item : since.getRemoved()) {
+            if (remove(new Key(item)) != null) {
+                changes++;
+            }
+        }
+        // All unconfirmed (and conflicted) transactions are returned each time, the ones not returned are gone
+        Set<Key> stale = new HashSet<>(unconfirmed);
+        for (WalletTransactionItem item : since.getTransactions()) {
+            Key key = new Key(item);
+            int height = (item.getConfirmations() > 0) ? tipHeight - item.getConfirmations() + 1 : -1;
+            Entry previous = put(key, new Entry(item, height));
+            stale.remove(key);
+            if (previous == null || previous.height != height || previous.item.getConfirmations() != item.getConfirmations()) {
+                changes++;
+            }
+        }
+        for (Key key : stale) {
+            remove(key);
+            changes++;
+        }
+        lastBlock = since.getLastblock();
+        lastHeight = tipHeight;
+        syncCount++;
+        return changes;
+    }
+
+    /**
+     * Forget all entries, the next {@link #sync()} fetches the whole history again
+     */
+    public synchronized void reset() {
+        entries.clear();
+        byAddress.clear();
+        unconfirmed.clear();
+        lastBlock = null;
+        lastHeight = -1;
+    }
+
+    /**
+     * @return Hash of the chain tip at the last sync, `null` before the first sync
+     */
+    public synchronized Sha256Hash getLastBlock() {
+        return lastBlock;
+    }
+
+    /**
+     * @return Height of the chain tip at the last sync, `-1` before the first sync
+     */
+    public synchronized int getLastHeight() {
+        return lastHeight;
+    }
+
+    /**
+     * @return Number of syncs done
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * @return Number of history entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param entry An entry of this mirror
+     * @return Confirmations of the entry as of the last sync
+     */
+    public synchronized int getConfirmations(Entry entry) {
+        return (entry.height >= 0) ? lastHeight - entry.height + 1 : entry.item.getConfirmations();
+    }
+
+    /**
+     * @param minConf Minimum number of confirmations
+     * @return Balance of the wallet as of the last sync
+     */
+    public synchronized Coin getBalance(int minConf) {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += balanceChange(entry, minConf);
+        }
+        return Coin.valueOf(total);
+    }
+
+    /**
+     * @param address A wallet address
+     * @param minConf Minimum number of confirmations
+     * @return Total amount received by the address (like `getreceivedbyaddress`)
+     */
+    public synchronized Coin getReceivedByAddress(Address address, int minConf) {
+        long total = 0;
+        Map<Key, Entry> history = byAddress.get(address);
+        if (history != null) {
+            for (Entry entry : history.values()) {
+                if ("receive".equals(entry.item.getCategory()) && counts(entry, minConf)) {
+                    total += entry.item.getAmount().value;
+                }
+            }
+        }
+        return Coin.valueOf(total);
+    }
+
+    /**
+     * @param address An address
+     * @return Entries sending to or received by the address, oldest first
+     */
+    public synchronized List<Entry> getHistory(Address address) {
+        Map<Key, Entry> history = byAddress.get(address);
+        return (history != null) ? byTime(history.values()) : Collections.<Entry>emptyList();
+    }
+
+    /**
+     * @return All entries, oldest first
+     */
+    public synchronized List<Entry> getHistory() {
+        return byTime(entries.values());
+    }
+
+    /**
+     * @param txid A transaction ID
+     * @return The entries of the transaction (empty if not a wallet transaction)
+     */
+    public synchronized List<Entry> getTransaction(Sha256Hash txid) {
+        List<Entry> result = new ArrayList<>();
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            if (e.getKey().txid.equals(txid)) {
+                result.add(e.getValue());
+            }
+        }
+        return result;
+    }
+
+    private long balanceChange(Entry entry, int minConf) {
+        WalletTransactionItem item = entry.item;
+        if (!counts(entry, minConf)) {
+            return 0;
+        }
+        if (entry.isCoinbase()) {
+            boolean mature = entry.height >= 0 && getConfirmations(entry) >= coinbaseDepth;
+            return mature ? item.getAmount().value : 0;
+        }
+        long change = item.getAmount().value;
+        if (entry.isSend() && item.getFee() != null) {
+            change += item.getFee().value;
+        }
+        return change;
+    }
+
+    private boolean counts(Entry entry, int minConf) {
+        if (entry.height < 0) {
+            return minConf <= 0 && entry.item.getConfirmations() == 0 && !entry.item.isAbandoned();
+        }
+        return getConfirmations(entry) >= minConf;
+    }
+
+    private Entry put(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            removeFromAddress(key, previous);
+        }
+        Address address = entry.item.getAddress();
+        if (address != null) {
+            Map<Key, Entry> history = byAddress.get(address);
+            if (history == null) {
+                history = new LinkedHashMap<>();
+                byAddress.put(address, history);
+            }
+            history.put(key, entry);
+        }
+        if (entry.height < 0) {
+            unconfirmed.add(key);
+        } else {
+            unconfirmed.remove(key);
+        }
+        return previous;
+    }
+
+    private Entry remove(Key key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            removeFromAddress(key, previous);
+            unconfirmed.remove(key);
+        }
+        return previous;
+    }
+
+    private void removeFromAddress(Key key, Entry entry) {
+        Address address = entry.item.getAddress();
+        if (address != null) {
+            Map<Key, Entry> history = byAddress.get(address);
+            if (history != null) {
+                history.remove(key);
+                if (history.isEmpty()) {
+                    byAddress.remove(address);
+                }
+            }
+        }
+    }
+
+    private static List<Entry> byTime(Iterable<Entry> entries) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            result.add(entry);
+        }
+        Collections.sort(result, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Integer.compare(a.item.getTime(), b.item.getTime());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Identifies an entry: the output of a transaction and whether it is the sending or receiving side
+     * (coinbase categories change as the block matures, so they are not part of the key)
+     */
+    private static class Key {
+        final Sha256Hash txid;
+        final int vout;
+        final boolean send;
+
+        Key(WalletTransactionItem item) {
+            this.txid = item.getTxid();
+            this.vout = item.getVout();
+            this.send = "send".equals(item.getCategory());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return vout == other.vout && send == other.send && txid.equals(other.txid);
+        }
+
+        @Override
+        public int hashCode() {
+            return txid.hashCode() * 31 + vout * 2 + (send ? 1 : 0);
+        }
+    }
+}
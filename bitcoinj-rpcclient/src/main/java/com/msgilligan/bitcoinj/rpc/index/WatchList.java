@@ -0,0 +1,230 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Utils;
+
+/**
+ * = A set of watched output scripts, compiled for fast matching
+ *
+ * Output scripts are classified by template from their raw bytes (no {@link org.bitcoinj.script.Script} or
+ * {@link Address} objects are created) and reduced to a 128-bit key:
+ *
+ * * P2PKH and P2PK: `HASH160` of the public key (so an address also matches pay-to-pubkey outputs)
+ * * P2SH: the script hash
+ * * P2WPKH and P2WSH: the witness program
+ * * any other script: the SHA-256 of the script
+ *
+ * Keys are stored in a primitive open-addressing table, optionally fronted by a Bloom filter so that most
+ * non-matching outputs (the vast majority) are rejected by a few bit tests in a small array.
+ *
+ * Build the list before matching; concurrent reads (e.g. by a {@link WatchListMatcher}) are safe as long as
+ * no entries are added.
+ */
+public class WatchList {
+    private static final long TAG_PUBKEY_HASH = 0x1000000000000000L;
+    private static final long TAG_SCRIPT_HASH = 0x2000000000000000L;
+    private static final long TAG_WITNESS_V0 = 0x3000000000000000L;
+    private static final long TAG_OTHER = 0x4000000000000000L;
+    private static final int BLOOM_HASHES = 7;
+    private static final int BLOOM_BITS_PER_ENTRY = 10;    // ~1% false positives
+
+    private long[] keys;        // pairs, (0, 0) is empty
+    private int capacity;
+    private int size = 0;
+    private final long[] bloom; // null if disabled
+    private final long bloomMask;
+
+    /**
+     * @param expectedSize Number of scripts to allocate space for (the table grows as needed)
+     * @param bloomFilter `true` to front the table with a Bloom filter sized for `expectedSize`
+     */
+    public WatchList(int expectedSize, boolean bloomFilter) {
+        capacity = Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize * 4 / 3) - 1) << 1);
+        keys = new long[capacity * 2];
+        if (bloomFilter) {
+            long bits = Math.max(64, Long.highestOneBit((long) expectedSize * BLOOM_BITS_PER_ENTRY - 1) << 1);
+            bloom = new long[(int) (bits / 64)];
+            bloomMask = bits - 1;
+        } else {
+            bloom = null;
+            bloomMask = 0;
+        }
+    }
+
+    public WatchList(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    /**
+     * @return Number of watched scripts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Approximate bytes used by the table and Bloom filter
+     */
+    public long memoryUsed() {
+        return 8L * keys.length + (bloom != null ? 8L * bloom.length : 0);
+    }
+
+    /**
+     * Watch the output script of an address
+     *
+     * @param address A P2PKH or P2SH address
+     */
+    public void addAddress(Address address) {
+        byte[] hash = address.getHash160();
+        long tag = address.isP2SHAddress() ? TAG_SCRIPT_HASH : TAG_PUBKEY_HASH;
+        add(readLong(hash, 0) ^ tag, readLong(hash, 8));
+    }
+
+    /**
+     * Watch an output script (any template)
+     *
+     * @param scriptPubKey The output script program
+     */
+    public void addScript(byte[] scriptPubKey) {
+        long[] key = new long[2];
+        keyOf(scriptPubKey, key);
+        add(key[0], key[1]);
+    }
+
+    /**
+     * @param scriptPubKey An output script program
+     * @return `true` if the script is watched
+     */
+    public boolean contains(byte[] scriptPubKey) {
+        long[] key = new long[2];
+        keyOf(scriptPubKey, key);
+        return contains(key[0], key[1]);
+    }
+
+    /**
+     * @param key Receives the two words of the key of `script`
+     */
+    static void keyOf(byte[] script, long[] key) {
+        int length = script.length;
+        if (length == 25 && (script[0] & 0xff) == 0x76 && (script[1] & 0xff) == 0xa9 && script[2] == 20 &&
+                (script[23] & 0xff) == 0x88 && (script[24] & 0xff) == 0xac) {
+            // P2PKH: OP_DUP OP_HASH160 <20> OP_EQUALVERIFY OP_CHECKSIG
+            key[0] = readLong(script, 3) ^ TAG_PUBKEY_HASH;
+            key[1] = readLong(script, 11);
+        } else if (length == 23 && (script[0] & 0xff) == 0xa9 && script[1] == 20 && (script[22] & 0xff) == 0x87) {
+            // P2SH: OP_HASH160 <20> OP_EQUAL
+            key[0] = readLong(script, 2) ^ TAG_SCRIPT_HASH;
+            key[1] = readLong(script, 10);
+        } else if ((length == 22 && script[0] == 0 && script[1] == 20) || (length == 34 && script[0] == 0 && script[1] == 32)) {
+            // P2WPKH or P2WSH: OP_0 <20 or 32>
+            key[0] = readLong(script, 2) ^ TAG_WITNESS_V0;
+            key[1] = readLong(script, 10);
+        } else if ((length == 35 && script[0] == 33 || length == 67 && script[0] == 65) && (script[length - 1] & 0xff) == 0xac) {
+            // P2PK: <pubkey> OP_CHECKSIG
+            byte[] pubKey = new byte[length - 2];
+            System.arraycopy(script, 1, pubKey, 0, pubKey.length);
+            byte[] hash = Utils.sha256hash160(pubKey);
+            key[0] = readLong(hash, 0) ^ TAG_PUBKEY_HASH;
+            key[1] = readLong(hash, 8);
+        } else {
+            byte[] hash = Sha256Hash.hash(script);
+            key[0] = readLong(hash, 0) ^ TAG_OTHER;
+            key[1] = readLong(hash, 8);
+        }
+    }
+
+    boolean contains(long k0, long k1) {
+        if (bloom != null && !bloomMightContain(k0, k1)) {
+            return false;
+        }
+        int mask = capacity - 1;
+        int i = hash(k0, k1) & mask;
+        while (!isEmpty(i)) {
+            if (keys[2 * i] == k0 && keys[2 * i + 1] == k1) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private void add(long k0, long k1) {
+        if (k0 == 0 && k1 == 0) {
+            k1 = 1;     // (0, 0) marks empty slots, the chance of a real key colliding with (0, 1) is negligible
+        }
+        if (contains(k0, k1)) {
+            return;
+        }
+        if ((size + 1) * 4 > capacity * 3) {
+            grow();
+        }
+        place(k0, k1);
+        size++;
+        if (bloom != null) {
+            long h1 = mix(k0);
+            long h2 = mix(k1) | 1;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = (h1 + i * h2) & bloomMask;
+                bloom[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+    }
+
+    private boolean bloomMightContain(long k0, long k1) {
+        long h1 = mix(k0);
+        long h2 = mix(k1) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = (h1 + i * h2) & bloomMask;
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isEmpty(int i) {
+        return keys[2 * i] == 0 && keys[2 * i + 1] == 0;
+    }
+
+    private void place(long k0, long k1) {
+        int mask = capacity - 1;
+        int i = hash(k0, k1) & mask;
+        while (!isEmpty(i)) {
+            i = (i + 1) & mask;
+        }
+        keys[2 * i] = k0;
+        keys[2 * i + 1] = k1;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        capacity *= 2;
+        keys = new long[capacity * 2];
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0 || old[i + 1] != 0) {
+                place(old[i], old[i + 1]);
+            }
+        }
+    }
+
+    private static int hash(long k0, long k1) {
+        long h = k1 ^ (k0 >>> 32);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,129 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutput;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the outputs in a block (e.g. from {@link com.msgilligan.bitcoinj.rpc.BitcoinClient#getBlock(Integer)})
+ * that pay to scripts in a {@link WatchList}
+ *
+ * The transactions of a block are split into ranges that are matched in parallel on a `ForkJoinPool`,
+ * matches are returned in block order. Close the matcher to shut down a pool it created.
+ */
+public class WatchListMatcher implements Closeable {
+    private static final int SEQUENTIAL_THRESHOLD = 128;    // transactions
+    private final WatchList watchList;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * @param watchList Scripts to match (don't add to it while matching)
+     * @param pool Pool to match on (not shut down by {@link #close()})
+     */
+    public WatchListMatcher(WatchList watchList, ForkJoinPool pool) {
+        this(watchList, pool, false);
+    }
+
+    /**
+     * Match on a new pool with one thread per processor, shut down by {@link #close()}
+     *
+     * @param watchList Scripts to match (don't add to it while matching)
+     */
+    public WatchListMatcher(WatchList watchList) {
+        this(watchList, new ForkJoinPool(), true);
+    }
+
+    private WatchListMatcher(WatchList watchList, ForkJoinPool pool, boolean ownsPool) {
+        this.watchList = watchList;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * @param block A block
+     * @return Outputs in `block` that pay to watched scripts, in block order
+     */
+    public List<WatchMatch> match(Block block) {
+        List<Transaction> transactions = block.getTransactions();
+        if (transactions == null || transactions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (transactions.size() <= SEQUENTIAL_THRESHOLD) {
+            return matchRange(transactions, 0, transactions.size());
+        }
+        return pool.invoke(new MatchTask(transactions, 0, transactions.size()));
+    }
+
+    /**
+     * @param tx A transaction (e.g. from the mempool)
+     * @return Outputs of `tx` that pay to watched scripts
+     */
+    public List<WatchMatch> match(Transaction tx) {
+        return matchRange(Collections.singletonList(tx), 0, 1);
+    }
+
+    private List<WatchMatch> matchRange(List<Transaction> transactions, int from, int to) {
+        List<WatchMatch> matches = new ArrayList<>();
+        long[] key = new long[2];
+        for (int t = from; t < to; t++) {
+            Transaction tx = transactions.get(t);
+            List<TransactionOutput> outputs = tx.getOutputs();
+            for (int i = 0; i < outputs.size(); i++) {
+                byte[] script = outputs.get(i).getScriptBytes();
+                WatchList.keyOf(script, key);
+                if (watchList.contains(key[0], key[1])) {
+                    matches.add(new WatchMatch(tx.getHash(), i, outputs.get(i).getValue(), script));
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Shut down the pool if it was created by this matcher
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private class MatchTask extends RecursiveTask<List<WatchMatch>> {
+        private static final long serialVersionUID = 1L;
+        private final List<Transaction> transactions;
+        private final int from;
+        private final int to;
+
+        MatchTask(List<Transaction> transactions, int from, int to) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<WatchMatch> compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return matchRange(transactions, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            MatchTask second = new MatchTask(transactions, middle, to);
+            second.fork();
+            List<WatchMatch> matches = new MatchTask(transactions, from, middle).compute();
+            List<WatchMatch> secondMatches = second.join();
+            if (matches.isEmpty()) {
+                return secondMatches;
+            }
+            matches.addAll(secondMatches);
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.msgilligan.bitcoinj.rpc.index;
+
+import com.msgilligan.bitcoinj.json.pojo.Outpoint;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Sha256Hash;
+
+/**
+ * An output paying to a watched script, found by a {@link WatchListMatcher}
+ */
+public class WatchMatch {
+    private final Sha256Hash txid;
+    private final int vout;
+    private final Coin value;
+    private final byte[] scriptPubKey;
+
+    public WatchMatch(Sha256Hash txid, int vout, Coin value, byte[] scriptPubKey) {
+        this.txid = txid;
+        this.vout = vout;
+        this.value = value;
+        this.scriptPubKey = scriptPubKey;
+    }
+
+    public Sha256Hash getTxid() {
+        return txid;
+    }
+
+    public int getVout() {
+        return vout;
+    }
+
+    public Coin getValue() {
+        return value;
+    }
+
+    public byte[] getScriptPubKey() {
+        return scriptPubKey;
+    }
+
+    public Outpoint toOutpoint() {
+        return new Outpoint(txid, vout);
+    }
+
+    @Override
+    public String toString() {
+        return txid + ":" + vout + " " + value.toFriendlyString();
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Local chain, mempool and wallet indexes kept up-to-date with {@link com.msgilligan.bitcoinj.rpc.BitcoinClient}.
+ */
+package com.msgilligan.bitcoinj.rpc.index;
@@ -0,0 +1,56 @@
+package com.msgilligan.bitcoinj.rpc.signing;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.script.Script;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A transaction to sign with a {@link TransactionSigner}: the scripts of the outputs spent by its inputs
+ * and the keys to sign them with
+ */
+public class SigningRequest {
+    private final Transaction transaction;
+    private final List<Script> scriptPubKeys;
+    private final List<ECKey> keys;
+
+    /**
+     * @param transaction Transaction with unsigned inputs
+     * @param scriptPubKeys Script of the output spent by each input (P2PKH or P2PK)
+     * @param keys Key for each input
+     */
+    public SigningRequest(Transaction transaction, List<Script> scriptPubKeys, List<ECKey> keys) {
+        if (scriptPubKeys.size() != transaction.getInputs().size() || keys.size() != scriptPubKeys.size()) {
+            throw new IllegalArgumentException("Need a script and a key for each of the " +
+                    transaction.getInputs().size() + " inputs of " + transaction.getHash());
+        }
+        this.transaction = transaction;
+        this.scriptPubKeys = scriptPubKeys;
+        this.keys = keys;
+    }
+
+    /**
+     * Sign all inputs with the same key
+     *
+     * @param transaction Transaction with unsigned inputs
+     * @param scriptPubKeys Script of the output spent by each input (P2PKH or P2PK)
+     * @param key Key for all inputs
+     */
+    public SigningRequest(Transaction transaction, List<Script> scriptPubKeys, ECKey key) {
+        this(transaction, scriptPubKeys, Collections.nCopies(scriptPubKeys.size(), key));
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public List<Script> getScriptPubKeys() {
+        return scriptPubKeys;
+    }
+
+    public List<ECKey> getKeys() {
+        return keys;
+    }
+}
@@ -0,0 +1,234 @@
+package com.msgilligan.bitcoinj.rpc.signing;
+
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.ScriptException;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * = Signs P2PKH and P2PK inputs on a `ForkJoinPool`
+ *
+ * Signature hashes and ECDSA signatures are computed in parallel: the inputs of a transaction are split into
+ * ranges that are signed on one private copy of the transaction (parsed once from its serialization, so the
+ * caller's transaction is not read concurrently; computing a signature hash doesn't modify the copy), and the
+ * signature scripts are set when all signatures are done.
+ * {@link #signAll(List)} signs many independent transactions concurrently.
+ *
+ * Inputs are signed with `SIGHASH_ALL`, their signature scripts are replaced. Close the signer to shut down
+ * a pool it created.
+ */
+public class TransactionSigner implements Closeable {
+    private static final int SEQUENTIAL_THRESHOLD = 8;     // inputs
+    private final Context context;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * @param netParams Network parameters for copying transactions
+     * @param pool Pool to sign on (not shut down by {@link #close()})
+     */
+    public TransactionSigner(NetworkParameters netParams, ForkJoinPool pool) {
+        this(netParams, pool, false);
+    }
+
+    /**
+     * Sign on a new pool with one thread per processor, shut down by {@link #close()}
+     *
+     * @param netParams Network parameters for copying transactions
+     */
+    public TransactionSigner(NetworkParameters netParams) {
+        this(netParams, new ForkJoinPool(), true);
+    }
+
+    private TransactionSigner(NetworkParameters netParams, ForkJoinPool pool, boolean ownsPool) {
+        this.context = new Context(netParams);
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Sign all inputs of a transaction
+     *
+     * @param request The transaction, scripts and keys
+     * @return The signed transaction (the transaction of `request`)
+     * @throws ScriptException if a script is not P2PKH or P2PK
+     * @throws IllegalArgumentException if the transaction doesn't have one input per script
+     */
+    public Transaction sign(SigningRequest request) {
+        checkScripts(request);
+        int inputs = request.getScriptPubKeys().size();
+        if (inputs == 0) {
+            return request.getTransaction();
+        }
+        Transaction copy = copy(request.getTransaction());
+        TransactionSignature[] signatures = new TransactionSignature[inputs];
+        if (inputs <= SEQUENTIAL_THRESHOLD) {
+            signRange(request, copy, 0, inputs, signatures);
+        } else {
+            pool.invoke(new InputsTask(request, copy, 0, inputs, signatures));
+        }
+        setScriptSigs(request, signatures);
+        return request.getTransaction();
+    }
+
+    /**
+     * Sign all inputs of a transaction with one key
+     *
+     * @param tx Transaction with unsigned inputs
+     * @param scriptPubKeys Script of the output spent by each input (P2PKH or P2PK)
+     * @param key Key for all inputs
+     * @return `tx`, signed
+     * @throws ScriptException if a script is not P2PKH or P2PK
+     * @throws IllegalArgumentException if `tx` doesn't have one input per script
+     */
+    public Transaction sign(Transaction tx, List<Script> scriptPubKeys, ECKey key) {
+        return sign(new SigningRequest(tx, scriptPubKeys, key));
+    }
+
+    /**
+     * Sign many independent transactions
+     *
+     * @param requests The transactions, scripts and keys
+     * @return The signed transactions, in order
+     * @throws ScriptException if a script is not P2PKH or P2PK (no transaction is signed then)
+     * @throws IllegalArgumentException if a transaction doesn't have one input per script (no transaction
+     *          is signed then)
+     */
+    public List<Transaction> signAll(List<SigningRequest> requests) {
+        for (SigningRequest request : requests) {
+            checkScripts(request);
+        }
+        if (!requests.isEmpty()) {
+            pool.invoke(new TransactionsTask(requests, 0, requests.size()));
+        }
+        List<Transaction> signed = new ArrayList<>(requests.size());
+        for (SigningRequest request : requests) {
+            signed.add(request.getTransaction());
+        }
+        return signed;
+    }
+
+    /**
+     * Shut down the pool if it was created by this signer
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private void checkScripts(SigningRequest request) {
+        // The transaction may have been changed since the request was created
+        int inputs = request.getTransaction().getInputs().size();
+        if (request.getScriptPubKeys().size() != inputs) {
+            throw new IllegalArgumentException("Need a script for each of the " + inputs + " inputs of " +
+                    request.getTransaction().getHash() + ", got " + request.getScriptPubKeys().size());
+        }
+        for (Script script : request.getScriptPubKeys()) {
+            if (!script.isSentToAddress() && !script.isSentToRawPubKey()) {
+                throw new ScriptException("Don't know how to sign for this kind of scriptPubKey: " + script);
+            }
+        }
+    }
+
+    /**
+     * Parse a private copy of a transaction to compute signature hashes on
+     */
+    private Transaction copy(Transaction tx) {
+        Context.propagate(context);
+        return context.getParams().getDefaultSerializer().makeTransaction(tx.bitcoinSerialize());
+    }
+
+    /**
+     * Compute the signatures of inputs `from` to `to` on the copy of the transaction
+     */
+    private void signRange(SigningRequest request, Transaction copy, int from, int to, TransactionSignature[] signatures) {
+        Context.propagate(context);
+        List<Script> scripts = request.getScriptPubKeys();
+        List<ECKey> keys = request.getKeys();
+        for (int i = from; i < to; i++) {
+            Sha256Hash hash = copy.hashForSignature(i, scripts.get(i), Transaction.SigHash.ALL, false);
+            signatures[i] = new TransactionSignature(keys.get(i).sign(hash), Transaction.SigHash.ALL, false);
+        }
+    }
+
+    private static void setScriptSigs(SigningRequest request, TransactionSignature[] signatures) {
+        List<TransactionInput> inputs = request.getTransaction().getInputs();
+        for (int i = 0; i < signatures.length; i++) {
+            Script script = request.getScriptPubKeys().get(i);
+            inputs.get(i).setScriptSig(script.isSentToRawPubKey()
+                    ? ScriptBuilder.createInputScript(signatures[i])
+                    : ScriptBuilder.createInputScript(signatures[i], request.getKeys().get(i)));
+        }
+    }
+
+    private class InputsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final SigningRequest request;
+        private final Transaction copy;
+        private final int from;
+        private final int to;
+        private final TransactionSignature[] signatures;
+
+        InputsTask(SigningRequest request, Transaction copy, int from, int to, TransactionSignature[] signatures) {
+            this.request = request;
+            this.copy = copy;
+            this.from = from;
+            this.to = to;
+            this.signatures = signatures;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                signRange(request, copy, from, to, signatures);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new InputsTask(request, copy, from, middle, signatures),
+                    new InputsTask(request, copy, middle, to, signatures));
+        }
+    }
+
+    private class TransactionsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<SigningRequest> requests;
+        private final int from;
+        private final int to;
+
+        TransactionsTask(List<SigningRequest> requests, int from, int to) {
+            this.requests = requests;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                SigningRequest request = requests.get(from);
+                int inputs = request.getScriptPubKeys().size();
+                if (inputs > 0) {
+                    TransactionSignature[] signatures = new TransactionSignature[inputs];
+                    new InputsTask(request, copy(request.getTransaction()), 0, inputs, signatures).compute();
+                    setScriptSigs(request, signatures);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TransactionsTask(requests, from, middle), new TransactionsTask(requests, middle, to));
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Local (client-side) signing of transactions built by {@link com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient}.
+ */
+package com.msgilligan.bitcoinj.rpc.signing;
@@ -0,0 +1,342 @@
+package com.msgilligan.bitcoinj.test;
+
+import com.msgilligan.bitcoinj.json.pojo.Outpoint;
+import com.msgilligan.bitcoinj.json.pojo.SignedRawTransaction;
+import com.msgilligan.bitcoinj.json.pojo.UnspentOutput;
+import com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient;
+import com.msgilligan.bitcoinj.rpc.coinselection.FeeModel;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.Utils;
+import org.consensusj.jsonrpc.JsonRPCException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * = Pool of pre-mined RegTest outputs of standard denominations
+ *
+ * When a denomination runs out, matured coinbases are mined in one `generatetoaddress` call (to an address used
+ * only by the pool) and split into `outputsPerRefill` outputs of that denomination by one fan-out transaction,
+ * which is confirmed with one more block. {@link #fund(Address, Coin)} then pays any amount with a single
+ * transaction spending pool outputs, the change goes back to the pool's mining address.
+ *
+ * The pool outputs are in the wallet of the node, so they are locked (with `lockunspent`) to keep the wallet from
+ * spending them for other transactions (e.g. `sendtoaddress` calls of tests using the same wallet). Locks are lost
+ * when the node restarts, so each output is also checked with `gettxout` before it is used, spent outputs are
+ * dropped from the pool.
+ *
+ * The pool is thread-safe. Outputs are taken under a lock (refills are done while holding it),
+ * transactions paying from the pool are built and sent outside it. Blocks are generated through a
+ * {@link RegTestEnvironment}, so pools of tests running in parallel don't mine competing blocks.
+ */
+public class FundingPool {
+    /** 10 BTC, 1 BTC and 0.1 BTC */
+    public static final List<Coin> DEFAULT_DENOMINATIONS = Collections.unmodifiableList(Arrays.asList(
+            Coin.valueOf(10, 0), Coin.COIN, Coin.COIN.divide(10)));
+    public static final int DEFAULT_OUTPUTS_PER_REFILL = 25;
+    private static final int MAX_BLOCKS_PER_REFILL = 2000;
+    private static final Integer MAX_CONF = 9999999;
+
+    private final BitcoinExtendedClient client;
+    private final RegTestEnvironment chain;
+    private final NetworkParameters netParams;
+    private final List<Coin> denominations;
+    private final int outputsPerRefill;
+    private final FeeModel feeModel;
+    private final Map<Coin, ArrayDeque<TransactionOutPoint>> available = new HashMap<>();
+    private Address minerAddress = null;
+    private Address poolAddress = null;
+    private long refillCount = 0;
+
+    /**
+     * Pool with the {@link #DEFAULT_DENOMINATIONS} paying {@link BitcoinExtendedClient#stdTxFee} per kB
+     *
+     * @param client Client for a RegTest node (outputs are kept in its wallet)
+     */
+    public FundingPool(BitcoinExtendedClient client) {
+        this(client, DEFAULT_DENOMINATIONS, DEFAULT_OUTPUTS_PER_REFILL, client.stdTxFee);
+    }
+
+    /**
+     * @param client Client for a RegTest node (outputs are kept in its wallet)
+     * @param denominations Values of the pool outputs
+     * @param outputsPerRefill Number of outputs created when a denomination runs out
+     * @param feePerKb Fee rate of the transactions
+     */
+    public FundingPool(BitcoinExtendedClient client, List<Coin> denominations, int outputsPerRefill, Coin feePerKb) {
+        if (denominations.isEmpty() || outputsPerRefill < 1) {
+            throw new IllegalArgumentException("At least one denomination and output per refill required");
+        }
+        this.client = client;
+        this.chain = new RegTestEnvironment(client);
+        this.netParams = client.getNetParams();
+        List<Coin> sorted = new ArrayList<>(denominations);
+        Collections.sort(sorted, new Comparator<Coin>() {
+            @Override
+            public int compare(Coin a, Coin b) {
+                return b.compareTo(a);
+            }
+        });
+        this.denominations = sorted;
+        this.outputsPerRefill = outputsPerRefill;
+        this.feeModel = new FeeModel(feePerKb);
+        for (Coin denomination : sorted) {
+            available.put(denomination, new ArrayDeque<TransactionOutPoint>());
+        }
+    }
+
+    /**
+     * Pay an amount to an address with one transaction from the pool (not confirmed)
+     *
+     * @param toAddress Address to fund
+     * @param amount Amount to send
+     * @return The hash of the funding transaction, its output 0 pays `toAddress`
+     * @throws JsonRPCException JSON RPC status exception
+     * @throws IOException network error
+     */
+    public Sha256Hash fund(Address toAddress, Coin amount) throws JsonRPCException, IOException {
+        List<TransactionOutPoint> inputs = new ArrayList<>();
+        List<Coin> inputDenominations = new ArrayList<>();
+        long inputTotal = 0;
+        long fee = 0;
+        Address changeAddress;
+        synchronized (this) {
+            try {
+                changeAddress = minerAddress();
+                // Take the largest denominations that fit, then one of the smallest for the rest
+                long remaining = amount.value + feeModel.fee(1, 2);
+                for (Coin denomination : denominations) {
+                    while (remaining >= denomination.value) {
+                        inputs.add(take(denomination));
+                        inputDenominations.add(denomination);
+                        inputTotal += denomination.value;
+                        remaining = amount.value + feeModel.fee(inputs.size(), 2) - inputTotal;
+                    }
+                }
+                while (remaining > 0) {
+                    Coin smallest = denominations.get(denominations.size() - 1);
+                    inputs.add(take(smallest));
+                    inputDenominations.add(smallest);
+                    inputTotal += smallest.value;
+                    remaining = amount.value + feeModel.fee(inputs.size(), 2) - inputTotal;
+                }
+                fee = feeModel.fee(inputs.size(), 2);
+            } catch (IOException | RuntimeException e) {
+                putBack(inputs, inputDenominations);
+                throw e;
+            }
+        }
+        Transaction tx = new Transaction(netParams);
+        for (TransactionOutPoint outPoint : inputs) {
+            tx.addInput(new TransactionInput(netParams, tx, new byte[0], outPoint));
+        }
+        tx.addOutput(amount, toAddress);
+        Coin change = Coin.valueOf(inputTotal - amount.value - fee);
+        if (change.compareTo(Transaction.MIN_NONDUST_OUTPUT) >= 0) {
+            tx.addOutput(change, changeAddress);
+        }
+        try {
+            return signAndSend(tx);
+        } catch (IOException | RuntimeException e) {
+            // Outputs that were spent anyway (e.g. the response was lost) are dropped by take()
+            synchronized (this) {
+                putBack(inputs, inputDenominations);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Unlock and forget all pool outputs, new ones are mined when needed
+     *
+     * @throws JsonRPCException JSON RPC status exception
+     * @throws IOException network error
+     */
+    public synchronized void clear() throws JsonRPCException, IOException {
+        List<TransactionOutPoint> forgotten = new ArrayList<>();
+        for (ArrayDeque<TransactionOutPoint> outPoints : available.values()) {
+            forgotten.addAll(outPoints);
+            outPoints.clear();
+        }
+        if (!forgotten.isEmpty()) {
+            client.lockUnspent(true, outpoints(forgotten));
+        }
+    }
+
+    /**
+     * @return Number of outputs in the pool
+     */
+    public synchronized int getAvailableCount() {
+        int count = 0;
+        for (ArrayDeque<TransactionOutPoint> outPoints : available.values()) {
+            count += outPoints.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of fan-out transactions sent
+     */
+    public synchronized long getRefillCount() {
+        return refillCount;
+    }
+
+    /**
+     * Take an unspent output of a denomination, refilling the pool if needed
+     */
+    private TransactionOutPoint take(Coin denomination) throws JsonRPCException, IOException {
+        ArrayDeque<TransactionOutPoint> outPoints = available.get(denomination);
+        while (true) {
+            if (outPoints.isEmpty()) {
+                refill(denomination, outPoints);
+            }
+            TransactionOutPoint outPoint = outPoints.peek();
+            boolean unspent = client.getTxOut(outPoint.getHash(), (int) outPoint.getIndex(), true) != null;
+            outPoints.poll();
+            if (unspent) {
+                return outPoint;
+            }
+            // Spent by someone else (its lock was lost), drop it
+        }
+    }
+
+    /**
+     * Return outputs taken for a transaction that wasn't sent to the front of their denominations' queues
+     */
+    private void putBack(List<TransactionOutPoint> outPoints, List<Coin> outPointDenominations) {
+        for (int i = outPoints.size() - 1; i >= 0; i--) {
+            available.get(outPointDenominations.get(i)).addFirst(outPoints.get(i));
+        }
+    }
+
+    private void refill(Coin denomination, ArrayDeque<TransactionOutPoint> outPoints) throws JsonRPCException, IOException {
+        long needed = denomination.value * outputsPerRefill;
+        List<UnspentOutput> coins = spendableMinerOutputs();
+        long spendable = total(coins);
+        long required = needed + feeModel.fee(coins.size(), outputsPerRefill + 1);
+        if (spendable < required) {
+            int blocks = blocksFor(required - spendable);
+            // Also mine the blocks that mature the new coinbases (their coinbases are used by later refills)
+            chain.generateToAddress(blocks + netParams.getSpendableCoinbaseDepth(), minerAddress());
+            coins = spendableMinerOutputs();
+        }
+
+        Transaction tx = new Transaction(netParams);
+        long inputTotal = 0;
+        for (UnspentOutput coin : coins) {
+            if (inputTotal >= needed + feeModel.fee(tx.getInputs().size(), outputsPerRefill + 1)) {
+                break;
+            }
+            tx.addInput(new TransactionInput(netParams, tx, new byte[0],
+                    new TransactionOutPoint(netParams, coin.getVout(), coin.getTxid())));
+            inputTotal += coin.getAmount().value;
+        }
+        long fee = feeModel.fee(tx.getInputs().size(), outputsPerRefill + 1);
+        if (inputTotal < needed + fee) {
+            throw new IllegalStateException("Not enough RegTest block subsidy left to fund " + denomination.toFriendlyString() +
+                    " outputs");
+        }
+        Address address = poolAddress();
+        for (int i = 0; i < outputsPerRefill; i++) {
+            tx.addOutput(denomination, address);
+        }
+        Coin change = Coin.valueOf(inputTotal - needed - fee);
+        if (change.compareTo(Transaction.MIN_NONDUST_OUTPUT) >= 0) {
+            tx.addOutput(change, minerAddress());
+        }
+        Sha256Hash txid = signAndSend(tx);
+        List<TransactionOutPoint> created = new ArrayList<>(outputsPerRefill);
+        for (int i = 0; i < outputsPerRefill; i++) {
+            created.add(new TransactionOutPoint(netParams, i, txid));
+        }
+        // Pool the outputs before locking and confirming them, so they aren't lost if either call fails
+        outPoints.addAll(created);
+        refillCount++;
+        client.lockUnspent(false, outpoints(created));
+        chain.generateToAddress(1, minerAddress());     // Confirm, so pool outputs can be spent without chain limits
+    }
+
+    private Sha256Hash signAndSend(Transaction tx) throws JsonRPCException, IOException {
+        SignedRawTransaction signed = client.signRawTransaction(Utils.HEX.encode(tx.bitcoinSerialize()));
+        if (!signed.isComplete()) {
+            throw new IllegalStateException("Wallet could not sign funding transaction");
+        }
+        return client.sendRawTransaction(signed.getHex(), true);
+    }
+
+    /**
+     * @return Mature coinbases and confirmed change of the mining address, largest first
+     */
+    private List<UnspentOutput> spendableMinerOutputs() throws JsonRPCException, IOException {
+        List<UnspentOutput> coins = new ArrayList<>(client.listUnspent(1, MAX_CONF, Collections.singletonList(minerAddress())));
+        Collections.sort(coins, new Comparator<UnspentOutput>() {
+            @Override
+            public int compare(UnspentOutput a, UnspentOutput b) {
+                return b.getAmount().compareTo(a.getAmount());
+            }
+        });
+        return coins;
+    }
+
+    /**
+     * @return Number of blocks whose subsidy adds up to at least `value`
+     */
+    private int blocksFor(long value) throws JsonRPCException, IOException {
+        int height = client.getBlockCount();
+        int interval = netParams.getSubsidyDecreaseBlockCount();
+        long mined = 0;
+        int blocks = 0;
+        while (mined < value) {
+            if (blocks == MAX_BLOCKS_PER_REFILL) {
+                throw new IllegalStateException("Not enough RegTest block subsidy left at height " + height);
+            }
+            blocks++;
+            int halvings = (height + blocks) / interval;
+            mined += (halvings < 64) ? Coin.FIFTY_COINS.value >> halvings : 0;
+        }
+        return blocks;
+    }
+
+    private static List<Outpoint> outpoints(List<TransactionOutPoint> outPoints) {
+        List<Outpoint> result = new ArrayList<>(outPoints.size());
+        for (TransactionOutPoint outPoint : outPoints) {
+            result.add(new Outpoint(outPoint.getHash(), (int) outPoint.getIndex()));
+        }
+        return result;
+    }
+
+    private static long total(List<UnspentOutput> coins) {
+        long total = 0;
+        for (UnspentOutput coin : coins) {
+            total += coin.getAmount().value;
+        }
+        return total;
+    }
+
+    private Address minerAddress() throws JsonRPCException, IOException {
+        if (minerAddress == null) {
+            minerAddress = client.getNewAddress();
+        }
+        return minerAddress;
+    }
+
+    private Address poolAddress() throws JsonRPCException, IOException {
+        if (poolAddress == null) {
+            poolAddress = client.getNewAddress();
+        }
+        return poolAddress;
+    }
+}
@@ -0,0 +1,112 @@
+package com.msgilligan.bitcoinj.test;
+
+import com.msgilligan.bitcoinj.rpc.bench.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Results of a {@link TransactionLoadGenerator} run
+ *
+ * Latencies are in microseconds and measured from the time a transaction was scheduled to be sent (so sends delayed
+ * by busy threads count as slow): submit latency until `sendrawtransaction` returned, confirmation latency until
+ * the transaction was seen in a block.
+ */
+public class LoadReport {
+    private final int attempted;
+    private final int accepted;
+    private final int unconfirmed;
+    private final long durationNanos;
+    private final LatencyHistogram submitLatency;
+    private final LatencyHistogram confirmationLatency;
+    private final Map<String, Long> errors;
+
+    public LoadReport(int attempted, int accepted, int unconfirmed, long durationNanos,
+                      LatencyHistogram submitLatency, LatencyHistogram confirmationLatency, Map<String, Long> errors) {
+        this.attempted = attempted;
+        this.accepted = accepted;
+        this.unconfirmed = unconfirmed;
+        this.durationNanos = durationNanos;
+        this.submitLatency = submitLatency;
+        this.confirmationLatency = confirmationLatency;
+        this.errors = Collections.unmodifiableMap(new TreeMap<>(errors));
+    }
+
+    /**
+     * @return Number of transactions submitted
+     */
+    public int getAttempted() {
+        return attempted;
+    }
+
+    /**
+     * @return Number of transactions accepted by the node
+     */
+    public int getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * @return Number of transactions rejected by the node or failed to be sent
+     */
+    public int getFailed() {
+        return attempted - accepted;
+    }
+
+    /**
+     * @return Number of accepted transactions not seen in a block by the end of the run
+     */
+    public int getUnconfirmed() {
+        return unconfirmed;
+    }
+
+    /**
+     * @return Time from the first to the last submission
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return Accepted transactions per second
+     */
+    public double getAchievedTps() {
+        return (durationNanos > 0) ? accepted * 1e9 / durationNanos : 0;
+    }
+
+    /**
+     * @return Failed transactions as fraction of the submitted ones
+     */
+    public double getErrorRate() {
+        return (attempted > 0) ? (double) getFailed() / attempted : 0;
+    }
+
+    public LatencyHistogram getSubmitLatency() {
+        return submitLatency;
+    }
+
+    public LatencyHistogram getConfirmationLatency() {
+        return confirmationLatency;
+    }
+
+    /**
+     * @return Number of failures by error (JSON-RPC error code and message or exception class)
+     */
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d transactions in %.3fs: %.1f tx/s, %d failed (%.2f%%), %d unconfirmed%n",
+                attempted, durationNanos / 1e9, getAchievedTps(), getFailed(), getErrorRate() * 100, unconfirmed));
+        builder.append("submit:       ").append(submitLatency.summaryMillis()).append(String.format("%n"));
+        builder.append("confirmation: ").append(confirmationLatency.summaryMillis());
+        for (Map.Entry<String, Long> error : errors.entrySet()) {
+            builder.append(String.format("%n%8d x %s", error.getValue(), error.getKey()));
+        }
+        return builder.toString();
+    }
+}
@@ -1,23 +1,47 @@
 package com.msgilligan.bitcoinj.test;
 
 import com.msgilligan.bitcoinj.rpc.BitcoinClient;
+import org.bitcoinj.core.Address;
 import org.consensusj.jsonrpc.JsonRPCException;
 import org.bitcoinj.core.Sha256Hash;
+import org.consensusj.jsonrpc.JsonRPCStatusException;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
- *  Single-threaded RegTest testing environment.
- *  (It is conceivable someone could write tests that run in parallel in RegTest mode
- *  just as they would on MainNet or Testnet. There would be a timer that creates blocks
- *  every 'n' seconds, so tests could run in parallel, but would complete much quicker.
+ *  RegTest testing environment that can be shared by tests running in parallel.
+ *
+ *  Blocks are generated while holding a lock on a file named after the server (and a lock within the JVM), so
+ *  tests in different threads or processes don't mine competing blocks on the same tip. Each spec can
+ *  use its own wallet on the node ({@link #useWallet(String)}), so balances and unspent outputs of specs
+ *  don't interfere and blocks generated by a spec pay its own wallet.
+ *
+ *  Specs running in parallel should only assert block heights relative to the blocks they generated, since
+ *  other specs may generate blocks at the same time.
  */
 public class RegTestEnvironment implements BlockChainEnvironment {
+    private static final int RPC_METHOD_NOT_FOUND = -32601;
+    private static final Object generateLock = new Object();    // File locks are held by the whole JVM
     private BitcoinClient client;
+    private final File lockFile;
 
     public RegTestEnvironment(BitcoinClient client) {
+        this(client, defaultLockFile(client.getServerURI()));
+    }
+
+    /**
+     * @param client Client for the RegTest node
+     * @param lockFile File locked while generating blocks (the same for all processes using the node)
+     */
+    public RegTestEnvironment(BitcoinClient client, File lockFile) {
         this.client = client;
+        this.lockFile = lockFile;
     }
 
     @Override
@@ -27,6 +51,80 @@ public class RegTestEnvironment implements BlockChainEnvironment {
 
     @Override
     public List<Sha256Hash> waitForBlocks(int numBlocks) throws JsonRPCException, IOException {
-        return client.generate(numBlocks);
+        return generate(numBlocks, null);
+    }
+
+    /**
+     * Generate blocks paying the coinbases to an address
+     *
+     * @param numBlocks number of blocks to generate
+     * @param address address to pay the block rewards to
+     * @return list containing block header hashes of the generated blocks
+     * @throws JsonRPCException JSON RPC status exception
+     * @throws IOException network error
+     */
+    public List<Sha256Hash> generateToAddress(int numBlocks, Address address) throws JsonRPCException, IOException {
+        return generate(numBlocks, address);
+    }
+
+    /**
+     * Create (or load) a wallet on the node and send the client's requests to it
+     *
+     * @param walletName Name of the wallet (e.g. the name of the test spec)
+     * @return `true` if the wallet is used, `false` if the node does not support `createwallet`
+     *         (before Bitcoin Core 0.17) and the default wallet is used
+     * @throws JsonRPCException JSON RPC status exception
+     * @throws IOException network error
+     */
+    public boolean useWallet(String walletName) throws JsonRPCException, IOException {
+        try {
+            client.createWallet(walletName);
+        } catch (JsonRPCStatusException e) {
+            if (e.jsonRPCCode == RPC_METHOD_NOT_FOUND) {
+                return false;
+            }
+            // Created by an earlier run
+            if (!client.listWallets().contains(walletName)) {
+                client.loadWallet(walletName);
+            }
+        }
+        client.setWalletName(walletName);
+        return true;
+    }
+
+    /**
+     * Run an action while holding the locks used for generating blocks, e.g. to generate blocks with
+     * another kind of client
+     *
+     * @param action Action to run
+     * @param <T> Result type
+     * @return Result of `action`
+     * @throws Exception if `action` fails or the lock file can't be locked
+     */
+    public <T> T withGenerateLock(Callable<T> action) throws Exception {
+        synchronized (generateLock) {
+            try (FileChannel channel = openLockFile()) {
+                channel.lock();     // Released when the channel is closed
+                return action.call();
+            }
+        }
+    }
+
+    private List<Sha256Hash> generate(int numBlocks, Address address) throws JsonRPCException, IOException {
+        synchronized (generateLock) {
+            try (FileChannel channel = openLockFile()) {
+                channel.lock();     // Released when the channel is closed
+                return (address != null) ? client.generateToAddress(numBlocks, address) : client.generate(numBlocks);
+            }
+        }
+    }
+
+    private FileChannel openLockFile() throws IOException {
+        return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private static File defaultLockFile(URI server) {
+        String name = (server != null) ? server.getHost() + "-" + server.getPort() : "default";
+        return new File(System.getProperty("java.io.tmpdir"), "bitcoinj-regtest-" + name + ".lock");
     }
 }
@@ -13,6 +13,7 @@ import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,19 +31,29 @@ public class RegTestFundingSource implements FundingSource {
     final Integer defaultMaxConf = 9999999;
     private static final Logger log = LoggerFactory.getLogger(RegTestFundingSource.class);
     protected BitcoinExtendedClient client;
+    protected final FundingPool pool;
 
     public RegTestFundingSource(BitcoinExtendedClient client) {
+        this(client, new FundingPool(client));
+    }
+
+    /**
+     * @param client Client for a RegTest node
+     * @param pool Pool to fund addresses from
+     */
+    public RegTestFundingSource(BitcoinExtendedClient client, FundingPool pool) {
         this.client = client;
+        this.pool = pool;
     }
 
     /**
-     * Generate blocks and fund an address with requested amount of BTC
+     * Fund an address with requested amount of BTC from the {@link FundingPool}
      *
-     * TODO: Improve performance. Can we mine multiple blocks with a single RPC?
+     * Blocks are only mined when the pool needs a refill.
      *
      * @param toAddress Address to fund with BTC
-     * @param requestedBtc Amount of BTC to "mine" and send
-     * @return The hash of transaction that provided the funds.
+     * @param requestedBtc Amount of BTC to send
+     * @return The hash of transaction that provided the funds (output 0 pays `toAddress`)
      */
     @Override
     public Sha256Hash requestBitcoin(Address toAddress, Coin requestedBtc) throws JsonRPCException, IOException {
@@ -50,6 +61,23 @@ public class RegTestFundingSource implements FundingSource {
         if (requestedBtc.value > NetworkParameters.MAX_MONEY.value) {
             throw new IllegalArgumentException("request exceeds MAX_MONEY");
         }
+        return pool.fund(toAddress, requestedBtc);
+    }
+
+    /**
+     * Generate blocks until their coinbases add up to the requested amount and send it to an address
+     * (one block and `getblock` and `gettxout` calls per coinbase, {@link #requestBitcoin(Address, Coin)}
+     * is much faster)
+     *
+     * @param toAddress Address to fund with BTC
+     * @param requestedBtc Amount of BTC to "mine" and send
+     * @return The hash of transaction that provided the funds.
+     */
+    public Sha256Hash mineBitcoin(Address toAddress, Coin requestedBtc) throws JsonRPCException, IOException {
+        log.debug("mineBitcoin requesting {}", requestedBtc);
+        if (requestedBtc.value > NetworkParameters.MAX_MONEY.value) {
+            throw new IllegalArgumentException("request exceeds MAX_MONEY");
+        }
         long amountGatheredSoFar = 0;
         ArrayList<Outpoint> inputs = new ArrayList<Outpoint>();
 
@@ -112,10 +140,10 @@ public class RegTestFundingSource implements FundingSource {
     public TransactionIngredients createIngredients(Coin amount) throws JsonRPCException, IOException {
         TransactionIngredients ingredients = new TransactionIngredients();
         Address address = client.getNewAddress();
-        requestBitcoin(address, amount);
+        Sha256Hash txid = requestBitcoin(address, amount);
         ingredients.address = address;
         ingredients.privateKey = client.dumpPrivKey(address);
-        ingredients.outPoints = client.listUnspentOutPoints(address);
+        ingredients.outPoints = Collections.singletonList(new TransactionOutPoint(client.getNetParams(), 0, txid));
         return ingredients;
     }
 
@@ -135,7 +163,8 @@ public class RegTestFundingSource implements FundingSource {
     /**
      * Collects *all* unspent outputs and spends the whole amount minus `stdRelayTxFee`, which is sent
      * to a new address, as fee, to sweep dust and to minimize the number of unspent outputs, to avoid creating too
-     * large transactions. No new block is generated afterwards.
+     * large transactions. No new block is generated afterwards. The locked outputs of the {@link FundingPool}
+     * aren't listed by `listunspent`, so they are kept.
      *
      * Can be used in cleanupSpec() methods of integration tests.
      *
@@ -0,0 +1,310 @@
+package com.msgilligan.bitcoinj.test;
+
+import com.msgilligan.bitcoinj.json.conversion.FieldProjection;
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo;
+import com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient;
+import com.msgilligan.bitcoinj.rpc.bench.ErrorCounts;
+import com.msgilligan.bitcoinj.rpc.bench.LatencyHistogram;
+import com.msgilligan.bitcoinj.rpc.coinselection.FeeModel;
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * = Transaction load generator for RegTest (or TestNet) nodes
+ *
+ * {@link #prepare(int)} creates the given number of independent, confirmed outputs of a key held by the generator
+ * (funded by a {@link FundingSource}, split by fan-out transactions of up to {@value #MAX_OUTPUTS_PER_FAN_OUT}
+ * outputs) and signs one transaction spending each of them. Since every transaction has its own confirmed input,
+ * they can be sent in any order and concurrently without hitting mempool chain limits, and signing is not part of
+ * the measurement.
+ *
+ * {@link #run()} then sends them with `sendrawtransaction` from {@link #setConcurrency(int) concurrent} threads,
+ * paced to a {@link #setTargetRate(double) target rate} (in an open loop: a send that's late doesn't delay the
+ * schedule of the following ones), while a block is requested from the {@link BlockChainEnvironment} every
+ * {@link #setBlockIntervalMillis(long) block interval}. The {@link LoadReport} has the achieved rate, error counts
+ * and submit and confirmation latency percentiles.
+ *
+ * [source,groovy]
+ * --
+ * def generator = new TransactionLoadGenerator(client, fundingSource, new RegTestEnvironment(client))
+ * generator.concurrency = 16
+ * generator.targetRate = 200
+ * generator.prepare(5000)
+ * println generator.run()
+ * --
+ *
+ * The funding transactions must be retrievable with `getrawtransaction` (in the mempool, or a node with `-txindex`).
+ */
+public class TransactionLoadGenerator {
+    private static final Logger log = LoggerFactory.getLogger(TransactionLoadGenerator.class);
+    public static final int MAX_OUTPUTS_PER_FAN_OUT = 500;
+    private static final FieldProjection TXIDS = FieldProjection.of(BlockInfo.class, "tx");
+
+    private final BitcoinExtendedClient client;
+    private final FundingSource fundingSource;
+    private final BlockChainEnvironment chain;
+    private final NetworkParameters netParams;
+    private final FeeModel feeModel;
+    private final ECKey key = new ECKey();
+    private final Address address;
+    private final Script outputScript;
+    private final List<Transaction> prepared = new ArrayList<>();
+    private Coin outputValue = Coin.MILLICOIN;
+    private int concurrency = 4;
+    private double targetRate = 0;
+    private long blockIntervalMillis = 1000;
+    private int maxDrainBlocks = 5;
+
+    /**
+     * Generator paying {@link BitcoinExtendedClient#stdTxFee} per kB
+     *
+     * @param client Client for the node
+     * @param fundingSource Source of the funds for the outputs
+     * @param chain Environment to mine (or wait for) blocks
+     */
+    public TransactionLoadGenerator(BitcoinExtendedClient client, FundingSource fundingSource, BlockChainEnvironment chain) {
+        this(client, fundingSource, chain, client.stdTxFee);
+    }
+
+    /**
+     * @param client Client for the node
+     * @param fundingSource Source of the funds for the outputs
+     * @param chain Environment to mine (or wait for) blocks
+     * @param feePerKb Fee rate of the transactions
+     */
+    public TransactionLoadGenerator(BitcoinExtendedClient client, FundingSource fundingSource, BlockChainEnvironment chain,
+                                    Coin feePerKb) {
+        this.client = client;
+        this.fundingSource = fundingSource;
+        this.chain = chain;
+        this.netParams = client.getNetParams();
+        this.feeModel = new FeeModel(feePerKb);
+        this.address = key.toAddress(netParams);
+        this.outputScript = ScriptBuilder.createOutputScript(address);
+    }
+
+    /**
+     * @param outputValue Value of each prepared output (default 0.001 BTC)
+     */
+    public void setOutputValue(Coin outputValue) {
+        this.outputValue = outputValue;
+    }
+
+    /**
+     * @param concurrency Number of threads sending transactions (default 4)
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param targetRate Transactions per second to send, `0` (the default) to send as fast as the threads can
+     */
+    public void setTargetRate(double targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    /**
+     * @param blockIntervalMillis Delay between the blocks requested while sending, `0` to request none
+     */
+    public void setBlockIntervalMillis(long blockIntervalMillis) {
+        this.blockIntervalMillis = blockIntervalMillis;
+    }
+
+    /**
+     * @param maxDrainBlocks Maximum number of blocks requested after sending to confirm the remaining transactions
+     */
+    public void setMaxDrainBlocks(int maxDrainBlocks) {
+        this.maxDrainBlocks = maxDrainBlocks;
+    }
+
+    /**
+     * @return Number of signed transactions ready to be sent by {@link #run()}
+     */
+    public synchronized int getPreparedCount() {
+        return prepared.size();
+    }
+
+    /**
+     * Create and confirm `count` outputs and sign one transaction spending each of them
+     *
+     * @param count Number of transactions to prepare
+     * @throws Exception if funding, sending the fan-out transactions or generating the block fails
+     */
+    public synchronized void prepare(int count) throws Exception {
+        List<Transaction> fanOuts = new ArrayList<>();
+        for (int start = 0; start < count; start += MAX_OUTPUTS_PER_FAN_OUT) {
+            int outputs = Math.min(MAX_OUTPUTS_PER_FAN_OUT, count - start);
+            Coin amount = outputValue.multiply(outputs).add(fee(1, outputs));
+            Sha256Hash fundingTxid = fundingSource.requestBitcoin(address, amount);
+            TransactionOutPoint funding = findOutput(fundingTxid, amount);
+
+            Transaction fanOut = new Transaction(netParams);
+            for (int i = 0; i < outputs; i++) {
+                fanOut.addOutput(outputValue, address);
+            }
+            fanOut.addSignedInput(funding, outputScript, key);
+            client.sendRawTransaction(fanOut);
+            fanOuts.add(fanOut);
+        }
+        // Confirm the outputs, unconfirmed ones could only have 25 descendants in the mempool
+        chain.waitForBlock();
+
+        Coin spendValue = outputValue.subtract(fee(1, 1));
+        for (Transaction fanOut : fanOuts) {
+            for (TransactionOutput output : fanOut.getOutputs()) {
+                Transaction tx = new Transaction(netParams);
+                tx.addOutput(spendValue, address);
+                tx.addSignedInput(output.getOutPointFor(), outputScript, key);
+                prepared.add(tx);
+            }
+        }
+        log.info("Prepared {} transactions", prepared.size());
+    }
+
+    /**
+     * Send all prepared transactions and wait for their confirmation
+     *
+     * @return The results
+     * @throws InterruptedException if interrupted while waiting for the sending threads
+     */
+    public LoadReport run() throws InterruptedException {
+        final List<Transaction> transactions;
+        synchronized (this) {
+            transactions = new ArrayList<>(prepared);
+            prepared.clear();
+        }
+        final LatencyHistogram submitLatency = new LatencyHistogram();
+        final LatencyHistogram confirmationLatency = new LatencyHistogram();
+        final ConcurrentMap<Sha256Hash, Long> pending = new ConcurrentHashMap<>();
+        final ErrorCounts errors = new ErrorCounts();
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger accepted = new AtomicInteger();
+        final long intervalNanos = (targetRate > 0) ? (long) (1e9 / targetRate) : 0;
+
+        ScheduledExecutorService miner = Executors.newSingleThreadScheduledExecutor();
+        if (blockIntervalMillis > 0) {
+            miner.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    mineAndRecord(pending, confirmationLatency);
+                }
+            }, blockIntervalMillis, blockIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        ExecutorService senders = Executors.newFixedThreadPool(concurrency);
+        final long start = System.nanoTime();
+        for (int t = 0; t < concurrency; t++) {
+            senders.execute(new Runnable() {
+                @Override
+                public void run() {
+                    int i;
+                    while ((i = next.getAndIncrement()) < transactions.size()) {
+                        long due = (intervalNanos > 0) ? start + i * intervalNanos : System.nanoTime();
+                        long wait;
+                        // Thread.sleep() may wake up to half a millisecond early
+                        while ((wait = due - System.nanoTime()) > 0) {
+                            try {
+                                TimeUnit.NANOSECONDS.sleep(wait);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                        if (send(transactions.get(i), due, pending, submitLatency, errors)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        senders.shutdown();
+        senders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        long duration = System.nanoTime() - start;
+        miner.shutdown();
+        miner.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        for (int i = 0; i < maxDrainBlocks && !pending.isEmpty(); i++) {
+            mineAndRecord(pending, confirmationLatency);
+        }
+
+        LoadReport report = new LoadReport(transactions.size(), accepted.get(), pending.size(), duration,
+                submitLatency, confirmationLatency, errors.toMap());
+        log.info("Load test results: {}", report);
+        return report;
+    }
+
+    /**
+     * Send a transaction, latencies are measured from the time it was due (not from when a thread got to send it),
+     * so sends delayed by busy threads count as slow
+     */
+    private boolean send(Transaction tx, long due, ConcurrentMap<Sha256Hash, Long> pending,
+                         LatencyHistogram submitLatency, ErrorCounts errors) {
+        Sha256Hash txid = tx.getHash();
+        // Added before sending, so a block mined before the response is matched
+        pending.put(txid, due);
+        try {
+            client.sendRawTransaction(tx);
+            submitLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            pending.remove(txid);
+            errors.count(e);
+        }
+        return false;
+    }
+
+    private void mineAndRecord(ConcurrentMap<Sha256Hash, Long> pending, LatencyHistogram confirmationLatency) {
+        try {
+            for (Sha256Hash blockHash : chain.waitForBlock()) {
+                long now = System.nanoTime();
+                BlockInfo block = client.getBlockInfo(blockHash, TXIDS);
+                for (Sha256Hash txid : block.tx) {
+                    Long sent = pending.remove(txid);
+                    if (sent != null) {
+                        confirmationLatency.record(TimeUnit.NANOSECONDS.toMicros(now - sent));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Generating or reading block failed", e);
+        }
+    }
+
+    private TransactionOutPoint findOutput(Sha256Hash txid, Coin amount) throws Exception {
+        Transaction tx = client.getRawTransaction(txid);
+        for (TransactionOutput output : tx.getOutputs()) {
+            if (output.getValue().equals(amount) && address.equals(output.getAddressFromP2PKHScript(netParams))) {
+                return new TransactionOutPoint(netParams, output.getIndex(), txid);
+            }
+        }
+        throw new IllegalStateException("Funding transaction " + txid + " does not pay " + amount.toFriendlyString() +
+                " to " + address);
+    }
+
+    private Coin fee(int inputs, int outputs) {
+        return Coin.valueOf(feeModel.fee(inputs, outputs));
+    }
+}
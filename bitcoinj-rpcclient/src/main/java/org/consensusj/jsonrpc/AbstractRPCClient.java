@@ -2,11 +2,15 @@ package org.consensusj.jsonrpc;
 
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msgilligan.bitcoinj.json.conversion.FieldProjection;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract Base class for a strongly-typed JSON-RPC client. This abstract class handles
@@ -36,6 +40,51 @@ public abstract class AbstractRPCClient implements UntypedRPCClient {
      */
     protected abstract <R> JsonRpcResponse<R> send(JsonRpcRequest request, JavaType responseType) throws IOException, JsonRPCStatusException;
 
+    /**
+     * Send a request, passing per-call attributes (e.g. a {@link FieldProjection}) to Jackson
+     * <p>
+     * The default implementation ignores `attributes`, which is always correct but gives up the
+     * optimizations they enable. Subclasses that read responses with an `ObjectReader` should override it.
+     *
+     * @param request      The request to send
+     * @param responseType The response to expected (used by Jackson for conversion)
+     * @param attributes   Per-call attributes for Jackson's `DeserializationContext`
+     * @return A JSON RPC Response with `result` of type `R`
+     * @throws IOException            network error
+     * @throws JsonRPCStatusException JSON RPC status error
+     */
+    protected <R> JsonRpcResponse<R> send(JsonRpcRequest request, JavaType responseType, Map<?, ?> attributes) throws IOException, JsonRPCStatusException {
+        return send(request, responseType);
+    }
+
+    /**
+     * Send several requests, as one JSON-RPC batch if the subclass supports it
+     * <p>
+     * The default implementation sends the requests one at a time. Errors returned by the server for
+     * individual requests are returned in their responses, not thrown.
+     *
+     * @param requests     The requests to send
+     * @param responseType The response type of every request (used by Jackson for conversion)
+     * @return The responses, in the order of `requests`
+     * @throws IOException            network error
+     * @throws JsonRPCStatusException JSON RPC status error without a JSON-RPC response
+     */
+    @SuppressWarnings("unchecked")
+    protected <R> List<JsonRpcResponse<R>> sendBatch(List<JsonRpcRequest> requests, JavaType responseType) throws IOException, JsonRPCStatusException {
+        List<JsonRpcResponse<R>> responses = new ArrayList<>(requests.size());
+        for (JsonRpcRequest request : requests) {
+            try {
+                responses.add(this.<R>send(request, responseType));
+            } catch (JsonRPCStatusException e) {
+                if (e.responseJson == null) {
+                    throw e;
+                }
+                responses.add((JsonRpcResponse<R>) e.responseJson);
+            }
+        }
+        return responses;
+    }
+
     /**
      * Create a JsonRpcRequest from method and parameters
      * <p>
@@ -51,8 +100,12 @@ public abstract class AbstractRPCClient implements UntypedRPCClient {
     }
 
     private <R> R sendForResult(String method, JavaType responseType, List<Object> params) throws IOException, JsonRPCStatusException {
+        return sendForResult(method, responseType, Collections.emptyMap(), params);
+    }
+
+    private <R> R sendForResult(String method, JavaType responseType, Map<?, ?> attributes, List<Object> params) throws IOException, JsonRPCStatusException {
         JsonRpcRequest request = buildJsonRequest(method, params);
-        JsonRpcResponse<R> response = send(request, responseType);
+        JsonRpcResponse<R> response = send(request, responseType, attributes);
 
 //        assert response != null;
 //        assert response.getJsonrpc() != null;
@@ -127,6 +180,23 @@ public abstract class AbstractRPCClient implements UntypedRPCClient {
         return send(method, resultType, Arrays.asList(params));
     }
 
+    /**
+     * JSON-RPC remote method call that returns a projection of 'response.result`
+     * <p>
+     * Only the fields listed in `projection` are bound, the rest are skipped while parsing.
+     *
+     * @param method     JSON RPC method call to send
+     * @param resultType desired result type as a Jackson JavaType object
+     * @param projection JSON fields of the result to bind
+     * @param params     JSON RPC params
+     * @return the 'response.result' field of the JSON RPC response converted to type R
+     */
+    protected <R> R send(String method, JavaType resultType, FieldProjection projection, List<Object> params) throws IOException, JsonRPCStatusException {
+        JavaType responseType = mapper.getTypeFactory().
+                constructParametricType(JsonRpcResponse.class, resultType);
+        return sendForResult(method, responseType, Collections.singletonMap(FieldProjection.class, projection), params);
+    }
+
     /**
      * Call an RPC method and return default object type.
      * <p>
@@ -148,6 +218,22 @@ public abstract class AbstractRPCClient implements UntypedRPCClient {
         return send(method, defaultType, params);
     }
 
+    /**
+     * Call several RPC methods, as one JSON-RPC batch if the subclass supports it, and return default object types.
+     * <p>
+     * Useful for command line utilities and scripts that run many calls of any method. Errors returned
+     * by the server for individual requests are in their responses, not thrown.
+     *
+     * @param requests JSON RPC requests (e.g. `new JsonRpcRequest(method, params)`)
+     * @return The responses, in the order of `requests`
+     * @throws IOException            network error
+     * @throws JsonRPCStatusException JSON RPC status error without a JSON-RPC response
+     */
+    public List<JsonRpcResponse<Object>> sendBatch(List<JsonRpcRequest> requests) throws IOException, JsonRPCStatusException {
+        JavaType responseType = mapper.getTypeFactory().constructParametricType(JsonRpcResponse.class, defaultType);
+        return this.<Object>sendBatch(requests, responseType);
+    }
+
     /**
      * Call an RPC method and return default object type.
      * <p>
@@ -1,7 +1,14 @@
 package org.consensusj.jsonrpc;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.msgilligan.bitcoinj.json.conversion.BinaryWireFormat;
 import com.msgilligan.bitcoinj.rpc.BitcoinClient;
 import org.consensusj.jsonrpc.util.Base64;
 import org.slf4j.Logger;
@@ -18,9 +25,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * = JSON-RPC Client
@@ -34,13 +47,20 @@ import java.security.cert.X509Certificate;
  * these strong types allows us to use Jackson to deserialize
  * directly to strongly-typed POJO's without using intermediate `Map` or `JsonNode` types.
  *
+ * When talking to a consensusj server (e.g. `bitcoinj-proxy` or `bitcoinj-daemon`) the binary Smile
+ * wire format can be enabled with {@link #setBinaryWireFormat(boolean)}, see {@link BinaryWireFormat}.
  */
 public class RPCClient extends AbstractRPCClient {
     private static final Logger log = LoggerFactory.getLogger(RPCClient.class);
     private URI serverURI;
+    private volatile URI requestURI;    // serverURI or its wallet endpoint
+    private volatile String walletName = null;
     private String username;
     private String password;
     private static final boolean disableSslVerification = false;
+    private final SmileFactory smileFactory = BinaryWireFormat.newSmileFactory();
+    private volatile boolean binaryWireFormat = false;
+    private volatile boolean serverSpeaksSmile = false;    // Set after the first Smile response
 
     static {
         if (disableSslVerification) {
@@ -61,6 +81,7 @@ public class RPCClient extends AbstractRPCClient {
     public RPCClient(URI server, final String rpcuser, final String rpcpassword) {
         super();
         this.serverURI = server;
+        this.requestURI = server;
         this.username = rpcuser;
         this.password = rpcpassword;
     }
@@ -74,6 +95,63 @@ public class RPCClient extends AbstractRPCClient {
         return serverURI;
     }
 
+    /**
+     * Send requests to the `/wallet/<name>` endpoint of the server, like `bitcoin-cli -rpcwallet=<name>`
+     *
+     * The endpoint is relative to the path of the server URI (e.g. `/rpc/wallet/<name>` behind a proxy
+     * at `/rpc`). Needed for wallet calls when a Bitcoin Core node (0.15 and later) has more than one wallet loaded,
+     * other calls work on any endpoint.
+     *
+     * @param walletName Name of the wallet or `null` to send requests to the server URI
+     */
+    public void setWalletName(String walletName) {
+        if (walletName == null) {
+            this.requestURI = serverURI;
+        } else {
+            String basePath = (serverURI.getPath() != null) ? serverURI.getPath().replaceAll("/+$", "") : "";
+            try {
+                this.requestURI = new URI(serverURI.getScheme(), serverURI.getUserInfo(), serverURI.getHost(),
+                        serverURI.getPort(), basePath + "/wallet/" + walletName, null, null);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid wallet name: " + walletName, e);
+            }
+        }
+        this.walletName = walletName;
+    }
+
+    /**
+     * @return Name of the wallet requests are sent to, `null` if sent to the server URI
+     */
+    public String getWalletName() {
+        return walletName;
+    }
+
+    /**
+     * @return URI requests are sent to, the server URI or its `/wallet/<name>` endpoint
+     */
+    public URI getRequestURI() {
+        return requestURI;
+    }
+
+    /**
+     * Request responses in the binary Smile format
+     *
+     * Responses are parsed according to their `Content-Type`, and requests are sent as JSON until the
+     * server has answered in Smile, so this is safe to enable for servers that only speak JSON (e.g. bitcoind).
+     *
+     * @param enabled `true` to send `Accept: application/x-jackson-smile`
+     */
+    public void setBinaryWireFormat(boolean enabled) {
+        this.binaryWireFormat = enabled;
+    }
+
+    /**
+     * @return `true` if Smile responses are requested
+     */
+    public boolean isBinaryWireFormat() {
+        return binaryWireFormat;
+    }
+
     /**
      * Send a JSON-RPC request to the server and return a JSON-RPC response.
      *
@@ -85,38 +163,129 @@ public class RPCClient extends AbstractRPCClient {
      */
     @Override
     protected <R> JsonRpcResponse<R> send(JsonRpcRequest request, JavaType responseType) throws IOException, JsonRPCStatusException {
-        HttpURLConnection connection = openConnection();
+        return send(request, responseType, Collections.emptyMap());
+    }
 
-        // TODO: Make sure HTTP keep-alive will work
-        // See: http://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html
-        // http://developer.android.com/reference/java/net/HttpURLConnection.html
-        // http://android-developers.blogspot.com/2011/09/androids-http-clients.html
+    /**
+     * Send a JSON-RPC request to the server and return a JSON-RPC response.
+     *
+     * @param request JSON-RPC request
+     * @param responseType Response type to deserialize to
+     * @param attributes Per-call attributes for Jackson's `DeserializationContext`
+     * @return JSON-RPC response
+     * @throws IOException when thrown by the underlying HttpURLConnection
+     * @throws JsonRPCStatusException when the HTTP response code is other than 200
+     */
+    @Override
+    protected <R> JsonRpcResponse<R> send(JsonRpcRequest request, JavaType responseType, Map<?, ?> attributes) throws IOException, JsonRPCStatusException {
+        return post(request, responseType, attributes);
+    }
 
-        if (log.isDebugEnabled()) {
-            log.debug("Req json: {}", mapper.writeValueAsString(request));
+    /**
+     * Send requests as a single JSON-RPC batch (one HTTP request)
+     *
+     * @param requests JSON-RPC requests
+     * @param responseType Response type of every request
+     * @return JSON-RPC responses in the order of `requests` (errors for individual requests are in their responses)
+     * @throws IOException when thrown by the underlying HttpURLConnection
+     * @throws JsonRPCStatusException when the HTTP response code is other than 200
+     */
+    @Override
+    protected <R> List<JsonRpcResponse<R>> sendBatch(List<JsonRpcRequest> requests, JavaType responseType) throws IOException, JsonRPCStatusException {
+        if (requests.isEmpty()) {
+            return Collections.emptyList();
+        }
+        JavaType batchType = mapper.getTypeFactory().constructCollectionType(List.class, responseType);
+        List<JsonRpcResponse<R>> responses = post(requests, batchType, Collections.emptyMap());
+        // Responses to a batch may be in any order
+        Map<String, JsonRpcResponse<R>> byId = new HashMap<>();
+        for (JsonRpcResponse<R> response : responses) {
+            byId.put(response.getId(), response);
+        }
+        List<JsonRpcResponse<R>> ordered = new ArrayList<>(requests.size());
+        for (JsonRpcRequest request : requests) {
+            JsonRpcResponse<R> response = byId.get(request.getId());
+            if (response == null) {
+                throw new JsonRPCException("No response for request " + request.getId() + " in batch");
+            }
+            ordered.add(response);
         }
+        return ordered;
+    }
 
-        OutputStream requestStream = connection.getOutputStream();
-        mapper.writeValue(requestStream, request);
-        requestStream.close();
+    /**
+     * Call an RPC method and copy the `result` of the response to a generator, token by token
+     *
+     * The result is never bound to objects or held in memory as a whole, so memory use does not depend on its size
+     * (e.g. `getrawmempool true` or `listunspent` on a large node). The generator decides the output format,
+     * e.g. pretty-printed JSON. Since the result is written while it is read, a network error can leave partial
+     * output.
+     *
+     * @param method JSON RPC method call to send
+     * @param params JSON RPC params
+     * @param generator Destination of the result (not flushed or closed)
+     * @return `false` if the result is `null` (nothing is written)
+     * @throws IOException network error or error writing to `generator`
+     * @throws JsonRPCStatusException JSON RPC status error
+     */
+    public boolean sendAndCopyResult(String method, List<Object> params, JsonGenerator generator) throws IOException, JsonRPCStatusException {
+        HttpURLConnection connection = postRequest(buildJsonRequest(method, params));
+        boolean copied = false;
+        JsonRpcError error = null;
+        try {
+            JsonFactory factory = isSmileResponse(connection) ? smileFactory : mapper.getFactory();
+            try (JsonParser parser = factory.createParser(connection.getInputStream())) {
+                parser.setCodec(mapper);
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new JsonRPCException("Invalid JSON-RPC response to " + method);
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (value == JsonToken.VALUE_NULL) {
+                        continue;
+                    }
+                    if (field.equals("result")) {
+                        generator.copyCurrentStructure(parser);
+                        copied = true;
+                    } else if (field.equals("error")) {
+                        error = parser.readValueAs(JsonRpcError.class);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+        if (error != null && error.getCode() != 0) {
+            throw new JsonRPCStatusException(error.getMessage(), 200, null, error.getCode(), null, null);
+        }
+        return copied;
+    }
 
-        int responseCode = connection.getResponseCode();
-        log.debug("Response code: {}", responseCode);
+    /**
+     * POST a request (or a batch of requests) and read the response
+     */
+    private <T> T post(Object request, JavaType responseType, Map<?, ?> attributes) throws IOException, JsonRPCStatusException {
+        HttpURLConnection connection = postRequest(request);
+        ObjectReader reader = mapper.readerFor(responseType).withAttributes(attributes);
 
-        if (responseCode != 200) {
-            handleBadResponseCode(responseCode, connection);
+        boolean smileResponse = isSmileResponse(connection);
+        if (smileResponse) {
+            reader = reader.with(smileFactory);
         }
 
-        JsonRpcResponse<R> responseJson;
+        T responseJson;
         try {
-            if (log.isDebugEnabled()) {
+            if (log.isDebugEnabled() && !smileResponse) {
                 // If logging enabled, copy InputStream to string and log
                 String responseBody = convertStreamToString(connection.getInputStream());
                 log.debug("responseBody: {}", responseBody);
-                responseJson = mapper.readValue(responseBody, responseType);
+                responseJson = reader.readValue(responseBody);
             } else {
                 // Otherwise convert directly to responseType
-                responseJson = mapper.readValue(connection.getInputStream(), responseType);
+                responseJson = reader.readValue(connection.getInputStream());
             }
         } catch (JsonProcessingException e) {
             log.error("JsonProcessingException: {}", e);
@@ -128,6 +297,51 @@ public class RPCClient extends AbstractRPCClient {
         return responseJson;
     }
 
+    /**
+     * POST a request (or a batch of requests) and check the response code
+     *
+     * @return The connection, ready to read the response body
+     */
+    private HttpURLConnection postRequest(Object request) throws IOException, JsonRPCStatusException {
+        boolean smileRequest = binaryWireFormat && serverSpeaksSmile;
+        HttpURLConnection connection = openConnection(smileRequest);
+
+        // TODO: Make sure HTTP keep-alive will work
+        // See: http://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html
+        // http://developer.android.com/reference/java/net/HttpURLConnection.html
+        // http://android-developers.blogspot.com/2011/09/androids-http-clients.html
+
+        if (log.isDebugEnabled()) {
+            log.debug("Req json: {}", mapper.writeValueAsString(request));
+        }
+
+        OutputStream requestStream = connection.getOutputStream();
+        if (smileRequest) {
+            JsonGenerator generator = smileFactory.createGenerator(requestStream);
+            mapper.writeValue(generator, request);
+            generator.close();
+        } else {
+            mapper.writeValue(requestStream, request);
+        }
+        requestStream.close();
+
+        int responseCode = connection.getResponseCode();
+        log.debug("Response code: {}", responseCode);
+
+        if (responseCode != 200) {
+            handleBadResponseCode(responseCode, connection);
+        }
+        return connection;
+    }
+
+    private boolean isSmileResponse(HttpURLConnection connection) {
+        boolean smileResponse = BinaryWireFormat.isSmile(connection.getContentType());
+        if (smileResponse) {
+            serverSpeaksSmile = true;
+        }
+        return smileResponse;
+    }
+
     // Prepare and throw JsonRPCStatusException with all relevant info
     private void handleBadResponseCode(int responseCode, HttpURLConnection connection) throws IOException, JsonRPCStatusException {
         String responseMessage = connection.getResponseMessage();
@@ -137,9 +351,12 @@ public class RPCClient extends AbstractRPCClient {
         String bodyString = null;           // Body as String if not JSON
         InputStream errorStream = connection.getErrorStream();
         if (errorStream != null) {
-            if (connection.getContentType().equals("application/json")) {
-                // We got a JSON error response, parse it
-                bodyJson = mapper.readValue(errorStream, JsonRpcResponse.class);
+            String contentType = connection.getContentType();
+            boolean smileResponse = BinaryWireFormat.isSmile(contentType);
+            if (smileResponse || "application/json".equals(contentType)) {
+                // We got a JSON (or Smile) error response, parse it
+                ObjectReader reader = mapper.readerFor(JsonRpcResponse.class);
+                bodyJson = (smileResponse ? reader.with(smileFactory) : reader).readValue(errorStream);
                 JsonRpcError error = bodyJson.getError();
                 if (error != null) {
                     // If there's a more specific message in the JSON use it instead.
@@ -162,14 +379,21 @@ public class RPCClient extends AbstractRPCClient {
         return s.hasNext() ? s.next() : "";
     }
 
-    private HttpURLConnection openConnection() throws IOException {
-        HttpURLConnection connection =  (HttpURLConnection) serverURI.toURL().openConnection();
+    private HttpURLConnection openConnection(boolean smileRequest) throws IOException {
+        HttpURLConnection connection =  (HttpURLConnection) requestURI.toURL().openConnection();
         connection.setDoOutput(true); // For writes
         connection.setRequestMethod("POST");
 //        connection.setRequestProperty("Accept-Charset", StandardCharsets.UTF_8.toString());
 //        connection.setRequestProperty("Content-Type", " application/json;charset=" + StandardCharsets.UTF_8.toString());
         connection.setRequestProperty("Accept-Charset", "UTF-8");
-        connection.setRequestProperty("Content-Type", "application/json;charset=" +  "UTF-8");
+        if (smileRequest) {
+            connection.setRequestProperty("Content-Type", BinaryWireFormat.SMILE_MEDIA_TYPE);
+        } else {
+            connection.setRequestProperty("Content-Type", "application/json;charset=" +  "UTF-8");
+        }
+        if (binaryWireFormat) {
+            connection.setRequestProperty("Accept", BinaryWireFormat.ACCEPT_SMILE_OR_JSON);
+        }
         connection.setRequestProperty("Connection", "close");   // Avoid EOFException: http://stackoverflow.com/questions/19641374/android-eofexception-when-using-httpurlconnection-headers
 
         String auth = username + ":" + password;
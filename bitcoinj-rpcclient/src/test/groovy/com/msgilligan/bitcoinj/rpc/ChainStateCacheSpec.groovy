@@ -0,0 +1,234 @@
+package com.msgilligan.bitcoinj.rpc
+
+import com.fasterxml.jackson.databind.JavaType
+import com.msgilligan.bitcoinj.json.pojo.ServerInfo
+import com.msgilligan.bitcoinj.json.pojo.SmartFeeEstimate
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.params.RegTestParams
+import org.consensusj.jsonrpc.RPCClient
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Spock Spec for ChainStateCache
+ */
+class ChainStateCacheSpec extends Specification {
+    def cache = new ChainStateCache()
+    def calls = new AtomicInteger()
+    def loader = { calls.incrementAndGet() } as ChainStateCache.Loader
+
+    def "results are memoized until the tip changes"() {
+        when:
+        def first = cache.get("getblockchaininfo", loader)
+        def second = cache.get("getblockchaininfo", loader)
+
+        then:
+        first == 1
+        second == 1
+        cache.getHitCount("getblockchaininfo") == 1
+        cache.getMissCount("getblockchaininfo") == 1
+
+        when:
+        cache.tipChanged()
+
+        then:
+        cache.get("getblockchaininfo", loader) == 2
+        cache.avoidedCalls == [getblockchaininfo: 1L]
+    }
+
+    def "a new block count changes the tip"() {
+        given:
+        cache.observeBlockCount(100)
+        cache.get("getinfo", loader)
+
+        when:
+        cache.observeBlockCount(100)
+
+        then:
+        cache.get("getinfo", loader) == 1
+
+        when:
+        cache.observeBlockCount(101)
+
+        then:
+        cache.get("getinfo", loader) == 2
+    }
+
+    def "results that don't depend on the tip expire"() {
+        given:
+        cache.setPolicy("getnetworkinfo", false, 50)
+        cache.get("getnetworkinfo", loader)
+
+        when:
+        cache.tipChanged()
+
+        then:
+        cache.get("getnetworkinfo", loader) == 1
+
+        when:
+        Thread.sleep(100)
+
+        then:
+        cache.get("getnetworkinfo", loader) == 2
+    }
+
+    def "results are memoized per parameters"() {
+        when:
+        def two = cache.get("estimatesmartfee", [2], loader)
+        def six = cache.get("estimatesmartfee", [6], loader)
+
+        then:
+        two == 1
+        six == 2
+        cache.get("estimatesmartfee", [2], loader) == 1
+        cache.get("estimatesmartfee", [6], loader) == 2
+
+        when:
+        cache.tipChanged()
+
+        then:
+        cache.get("estimatesmartfee", [2], loader) == 3
+    }
+
+    def "invalidating a method drops its results for all parameters"() {
+        given:
+        cache.get("estimatefee", [2], loader)
+        cache.get("estimatefee", [6], loader)
+        cache.get("getdifficulty", loader)
+
+        when:
+        cache.invalidate("estimatefee")
+
+        then:
+        cache.get("estimatefee", [2], loader) == 4
+        cache.get("estimatefee", [6], loader) == 5
+        cache.get("getdifficulty", loader) == 3
+    }
+
+    def "BitcoinClient memoizes difficulty and fee estimates until the tip changes"() {
+        given:
+        BitcoinClient client = Spy(constructorArgs: [RegTestParams.get(), new URI("http://localhost:18443"), "user", "pass"])
+        client.chainStateCache = cache
+        def estimate = new SmartFeeEstimate(new BigDecimal("0.0002"), null, 2)
+
+        when:
+        def difficulty = client.getDifficulty()
+        client.getDifficulty()
+        def fee = client.estimateFee(6)
+        client.estimateFee(6)
+        def smart = client.estimateSmartFee(2)
+        client.estimateSmartFee(2)
+
+        then:
+        1 * client.send("getdifficulty", _ as JavaType, []) >> new BigDecimal("4.6565423739069247E-10")
+        1 * client.send("estimatefee", _ as JavaType, [6]) >> new BigDecimal("0.0001")
+        1 * client.send("estimatesmartfee", _ as JavaType, [2]) >> estimate
+        difficulty == new BigDecimal("4.6565423739069247E-10")
+        fee == new BigDecimal("0.0001")
+        smart.is(estimate)
+
+        when:
+        cache.tipChanged()
+        client.estimateSmartFee(2)
+        client.estimateSmartFee(6)
+
+        then:
+        1 * client.send("estimatesmartfee", _ as JavaType, [2]) >> estimate
+        1 * client.send("estimatesmartfee", _ as JavaType, [6]) >> estimate
+    }
+
+    def "BitcoinClient sends invalidate getinfo"() {
+        given:
+        def params = RegTestParams.get()
+        BitcoinClient client = Spy(constructorArgs: [params, new URI("http://localhost:18443"), "user", "pass"])
+        client.chainStateCache = cache
+        def info = Stub(ServerInfo)
+        def address = new ECKey().toAddress(params)
+
+        when:
+        client.getInfo()
+        client.getInfo()
+
+        then:
+        1 * client.send("getinfo", _ as JavaType, []) >> info
+
+        when:
+        client.sendToAddress(address, Coin.CENT)
+        client.getInfo()
+
+        then:
+        1 * client.send("sendtoaddress", *_) >> Sha256Hash.ZERO_HASH
+        1 * client.send("getinfo", _ as JavaType, []) >> info
+
+        when:
+        client.sendMany("", [(address): Coin.CENT])
+        client.getInfo()
+
+        then:
+        1 * client.send("sendmany", *_) >> Sha256Hash.ZERO_HASH
+        1 * client.send("getinfo", _ as JavaType, []) >> info
+    }
+
+    def "other methods and failures aren't memoized"() {
+        given:
+        def failing = { throw new IOException("connection refused") } as ChainStateCache.Loader
+
+        expect:
+        cache.get("getblockcount", loader) == 1
+        cache.get("getblockcount", loader) == 2
+
+        when:
+        cache.get("getchaintips", failing)
+
+        then:
+        thrown(IOException)
+        cache.get("getchaintips", loader) == 3
+    }
+
+    def "concurrent misses share one call"() {
+        given:
+        def release = new CountDownLatch(1)
+        def slow = { release.await(); calls.incrementAndGet() } as ChainStateCache.Loader
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+        def futures = (1..8).collect { executor.submit({ cache.get("getblockchaininfo", slow) } as java.util.concurrent.Callable) }
+        Thread.sleep(100)
+        release.countDown()
+        def results = futures*.get(5, TimeUnit.SECONDS)
+
+        then:
+        results == [1] * 8
+        calls.get() == 1
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "caches are shared per endpoint"() {
+        expect:
+        ChainStateCache.forEndpoint(new URI("http://localhost:18443")).is(ChainStateCache.forEndpoint(new URI("http://localhost:18443")))
+        !ChainStateCache.forEndpoint(new URI("http://localhost:18443")).is(ChainStateCache.forEndpoint(new URI("http://localhost:8332")))
+    }
+
+    def "clients of different wallets don't share a cache"() {
+        given:
+        def alice = new RPCClient(new URI("http://localhost:18443"), "user", "pass")
+        def bob = new RPCClient(new URI("http://localhost:18443"), "user", "pass")
+        def other = new RPCClient(new URI("http://localhost:18443"), "user", "pass")
+        alice.walletName = "alice"
+        bob.walletName = "bob"
+        other.walletName = "alice"
+
+        expect:
+        !ChainStateCache.forEndpoint(alice.requestURI).is(ChainStateCache.forEndpoint(bob.requestURI))
+        ChainStateCache.forEndpoint(alice.requestURI).is(ChainStateCache.forEndpoint(other.requestURI))
+        !ChainStateCache.forEndpoint(alice.requestURI).is(ChainStateCache.forEndpoint(alice.serverURI))
+    }
+}
@@ -0,0 +1,105 @@
+package com.msgilligan.bitcoinj.rpc
+
+import com.msgilligan.bitcoinj.rpc.index.TestChain
+import org.bitcoinj.core.Block
+import org.bitcoinj.core.Sha256Hash
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+/**
+ * Spock Spec for DiskBlockCache
+ */
+class DiskBlockCacheSpec extends Specification {
+    def params = TestChain.params
+    def address = TestChain.newAddress()
+    File directory
+
+    def setup() {
+        directory = Files.createTempDirectory("blockcache").toFile()
+    }
+
+    def cleanup() {
+        directory.deleteDir()
+    }
+
+    def "blocks are found by hash and height"() {
+        given:
+        def chain = new TestChain()
+        3.times { chain.add(address) }
+        def cache = new DiskBlockCache(params, directory)
+
+        when:
+        cache.put(0, chain.blocks[0])
+        cache.put(-1, chain.blocks[1])
+
+        then:
+        cache.size() == 2
+        cache.get(chain.blocks[0].hash) == chain.blocks[0]
+        cache.get(chain.blocks[1].hash) == chain.blocks[1]
+        cache.get(0).hash == chain.blocks[0].hash
+        cache.get(1) == null
+        cache.get(chain.blocks[2].hash) == null
+        cache.hitCount == 3
+        cache.missCount == 2
+
+        cleanup:
+        cache.close()
+    }
+
+    def "the cache survives a restart and rolls segments"() {
+        given:
+        def chain = new TestChain()
+        50.times { chain.add(address) }
+        def cache = new DiskBlockCache(params, directory, 1000)
+        chain.blocks.eachWithIndex { block, height -> cache.put(height, block) }
+        cache.close()
+
+        when:
+        def reopened = new DiskBlockCache(params, directory, 1000)
+        def fork = chain.addOn(chain.blocks[48], address)
+        reopened.put(49, fork)
+
+        then:
+        directory.list().findAll { it.startsWith("blocks-") }.size() > 1
+        reopened.size() == 51
+        (0..48).every { reopened.get(it).hash == chain.blocks[it].hash }
+        reopened.get(49).hash == fork.hash
+
+        cleanup:
+        reopened?.close()
+    }
+
+    def "segments larger than 4 GiB are rejected"() {
+        when:
+        new DiskBlockCache(params, directory, DiskBlockCache.MAX_SEGMENT_SIZE + 1)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "BitcoinClient fetches each block only once"() {
+        given:
+        def chain = new TestChain()
+        def block = chain.add(address)
+        def cache = new DiskBlockCache(params, directory)
+        BitcoinClient client = Spy(constructorArgs: [params, new URI("http://localhost:18443"), "user", "pass"])
+        client.blockCache = cache
+
+        when:
+        def first = client.getBlock(0)
+        def second = client.getBlock(0)
+        def third = client.getBlock(block.hash)
+
+        then:
+        2 * client.getBlockHash(0) >> block.hash
+        1 * client.send("getblock", Block.class, [block.hash, false]) >> block
+        first.hash == block.hash
+        second.hash == block.hash
+        third.hash == block.hash
+        cache.get(0).hash == block.hash
+
+        cleanup:
+        cache.close()
+    }
+}
@@ -0,0 +1,154 @@
+package com.msgilligan.bitcoinj.rpc
+
+import org.bitcoinj.core.Address
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.params.RegTestParams
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Spock Spec for PayoutBatcher
+ */
+class PayoutBatcherSpec extends Specification {
+    static final params = RegTestParams.get()
+    List<Map<Address, Coin>> sent = new CopyOnWriteArrayList<>()
+    PayoutBatcher.Sender sender = { Map<Address, Coin> outputs ->
+        sent.add(new LinkedHashMap<>(outputs))
+        return Sha256Hash.of(outputs.toString().bytes)
+    } as PayoutBatcher.Sender
+
+    def "a full batch is sent as one transaction"() {
+        given:
+        def batcher = new PayoutBatcher(sender, 3, 60000)
+        def addresses = (0..<3).collect { new ECKey().toAddress(params) }
+
+        when:
+        def futures = addresses.collect { batcher.pay(it, Coin.CENT) }
+        def txids = futures.collect { it.get(5, TimeUnit.SECONDS) }
+
+        then:
+        sent.size() == 1
+        sent[0].keySet() as List == addresses
+        txids.toSet().size() == 1
+        batcher.batchesSent == 1
+        batcher.paymentsSent == 3
+        batcher.pendingCount == 0
+
+        cleanup:
+        batcher.close()
+    }
+
+    def "a partial batch is sent when the delay expires"() {
+        given:
+        def batcher = new PayoutBatcher(sender, 100, 50)
+        def address = new ECKey().toAddress(params)
+
+        when:
+        def first = batcher.pay(address, Coin.CENT)
+        def second = batcher.pay(address, Coin.COIN)
+
+        then:
+        first.get(5, TimeUnit.SECONDS) == second.get(5, TimeUnit.SECONDS)
+        sent == [[(address): Coin.COIN.add(Coin.CENT)]]      // payments to the same address are combined
+
+        cleanup:
+        batcher.close()
+    }
+
+    def "close sends queued payments and rejects new ones"() {
+        given:
+        def batcher = new PayoutBatcher(sender, 100, 60000)
+        def future = batcher.pay(new ECKey().toAddress(params), Coin.CENT)
+
+        when:
+        batcher.close()
+
+        then:
+        future.done
+        sent.size() == 1
+
+        when:
+        batcher.pay(new ECKey().toAddress(params), Coin.CENT)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "flush waits for a batch that is being sent on the scheduler"() {
+        given:
+        def active = new AtomicInteger()
+        def overlapped = new AtomicBoolean()
+        def started = new CountDownLatch(1)
+        def slow = { Map<Address, Coin> outputs ->
+            if (active.incrementAndGet() > 1) {
+                overlapped.set(true)
+            }
+            started.countDown()
+            Thread.sleep(100)
+            sent.add(new LinkedHashMap<>(outputs))
+            active.decrementAndGet()
+            return Sha256Hash.of(outputs.toString().bytes)
+        } as PayoutBatcher.Sender
+        def batcher = new PayoutBatcher(slow, 2, 60000)
+
+        when: "a full batch is being sent when the next payment is flushed"
+        def full = (0..<2).collect { batcher.pay(new ECKey().toAddress(params), Coin.CENT) }
+        started.await(5, TimeUnit.SECONDS)
+        def queued = batcher.pay(new ECKey().toAddress(params), Coin.CENT)
+        batcher.flush()
+
+        then:
+        queued.done
+        full.collect { it.get(5, TimeUnit.SECONDS) }.toSet().size() == 1
+        !overlapped.get()
+        sent*.size() == [2, 1]
+
+        cleanup:
+        batcher.close()
+    }
+
+    def "a failed batch fails the futures of all its payments"() {
+        given:
+        def failing = { Map<Address, Coin> outputs -> throw new IOException("Insufficient funds") } as PayoutBatcher.Sender
+        def batcher = new PayoutBatcher(failing, 2, 60000)
+
+        when:
+        def futures = (0..<2).collect { batcher.pay(new ECKey().toAddress(params), Coin.CENT) }
+        futures.each {
+            try {
+                it.get(5, TimeUnit.SECONDS)
+            } catch (ExecutionException e) {
+                assert e.cause.message == "Insufficient funds"
+            }
+        }
+
+        then:
+        futures.every { it.done }
+        batcher.batchesSent == 0
+
+        cleanup:
+        batcher.close()
+    }
+
+    def "sendMany sender calls sendmany"() {
+        given:
+        BitcoinClient client = Mock()
+        def outputs = [(new ECKey().toAddress(params)): Coin.CENT]
+        def txid = Sha256Hash.of([1] as byte[])
+
+        when:
+        def result = PayoutBatcher.sendMany(client, "").send(outputs)
+
+        then:
+        1 * client.sendMany("", outputs) >> txid
+        result == txid
+    }
+}
@@ -0,0 +1,180 @@
+package com.msgilligan.bitcoinj.rpc
+
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.core.Transaction
+import org.bitcoinj.core.TransactionInput
+import org.bitcoinj.core.TransactionOutPoint
+import org.bitcoinj.params.RegTestParams
+import org.consensusj.jsonrpc.JsonRPCStatusException
+import org.consensusj.jsonrpc.JsonRpcError
+import org.consensusj.jsonrpc.JsonRpcResponse
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+import static com.msgilligan.bitcoinj.rpc.BroadcastResult.Status.*
+
+/**
+ * Spock Spec for TransactionBroadcaster
+ */
+class TransactionBroadcasterSpec extends Specification {
+    static final params = RegTestParams.get()
+    static final payee = new ECKey().toAddress(params)
+
+    def "children are submitted after their parents are accepted"() {
+        given:
+        def a = spending(external(1))
+        def b = spending(new TransactionOutPoint(params, 0, a.hash))
+        def c = spending(new TransactionOutPoint(params, 0, b.hash), new TransactionOutPoint(params, 1, a.hash))
+        def independent = (2..20).collect { spending(external(it)) }
+        def all = [c, b] + independent + [a]
+        List<Sha256Hash> submitted = new CopyOnWriteArrayList<>()
+        BitcoinClient client = Mock()
+        client.sendRawTransaction(_ as Transaction) >> { Transaction tx -> submitted.add(tx.hash); tx.hash }
+        def broadcaster = new TransactionBroadcaster(client, 4, 1)
+
+        when:
+        def results = broadcaster.broadcast(all)
+
+        then:
+        results*.txid == all*.hash
+        results.every { it.status == ACCEPTED }
+        submitted.size() == all.size()
+        submitted.indexOf(a.hash) < submitted.indexOf(b.hash)
+        submitted.indexOf(b.hash) < submitted.indexOf(c.hash)
+
+        cleanup:
+        broadcaster.close()
+    }
+
+    def "descendants of a rejected transaction are skipped"() {
+        given:
+        def rejected = spending(external(1))
+        def child = spending(new TransactionOutPoint(params, 0, rejected.hash))
+        def grandchild = spending(new TransactionOutPoint(params, 0, child.hash))
+        def known = spending(external(2))
+        def other = spending(new TransactionOutPoint(params, 0, known.hash))
+        BitcoinClient client = Mock()
+        client.sendRawTransaction(rejected) >> { throw rpcError(-26, "16: mandatory-script-verify-flag-failed") }
+        client.sendRawTransaction(known) >> { throw rpcError(-27, "transaction already in block chain") }
+        client.sendRawTransaction(other) >> other.hash
+        def broadcaster = new TransactionBroadcaster(client, 2, 1)
+
+        when:
+        def results = broadcaster.broadcast([grandchild, child, rejected, known, other])
+
+        then:
+        results*.status == [SKIPPED, SKIPPED, REJECTED, ALREADY_KNOWN, ACCEPTED]
+        results[2].errorCode == -26
+        results[1].message.contains(rejected.hash.toString())
+        0 * client.sendRawTransaction(child)
+        0 * client.sendRawTransaction(grandchild)
+
+        cleanup:
+        broadcaster.close()
+    }
+
+    def "ready transactions are submitted in batches"() {
+        given:
+        def parents = (1..10).collect { spending(external(it)) }
+        def children = parents.collect { spending(new TransactionOutPoint(params, 0, it.hash)) }
+        BitcoinClient client = Mock()
+        def batchSizes = new CopyOnWriteArrayList<Integer>()
+        client.sendRawTransactions(_) >> { args ->
+            List<Transaction> batch = args[0]
+            batchSizes.add(batch.size())
+            batch.collect { tx -> tx == parents[3] ? response(null, -25, "Missing inputs") : response(tx.hash, 0, null) }
+        }
+        def broadcaster = new TransactionBroadcaster(client, 1, 4)
+
+        when:
+        def results = broadcaster.broadcast(children + parents)
+
+        then:
+        results.count { it.status == ACCEPTED } == 18
+        results[3].status == SKIPPED
+        results[13].status == REJECTED
+        batchSizes.every { it <= 4 }
+        batchSizes.sum() == 19
+        0 * client.sendRawTransaction(_)
+
+        cleanup:
+        broadcaster.close()
+    }
+
+    def "network errors are reported as failures"() {
+        given:
+        def tx = spending(external(1))
+        BitcoinClient client = Mock()
+        client.sendRawTransaction(tx) >> { throw new SocketTimeoutException("Read timed out") }
+        def broadcaster = new TransactionBroadcaster(client, 1, 1)
+
+        when:
+        def results = broadcaster.broadcast([tx])
+
+        then:
+        results[0].status == FAILED
+        !results[0].accepted
+
+        cleanup:
+        broadcaster.close()
+    }
+
+    @Timeout(10)
+    def "errors thrown by the client are reported as failures"() {
+        given:
+        def tx = spending(external(1))
+        BitcoinClient client = Mock()
+        client.sendRawTransaction(tx) >> { throw new NoClassDefFoundError("org/example/Missing") }
+        def broadcaster = new TransactionBroadcaster(client, 1, 1)
+
+        when:
+        def results = broadcaster.broadcast([tx])
+
+        then:
+        results[0].status == FAILED
+        results[0].message.contains("NoClassDefFoundError")
+
+        cleanup:
+        broadcaster.close()
+    }
+
+    def "duplicate transactions are rejected"() {
+        given:
+        def tx = spending(external(1))
+
+        when:
+        new TransactionBroadcaster(Mock(BitcoinClient), 1, 1).broadcast([tx, tx])
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    static TransactionOutPoint external(int n) {
+        return new TransactionOutPoint(params, 0, Sha256Hash.of([n] as byte[]))
+    }
+
+    static Transaction spending(TransactionOutPoint... outPoints) {
+        def tx = new Transaction(params)
+        outPoints.each { tx.addInput(new TransactionInput(params, tx, new byte[0], it)) }
+        tx.addOutput(Coin.CENT, payee)
+        tx.addOutput(Coin.CENT, payee)
+        return tx
+    }
+
+    static JsonRPCStatusException rpcError(int code, String message) {
+        return new JsonRPCStatusException(message, 500, "Internal Server Error", code, null, null)
+    }
+
+    static JsonRpcResponse<Sha256Hash> response(Sha256Hash txid, int code, String message) {
+        def response = new JsonRpcResponse<Sha256Hash>()
+        response.result = txid
+        if (message != null) {
+            response.error = new JsonRpcError(code: code, message: message)
+        }
+        return response
+    }
+}
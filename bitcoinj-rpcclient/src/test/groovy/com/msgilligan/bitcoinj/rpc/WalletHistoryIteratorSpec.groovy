@@ -0,0 +1,138 @@
+package com.msgilligan.bitcoinj.rpc
+
+import com.msgilligan.bitcoinj.json.pojo.WalletTransactionItem
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.Sha256Hash
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+/**
+ * Spock Spec for WalletHistoryIterator using a mock client
+ */
+class WalletHistoryIteratorSpec extends Specification {
+    // Wallet history, oldest first (as listtransactions returns it)
+    static final List<WalletTransactionItem> history = (0..<25).collect { item(it) }
+
+    BitcoinClient client = Mock()
+
+    def "iterates newest first, one page at a time"() {
+        given:
+        def iterator = new WalletHistoryIterator(client, "*", 10, null, null)
+
+        when:
+        def first = iterator.next()
+
+        then:
+        1 * client.listTransactions("*", 10, 0, null) >> page(10, 0)
+        0 * client._
+        first.time == 24
+
+        when:
+        def rest = iterator.collect { it.time }
+
+        then:
+        1 * client.listTransactions("*", 10, 10, null) >> page(10, 10)
+        1 * client.listTransactions("*", 10, 20, null) >> page(10, 20)
+        rest == (23..0).toList()
+        !iterator.hasNext()
+    }
+
+    def "next page is prefetched on the executor"() {
+        given:
+        def tasks = []
+        Executor executor = { Runnable task -> tasks << task } as Executor
+        def iterator = new WalletHistoryIterator(client, "*", 10, null, executor)
+
+        when:
+        def firstPage = iterator.nextPage()
+
+        then:
+        1 * client.listTransactions("*", 10, 0, null) >> page(10, 0)
+        firstPage*.time == (24..15).toList()
+        tasks.size() == 1
+
+        when:
+        tasks[0].run()
+
+        then:
+        1 * client.listTransactions("*", 10, 10, null) >> page(10, 10)
+
+        when:
+        def secondPage = iterator.nextPage()
+
+        then:
+        0 * client.listTransactions(*_)
+        secondPage*.time == (14..5).toList()
+        tasks.size() == 2
+
+        cleanup:
+        iterator.close()
+    }
+
+    def "iterates the whole history with a thread pool"() {
+        given:
+        def executor = Executors.newSingleThreadExecutor()
+        client.listTransactions("*", 7, _, null) >> { String account, Integer count, Integer skip, Boolean watchOnly ->
+            page(count, skip)
+        }
+        def iterator = new WalletHistoryIterator(client, "*", 7, null, executor)
+
+        expect:
+        iterator.collect { it.txid } == history.reverse()*.txid
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "fetch errors are thrown from next"() {
+        given:
+        def iterator = new WalletHistoryIterator(client, "*", 10, null, null)
+        client.listTransactions(*_) >> { throw new IOException("Connection refused") }
+
+        when:
+        iterator.next()
+
+        then:
+        RuntimeException e = thrown()
+        e.cause.message == "Connection refused"
+    }
+
+    def "a failed prefetch is retried by the next call"() {
+        given:
+        def tasks = []
+        Executor executor = { Runnable task -> tasks << task } as Executor
+        def iterator = new WalletHistoryIterator(client, "*", 10, null, executor)
+        client.listTransactions("*", 10, 0, null) >> page(10, 0)
+        iterator.nextPage()
+
+        when:
+        tasks[0].run()
+        iterator.nextPage()
+
+        then:
+        1 * client.listTransactions("*", 10, 10, null) >> { throw new IOException("Connection refused") }
+        thrown(IOException)
+
+        when:
+        def retried = iterator.nextPage()
+
+        then:
+        1 * client.listTransactions("*", 10, 10, null) >> page(10, 10)
+        retried*.time == (14..5).toList()
+
+        cleanup:
+        iterator.close()
+    }
+
+    static List<WalletTransactionItem> page(int count, int skip) {
+        int end = Math.max(history.size() - skip, 0)
+        return history.subList(Math.max(end - count, 0), end)
+    }
+
+    static WalletTransactionItem item(int n) {
+        return new WalletTransactionItem(null, null, "receive", Coin.CENT, null, 0, null, 1, false,
+                null, 0, n, Sha256Hash.of("tx$n".bytes), [], n, n, "no")
+    }
+}
@@ -0,0 +1,86 @@
+package com.msgilligan.bitcoinj.rpc.bench
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Spock Spec for LatencyHistogram
+ */
+class LatencyHistogramSpec extends Specification {
+
+    def "small values are exact"() {
+        given:
+        def histogram = new LatencyHistogram()
+
+        when:
+        (1..100).each { histogram.record(it) }
+
+        then:
+        histogram.count == 100
+        histogram.min == 1
+        histogram.max == 100
+        histogram.mean == 50.5d
+        histogram.getValueAtPercentile(50) == 50
+        histogram.getValueAtPercentile(99) == 99
+        histogram.getValueAtPercentile(100) == 100
+    }
+
+    @Unroll
+    def "percentile of #value is within 1/64 above it"() {
+        given:
+        def histogram = new LatencyHistogram()
+        histogram.record(1)
+        histogram.record(value)
+
+        expect:
+        def p50 = histogram.getValueAtPercentile(50)
+        p50 == 1
+        def p100 = histogram.getValueAtPercentile(100)
+        p100 == value       // Capped by the maximum
+
+        and: "the bucket's highest value is close to the value"
+        def high = LatencyHistogram.highestInBucket(LatencyHistogram.bucketOf(value))
+        high >= value
+        high - value <= value / 64
+
+        where:
+        value << [127L, 128L, 1000L, 123_456L, 10_000_000_000L, Long.MAX_VALUE]
+    }
+
+    def "buckets are contiguous"() {
+        expect:
+        (127L..5000L).every { LatencyHistogram.bucketOf(it) == LatencyHistogram.bucketOf(it - 1) ||
+                LatencyHistogram.bucketOf(it) == LatencyHistogram.bucketOf(it - 1) + 1 }
+        LatencyHistogram.highestInBucket(LatencyHistogram.bucketOf(Long.MAX_VALUE)) == Long.MAX_VALUE
+    }
+
+    def "histograms can be added"() {
+        given:
+        def a = new LatencyHistogram()
+        def b = new LatencyHistogram()
+        (1..10).each { a.record(it) }
+        (91..100).each { b.record(it) }
+
+        when:
+        a.add(b)
+
+        then:
+        a.count == 20
+        a.min == 1
+        a.max == 100
+        a.getValueAtPercentile(50) == 10
+        a.getValueAtPercentile(55) == 91
+    }
+
+    def "empty histogram reports zero"() {
+        given:
+        def histogram = new LatencyHistogram()
+
+        expect:
+        histogram.count == 0
+        histogram.min == 0
+        histogram.max == 0
+        histogram.mean == 0
+        histogram.getValueAtPercentile(99) == 0
+    }
+}
@@ -0,0 +1,81 @@
+package com.msgilligan.bitcoinj.rpc.bench
+
+import org.consensusj.jsonrpc.JsonRPCStatusException
+import org.consensusj.jsonrpc.UntypedRPCClient
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Spock Spec for RpcBenchmark using a mock client
+ */
+class RpcBenchmarkSpec extends Specification {
+    AtomicInteger calls = new AtomicInteger()
+
+    def "closed loop calls the method with its params from all threads"() {
+        given:
+        def client = Mock(UntypedRPCClient)
+        def bench = new RpcBenchmark(client, "getblockhash", [100])
+        bench.concurrency = 4
+        bench.setDuration(200, TimeUnit.MILLISECONDS)
+
+        when:
+        def result = bench.run()
+
+        then:
+        (_..10_000) * client.send("getblockhash", [100]) >> { Thread.sleep(2); calls.incrementAndGet(); "hash" }
+        0 * client.send(*_)
+        result.calls == calls.get()
+        result.calls > 20
+        result.failed == 0
+        result.durationNanos >= 200_000_000L
+        result.throughput > 0
+        result.latency.getValueAtPercentile(50) >= 2000
+        result.toString().startsWith("getblockhash: ")
+    }
+
+    def "target rate paces the calls and errors are counted"() {
+        given:
+        def client = Mock(UntypedRPCClient) {
+            send("getblock", _) >> {
+                if (calls.incrementAndGet() % 2 == 0) {
+                    throw new JsonRPCStatusException("Block not found", 500, "getblock", -5, null, null)
+                }
+                [:]
+            }
+        }
+        def bench = new RpcBenchmark(client, "getblock", ["00"])
+        bench.concurrency = 2
+        bench.targetRate = 100
+        bench.setDuration(300, TimeUnit.MILLISECONDS)
+
+        when:
+        def result = bench.run()
+
+        then: "30 calls are scheduled in 300ms"
+        result.calls >= 29
+        result.calls <= 31
+        result.failed == result.calls.intdiv(2)
+        result.errors.keySet() == ["-5 Block not found"] as Set
+    }
+
+    def "warmup calls are not measured"() {
+        given:
+        def client = Mock(UntypedRPCClient) {
+            send(*_) >> { calls.incrementAndGet(); null }
+        }
+        def bench = new RpcBenchmark(client, "getblockcount", [])
+        bench.targetRate = 100
+        bench.setWarmup(100, TimeUnit.MILLISECONDS)
+        bench.setDuration(100, TimeUnit.MILLISECONDS)
+
+        when:
+        def result = bench.run()
+
+        then:
+        calls.get() >= 19
+        result.calls >= 9
+        result.calls <= 11
+    }
+}
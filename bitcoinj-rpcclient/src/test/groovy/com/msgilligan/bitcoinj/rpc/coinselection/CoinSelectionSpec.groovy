@@ -0,0 +1,191 @@
+package com.msgilligan.bitcoinj.rpc.coinselection
+
+import com.msgilligan.bitcoinj.json.pojo.UnspentOutput
+import com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.core.Transaction
+import org.bitcoinj.params.RegTestParams
+import org.bitcoinj.script.Script
+import org.bitcoinj.script.ScriptBuilder
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Spock Spec for the coin selectors and coin selection in BitcoinExtendedClient
+ */
+class CoinSelectionSpec extends Specification {
+    static final FeeModel fees = new FeeModel(Coin.valueOf(1000))     // 1 satoshi per byte
+
+    def "fees are calculated from the transaction size"() {
+        expect:
+        fees.inputFee() == 148
+        fees.outputFee() == 34
+        fees.baseFee(2) == 10 + 2 * 34
+        fees.costOfChange() == 148 + 34
+        new FeeModel(Coin.valueOf(1500)).fee(225) == 338   // rounded up
+    }
+
+    def "branch and bound finds a selection without change"() {
+        given:
+        long target = 100000
+        long[] values = [500000, 60000 + 148, 40044 + 148, 30000, 250000]   // two inputs match exactly
+
+        when:
+        def selection = new BranchAndBoundSelector().select(values, target, 1, fees)
+
+        then:
+        selection.indices == [1, 2] as int[]
+        !selection.hasChange()
+        selection.fee == 2 * 148 + 44
+        selection.inputTotal - selection.fee == target
+    }
+
+    def "branch and bound gives up if every selection needs change"() {
+        expect:
+        new BranchAndBoundSelector().select([1000000, 2000000] as long[], 100000, 1, fees) == null
+    }
+
+    def "knapsack prefers the smallest single output that leaves change"() {
+        given:
+        long[] values = [5000000, 200000, 30000, 20000]
+
+        when:
+        def selection = new KnapsackSelector(1000, new Random(1)).select(values, 100000, 1, fees)
+
+        then:
+        selection.indices == [1] as int[]
+        selection.hasChange()
+        selection.change == 200000 - 100000 - selection.fee
+        selection.fee == 10 + 2 * 34 + 148
+    }
+
+    def "knapsack combines small outputs"() {
+        given:
+        long[] values = (1..50).collect { 10000L } as long[]
+
+        when:
+        def selection = new KnapsackSelector(1000, new Random(1)).select(values, 100000, 1, fees)
+
+        then:
+        selection.size() == 11      // 10 pay most of the target, 1 more pays the rest, the fees and non-dust change
+        selection.change == 110000 - 100000 - (fees.baseFee(2) + 11 * fees.inputFee())
+    }
+
+    def "largest first uses as few inputs as possible"() {
+        when:
+        def selection = new LargestFirstSelector().select([1000, 70000, 50000, 9000] as long[], 100000, 1, fees)
+
+        then:
+        selection.indices == [1, 2] as int[]
+        selection.change == 120000 - 100000 - selection.fee
+    }
+
+    @Unroll
+    def "#selector.class.simpleName returns null for insufficient funds"() {
+        expect:
+        selector.select([40000, 60000] as long[], 100000, 1, fees) == null
+
+        where:
+        selector << [new BranchAndBoundSelector(), new KnapsackSelector(), new LargestFirstSelector(), new DefaultCoinSelector()]
+    }
+
+    def "outputs worth less than the fee to spend them are never selected"() {
+        when:
+        def selection = new DefaultCoinSelector().select([100, 120, 200000] as long[], 100000, 1, fees)
+
+        then:
+        selection.indices == [2] as int[]
+    }
+
+    def "selected transactions spend only the selected outputs and are signed without fetching transactions"() {
+        given:
+        def params = RegTestParams.get()
+        BitcoinExtendedClient client = Spy(constructorArgs: [params, new URI("http://localhost:18443"), "user", "pass"])
+        client.setCoinSelection(new DefaultCoinSelector(), fees)
+        def key = new ECKey()
+        def from = key.toAddress(params)
+        def to = new ECKey().toAddress(params)
+        def script = ScriptBuilder.createOutputScript(from).program.encodeHex().toString()
+        def unspent = [5, 7, 9, 500].collect { int n ->
+            new UnspentOutput(Sha256Hash.of([n] as byte[]), 0, from, "", script, Coin.CENT.multiply(10 * n), 1, true, true)
+        }
+
+        when:
+        def tx = client.createSignedTransaction(key, to, Coin.valueOf(120000000))
+
+        then:
+        1 * client.listUnspent(0, client.defaultMaxConf, [from]) >> unspent
+        0 * client.getRawTransaction(_)
+        tx.inputs.size() == 2
+        tx.inputs*.outpoint*.hash as Set == [Sha256Hash.of([5] as byte[]), Sha256Hash.of([9] as byte[])] as Set
+        tx.outputs.size() == 2
+        tx.outputs[1].value == Coin.valueOf(140000000 - 120000000 - fees.baseFee(2) - 2 * fees.inputFee())
+        tx.inputs.every { it.scriptSig.chunks.size() == 2 }
+        correctlySpends(tx, ScriptBuilder.createOutputScript(from))
+
+        when: "coin selection is disabled"
+        client.setCoinSelection(null, null)
+        client.createRawTransaction(from, to, Coin.valueOf(120000000))
+
+        then: "all outputs are spent"
+        1 * client.listUnspent(0, client.defaultMaxConf, [from]) >> unspent
+        1 * client.createRawTransaction({ it instanceof List && it.size() == 4 }, _) >> "00"
+    }
+
+    def "selected P2PK outputs are signed against their own script"() {
+        given:
+        def params = RegTestParams.get()
+        BitcoinExtendedClient client = Spy(constructorArgs: [params, new URI("http://localhost:18443"), "user", "pass"])
+        client.setCoinSelection(new LargestFirstSelector(), fees)
+        def key = new ECKey()
+        def from = key.toAddress(params)
+        def p2pkh = ScriptBuilder.createOutputScript(from)
+        def p2pk = ScriptBuilder.createOutputScript(key)
+        def unspent = [
+                new UnspentOutput(Sha256Hash.of([1] as byte[]), 0, from, "", p2pk.program.encodeHex().toString(),
+                        Coin.COIN, 101, true, true),
+                new UnspentOutput(Sha256Hash.of([2] as byte[]), 0, from, "", p2pkh.program.encodeHex().toString(),
+                        Coin.CENT.multiply(50), 1, true, true)
+        ]
+
+        when:
+        def tx = client.createSignedTransaction(key, new ECKey().toAddress(params), Coin.valueOf(120000000))
+
+        then:
+        1 * client.listUnspent(0, client.defaultMaxConf, [from]) >> unspent
+        tx.inputs*.outpoint*.hash == [Sha256Hash.of([1] as byte[]), Sha256Hash.of([2] as byte[])]
+        tx.inputs[0].scriptSig.chunks.size() == 1
+        tx.inputs[1].scriptSig.chunks.size() == 2
+        correctlySpends(tx, [p2pk, p2pkh])
+    }
+
+    def "a null fee model pays the standard fee"() {
+        given:
+        BitcoinExtendedClient client = new BitcoinExtendedClient(RegTestParams.get(), new URI("http://localhost:18443"), "user", "pass")
+
+        when:
+        client.setCoinSelection(new DefaultCoinSelector(), null)
+
+        then:
+        client.feeModel.feePerKb == client.stdTxFee.value
+    }
+
+    /**
+     * @return `true` if every input of `tx` correctly spends an output with `scriptPubKey` (throws otherwise)
+     */
+    static boolean correctlySpends(Transaction tx, Script scriptPubKey) {
+        return correctlySpends(tx, Collections.nCopies(tx.inputs.size(), scriptPubKey))
+    }
+
+    /**
+     * @return `true` if each input of `tx` correctly spends an output with the corresponding `scriptPubKeys` (throws otherwise)
+     */
+    static boolean correctlySpends(Transaction tx, List<Script> scriptPubKeys) {
+        tx.inputs.eachWithIndex { input, i ->
+            input.scriptSig.correctlySpends(tx, i, scriptPubKeys[i])
+        }
+        return true
+    }
+}
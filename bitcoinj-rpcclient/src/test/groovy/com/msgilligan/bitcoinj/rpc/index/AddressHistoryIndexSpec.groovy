@@ -0,0 +1,282 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import org.bitcoinj.core.Coin
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+/**
+ * Spock Spec for AddressHistoryIndex
+ */
+class AddressHistoryIndexSpec extends Specification {
+    def alice = TestChain.newAddress()
+    def bob = TestChain.newAddress()
+    File file
+
+    def setup() {
+        file = Files.createTempFile("history", ".idx").toFile()
+        file.delete()
+    }
+
+    def cleanup() {
+        file.delete()
+        new File(file.path + ".buckets").delete()
+        new File(file.path + ".dir").delete()
+    }
+
+    def "outputs are listed per address in chain order"() {
+        given:
+        def chain = new TestChain()
+        def index = new AddressHistoryIndex(file, 4)
+        chain.add(alice)
+        def b1 = chain.add(bob)
+        def payment = TestChain.spend(b1.transactions[0], 0, alice, Coin.COIN)
+        chain.add(bob, Coin.FIFTY_COINS, [payment])
+
+        when:
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        def history = index.getReceived(alice)
+
+        then:
+        index.size() == 5
+        history*.height == [0, 2]
+        history[1].txid == payment.hash
+        history[1].value == Coin.COIN
+        index.getReceived(bob)*.height == [1, 2]
+        index.getReceived(alice, 1)*.height == [2]
+        index.getReceived(TestChain.newAddress()) == []
+
+        cleanup:
+        index.close()
+    }
+
+    def "disconnecting truncates back to the fork height"() {
+        given:
+        def chain = new TestChain()
+        def index = new AddressHistoryIndex(file, 4)
+        chain.add(alice)
+        chain.add(bob)
+        def b2 = chain.add(alice)
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+
+        when:
+        index.blockDisconnected(2, b2)
+        def fork = chain.addOn(chain.blocks[1], bob)
+        index.blockConnected(2, fork)
+
+        then:
+        index.height == 2
+        index.tipHash == fork.hash
+        index.getReceived(alice)*.height == [0]
+        index.getReceived(bob)*.height == [1, 2]
+
+        cleanup:
+        index.close()
+    }
+
+    def "the index survives a restart"() {
+        given:
+        def chain = new TestChain()
+        def index = new AddressHistoryIndex(file, 4)
+        10.times { chain.add(it % 2 ? alice : bob) }
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        index.close()
+
+        when:
+        def reopened = new AddressHistoryIndex(file)
+        def next = chain.add(alice)
+        reopened.blockConnected(10, next)
+
+        then:
+        reopened.height == 10
+        reopened.size() == 11
+        reopened.getReceived(alice)*.height == [1, 3, 5, 7, 9, 10]
+        reopened.getReceived(bob)*.height == [0, 2, 4, 6, 8]
+
+        cleanup:
+        reopened?.close()
+    }
+
+    def "the directory is saved on close and the buckets are rebuilt if it is stale"() {
+        given:
+        def chain = new TestChain()
+        def index = new AddressHistoryIndex(file, 4)
+        6.times { chain.add(it % 2 ? alice : bob) }
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        index.close()
+
+        when: "reopened with the saved table, then a block is added without closing (like a crash)"
+        def reopened = new AddressHistoryIndex(file)
+        reopened.blockConnected(6, chain.add(alice))
+        def recovered = new AddressHistoryIndex(file)
+
+        then:
+        !new File(file.path + ".dir").exists()
+        reopened.getReceived(alice)*.height == [1, 3, 5, 6]
+        recovered.height == 6
+        recovered.getReceived(alice)*.height == [1, 3, 5, 6]
+        recovered.getReceived(bob)*.height == [0, 2, 4]
+
+        cleanup:
+        recovered?.close()
+        reopened?.close()
+    }
+
+    def "an index reopened with the saved directory can be queried and disconnected right away"() {
+        given:
+        def chain = new TestChain()
+        def index = new AddressHistoryIndex(file, 4)
+        10.times { chain.add(it % 2 ? alice : bob) }
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        index.close()
+
+        when:
+        def reopened = new AddressHistoryIndex(file)
+
+        then:
+        reopened.getReceived(alice)*.height == [1, 3, 5, 7, 9]
+
+        when:
+        reopened.blockDisconnected(9, chain.blocks[9])
+
+        then:
+        reopened.height == 8
+        reopened.size() == 9
+        reopened.getReceived(alice)*.height == [1, 3, 5, 7]
+        reopened.getReceived(bob)*.height == [0, 2, 4, 6, 8]
+
+        cleanup:
+        reopened?.close()
+    }
+
+    def "spends are indexed from the index's own records of the spent outputs"() {
+        given:
+        def chain = new TestChain()
+        def index = new AddressHistoryIndex(file, 4)
+        chain.add(alice)
+        def b1 = chain.add(bob)
+        def payment = TestChain.spend(b1.transactions[0], 0, alice, Coin.COIN)
+        def change = TestChain.spend(payment, 0, bob, Coin.CENT)       // Spent in the same block
+        chain.add(alice, Coin.FIFTY_COINS, [payment, change])
+
+        when:
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        def bobs = index.getHistory(bob)
+        def alices = index.getHistory(alice)
+
+        then:
+        bobs*.height == [1, 2, 2]
+        bobs*.spend == [false, true, false]
+        bobs[1].txid == payment.hash
+        bobs[1].index == 0
+        bobs[1].value == Coin.FIFTY_COINS
+        alices*.spend == [false, false, false, true]
+        alices[3].txid == change.hash
+        alices[3].value == Coin.COIN
+        index.getReceived(bob)*.height == [1, 2]
+        index.getHistory(bob, 2)*.spend == [true, false]
+
+        cleanup:
+        index.close()
+    }
+
+    def "the index doesn't depend on the order of listeners on a ChainFollower"() {
+        given: "a UtxoIndex that has already removed the outputs spent by each block"
+        def chain = new TestChain()
+        def utxo = new UtxoIndex()
+        def index = new AddressHistoryIndex(file, 4)
+        def b0 = chain.add(alice)
+        def payment = TestChain.spend(b0.transactions[0], 0, bob, Coin.COIN)
+        chain.add(alice, Coin.FIFTY_COINS, [payment])
+
+        when:
+        chain.blocks.eachWithIndex { block, height ->
+            utxo.blockConnected(height, block)
+            index.blockConnected(height, block)
+        }
+
+        then:
+        index.height == 1
+        index.getHistory(alice)*.spend == [false, false, true]
+        index.getHistory(bob)*.spend == [false]
+        utxo.getBalance(alice) == Coin.FIFTY_COINS
+        utxo.getBalance(bob) == Coin.COIN
+
+        cleanup:
+        index.close()
+    }
+
+    def "outputs spent by a disconnected block can be spent again by a fork"() {
+        given:
+        def chain = new TestChain()
+        def index = new AddressHistoryIndex(file, 4)
+        def b0 = chain.add(alice)
+        def b1 = chain.add(bob, Coin.FIFTY_COINS, [TestChain.spend(b0.transactions[0], 0, bob, Coin.COIN)])
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        index.close()
+
+        when: "reopened from the saved directory, the spend is disconnected and the output spent to someone else"
+        def reopened = new AddressHistoryIndex(file)
+        reopened.blockDisconnected(1, b1)
+        def carol = TestChain.newAddress()
+        def fork = chain.addOn(b0, bob, Coin.FIFTY_COINS, [TestChain.spend(b0.transactions[0], 0, carol, Coin.CENT)])
+        reopened.blockConnected(1, fork)
+
+        then:
+        reopened.getHistory(alice)*.spend == [false, true]
+        reopened.getHistory(alice)[1].txid == fork.transactions[1].hash
+        reopened.getHistory(bob)*.height == [1]
+        reopened.getHistory(carol)*.value == [Coin.CENT]
+        reopened.size() == 4
+
+        cleanup:
+        reopened?.close()
+    }
+
+    def "a block that fails to connect leaves no records and can be retried"() {
+        given:
+        def chain = new TestChain()
+        def index = new AddressHistoryIndex(file, 4)
+        def b0 = chain.add(alice)
+        index.blockConnected(0, b0)
+        def parent = TestChain.spend(b0.transactions[0], 0, bob, Coin.COIN)
+        def bad = TestChain.spend(parent, 0, alice, Coin.CENT)
+        bad.hash
+        bad.@outputs.add(null)      // Fails after the block's other records have been appended
+        def failing = chain.add(alice, Coin.FIFTY_COINS, [parent, bad])
+
+        when:
+        index.blockConnected(1, failing)
+
+        then:
+        thrown(NullPointerException)
+        index.height == 0
+        index.size() == 1
+        index.getHistory(alice)*.height == [0]
+        index.getHistory(bob) == []
+
+        when:
+        def retried = chain.addOn(b0, alice, Coin.FIFTY_COINS, [parent])
+        index.blockConnected(1, retried)
+
+        then:
+        index.height == 1
+        index.size() == 4
+        index.getHistory(alice)*.spend == [false, false, true]
+        index.getHistory(bob)*.spend == [false]
+
+        cleanup:
+        index.close()
+    }
+
+    def "other files are rejected"() {
+        given:
+        file.bytes = new byte[128]
+
+        when:
+        new AddressHistoryIndex(file)
+
+        then:
+        thrown(IOException)
+    }
+}
@@ -0,0 +1,200 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import com.msgilligan.bitcoinj.rpc.BitcoinClient
+import org.bitcoinj.core.Block
+import org.bitcoinj.core.Sha256Hash
+import spock.lang.Specification
+
+/**
+ * Spock Spec for ChainFollower using a mock client
+ */
+class ChainFollowerSpec extends Specification {
+    def address = TestChain.newAddress()
+
+    def "connects new blocks and follows a reorg"() {
+        given:
+        def chain = new TestChain()
+        def stale = [:]
+        def client = mockClient(chain, stale)
+        def connected = []
+        def disconnected = []
+        def follower = new ChainFollower(client)
+        follower.addListener(new ChainListener() {
+            void blockConnected(int height, Block block) { connected << height }
+            void blockDisconnected(int height, Block block) { disconnected << height }
+        })
+        3.times { chain.add(address) }
+
+        when:
+        def count = follower.sync()
+
+        then:
+        count == 3
+        connected == [0, 1, 2]
+        follower.tipHash == chain.blocks[2].hash
+
+        when: "block 2 is replaced by two blocks on a fork"
+        stale[chain.blocks[2].hash] = chain.blocks[2]
+        chain.addOn(chain.blocks[1], address)
+        chain.add(address)
+        connected.clear()
+        count = follower.sync()
+
+        then:
+        disconnected == [2]
+        connected == [2, 3]
+        count == 2
+        follower.tipHash == chain.blocks[3].hash
+    }
+
+    def "resumes from a height and hash"() {
+        given:
+        def chain = new TestChain()
+        def client = mockClient(chain, [:])
+        3.times { chain.add(address) }
+        def follower = new ChainFollower(client, 1, chain.blocks[1].hash)
+        def connected = []
+        follower.addListener(new ChainListener() {
+            void blockConnected(int height, Block block) { connected << height }
+            void blockDisconnected(int height, Block block) { }
+        })
+
+        when:
+        follower.sync()
+
+        then:
+        connected == [2]
+    }
+
+    def "a block a listener fails on is delivered again by the next sync"() {
+        given:
+        def chain = new TestChain()
+        def client = mockClient(chain, [:])
+        3.times { chain.add(address) }
+        def follower = new ChainFollower(client)
+        def connected = []
+        def failing = true
+        follower.addListener(new ChainListener() {
+            void blockConnected(int height, Block block) {
+                if (height == 1 && failing) {
+                    failing = false
+                    throw new IllegalStateException("Can't write")
+                }
+                connected << height
+            }
+            void blockDisconnected(int height, Block block) { }
+        })
+
+        when:
+        follower.sync()
+
+        then:
+        thrown(IllegalStateException)
+        follower.tipHeight == 0
+        follower.tipHash == chain.blocks[0].hash
+
+        when:
+        def count = follower.sync()
+
+        then:
+        count == 2
+        connected == [0, 1, 2]
+        follower.tipHash == chain.blocks[2].hash
+    }
+
+    def "a block is delivered again only to the listeners that failed on it"() {
+        given:
+        def chain = new TestChain()
+        def client = mockClient(chain, [:])
+        3.times { chain.add(address) }
+        def follower = new ChainFollower(client)
+        def first = []
+        def second = []
+        def failing = true
+        follower.addListener(new ChainListener() {
+            void blockConnected(int height, Block block) {
+                if (first && first.last() != height - 1) {
+                    throw new IllegalStateException("Block at height $height does not connect")
+                }
+                first << height
+            }
+            void blockDisconnected(int height, Block block) { }
+        })
+        follower.addListener(new ChainListener() {
+            void blockConnected(int height, Block block) {
+                if (height == 1 && failing) {
+                    failing = false
+                    throw new IllegalStateException("Can't write")
+                }
+                second << height
+            }
+            void blockDisconnected(int height, Block block) { }
+        })
+
+        when:
+        follower.sync()
+
+        then: "the first listener has block 1, the second doesn't"
+        thrown(IllegalStateException)
+        first == [0, 1]
+        second == [0]
+        follower.tipHeight == 1
+
+        when:
+        def count = follower.sync()
+
+        then:
+        count == 1
+        first == [0, 1, 2]
+        second == [0, 1, 2]
+        follower.tipHash == chain.blocks[2].hash
+    }
+
+    def "a stale block is disconnected only from the listeners that have it"() {
+        given:
+        def chain = new TestChain()
+        def stale = [:]
+        def client = mockClient(chain, stale)
+        3.times { chain.add(address) }
+        def follower = new ChainFollower(client)
+        def disconnected = [[], []]
+        def failing = true
+        2.times { n ->
+            follower.addListener(new ChainListener() {
+                void blockConnected(int height, Block block) {
+                    if (n == 1 && height == 2 && failing) {
+                        failing = false
+                        throw new IllegalStateException("Can't write")
+                    }
+                }
+                void blockDisconnected(int height, Block block) { disconnected[n] << height }
+            })
+        }
+
+        when: "the second listener fails on block 2, which is then replaced"
+        follower.sync()
+
+        then:
+        thrown(IllegalStateException)
+        follower.tipHeight == 2
+
+        when:
+        stale[chain.blocks[2].hash] = chain.blocks[2]
+        chain.addOn(chain.blocks[1], address)
+        def count = follower.sync()
+
+        then:
+        disconnected == [[2], []]
+        count == 1
+        follower.tipHash == chain.blocks[2].hash
+    }
+
+    private BitcoinClient mockClient(TestChain chain, Map<Sha256Hash, Block> stale) {
+        return Stub(BitcoinClient) {
+            getBlockCount() >> { chain.blocks.size() - 1 }
+            getBlockHash(_) >> { Integer h -> chain.blocks[h].hash }
+            getBlock(_ as Integer) >> { Integer h -> chain.blocks[h] }
+            getBlock(_ as Sha256Hash) >> { Sha256Hash h -> stale[h] ?: chain.blocks.find { it.hash == h } }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import org.bitcoinj.core.Block
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+/**
+ * Spock Spec for ChainJournal and JournalReader
+ */
+class ChainJournalSpec extends Specification {
+    def params = TestChain.params
+    def address = TestChain.newAddress()
+    File directory
+
+    def setup() {
+        directory = Files.createTempDirectory("journal").toFile()
+    }
+
+    def cleanup() {
+        directory.deleteDir()
+    }
+
+    def "readers receive connect and disconnect events"() {
+        given:
+        def chain = new TestChain()
+        def journal = new ChainJournal(params, directory)
+        3.times { chain.add(address) }
+        chain.blocks.eachWithIndex { block, height -> journal.blockConnected(height, block) }
+        journal.blockDisconnected(2, chain.blocks[2])
+        def reader = journal.openReader("test")
+        def events = new RecordingListener()
+
+        when:
+        def count = reader.poll(events, 100)
+
+        then:
+        count == 4
+        events.log == ["+0", "+1", "+2", "-2"]
+        events.blocks[2].hash == chain.blocks[2].hash
+        !reader.hasMore()
+        journal.height == 1
+        journal.tipHash == chain.blocks[1].hash
+
+        cleanup:
+        reader.close()
+        journal.close()
+    }
+
+    def "consumers resume at their committed offsets after a restart"() {
+        given:
+        def chain = new TestChain()
+        def journal = new ChainJournal(params, directory, 3)
+        5.times { chain.add(address) }
+        chain.blocks.eachWithIndex { block, height -> journal.blockConnected(height, block) }
+        def fast = journal.openReader("fast")
+        def slow = journal.openReader("slow")
+        fast.poll(new RecordingListener(), 4)
+        fast.commit()
+        slow.poll(new RecordingListener(), 2)
+        slow.commit()
+        slow.poll(new RecordingListener(), 2)       // Not committed
+        [fast, slow]*.close()
+        journal.close()
+
+        when:
+        def reopened = new ChainJournal(params, directory, 3)
+        def fastEvents = new RecordingListener()
+        def slowEvents = new RecordingListener()
+        def fast2 = reopened.openReader("fast")
+        def slow2 = reopened.openReader("slow")
+        fast2.poll(fastEvents, 100)
+        slow2.poll(slowEvents, 100)
+
+        then:
+        reopened.height == 4
+        reopened.tipHash == chain.blocks[4].hash
+        fastEvents.log == ["+4"]
+        slowEvents.log == ["+2", "+3", "+4"]
+
+        cleanup:
+        [fast2, slow2]*.close()
+        reopened?.close()
+    }
+
+    def "an incomplete last event is truncated"() {
+        given:
+        def chain = new TestChain()
+        def journal = new ChainJournal(params, directory, 1000)
+        3.times { chain.add(address) }
+        chain.blocks.eachWithIndex { block, height -> journal.blockConnected(height, block) }
+        def end = journal.endOffset
+        journal.channel.close()                         // Simulate a crash: no checkpoint
+        new File(directory, "journal.dat").append([0, 0, 1, 0, 67, 0] as byte[])
+
+        when:
+        def reopened = new ChainJournal(params, directory)
+
+        then:
+        reopened.endOffset == end
+        reopened.height == 2
+        reopened.tipHash == chain.blocks[2].hash
+
+        when: "the journal continues after the last complete event"
+        def next = chain.add(address)
+        reopened.blockConnected(3, next)
+        def events = new RecordingListener()
+        def reader = reopened.openReader("test")
+        reader.poll(events, 100)
+
+        then:
+        events.log == ["+0", "+1", "+2", "+3"]
+
+        cleanup:
+        reader?.close()
+        reopened?.close()
+    }
+
+    def "committing an offset forces the events before it to storage"() {
+        given:
+        def chain = new TestChain()
+        def journal = new ChainJournal(params, directory, 1000)
+        3.times { chain.add(address) }
+        chain.blocks.eachWithIndex { block, height -> journal.blockConnected(height, block) }
+        def reader = journal.openReader("test")
+
+        expect:
+        journal.forcedOffset == journal.startOffset
+
+        when:
+        reader.poll(new RecordingListener(), 2)
+        reader.commit()
+
+        then:
+        journal.forcedOffset == journal.endOffset
+
+        cleanup:
+        reader.close()
+        journal.close()
+    }
+
+    def "offsets past the end of the journal are rejected"() {
+        given:
+        def chain = new TestChain()
+        def journal = new ChainJournal(params, directory)
+        chain.add(address)
+        journal.blockConnected(0, chain.blocks[0])
+        def out = new DataOutputStream(new FileOutputStream(new File(directory, "consumer-test.offset")))
+        out.writeLong(journal.endOffset + 100)
+        out.close()
+
+        when:
+        journal.openReader("test")
+
+        then:
+        thrown(IOException)
+
+        cleanup:
+        journal.close()
+    }
+
+    def "a follower resumed from the journal doesn't fetch journaled blocks"() {
+        given:
+        def chain = new TestChain()
+        def journal = new ChainJournal(params, directory)
+        4.times { chain.add(address) }
+        (0..1).each { journal.blockConnected(it, chain.blocks[it]) }
+        def client = Mock(com.msgilligan.bitcoinj.rpc.BitcoinClient)
+        def follower = new ChainFollower(client, journal.height, journal.tipHash)
+        follower.addListener(journal)
+
+        when:
+        follower.sync()
+
+        then:
+        _ * client.getBlockCount() >> 3
+        _ * client.getBlockHash(1) >> chain.blocks[1].hash
+        1 * client.getBlock(2) >> chain.blocks[2]
+        1 * client.getBlock(3) >> chain.blocks[3]
+        0 * client.getBlock(_)
+        journal.height == 3
+
+        cleanup:
+        journal.close()
+    }
+
+    static class RecordingListener implements ChainListener {
+        List<String> log = []
+        List<Block> blocks = []
+
+        void blockConnected(int height, Block block) {
+            log << "+$height".toString()
+            blocks << block
+        }
+
+        void blockDisconnected(int height, Block block) {
+            log << "-$height".toString()
+            blocks << block
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.msgilligan.bitcoinj.rpc.BitcoinClient
+import org.bitcoinj.core.Sha256Hash
+import org.consensusj.jsonrpc.JsonRPCStatusException
+import spock.lang.Specification
+
+/**
+ * Spock Spec for MempoolMirror using a mock client
+ */
+class MempoolMirrorSpec extends Specification {
+    static List<Sha256Hash> txids = (0..<5).collect { Sha256Hash.of("tx$it".bytes) }
+
+    def "only changes are reported"() {
+        given:
+        def mempool = [txids[0], txids[1], txids[2]]
+        def client = Stub(BitcoinClient) {
+            getRawMemPoolSet() >> { setOf(mempool) }
+        }
+        def mirror = new MempoolMirror(client)
+        def added = []
+        def removed = []
+        mirror.addListener(new MempoolListener() {
+            void transactionAdded(Sha256Hash txid, JsonNode entry) { added << txid }
+            void transactionRemoved(Sha256Hash txid) { removed << txid }
+        })
+
+        when:
+        def changes = mirror.sync()
+
+        then:
+        changes == 3
+        added.toSet() == mempool.toSet()
+        removed == []
+        mirror.size() == 3
+
+        when:
+        added.clear()
+        mempool = [txids[1], txids[3], txids[4]]
+        changes = mirror.sync()
+
+        then:
+        changes == 4
+        removed.toSet() == [txids[0], txids[2]].toSet()
+        added.toSet() == [txids[3], txids[4]].toSet()
+        mirror.contains(txids[4])
+        !mirror.contains(txids[0])
+        mirror.addedCount == 5
+        mirror.removedCount == 2
+        mirror.memoryUsed() > 0
+    }
+
+    def "entries are fetched for added transactions only"() {
+        given:
+        def mempool = [txids[0]]
+        def client = Mock(BitcoinClient)
+        def mirror = new MempoolMirror(client)
+        mirror.fetchEntries = true
+        def entries = [:]
+        mirror.addListener(new MempoolListener() {
+            void transactionAdded(Sha256Hash txid, JsonNode entry) { entries[txid] = entry }
+            void transactionRemoved(Sha256Hash txid) { }
+        })
+
+        when:
+        mirror.sync()
+        mempool = [txids[0], txids[1], txids[2]]
+        mirror.sync()
+
+        then:
+        2 * client.getRawMemPoolSet() >> { setOf(mempool) }
+        1 * client.getMemPoolEntry(txids[0]) >> JsonNodeFactory.instance.objectNode().put("size", 250)
+        1 * client.getMemPoolEntry(txids[1]) >> JsonNodeFactory.instance.objectNode().put("size", 300)
+        1 * client.getMemPoolEntry(txids[2]) >> { throw new JsonRPCStatusException("Transaction not in mempool", 500, null, -5, null, null) }
+        entries[txids[0]].get("size").asInt() == 250
+        entries[txids[1]].get("size").asInt() == 300
+        entries.containsKey(txids[2])
+        entries[txids[2]] == null
+    }
+
+    private static TxidSet setOf(List<Sha256Hash> hashes) {
+        def set = new TxidSet()
+        hashes.each { set.add(it) }
+        return set
+    }
+}
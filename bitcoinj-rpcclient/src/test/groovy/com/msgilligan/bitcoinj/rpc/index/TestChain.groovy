@@ -0,0 +1,55 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import org.bitcoinj.core.Address
+import org.bitcoinj.core.Block
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.NetworkParameters
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.core.Transaction
+import org.bitcoinj.core.TransactionInput
+import org.bitcoinj.core.TransactionOutPoint
+import org.bitcoinj.params.RegTestParams
+
+/**
+ * Builds synthetic (unmined, unverified) blocks for index tests
+ */
+class TestChain {
+    static final NetworkParameters params = RegTestParams.get()
+    final List<Block> blocks = []
+    private long nonce = 0
+
+    /**
+     * Append a block with a coinbase paying `reward` to `address` and the given transactions
+     */
+    Block add(Address address, Coin reward = Coin.FIFTY_COINS, List<Transaction> txs = []) {
+        return addOn(blocks ? blocks.last() : null, address, reward, txs)
+    }
+
+    /**
+     * Build a block on `parent` (e.g. for a fork) and append it
+     */
+    Block addOn(Block parent, Address address, Coin reward = Coin.FIFTY_COINS, List<Transaction> txs = []) {
+        def coinbase = new Transaction(params)
+        coinbase.addInput(new TransactionInput(params, coinbase, [1, (byte) (nonce & 0xff), (byte) (nonce >> 8)] as byte[]))
+        coinbase.addOutput(reward, address)
+        def block = new Block(params, 1, parent ? parent.hash : Sha256Hash.ZERO_HASH, Sha256Hash.ZERO_HASH,
+                1500000000L + nonce, 0x207fffffL, nonce++, [coinbase] + txs)
+        if (parent) {
+            blocks.subList(blocks.indexOf(parent) + 1, blocks.size()).clear()
+        }
+        blocks.add(block)
+        return block
+    }
+
+    static Transaction spend(Transaction from, int vout, Address to, Coin amount) {
+        def tx = new Transaction(params)
+        tx.addInput(new TransactionInput(params, tx, [] as byte[], new TransactionOutPoint(params, vout, from.hash)))
+        tx.addOutput(amount, to)
+        return tx
+    }
+
+    static Address newAddress() {
+        return new ECKey().toAddress(params)
+    }
+}
@@ -0,0 +1,207 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.Sha256Hash
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+/**
+ * Spock Spec for TxLocationIndex
+ */
+class TxLocationIndexSpec extends Specification {
+    def address = TestChain.newAddress()
+    File file
+
+    def setup() {
+        file = Files.createTempFile("txlocation", ".idx").toFile()
+        file.delete()
+    }
+
+    def cleanup() {
+        file.delete()
+        new File(file.path + ".tmp").delete()
+    }
+
+    def "transactions are found at their height and position"() {
+        given:
+        def chain = new TestChain()
+        def index = new TxLocationIndex(file, 16)
+        chain.add(address)
+        def b1 = chain.add(address)
+        def payment = TestChain.spend(b1.transactions[0], 0, address, Coin.COIN)
+        chain.add(address, Coin.FIFTY_COINS, [payment])
+
+        when:
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+
+        then:
+        index.size() == 4
+        index.find(b1.transactions[0].hash) == [new TxLocation(1, 0)]
+        index.find(payment.hash) == [new TxLocation(2, 1)]
+        index.find(Sha256Hash.of("unknown".bytes)) == []
+
+        cleanup:
+        index.close()
+    }
+
+    def "disconnected transactions are removed"() {
+        given:
+        def chain = new TestChain()
+        def index = new TxLocationIndex(file, 16)
+        chain.add(address)
+        def b1 = chain.add(address)
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+
+        when:
+        index.blockDisconnected(1, b1)
+
+        then:
+        index.height == 0
+        index.size() == 1
+        index.find(b1.transactions[0].hash) == []
+        index.find(chain.blocks[0].transactions[0].hash) == [new TxLocation(0, 0)]
+
+        cleanup:
+        index.close()
+    }
+
+    def "the table grows and survives a restart"() {
+        given:
+        def chain = new TestChain()
+        def index = new TxLocationIndex(file, 16)
+        100.times { chain.add(address) }
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        index.close()
+
+        when:
+        def reopened = new TxLocationIndex(file)
+
+        then:
+        reopened.capacity() >= 128
+        reopened.height == 99
+        reopened.tipHash == chain.blocks[99].hash
+        chain.blocks.withIndex().every { block, height -> reopened.find(block.transactions[0].hash) == [new TxLocation(height, 0)] }
+
+        cleanup:
+        reopened?.close()
+    }
+
+    def "growing past the maximum capacity fails instead of wrapping"() {
+        given:
+        def chain = new TestChain()
+        def index = new TxLocationIndex(file, 16, 32)
+        30.times { chain.add(address) }
+
+        when: "22 entries fit in 32 slots at 70% load"
+        (0..<22).each { index.blockConnected(it, chain.blocks[it]) }
+
+        then:
+        index.capacity() == 32
+
+        when:
+        index.blockConnected(22, chain.blocks[22])
+
+        then:
+        IllegalStateException e = thrown()
+        e.cause instanceof IOException
+        index.height == 21
+        index.capacity() == 32
+
+        cleanup:
+        index.close()
+    }
+
+    def "slots of a block the header doesn't include are removed after a crash"() {
+        given:
+        def chain = new TestChain()
+        def index = new TxLocationIndex(file, 16)
+        3.times { chain.add(address) }
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        index.close()
+        def crashed = new TxLocationIndex(file)
+        def lost = chain.add(address)
+        crashed.blockConnected(3, lost)
+        crashed.flush()
+
+        when: "the header is reset like before the block (slots are written first)"
+        new RandomAccessFile(file, "rw").withCloseable { raf ->
+            raf.seek(8)
+            raf.writeInt(2)                             // height
+            raf.seek(16)
+            raf.writeLong(3)                            // count
+            raf.seek(24)
+            raf.write(chain.blocks[2].hash.bytes)       // tip
+        }
+        def reopened = new TxLocationIndex(file)
+        def fork = chain.addOn(chain.blocks[2], address)
+        reopened.blockConnected(3, fork)
+
+        then:
+        reopened.size() == 4
+        reopened.find(lost.transactions[0].hash) == []
+        reopened.find(fork.transactions[0].hash) == [new TxLocation(3, 0)]
+
+        cleanup:
+        reopened?.close()
+        crashed?.close()
+    }
+
+    def "a leftover rebuild is discarded, or used if the index file is missing"() {
+        given:
+        def chain = new TestChain()
+        def index = new TxLocationIndex(file, 16)
+        chain.add(address)
+        index.blockConnected(0, chain.blocks[0])
+        index.close()
+        def tmp = new File(file.path + ".tmp")
+
+        when: "both files exist"
+        Files.copy(file.toPath(), tmp.toPath())
+        new TxLocationIndex(file).close()
+
+        then:
+        !tmp.exists()
+        file.exists()
+
+        when: "the index file was deleted before the rename"
+        Files.move(file.toPath(), tmp.toPath())
+        def reopened = new TxLocationIndex(file)
+
+        then:
+        !tmp.exists()
+        reopened.height == 0
+        reopened.find(chain.blocks[0].transactions[0].hash) == [new TxLocation(0, 0)]
+
+        cleanup:
+        reopened?.close()
+    }
+
+    def "getRawTransaction extracts the transaction from its block"() {
+        given:
+        def chain = new TestChain()
+        def index = new TxLocationIndex(file, 16)
+        chain.add(address)
+        def b1 = chain.add(address)
+        def payment = TestChain.spend(b1.transactions[0], 0, address, Coin.COIN)
+        def b2 = chain.add(address, Coin.FIFTY_COINS, [payment])
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        BitcoinExtendedClient client = Spy(constructorArgs: [TestChain.params, new URI("http://localhost:18443"), "user", "pass"])
+        client.txLocationIndex = index
+
+        when:
+        def tx1 = client.getRawTransaction(payment.hash)
+        def tx2 = client.getRawTransaction(b2.transactions[0].hash)
+
+        then:
+        2 * client.getBlockHash(2) >> b2.hash
+        1 * client.getBlock(b2.hash) >> b2
+        0 * client.send(*_)
+        tx1.hash == payment.hash
+        tx2.hash == b2.transactions[0].hash
+
+        cleanup:
+        index.close()
+    }
+}
@@ -0,0 +1,46 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.bitcoinj.core.Sha256Hash
+import spock.lang.Specification
+
+/**
+ * Spock Spec for TxidSet
+ */
+class TxidSetSpec extends Specification {
+    def "add, contains and remove with growth"() {
+        given:
+        def set = new TxidSet()
+        def txids = (0..<1000).collect { Sha256Hash.of("tx$it".bytes) }
+
+        when:
+        txids.each { set.add(it) }
+
+        then:
+        set.size() == 1000
+        txids.every { set.contains(it) }
+        !set.add(txids[0])
+
+        when:
+        txids.eachWithIndex { txid, i -> if (i % 2) set.remove(txid) }
+
+        then:
+        set.size() == 500
+        txids.withIndex().every { txid, i -> set.contains(txid) == (i % 2 == 0) }
+        !set.remove(txids[1])
+    }
+
+    def "deserialize a JSON array of txids"() {
+        given:
+        def txids = (0..<100).collect { Sha256Hash.of("tx$it".bytes) }
+        def json = '[' + txids.collect { '"' + it + '"' }.join(',') + ']'
+
+        when:
+        TxidSet set = new ObjectMapper().readValue(json, TxidSet.class)
+
+        then:
+        set.size() == 100
+        txids.every { set.contains(it) }
+        (0..<set.slotCount()).findAll { !set.isEmpty(it) }.collect { set.get(it) }.toSet() == txids.toSet()
+    }
+}
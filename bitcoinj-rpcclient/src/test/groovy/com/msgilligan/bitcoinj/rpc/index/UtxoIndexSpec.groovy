@@ -0,0 +1,161 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient
+import org.bitcoinj.core.Coin
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+/**
+ * Spock Spec for UtxoIndex
+ */
+class UtxoIndexSpec extends Specification {
+    def alice = TestChain.newAddress()
+    def bob = TestChain.newAddress()
+
+    def "outputs are indexed by address and spent outputs are removed"() {
+        given:
+        def chain = new TestChain()
+        def index = new UtxoIndex()
+        chain.add(alice)                                        // genesis, not spendable
+        def b1 = chain.add(alice)
+        def payment = TestChain.spend(b1.transactions[0], 0, bob, Coin.COIN)
+        chain.add(bob, Coin.FIFTY_COINS, [payment])
+
+        when:
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+
+        then:
+        index.height == 2
+        index.size() == 2
+        index.getBalance(alice) == Coin.ZERO
+        index.getBalance(bob) == Coin.FIFTY_COINS.add(Coin.COIN)
+        index.listUnspent(bob)*.value.toSet() == [Coin.FIFTY_COINS, Coin.COIN].toSet()
+        index.getUtxo(payment.hash, 0).height == 2
+        index.getUtxo(b1.transactions[0].hash, 0) == null
+        index.getBalance(bob, 2, 9999) == Coin.ZERO            // both have 1 confirmation
+    }
+
+    def "disconnecting blocks restores spent outputs"() {
+        given:
+        def chain = new TestChain()
+        def index = new UtxoIndex()
+        chain.add(alice)
+        def b1 = chain.add(alice)
+        def payment = TestChain.spend(b1.transactions[0], 0, bob, Coin.COIN)
+        def b2 = chain.add(bob, Coin.FIFTY_COINS, [payment])
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+
+        when:
+        index.blockDisconnected(2, b2)
+
+        then:
+        index.height == 1
+        index.tipHash == b1.hash
+        index.size() == 1
+        index.getBalance(alice) == Coin.FIFTY_COINS
+        index.getBalance(bob) == Coin.ZERO
+    }
+
+    def "blocks that don't connect are rejected"() {
+        given:
+        def chain = new TestChain()
+        def index = new UtxoIndex()
+        chain.add(alice)
+        chain.add(alice)
+
+        when:
+        index.blockConnected(1, chain.blocks[1])
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "many outputs for many addresses"() {
+        given:
+        def chain = new TestChain()
+        def index = new UtxoIndex(16, 10)
+        def addresses = (0..<50).collect { TestChain.newAddress() }
+        chain.add(alice)
+        300.times { chain.add(addresses[it % 50], Coin.valueOf(it + 1)) }
+
+        when:
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+
+        then:
+        index.size() == 300
+        index.scriptCount() == 50
+        index.getBalance(addresses[7]) == Coin.valueOf((0..<300).findAll { it % 50 == 7 }.sum { it + 1 } as long)
+    }
+
+    def "client balance with omitted confirmation limits uses the listunspent defaults"() {
+        given:
+        def chain = new TestChain()
+        def index = new UtxoIndex()
+        chain.add(alice)
+        chain.add(alice)
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        def client = new BitcoinExtendedClient("http://localhost:18443".toURI(), "user", "pass")
+        client.utxoIndex = index
+
+        expect:
+        client.getBitcoinBalance(alice, null, null) == Coin.FIFTY_COINS
+        client.getBitcoinBalance(alice, 2, null) == Coin.ZERO
+    }
+
+    def "store records span several arena segments"() {
+        given:
+        def store = new UtxoStore(16, 4)                    // 16 records per segment
+        def txid = { int n -> (0..<32).collect { (it == 31) ? n : it } as byte[] }
+
+        when:
+        200.times { store.add(txid(it), it, it * 10L, it, it % 3) }
+        (0..<200).step(2) { store.remove(txid(it), it, null) }
+        20.times { store.add(txid(it), 1000 + it, 7L, 1, 5) }   // reuses freed records
+
+        then:
+        store.size() == 120
+        store.idLimit() == 200
+        store.value(store.find(txid(199), 199)) == 1990L
+        store.find(txid(198), 198) == -1
+        store.value(store.find(txid(3), 1003)) == 7L
+        forScript(store, 5).size() == 20
+        forScript(store, 1).collect { store.vout(it) }.toSet() == (0..<200).findAll { it % 2 == 1 && it % 3 == 1 }.toSet()
+    }
+
+    static List<Integer> forScript(UtxoStore store, long scriptHash) {
+        def ids = []
+        for (int id = store.firstForScript(scriptHash); id >= 0; id = store.nextForScript(id)) {
+            ids << id
+        }
+        return ids
+    }
+
+    def "snapshot round-trip"() {
+        given:
+        def chain = new TestChain()
+        def index = new UtxoIndex()
+        chain.add(alice)
+        def b1 = chain.add(alice)
+        def b2 = chain.add(bob, Coin.FIFTY_COINS, [TestChain.spend(b1.transactions[0], 0, bob, Coin.COIN)])
+        chain.blocks.eachWithIndex { block, height -> index.blockConnected(height, block) }
+        def file = Files.createTempFile("utxo", ".snapshot").toFile()
+        file.deleteOnExit()
+
+        when:
+        index.save(file)
+        def loaded = UtxoIndex.load(file)
+
+        then:
+        loaded.height == 2
+        loaded.tipHash == b2.hash
+        loaded.size() == index.size()
+        loaded.getBalance(bob) == index.getBalance(bob)
+
+        when: "undo data was saved too"
+        loaded.blockDisconnected(2, b2)
+
+        then:
+        loaded.getBalance(alice) == Coin.FIFTY_COINS
+    }
+}
@@ -0,0 +1,128 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo
+import com.msgilligan.bitcoinj.json.pojo.TransactionsSinceBlock
+import com.msgilligan.bitcoinj.json.pojo.WalletTransactionItem
+import com.msgilligan.bitcoinj.rpc.BitcoinClient
+import org.bitcoinj.core.Address
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.params.RegTestParams
+import spock.lang.Specification
+
+/**
+ * Spock Spec for WalletMirror using a mock client
+ */
+class WalletMirrorSpec extends Specification {
+    static final params = RegTestParams.get()
+    static final Address alice = new ECKey().toAddress(params)
+    static final Address bob = new ECKey().toAddress(params)
+    static final List<Sha256Hash> blocks = (0..<200).collect { Sha256Hash.of("block$it".bytes) }
+    static final List<Sha256Hash> txids = (0..<5).collect { Sha256Hash.of("tx$it".bytes) }
+
+    BitcoinClient client = Mock {
+        getNetParams() >> params
+        getBlockInfo(_, _) >> { Sha256Hash hash, projection -> block(blocks.indexOf(hash)) }
+    }
+
+    def "first sync fetches everything, later syncs only changes"() {
+        given:
+        def mirror = new WalletMirror(client)
+
+        when:
+        def changes = mirror.sync()
+
+        then:
+        1 * client.listSinceBlock(null, 1, false) >> since(10,
+                item(txids[0], 0, "receive", alice, Coin.COIN, 5, 10),
+                item(txids[1], 0, "receive", bob, Coin.CENT, 0, 20))
+        changes == 2
+        mirror.lastBlock == blocks[10]
+        mirror.lastHeight == 10
+        mirror.getBalance(1) == Coin.COIN
+        mirror.getBalance(0) == Coin.COIN.add(Coin.CENT)
+
+        when: "two blocks later the unconfirmed transaction is in the first one"
+        changes = mirror.sync()
+
+        then:
+        1 * client.listSinceBlock(blocks[10], 1, false) >> since(12,
+                item(txids[1], 0, "receive", bob, Coin.CENT, 2, 20),
+                item(txids[2], 1, "send", alice, Coin.CENT.negate(), 0, 30, Coin.SATOSHI.negate()))
+        changes == 2
+        mirror.getConfirmations(mirror.getHistory(alice)[0]) == 7     // confirmations grow without refetching
+        mirror.getHistory(bob)[0].height == 11
+        mirror.getReceivedByAddress(alice, 1) == Coin.COIN
+        mirror.getBalance(1) == Coin.COIN.add(Coin.CENT)
+        mirror.getBalance(0) == Coin.COIN.subtract(Coin.SATOSHI)
+        mirror.getHistory(alice)*.item*.txid == [txids[0], txids[2]]
+
+        when: "the unconfirmed send is dropped"
+        changes = mirror.sync()
+
+        then:
+        1 * client.listSinceBlock(blocks[12], 1, false) >> since(12)
+        0 * client.getBlockInfo(_, _)
+        changes == 1
+        mirror.size() == 2
+        mirror.getTransaction(txids[2]).empty
+    }
+
+    def "reorged transactions are replaced or removed"() {
+        given:
+        def mirror = new WalletMirror(client)
+        client.listSinceBlock(null, 1, false) >> since(10,
+                item(txids[0], 0, "receive", alice, Coin.COIN, 1, 10),
+                item(txids[1], 0, "receive", bob, Coin.CENT, 1, 20))
+        mirror.sync()
+
+        when:
+        def changes = mirror.sync()
+
+        then:
+        1 * client.listSinceBlock(blocks[10], 1, false) >> new TransactionsSinceBlock(
+                [item(txids[0], 0, "receive", alice, Coin.COIN, 2, 10)],
+                [item(txids[1], 0, "receive", bob, Coin.CENT, 1, 20)],
+                blocks[11])
+        changes == 2
+        mirror.getHistory(alice)[0].height == 10
+        mirror.getHistory(bob).empty
+    }
+
+    def "coinbase outputs count once mature"() {
+        given:
+        def mirror = new WalletMirror(client)
+        client.listSinceBlock(null, 1, false) >> since(100,
+                item(txids[0], 0, "generate", alice, Coin.FIFTY_COINS, 100, 1),
+                item(txids[1], 0, "immature", alice, Coin.FIFTY_COINS, 99, 2))
+        client.listSinceBlock(blocks[100], 1, false) >> since(101)
+
+        when:
+        mirror.sync()
+
+        then:
+        mirror.getBalance(1) == Coin.FIFTY_COINS
+
+        when:
+        mirror.sync()
+
+        then:
+        mirror.getBalance(1) == Coin.FIFTY_COINS.multiply(2)
+        mirror.getReceivedByAddress(alice, 1) == Coin.ZERO
+    }
+
+    static TransactionsSinceBlock since(int height, WalletTransactionItem... items) {
+        return new TransactionsSinceBlock(items as List, null, blocks[height])
+    }
+
+    static WalletTransactionItem item(Sha256Hash txid, int vout, String category, Address address, Coin amount,
+                                      int confirmations, int time, Coin fee = null) {
+        return new WalletTransactionItem(null, address, category, amount, null, vout, fee, confirmations, false,
+                null, 0, 0, txid, [], time, time, "no")
+    }
+
+    static BlockInfo block(int height) {
+        return new BlockInfo(blocks[height], 1, 0, height, 0, null, null, 0, 0, null, null, null, null, null)
+    }
+}
@@ -0,0 +1,106 @@
+package com.msgilligan.bitcoinj.rpc.index
+
+import org.bitcoinj.core.Address
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Utils
+import org.bitcoinj.script.ScriptBuilder
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Spock Spec for WatchList and WatchListMatcher
+ */
+class WatchListSpec extends Specification {
+    def params = TestChain.params
+
+    @Unroll
+    def "scripts are classified by template (bloom filter: #bloom)"() {
+        given:
+        def key = new ECKey()
+        def watched = key.toAddress(params)
+        def other = new ECKey().toAddress(params)
+        def p2sh = Address.fromP2SHHash(params, Utils.sha256hash160(ScriptBuilder.createMultiSigOutputScript(1, [key]).program))
+        def opReturn = ScriptBuilder.createOpReturnScript("hello".bytes).program
+        def list = new WatchList(10, bloom)
+
+        when:
+        list.addAddress(watched)
+        list.addAddress(p2sh)
+        list.addScript(opReturn)
+
+        then:
+        list.size() == 3
+        list.contains(ScriptBuilder.createOutputScript(watched).program)
+        list.contains(ScriptBuilder.createOutputScript(key).program)           // P2PK of the same key
+        list.contains(ScriptBuilder.createOutputScript(p2sh).program)
+        list.contains(opReturn)
+        !list.contains(ScriptBuilder.createOutputScript(other).program)
+        !list.contains(ScriptBuilder.createP2SHOutputScript(watched.hash160).program)   // Same hash, other template
+        !list.contains(witnessProgram(watched.hash160))                        // P2WPKH is a different template
+
+        where:
+        bloom << [false, true]
+    }
+
+    def "witness programs are matched by script"() {
+        given:
+        def list = new WatchList(10)
+        byte[] p2wpkh = witnessProgram(([7] * 20) as byte[])
+
+        when:
+        list.addScript(p2wpkh)
+
+        then:
+        list.contains(p2wpkh)
+    }
+
+    def "a large watch list with a bloom filter"() {
+        given:
+        def addresses = (0..<5000).collect { new ECKey().toAddress(params) }
+        def list = new WatchList(1000, true)
+
+        when:
+        addresses.each { list.addAddress(it) }
+
+        then:
+        list.size() == 5000
+        addresses.every { list.contains(ScriptBuilder.createOutputScript(it).program) }
+        (0..<1000).count { list.contains(ScriptBuilder.createOutputScript(new ECKey().toAddress(params)).program) } == 0
+        list.memoryUsed() > 0
+    }
+
+    def "blocks are matched in parallel, matches are in block order"() {
+        given:
+        def watched = (0..<20).collect { TestChain.newAddress() }
+        def list = new WatchList(watched.size(), true)
+        watched.each { list.addAddress(it) }
+        def chain = new TestChain()
+        def coinbase = chain.add(watched[0]).transactions[0]
+        def txs = (0..<1000).collect { i ->
+            def tx = TestChain.spend(coinbase, i, (i % 50 == 0) ? watched[(i / 50) as int] : TestChain.newAddress(), Coin.valueOf(i + 1))
+            tx.addOutput(Coin.SATOSHI, TestChain.newAddress())
+            tx
+        }
+        def block = chain.add(TestChain.newAddress(), Coin.FIFTY_COINS, txs)
+        def matcher = new WatchListMatcher(list)
+
+        when:
+        def matches = matcher.match(block)
+
+        then:
+        matches.size() == 20
+        matches*.txid == (0..<1000).findAll { it % 50 == 0 }.collect { txs[it].hash }
+        matches.every { it.vout == 0 }
+        matches[1].value == Coin.valueOf(51)
+        matcher.match(txs[50])*.txid == [txs[50].hash]
+        matcher.match(txs[51]) == []
+
+        cleanup:
+        matcher.close()
+    }
+
+    private static byte[] witnessProgram(byte[] hash) {
+        return ([0, hash.length] + hash.toList()) as byte[]
+    }
+}
@@ -0,0 +1,148 @@
+package com.msgilligan.bitcoinj.rpc.signing
+
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.ScriptException
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.core.Transaction
+import org.bitcoinj.core.TransactionInput
+import org.bitcoinj.core.TransactionOutPoint
+import org.bitcoinj.params.RegTestParams
+import org.bitcoinj.script.Script
+import org.bitcoinj.script.ScriptBuilder
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * Spock Spec for TransactionSigner
+ */
+class TransactionSignerSpec extends Specification {
+    static final params = RegTestParams.get()
+    static final payee = new ECKey().toAddress(params)
+    @Shared
+    TransactionSigner signer = new TransactionSigner(params, new ForkJoinPool(4))
+
+    @Unroll
+    def "signatures of #inputs inputs are the same as sequential signatures"() {
+        given:
+        def key = new ECKey()
+        def scripts = (0..<inputs).collect { i ->
+            (i % 3 == 0) ? ScriptBuilder.createOutputScript(key) : ScriptBuilder.createOutputScript(key.toAddress(params))
+        }
+        def expected = unsignedTransaction(inputs)
+        scripts.eachWithIndex { Script script, int i ->
+            def signature = expected.calculateSignature(i, key, script, Transaction.SigHash.ALL, false)
+            expected.inputs[i].scriptSig = script.isSentToRawPubKey() ?
+                    ScriptBuilder.createInputScript(signature) : ScriptBuilder.createInputScript(signature, key)
+        }
+        def tx = unsignedTransaction(inputs)
+
+        when:
+        signer.sign(tx, scripts, key)
+
+        then:
+        tx.bitcoinSerialize() == expected.bitcoinSerialize()
+        tx.inputs.eachWithIndex { TransactionInput input, int i ->
+            input.scriptSig.correctlySpends(tx, i, scripts[i])
+        }
+
+        where:
+        inputs << [1, 8, 9, 100]
+    }
+
+    def "many transactions are signed with different keys"() {
+        given:
+        def requests = (0..<20).collect { n ->
+            def keys = (0..<n).collect { new ECKey() }
+            def scripts = keys.collect { ScriptBuilder.createOutputScript(it.toAddress(params)) }
+            new SigningRequest(unsignedTransaction(n), scripts, keys)
+        }
+
+        when:
+        def signed = signer.signAll(requests)
+
+        then:
+        signed.size() == 20
+        requests.every { request ->
+            def tx = request.transaction
+            tx.inputs.withIndex().every { TransactionInput input, int i ->
+                input.scriptSig.correctlySpends(tx, i, request.scriptPubKeys[i])
+                true
+            }
+        }
+        signed[0].inputs.isEmpty()
+        signed.drop(1).every { tx -> tx.inputs.every { it.scriptSig.chunks.size() == 2 } }
+    }
+
+    def "scripts that can't be signed are rejected before signing"() {
+        given:
+        def key = new ECKey()
+        def tx = unsignedTransaction(2)
+        def scripts = [ScriptBuilder.createOutputScript(key.toAddress(params)),
+                       ScriptBuilder.createMultiSigOutputScript(1, [key])]
+
+        when:
+        signer.sign(tx, scripts, key)
+
+        then:
+        thrown(ScriptException)
+        tx.inputs.every { it.scriptBytes.length == 0 }
+    }
+
+    def "a script and key are needed for each input"() {
+        when:
+        new SigningRequest(unsignedTransaction(2), [ScriptBuilder.createOutputScript(new ECKey())], new ECKey())
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "inputs added after the request was created are rejected before signing"() {
+        given:
+        def key = new ECKey()
+        def tx = unsignedTransaction(2)
+        def request = new SigningRequest(tx, [ScriptBuilder.createOutputScript(key.toAddress(params))] * 2, key)
+        tx.addInput(new TransactionInput(params, tx, new byte[0], outPoint(2)))
+
+        when:
+        signer.sign(request)
+
+        then:
+        thrown(IllegalArgumentException)
+        tx.inputs.every { it.scriptBytes.length == 0 }
+    }
+
+    def "only a pool created by the signer is shut down on close"() {
+        given:
+        def pool = new ForkJoinPool(2)
+        def shared = new TransactionSigner(params, pool)
+        def owning = new TransactionSigner(params)
+
+        when:
+        shared.close()
+        owning.close()
+
+        then:
+        !pool.isShutdown()
+        owning.pool.isShutdown()
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    static TransactionOutPoint outPoint(int i) {
+        return new TransactionOutPoint(params, i, Sha256Hash.of([i, i >> 8] as byte[]))
+    }
+
+    static Transaction unsignedTransaction(int inputs) {
+        def tx = new Transaction(params)
+        tx.addOutput(Coin.COIN, payee)
+        (0..<inputs).each { i ->
+            tx.addInput(new TransactionInput(params, tx, new byte[0], outPoint(i)))
+        }
+        return tx
+    }
+}
@@ -0,0 +1,147 @@
+package com.msgilligan.bitcoinj.test
+
+import com.msgilligan.bitcoinj.json.pojo.SignedRawTransaction
+import com.msgilligan.bitcoinj.json.pojo.TxOutInfo
+import com.msgilligan.bitcoinj.json.pojo.UnspentOutput
+import com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.core.Transaction
+import org.bitcoinj.core.Utils
+import org.bitcoinj.params.RegTestParams
+import spock.lang.Specification
+
+/**
+ * Spock Spec for FundingPool using a mock client
+ */
+class FundingPoolSpec extends Specification {
+    static final params = RegTestParams.get()
+    static final miner = new ECKey().toAddress(params)
+    static final poolAddress = new ECKey().toAddress(params)
+    static final coinbase = new UnspentOutput(Sha256Hash.of("coinbase".bytes), 0, miner, "", null,
+            Coin.valueOf(25, 0), 101, true, true)
+    static final unspent = new TxOutInfo(Sha256Hash.ZERO_HASH, 1, Coin.COIN, [:], 1, false)
+
+    Set<String> spent = []
+    boolean failSend = false
+
+    List<Transaction> sent = []
+    BitcoinExtendedClient client = Mock {
+        getNetParams() >> params
+        getNewAddress() >>> [miner, poolAddress]
+        getBlockCount() >> 200
+        signRawTransaction(_) >> { String hex -> new SignedRawTransaction(hex, true) }
+        sendRawTransaction(_ as String, true) >> { String hex, Boolean allowHighFees ->
+            if (failSend) {
+                failSend = false
+                throw new IOException("Connection reset")
+            }
+            def tx = new Transaction(params, Utils.HEX.decode(hex))
+            sent << tx
+            tx.hash
+        }
+        getTxOut(_, _, true) >> { Sha256Hash txid, Integer vout, Boolean mempool ->
+            spent.contains("$txid:$vout".toString()) ? null : unspent
+        }
+    }
+
+    def "outputs are mined and split once, then each funding is one transaction"() {
+        given:
+        def pool = new FundingPool(client, [Coin.COIN], 10, Coin.valueOf(1000))
+        def alice = new ECKey().toAddress(params)
+        def bob = new ECKey().toAddress(params)
+
+        when:
+        def txid = pool.fund(alice, Coin.valueOf(2, 50))
+
+        then: "one block (25 BTC at height 201) is mined and matured, then split into 1 BTC outputs"
+        2 * client.listUnspent(1, _, [miner]) >>> [[], [coinbase]]
+        1 * client.generateToAddress(1 + params.spendableCoinbaseDepth, miner)
+        1 * client.generateToAddress(1, miner)
+        pool.refillCount == 1
+        sent.size() == 2
+        def fanOut = sent[0]
+        fanOut.inputs*.outpoint*.hash == [coinbase.txid]
+        fanOut.outputs.size() == 11
+        fanOut.outputs[0..9].every { it.value == Coin.COIN && it.getAddressFromP2PKHScript(params) == poolAddress }
+        1 * client.lockUnspent(false, { it*.vout == (0..9).toList() && it.every { it.txid == sent[0].hash } })
+
+        and: "the funding transaction spends three of them"
+        def funding = sent[1]
+        txid == funding.hash
+        funding.inputs*.outpoint*.hash.toSet() == [fanOut.hash].toSet()
+        funding.inputs.size() == 3
+        funding.outputs[0].value == Coin.valueOf(2, 50)
+        funding.outputs[0].getAddressFromP2PKHScript(params) == alice
+        funding.outputs[1].getAddressFromP2PKHScript(params) == miner
+        pool.availableCount == 7
+
+        when:
+        pool.fund(bob, Coin.COIN)
+
+        then: "1 BTC plus fee takes two outputs without mining"
+        0 * client.generateToAddress(*_)
+        0 * client.listUnspent(*_)
+        sent[2].inputs.size() == 2
+        pool.availableCount == 5
+    }
+
+    def "clear forgets pool outputs"() {
+        given:
+        client.listUnspent(1, _, [miner]) >>> [[], [coinbase], [coinbase]]
+        def pool = new FundingPool(client, [Coin.COIN], 10, Coin.valueOf(1000))
+        pool.fund(new ECKey().toAddress(params), Coin.CENT)
+
+        when:
+        pool.clear()
+        pool.fund(new ECKey().toAddress(params), Coin.CENT)
+
+        then:
+        1 * client.lockUnspent(true, { it.size() == 9 })
+        pool.refillCount == 2
+        pool.availableCount == 9
+    }
+
+    def "outputs spent by someone else are dropped"() {
+        given:
+        client.listUnspent(1, _, [miner]) >>> [[], [coinbase]]
+        def pool = new FundingPool(client, [Coin.COIN], 10, Coin.valueOf(1000))
+        pool.fund(new ECKey().toAddress(params), Coin.CENT)
+        def fanOut = sent[0]
+        spent << "${fanOut.hash}:1".toString() << "${fanOut.hash}:2".toString()
+
+        when:
+        pool.fund(new ECKey().toAddress(params), Coin.CENT)
+
+        then:
+        sent[2].inputs*.outpoint*.index == [3]
+        pool.availableCount == 6
+        pool.refillCount == 1
+    }
+
+    def "outputs of a transaction that failed to send go back to the pool"() {
+        given:
+        client.listUnspent(1, _, [miner]) >>> [[], [coinbase]]
+        def pool = new FundingPool(client, [Coin.COIN], 10, Coin.valueOf(1000))
+        pool.fund(new ECKey().toAddress(params), Coin.CENT)
+        def fanOut = sent[0]
+        failSend = true
+
+        when:
+        pool.fund(new ECKey().toAddress(params), Coin.valueOf(2, 0))
+
+        then:
+        thrown(IOException)
+        pool.availableCount == 9
+
+        when:
+        pool.fund(new ECKey().toAddress(params), Coin.valueOf(2, 0))
+
+        then:
+        sent[2].inputs*.outpoint*.hash.toSet() == [fanOut.hash].toSet()
+        sent[2].inputs*.outpoint*.index == [1, 2, 3]
+        pool.availableCount == 6
+        pool.refillCount == 1
+    }
+}
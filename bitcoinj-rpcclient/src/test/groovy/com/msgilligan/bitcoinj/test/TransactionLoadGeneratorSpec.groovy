@@ -0,0 +1,142 @@
+package com.msgilligan.bitcoinj.test
+
+import com.msgilligan.bitcoinj.json.pojo.BlockInfo
+import com.msgilligan.bitcoinj.rpc.BitcoinExtendedClient
+import org.bitcoinj.core.Address
+import org.bitcoinj.core.Coin
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.Sha256Hash
+import org.bitcoinj.core.Transaction
+import org.bitcoinj.core.TransactionInput
+import org.bitcoinj.core.TransactionOutPoint
+import org.bitcoinj.params.RegTestParams
+import org.consensusj.jsonrpc.JsonRPCStatusException
+import spock.lang.Specification
+
+/**
+ * Spock Spec for TransactionLoadGenerator using a mock client
+ */
+class TransactionLoadGeneratorSpec extends Specification {
+    static final params = RegTestParams.get()
+
+    Map<Sha256Hash, Transaction> funding = [:]
+    List<Transaction> mempool = Collections.synchronizedList([])
+    int rejectEvery = 0
+    long sendDelayMillis = 0
+
+    FundingSource fundingSource = Mock {
+        requestBitcoin(_, _) >> { Address address, Coin amount ->
+            def tx = new Transaction(params)
+            tx.addInput(new TransactionInput(params, tx, new byte[0],
+                    new TransactionOutPoint(params, 0, Sha256Hash.of("coinbase${funding.size()}".bytes))))
+            tx.addOutput(Coin.COIN, new ECKey().toAddress(params))
+            tx.addOutput(amount, address)
+            funding[tx.hash] = tx
+            tx.hash
+        }
+    }
+    BitcoinExtendedClient client = Mock {
+        getNetParams() >> params
+        getRawTransaction(_ as Sha256Hash) >> { Sha256Hash txid -> funding[txid] }
+        sendRawTransaction(_ as Transaction) >> { Transaction tx ->
+            if (sendDelayMillis > 0) {
+                Thread.sleep(sendDelayMillis)
+            }
+            synchronized (mempool) {
+                if (rejectEvery > 0 && (mempool.size() + 1) % rejectEvery == 0) {
+                    mempool << null
+                    throw new JsonRPCStatusException("txn-mempool-conflict", 400, "sendrawtransaction", -26, null, null)
+                }
+                mempool << tx
+            }
+            tx.hash
+        }
+        getBlockInfo(_ as Sha256Hash, _) >> { args ->
+            synchronized (mempool) {
+                def txids = mempool.findAll { it != null }*.hash as BlockInfo.Sha256HashList
+                mempool.clear()
+                new BlockInfo(args[0], 1, 0, 0, 0, null, txids, 0, 0, null, null, null, null, null)
+            }
+        }
+    }
+    BlockChainEnvironment chain = Mock {
+        waitForBlock() >> { [Sha256Hash.of("block".bytes)] }
+    }
+
+    def "prepares independent confirmed outputs and signed spends"() {
+        given:
+        def generator = new TransactionLoadGenerator(client, fundingSource, chain, Coin.valueOf(1000))
+
+        when:
+        generator.prepare(TransactionLoadGenerator.MAX_OUTPUTS_PER_FAN_OUT + 10)
+
+        then: "two fan-outs spend the funding outputs and are confirmed"
+        generator.preparedCount == TransactionLoadGenerator.MAX_OUTPUTS_PER_FAN_OUT + 10
+        funding.size() == 2
+        mempool.size() == 2
+        mempool*.outputs*.size() == [TransactionLoadGenerator.MAX_OUTPUTS_PER_FAN_OUT, 10]
+        mempool.every { it.inputs[0].outpoint.index == 1 && funding.containsKey(it.inputs[0].outpoint.hash) }
+        mempool.every { it.inputs[0].scriptSig.chunks.size() == 2 }
+    }
+
+    def "sends the prepared transactions and reports latencies and errors"() {
+        given:
+        def generator = new TransactionLoadGenerator(client, fundingSource, chain, Coin.valueOf(1000))
+        generator.concurrency = 4
+        generator.blockIntervalMillis = 0
+        generator.prepare(100)
+        mempool.clear()
+        rejectEvery = 10
+
+        when:
+        def report = generator.run()
+
+        then:
+        report.attempted == 100
+        report.accepted == 90
+        report.failed == 10
+        report.errorRate == 0.1d
+        report.errors == ["-26 txn-mempool-conflict": 10L]
+        report.unconfirmed == 0
+        report.submitLatency.count == 90
+        report.confirmationLatency.count == 90
+        report.achievedTps > 0
+        generator.preparedCount == 0
+    }
+
+    def "target rate paces the submissions"() {
+        given:
+        def generator = new TransactionLoadGenerator(client, fundingSource, chain, Coin.valueOf(1000))
+        generator.concurrency = 2
+        generator.targetRate = 200
+        generator.blockIntervalMillis = 20
+        generator.prepare(40)
+
+        when:
+        def report = generator.run()
+
+        then: "40 transactions at 200/s take at least 195ms"
+        report.accepted == 40
+        report.durationNanos >= 195_000_000L
+        report.achievedTps <= 210
+        report.unconfirmed == 0
+    }
+
+    def "submit latency is measured from the scheduled time"() {
+        given:
+        def generator = new TransactionLoadGenerator(client, fundingSource, chain, Coin.valueOf(1000))
+        generator.concurrency = 1
+        generator.targetRate = 1000
+        generator.blockIntervalMillis = 0
+        generator.prepare(10)
+        sendDelayMillis = 20
+
+        when:
+        def report = generator.run()
+
+        then: "the last send was due after 9ms but only done after 10 sends of 20ms"
+        report.accepted == 10
+        report.submitLatency.min >= 20_000
+        report.submitLatency.max >= 180_000
+    }
+}
@@ -1,5 +1,9 @@
 package org.consensusj.jsonrpc
 
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.msgilligan.bitcoinj.json.conversion.BinaryWireFormat
+import com.sun.net.httpserver.HttpServer
 import spock.lang.Ignore
 import spock.lang.Specification
 import spock.lang.Unroll
@@ -18,6 +22,175 @@ class RPCClientSpec extends Specification {
         client.serverURI == "http://localhost:8080".toURI()
     }
 
+    def "requests are sent to the wallet endpoint when a wallet name is set" () {
+        given:
+        def paths = []
+        def server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/") { exchange ->
+            paths << exchange.requestURI.path
+            def body = '{"result": 1, "error": null, "id": "1"}'.bytes
+            exchange.responseHeaders.add("Content-Type", "application/json")
+            exchange.sendResponseHeaders(200, body.length)
+            exchange.responseBody.withStream { it.write(body) }
+        }
+        server.start()
+        def client = new RPCClient("http://127.0.0.1:${server.address.port}".toURI(), "user", "pass")
+
+        when:
+        client.send("getbalance")
+        client.walletName = "spec wallet"
+        client.send("getbalance")
+        client.walletName = null
+        client.send("getblockcount")
+
+        then:
+        paths == ["/", "/wallet/spec wallet", "/"]
+        client.serverURI == "http://127.0.0.1:${server.address.port}".toURI()
+
+        cleanup:
+        server.stop(0)
+    }
+
+    @Unroll
+    def "wallet endpoint of #serverURI is #expected" () {
+        given:
+        def client = new RPCClient(serverURI.toURI(), "user", "pass")
+
+        when:
+        client.walletName = "alice"
+
+        then:
+        client.requestURI == expected.toURI()
+        client.serverURI == serverURI.toURI()
+
+        where:
+        serverURI                       | expected
+        "http://localhost:8332"         | "http://localhost:8332/wallet/alice"
+        "http://localhost:8332/"        | "http://localhost:8332/wallet/alice"
+        "http://user@host:8080/rpc"     | "http://user@host:8080/rpc/wallet/alice"
+        "http://host:8080/node/rpc/"    | "http://host:8080/node/rpc/wallet/alice"
+    }
+
+    @Unroll
+    def "result #body is copied to the generator as #expected" () {
+        given:
+        def server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/") { exchange ->
+            def bytes = body.bytes
+            exchange.responseHeaders.add("Content-Type", "application/json")
+            exchange.sendResponseHeaders(200, bytes.length)
+            exchange.responseBody.withStream { it.write(bytes) }
+        }
+        server.start()
+        def client = new RPCClient("http://127.0.0.1:${server.address.port}".toURI(), "user", "pass")
+        def output = new StringWriter()
+        def generator = new JsonFactory().createGenerator(output)
+
+        when:
+        def written = client.sendAndCopyResult("getrawmempool", [true], generator)
+        generator.flush()
+
+        then:
+        written == (expected != "")
+        output.toString() == expected
+
+        cleanup:
+        server.stop(0)
+
+        where:
+        body                                                                  | expected
+        '{"result": {"ab": {"size": 1, "depends": []}}, "error": null, "id": "1"}' | '{"ab":{"size":1,"depends":[]}}'
+        '{"id": "1", "error": null, "result": ["a", 1.5, false]}'             | '["a",1.5,false]'
+        '{"result": "00ff", "error": null, "id": "1"}'                        | '"00ff"'
+        '{"result": null, "error": null, "id": "1"}'                          | ''
+    }
+
+    def "error in response is thrown when copying the result" () {
+        given:
+        def server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/") { exchange ->
+            def bytes = '{"result": null, "error": {"code": -5, "message": "Block not found"}, "id": "1"}'.bytes
+            exchange.responseHeaders.add("Content-Type", "application/json")
+            exchange.sendResponseHeaders(200, bytes.length)
+            exchange.responseBody.withStream { it.write(bytes) }
+        }
+        server.start()
+        def client = new RPCClient("http://127.0.0.1:${server.address.port}".toURI(), "user", "pass")
+        def output = new StringWriter()
+
+        when:
+        client.sendAndCopyResult("getblock", ["00"], new JsonFactory().createGenerator(output))
+
+        then:
+        JsonRPCStatusException e = thrown()
+        e.jsonRPCCode == -5
+        e.message == "Block not found"
+        output.toString() == ""
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "requests switch to Smile after the server has answered in Smile" () {
+        given:
+        def requests = []
+        def smileMapper = new ObjectMapper(BinaryWireFormat.newSmileFactory())
+        def server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/") { exchange ->
+            def contentType = exchange.requestHeaders.getFirst("Content-Type")
+            def mapper = BinaryWireFormat.isSmile(contentType) ? smileMapper : new ObjectMapper()
+            requests << [contentType: contentType, method: mapper.readTree(exchange.requestBody).get("method").asText()]
+            def bytes = smileMapper.writeValueAsBytes([result: 1, error: null, id: "1"])
+            exchange.responseHeaders.add("Content-Type", BinaryWireFormat.SMILE_MEDIA_TYPE)
+            exchange.sendResponseHeaders(200, bytes.length)
+            exchange.responseBody.withStream { it.write(bytes) }
+        }
+        server.start()
+        def client = new RPCClient("http://127.0.0.1:${server.address.port}".toURI(), "user", "pass")
+        client.binaryWireFormat = true
+
+        when:
+        def first = client.send("getblockcount")
+        def second = client.send("getconnectioncount")
+
+        then:
+        first == 1
+        second == 1
+        requests*.method == ["getblockcount", "getconnectioncount"]
+        requests[0].contentType.startsWith("application/json")
+        BinaryWireFormat.isSmile(requests[1].contentType)
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "Smile error responses are parsed" () {
+        given:
+        def server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+        server.createContext("/") { exchange ->
+            def bytes = new ObjectMapper(BinaryWireFormat.newSmileFactory())
+                    .writeValueAsBytes([result: null, error: [code: -32601, message: "Method not found"], id: "1"])
+            exchange.responseHeaders.add("Content-Type", BinaryWireFormat.SMILE_MEDIA_TYPE)
+            exchange.sendResponseHeaders(404, bytes.length)
+            exchange.responseBody.withStream { it.write(bytes) }
+        }
+        server.start()
+        def client = new RPCClient("http://127.0.0.1:${server.address.port}".toURI(), "user", "pass")
+        client.binaryWireFormat = true
+
+        when:
+        client.send("nosuchmethod")
+
+        then:
+        JsonRPCStatusException e = thrown()
+        e.httpCode == 404
+        e.jsonRPCCode == -32601
+        e.message == "Method not found"
+
+        cleanup:
+        server.stop(0)
+    }
+
     @Unroll
     def "Base64 works for #input"(String input, String expectedResult) {
         expect:
@@ -0,0 +1,55 @@
+package com.msgilligan.bitcoinj.spring.rpc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.googlecode.jsonrpc4j.spring.JsonServiceExporter;
+import com.msgilligan.bitcoinj.json.conversion.BinaryWireFormat;
+import com.msgilligan.bitcoinj.rpcserver.SmileRpcDispatcher;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * JSON-RPC service exporter that also speaks the binary Smile format to consensusj clients
+ *
+ * Requests with a Smile `Content-Type` or a Smile `Accept` header are answered in Smile by a
+ * {@link SmileRpcDispatcher}, which writes results straight to the Smile generator (so hashes and
+ * transactions are raw bytes). All other requests are handled as plain JSON by {@link JsonServiceExporter}.
+ * See {@link BinaryWireFormat}.
+ */
+public class SmileJsonServiceExporter extends JsonServiceExporter {
+    private ObjectMapper smileMapper;
+    private SmileRpcDispatcher smileDispatcher;
+
+    /**
+     * @param smileMapper An `ObjectMapper` created with a Smile factory and configured with the same modules
+     *                    as the JSON `ObjectMapper`
+     */
+    public void setSmileObjectMapper(ObjectMapper smileMapper) {
+        this.smileMapper = smileMapper;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        super.afterPropertiesSet();
+        if (smileMapper == null) {
+            smileMapper = new ObjectMapper(BinaryWireFormat.newSmileFactory());
+        }
+        smileDispatcher = new SmileRpcDispatcher(smileMapper, getProxyForService(), getServiceInterface());
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        boolean smileRequest = BinaryWireFormat.isSmile(request.getContentType());
+        if (!smileRequest && !BinaryWireFormat.acceptsSmile(request.getHeader("Accept"))) {
+            super.handleRequest(request, response);
+            return;
+        }
+        SmileRpcDispatcher.Response rpcResponse = smileDispatcher.call(request.getInputStream(), smileRequest);
+        response.setStatus(rpcResponse.getStatus());
+        response.setContentType(BinaryWireFormat.SMILE_MEDIA_TYPE);
+        rpcResponse.writeTo(response.getOutputStream());
+        response.getOutputStream().flush();
+    }
+}
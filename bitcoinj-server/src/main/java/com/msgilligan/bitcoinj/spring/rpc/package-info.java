@@ -0,0 +1,4 @@
+/**
+ * Spring JSON-RPC server support for Bitcoin server applications and microservices.
+ */
+package com.msgilligan.bitcoinj.spring.rpc;
\ No newline at end of file